@@ -9,13 +9,11 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.redis.repository.configuration.EnableRedisRepositories;
 import org.springframework.retry.annotation.EnableRetry;
-import org.springframework.scheduling.annotation.EnableAsync;
 
 import java.time.Clock;
 
 @SpringBootApplication
 @EnableRetry
-@EnableAsync
 @EnableRedisRepositories(basePackages = {"com.mgm.payments.processing.service.repository.redis"})
 @Slf4j
 public class PdPaymentProcessingServiceApplication implements BeanPostProcessor {
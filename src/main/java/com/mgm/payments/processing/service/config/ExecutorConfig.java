@@ -0,0 +1,35 @@
+package com.mgm.payments.processing.service.config;
+
+import com.mgm.payments.processing.service.util.BoundedExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+
+/**
+ * Executors of the work done off the request threads, one per workload. They are not {@link java.util.concurrent.Executor}
+ * beans, so they do not replace the task executor Spring Boot configures for the web layer.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Publishes the audit events. Stopped before the audit publisher, so the queued events still reach its queue.
+     */
+    @Bean(destroyMethod = "shutdown")
+    @DependsOn("auditEventPublisher")
+    public BoundedExecutor auditExecutor(PPSProperties ppsProperties, MeterRegistry meterRegistry) {
+        return new BoundedExecutor("audit", ppsProperties.getAuditExecutorThreads(), ppsProperties.getAuditExecutorQueueCapacity(),
+                ppsProperties.getAuditExecutorSaturationPolicy(), ppsProperties.getExecutorShutdownTimeoutMillis(), meterRegistry);
+    }
+
+    /**
+     * Sends the capture confirmations to Payment Auth Manager
+     */
+    @Bean(destroyMethod = "shutdown")
+    public BoundedExecutor captureConfirmExecutor(PPSProperties ppsProperties, MeterRegistry meterRegistry) {
+        return new BoundedExecutor("capture-confirm", ppsProperties.getCaptureConfirmExecutorThreads(),
+                ppsProperties.getCaptureConfirmExecutorQueueCapacity(), ppsProperties.getCaptureConfirmExecutorSaturationPolicy(),
+                ppsProperties.getExecutorShutdownTimeoutMillis(), meterRegistry);
+    }
+}
@@ -2,12 +2,18 @@ package com.mgm.payments.processing.service.config;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mgm.payments.processing.service.util.BoundedExecutor.SaturationPolicy;
 import lombok.Data;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @ConfigurationProperties(prefix = "pps")
 @Data
 @Configuration
@@ -25,6 +31,7 @@ public class PPSProperties {
     private String serviceTokenClientSecret;
     private String serviceTokenGrantType;
     private String serviceTokenScope;
+    private double serviceTokenRefreshFraction = 0.8;
     //Connection Pool Properties
     private String connectionProviderName;
     private long maxIdleTime;
@@ -36,6 +43,76 @@ public class PPSProperties {
     private String ppsConfigKeys;
     private String sessionUrl;
     private Boolean readFromCache;
+    //Client Config Cache Properties
+    private long clientConfigCacheTtlSeconds = 300;
+    private long clientConfigCacheRefreshAheadSeconds = 60;
+    private long clientConfigCacheMaxStaleSeconds = 1800;
+    private int clientConfigCacheMaxSize = 1000;
+    //Payment State Near Cache Properties
+    private int paymentNearCacheMaxSize = 1000;
+    private long paymentNearCacheTtlMillis = 5000;
+    private Boolean paymentStateBinaryCodecEnabled = Boolean.FALSE;
+    //Redis TTL Properties
+    private long paymentStateTtlSeconds = 1800;
+    private Map<String, Long> paymentStateTtlSecondsByOrderType = new HashMap<>();
+    private Boolean paymentStateAdaptiveTtlEnabled = Boolean.FALSE;
+    private long paymentStateCheckOutGraceHours = 24;
+    private long paymentStateMaxTtlSeconds = 604800;
+    private Map<String, Long> redisLockTtlSeconds = new HashMap<>();
+    //Redis Circuit Breaker Properties
+    private long redisCallTimeoutMillis = 250;
+    private int redisCircuitFailureThreshold = 5;
+    private long redisCircuitOpenMillis = 10000;
+    //Node Id Lease Properties
+    private boolean nodeIdLeaseEnabled;
+    private long nodeIdLeaseTtlSeconds = 30;
+    private long nodeIdLeaseHeartbeatMillis = 5000;
+    private long nodeIdLeaseTimeoutMillis = 2000;
+    private int nodeIdLeaseCount = 1024;
+    private long idBlockSize = 10000;
+    //Audit Publisher Properties
+    private int auditQueueCapacity = 10000;
+    private int auditBatchMaxEvents = 100;
+    private long auditBatchMaxBytes = 900_000;
+    private long auditBatchLingerMillis = 50;
+    private int auditMaxInFlightBatches = 4;
+    private long auditShutdownTimeoutMillis = 5000;
+    private String auditJournalDir = System.getProperty("java.io.tmpdir") + "/pps-audit-journal";
+    private long auditJournalSegmentBytes = 64L * 1024 * 1024;
+    private long auditJournalDrainIntervalMillis = 1000;
+    private long auditJournalSendTimeoutMillis = 10000;
+    private boolean auditEnvelopeEnabled;
+    //Executor Properties
+    private int auditExecutorThreads = 2;
+    private int auditExecutorQueueCapacity = 2000;
+    private SaturationPolicy auditExecutorSaturationPolicy = SaturationPolicy.SPILL;
+    private int captureConfirmExecutorThreads = 4;
+    private int captureConfirmExecutorQueueCapacity = 500;
+    private SaturationPolicy captureConfirmExecutorSaturationPolicy = SaturationPolicy.SPILL;
+    private long executorShutdownTimeoutMillis = 5000;
+    //Capture Confirm Retry Properties
+    private int captureConfirmRetryMaxAttempts = 10;
+    private long captureConfirmRetryBaseDelayMillis = 1000;
+    private long captureConfirmRetryMaxDelayMillis = 300000;
+    private long captureConfirmRetryPollMillis = 1000;
+    private int captureConfirmRetryBatchSize = 50;
+    private long captureConfirmRetryLeaseMillis = 120000;
+    private long captureConfirmRetryTimeoutMillis = 2000;
+    private List<String> captureConfirmReplayServiceIds = new ArrayList<>();
+    private int captureConfirmReplayMaxLimit = 500;
+    //Capture Confirm Batch Properties
+    private boolean captureConfirmBatchEnabled;
+    private int captureConfirmBatchSize = 50;
+    private long captureConfirmBatchWindowMillis = 200;
+    private int captureConfirmBatchQueueCapacity = 5000;
+    private int captureConfirmBatchConcurrency = 8;
+    private String captureConfirmBatchPath = "";
+    //Payment Write Behind Properties
+    private boolean paymentWriteBehindEnabled;
+    private String paymentWriteBehindJournalDir = System.getProperty("java.io.tmpdir") + "/pps-payment-journal";
+    private long paymentWriteBehindSegmentBytes = 64L * 1024 * 1024;
+    private long paymentWriteBehindFlushIntervalMillis = 200;
+    private int paymentWriteBehindBatchSize = 25;
 
     public PPSConfig getPPSConfig(){
         try {
@@ -8,6 +8,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.repository.configuration.EnableRedisRepositories;
 
@@ -50,4 +51,13 @@ public class RedisConfig {
         template.setConnectionFactory(lettuceConnectionFactory(ppsProperties));
         return template;
     }
+
+    /**
+     * Non-blocking template for the payment state and the transaction locks. The Lettuce factory is also the reactive
+     * connection factory, so it shares the SSL and password settings and the event loop of the blocking template.
+     */
+    @Bean
+    public ReactiveStringRedisTemplate reactiveStringRedisTemplate(LettuceConnectionFactory lettuceConnectionFactory) {
+        return new ReactiveStringRedisTemplate(lettuceConnectionFactory);
+    }
 }
\ No newline at end of file
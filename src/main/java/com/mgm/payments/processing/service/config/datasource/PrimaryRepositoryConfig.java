@@ -57,6 +57,19 @@ public class PrimaryRepositoryConfig {
     @Value("${spring.jpa.hibernate.naming.physical-strategy}")
     private String hibernatePhysicalNamingStrategy;
 
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:25}")
+    private String hibernateJdbcBatchSize;
+
+    @Value("${spring.jpa.properties.hibernate.order_inserts:true}")
+    private String hibernateOrderInserts;
+
+    @Value("${spring.jpa.properties.hibernate.order_updates:true}")
+    private String hibernateOrderUpdates;
+
+    // logs the JDBC statements executed per session, to measure the statements per transaction
+    @Value("${spring.jpa.properties.hibernate.generate_statistics:false}")
+    private String hibernateGenerateStatistics;
+
     @Primary
     @Bean
     public DataSource primaryDataSource() {
@@ -85,6 +98,10 @@ public class PrimaryRepositoryConfig {
         properties.put("hibernate.hbm2ddl.auto", hibernateDdlAuto);
         properties.put("hibernate.dialect", hibernateDialect);
         properties.put("hibernate.physical_naming_strategy", hibernatePhysicalNamingStrategy);
+        properties.put("hibernate.jdbc.batch_size", hibernateJdbcBatchSize);
+        properties.put("hibernate.order_inserts", hibernateOrderInserts);
+        properties.put("hibernate.order_updates", hibernateOrderUpdates);
+        properties.put("hibernate.generate_statistics", hibernateGenerateStatistics);
         emf.setJpaPropertyMap(properties);
         return emf;
     }
@@ -15,12 +15,11 @@ public class PaymentProcessingConstants {
     public static final String PPS_AUTH_DB_ENTRY_EXCEPTION = "PPS_AUTH_DB_ENTRY_EXCEPTION";
     public static final String PAYMENT_PROCESSING_REPOSITORY_WRAPPER = "PaymentProcessingRepositoryWrapper";
     public static final String INVOKE_CAPTURE_CONFIRM = "invokeCaptureConfirm";
+    public static final String INVOKE_CAPTURE_CONFIRM_BATCH = "invokeCaptureConfirmBatch";
     public static final String GET_SERVICE_ACCESS_TOKEN = "Get Service Access Token";
     public static final String SERVICE_TOKEN_CALLER = "ServiceTokenCaller";
     public static final String AUTHORIZE_REDIS_PAYMENT_REPOSITORY_WRAPPER = "AuthorizeRedisPaymentRepositoryWrapper";
-    public static final String CAPTURE_REDIS_PAYMENT_REPOSITORY_WRAPPER = "CaptureRedisPaymentRepositoryWrapper";
     public static final String REFUND_REDIS_PAYMENT_REPOSITORY_WRAPPER = "RefundRedisPaymentRepositoryWrapper";
-    public static final String VOID_REDIS_PAYMENT_REPOSITORY_WRAPPER = "VoidRedisPaymentRepositoryWrapper";
     public static final String REDIS_PAYMENT_REPOSITORY_WRAPPER = "RedisPaymentRepositoryWrapper";
     public static final String PAYMENT_ID_NOT_FOUND = "PaymentId not found in PPS DB!";
 
@@ -110,6 +109,8 @@ public class PaymentProcessingConstants {
 
     public static final String CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
     public static final int UNIQUE_ID_LENGTH = 18;
+    // base 62 characters of any 64 bit id
+    public static final int ENCODED_ID_LENGTH = 11;
     public static final String MGM_CLUSTER_NAME = "x-mgm-cluster";
     public static final String ENV_CLUSTER_NAME = "ClusterName";
 
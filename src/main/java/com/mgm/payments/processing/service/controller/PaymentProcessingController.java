@@ -2,15 +2,17 @@ package com.mgm.payments.processing.service.controller;
 
 import brave.Span;
 import brave.Tracer;
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.enums.ApiErrorCode;
 import com.mgm.payments.processing.service.enums.RouterResponseCode;
 import com.mgm.payments.processing.service.enums.StatusResult;
+import com.mgm.payments.processing.service.events.CaptureConfirmRetryQueue;
 import com.mgm.payments.processing.service.model.HeadersDTO;
 import com.mgm.payments.processing.service.model.User;
 import com.mgm.payments.processing.service.model.payload.pps.PaymentRequest;
 import com.mgm.payments.processing.service.model.payload.pps.PaymentResponse;
 import com.mgm.payments.processing.service.model.payload.pps.exception.PaymentExceptionResponse;
 import com.mgm.payments.processing.service.service.PaymentProcessingService;
-import com.mgm.payments.processing.service.util.LogMaskingConverter;
 import com.mgm.payments.processing.service.util.PaymentProcessingUtil;
 import com.mgm.payments.processing.service.validation.group.AuthorizeGroup;
 import com.mgm.payments.processing.service.validation.group.CaptureGroup;
@@ -39,11 +41,16 @@ import static com.mgm.payments.processing.service.constants.PaymentProcessingCon
 public class PaymentProcessingController {
 
     PaymentProcessingService paymentProcessingService;
+    CaptureConfirmRetryQueue captureConfirmRetryQueue;
+    PPSProperties ppsProperties;
     Tracer tracer;
 
-    public PaymentProcessingController(PaymentProcessingService paymentProcessingService, Tracer tracer) {
+    public PaymentProcessingController(PaymentProcessingService paymentProcessingService, CaptureConfirmRetryQueue captureConfirmRetryQueue,
+                                       PPSProperties ppsProperties, Tracer tracer) {
 
         this.paymentProcessingService = paymentProcessingService;
+        this.captureConfirmRetryQueue = captureConfirmRetryQueue;
+        this.ppsProperties = ppsProperties;
         this.tracer = tracer;
     }
 
@@ -122,7 +129,9 @@ public class PaymentProcessingController {
                                                            @Parameter(hidden = true) @RequestAttribute("user") User user) {
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
-        String maskedPayload = LogMaskingConverter.mask(authRequest);
+        HeadersDTO headersDTO = new HeadersDTO(mgmSource, mgmJourneyId, mgmCorrelationId, mgmTransactionId, mgmChannel, jwtToken,
+                mgmClientId, userAgent);
+        String maskedPayload = headersDTO.getMaskedPayloads().mask(authRequest);
         String mgmId = authRequest.getMgmId() != null && !authRequest.getMgmId().isBlank() ? authRequest.getMgmId() : " ";
         String headerParams = PaymentProcessingUtil.concatenateWithComma(mgmSource, mgmChannel, mgmJourneyId, mgmCorrelationId,
                 mgmTransactionId, mgmClientId, mgmId);
@@ -130,8 +139,6 @@ public class PaymentProcessingController {
         String operationClass = PaymentProcessingUtil.concatenateWithComma(AUTHORIZE_OPERATION, CONTROLLER_CLASS_NAME);
         PaymentProcessingUtil.publishRequestLog(PPS_REQUEST_LOG_FORMAT, operationClass, headerParams, spanTrace, null, null, maskedPayload);
 
-        HeadersDTO headersDTO = new HeadersDTO(mgmSource, mgmJourneyId, mgmCorrelationId, mgmTransactionId, mgmChannel, jwtToken,
-                mgmClientId, userAgent);
         return paymentProcessingService.authorize(authRequest, user, headersDTO).map(paymentResponse ->
         {
             stopWatch.stop();
@@ -142,7 +149,7 @@ public class PaymentProcessingController {
                 status = StatusResult.S.name();
                 result = StatusResult.S.getResult();
             }
-            String maskedResponse = LogMaskingConverter.mask(paymentResponse);
+            String maskedResponse = headersDTO.getMaskedPayloads().mask(paymentResponse);
             String statusResult = PaymentProcessingUtil.concatenateWithComma(status, result);
             PaymentProcessingUtil.publishRequestLog(PPS_RESPONSE_LOG_FORMAT, operationClass, headerParams, spanTrace, statusResult, stopWatch.getTotalTimeMillis(), maskedResponse);
             return (new ResponseEntity<>(paymentResponse, HttpStatus.OK));
@@ -203,15 +210,15 @@ public class PaymentProcessingController {
                                                          @Parameter(hidden = true) @RequestAttribute("user") User user) {
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
-        String maskedRequest = LogMaskingConverter.mask(captureRequest);
+        HeadersDTO headersDTO = new HeadersDTO(mgmSource, mgmJourneyId, mgmCorrelationId, mgmTransactionId, mgmChannel, jwtToken,
+                mgmClientId, userAgent);
+        String maskedRequest = headersDTO.getMaskedPayloads().mask(captureRequest);
         String mgmId = captureRequest.getMgmId() != null && !captureRequest.getMgmId().isBlank() ? captureRequest.getMgmId() : " ";
         String headerParams = PaymentProcessingUtil.concatenateWithComma(mgmSource, mgmChannel, mgmJourneyId, mgmCorrelationId,
                 mgmTransactionId, mgmClientId, mgmId);
         String spanTrace = PaymentProcessingUtil.concatenateWithComma(getSpanId(), getTraceId());
         String operationClass = PaymentProcessingUtil.concatenateWithComma(CAPTURE_OPERATION, CONTROLLER_CLASS_NAME);
         PaymentProcessingUtil.publishRequestLog(PPS_REQUEST_LOG_FORMAT, operationClass, headerParams, spanTrace, null, null, maskedRequest);
-        HeadersDTO headersDTO = new HeadersDTO(mgmSource, mgmJourneyId, mgmCorrelationId, mgmTransactionId, mgmChannel, jwtToken,
-                mgmClientId, userAgent);
         return paymentProcessingService.capture(captureRequest, user, headersDTO).map(paymentResponse ->
         {
             stopWatch.stop();
@@ -222,7 +229,7 @@ public class PaymentProcessingController {
                 status = StatusResult.S.name();
                 result = StatusResult.S.getResult();
             }
-            String maskedResponse = LogMaskingConverter.mask(paymentResponse);
+            String maskedResponse = headersDTO.getMaskedPayloads().mask(paymentResponse);
             String statusResult = PaymentProcessingUtil.concatenateWithComma(status, result);
             PaymentProcessingUtil.publishRequestLog(PPS_RESPONSE_LOG_FORMAT, operationClass, headerParams, spanTrace, statusResult, stopWatch.getTotalTimeMillis(), maskedResponse);
             return new ResponseEntity<>(paymentResponse, HttpStatus.OK);
@@ -271,15 +278,15 @@ public class PaymentProcessingController {
                                                         @Parameter(hidden = true) @RequestAttribute("user") User user) {
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
-        String maskedRequest = LogMaskingConverter.mask(refundRequest);
+        HeadersDTO headersDTO = new HeadersDTO(mgmSource, mgmJourneyId, mgmCorrelationId, mgmTransactionId, mgmChannel, jwtToken,
+                mgmClientId, userAgent);
+        String maskedRequest = headersDTO.getMaskedPayloads().mask(refundRequest);
         String mgmId = refundRequest.getMgmId() != null && !refundRequest.getMgmId().isBlank() ? refundRequest.getMgmId() : " ";
         String headerParams = PaymentProcessingUtil.concatenateWithComma(mgmSource, mgmChannel, mgmJourneyId, mgmCorrelationId,
                 mgmTransactionId, mgmClientId, mgmId);
         String spanTrace = PaymentProcessingUtil.concatenateWithComma(getSpanId(), getTraceId());
         String operationClass = PaymentProcessingUtil.concatenateWithComma(REFUND_OPERATION, CONTROLLER_CLASS_NAME);
         PaymentProcessingUtil.publishRequestLog(PPS_REQUEST_LOG_FORMAT, operationClass, headerParams, spanTrace, null, null, maskedRequest);
-        HeadersDTO headersDTO = new HeadersDTO(mgmSource, mgmJourneyId, mgmCorrelationId, mgmTransactionId, mgmChannel, jwtToken,
-                mgmClientId, userAgent);
         return paymentProcessingService.refund(refundRequest, user, headersDTO).map(paymentResponse ->
         {
             stopWatch.stop();
@@ -290,7 +297,7 @@ public class PaymentProcessingController {
                 status = StatusResult.S.name();
                 result = StatusResult.S.getResult();
             }
-            String maskedResponse = LogMaskingConverter.mask(paymentResponse);
+            String maskedResponse = headersDTO.getMaskedPayloads().mask(paymentResponse);
             String statusResult = PaymentProcessingUtil.concatenateWithComma(status, result);
             PaymentProcessingUtil.publishRequestLog(PPS_RESPONSE_LOG_FORMAT, operationClass, headerParams, spanTrace, statusResult, stopWatch.getTotalTimeMillis(), maskedResponse);
             return new ResponseEntity<>(paymentResponse, HttpStatus.OK);
@@ -351,15 +358,15 @@ public class PaymentProcessingController {
                                                           @Parameter(hidden = true) @RequestAttribute("user") User user) {
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
-        String maskedRequest = LogMaskingConverter.mask(paymentRequest);
+        HeadersDTO headersDTO = new HeadersDTO(mgmSource, mgmJourneyId, mgmCorrelationId, mgmTransactionId, mgmChannel, jwtToken,
+                mgmClientId, userAgent);
+        String maskedRequest = headersDTO.getMaskedPayloads().mask(paymentRequest);
         String mgmId = paymentRequest.getMgmId() != null && !paymentRequest.getMgmId().isBlank() ? paymentRequest.getMgmId() : " ";
         String headerParams = PaymentProcessingUtil.concatenateWithComma(mgmSource, mgmChannel, mgmJourneyId, mgmCorrelationId,
                 mgmTransactionId, mgmClientId, mgmId);
         String spanTrace = PaymentProcessingUtil.concatenateWithComma(getSpanId(), getTraceId());
         String operationClass = PaymentProcessingUtil.concatenateWithComma(VOID_OPERATION, CONTROLLER_CLASS_NAME);
         PaymentProcessingUtil.publishRequestLog(PPS_REQUEST_LOG_FORMAT, operationClass, headerParams, spanTrace, null, null, maskedRequest);
-        HeadersDTO headersDTO = new HeadersDTO(mgmSource, mgmJourneyId, mgmCorrelationId, mgmTransactionId, mgmChannel, jwtToken,
-                mgmClientId, userAgent);
         return paymentProcessingService.voidCall(paymentRequest, user, headersDTO).map(paymentResponse ->
         {
             stopWatch.stop();
@@ -370,10 +377,66 @@ public class PaymentProcessingController {
                 status = StatusResult.S.name();
                 result = StatusResult.S.getResult();
             }
-            String maskedResponse = LogMaskingConverter.mask(paymentResponse);
+            String maskedResponse = headersDTO.getMaskedPayloads().mask(paymentResponse);
             String statusResult = PaymentProcessingUtil.concatenateWithComma(status, result);
             PaymentProcessingUtil.publishRequestLog(PPS_RESPONSE_LOG_FORMAT, operationClass, headerParams, spanTrace, statusResult, stopWatch.getTotalTimeMillis(), maskedResponse);
             return new ResponseEntity<>(paymentResponse, HttpStatus.OK);
         });
     }
+
+    /**
+     * Queues the oldest dead-lettered capture confirmations for delivery to Payment Auth Manager again. Only the
+     * services listed in {@code pps.capture-confirm-replay-service-ids} may call it.
+     *
+     * @param limit-            most confirmations replayed, capped at {@code pps.capture-confirm-replay-max-limit}
+     * @param mgmSource-        RequestHeader
+     * @param mgmJourneyId-     RequestHeader
+     * @param mgmCorrelationId- RequestHeader
+     * @param mgmTransactionId- RequestHeader
+     * @param mgmClientId-      RequestHeader
+     * @param mgmChannel-       RequestHeader
+     * @param jwtToken-         RequestHeader Jwt Token
+     * @param userAgent-        RequestHeader
+     * @param user-             RequestAttribute
+     * @return number of confirmations replayed
+     */
+    @PostMapping(value = "/capture-confirm/dead-letters/replay", produces = "application/json")
+    @ApiResponse(
+            responseCode = "200",
+            description = "Number of capture confirmations queued again",
+            content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = Long.class)
+            ))
+    @ApiResponse(
+            responseCode = "403",
+            description = "Service not allowed to replay capture confirmations",
+            content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = PaymentExceptionResponse.class)
+            ))
+    public Mono<ResponseEntity<Long>> replayCaptureConfirmDeadLetters(@RequestParam(value = "limit", defaultValue = "100") int limit,
+                                                                      @RequestHeader(value = "x-mgm-source", required = true) String mgmSource,
+                                                                      @RequestHeader(value = "x-mgm-journey-id", required = true) String mgmJourneyId,
+                                                                      @RequestHeader(value = "x-mgm-correlation-id", required = true) String mgmCorrelationId,
+                                                                      @RequestHeader(value = "x-mgm-transaction-id", required = true) String mgmTransactionId,
+                                                                      @RequestHeader(value = "x-mgm-client-id", required = true) String mgmClientId,
+                                                                      @RequestHeader(value = "x-mgm-channel", required = true) String mgmChannel,
+                                                                      @Parameter(hidden = true) @RequestHeader(value = "Authorization", required = true) String jwtToken,
+                                                                      @RequestHeader(value = "user-agent", required = true) String userAgent,
+                                                                      @Parameter(hidden = true) @RequestAttribute("user") User user) {
+        String headerParams = PaymentProcessingUtil.concatenateWithComma(mgmSource, mgmChannel, mgmJourneyId, mgmCorrelationId,
+                mgmTransactionId, mgmClientId, " ");
+        if (user == null || user.getServiceId() == null || !ppsProperties.getCaptureConfirmReplayServiceIds().contains(user.getServiceId())) {
+            log.warn("Controller : capture confirm dead letter replay refused for serviceId : {}, headers : {}",
+                    user != null ? user.getServiceId() : null, headerParams);
+            PaymentProcessingUtil.throwException(ApiErrorCode.CAPTURE_CONFIRM_REPLAY_FORBIDDEN.getCode(),
+                    ApiErrorCode.CAPTURE_CONFIRM_REPLAY_FORBIDDEN.getDescription(), HttpStatus.FORBIDDEN);
+        }
+        int cappedLimit = Math.min(Math.max(limit, 1), ppsProperties.getCaptureConfirmReplayMaxLimit());
+        log.info("Controller : serviceId : {} replaying up to {} capture confirm dead letters, headers : {}",
+                user.getServiceId(), cappedLimit, headerParams);
+        return captureConfirmRetryQueue.replayDeadLetters(cappedLimit)
+                .map(replayed -> new ResponseEntity<>(replayed, HttpStatus.OK));
+    }
 }
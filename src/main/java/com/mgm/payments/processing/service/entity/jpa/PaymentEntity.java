@@ -2,6 +2,7 @@ package com.mgm.payments.processing.service.entity.jpa;
 
 import com.mgm.payments.processing.service.enums.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
@@ -14,6 +15,7 @@ import java.math.BigDecimal;
 @Setter
 @Builder
 @Entity
+@DynamicUpdate
 @EqualsAndHashCode
 @Table(name = "t_payment")
 public class PaymentEntity {
@@ -6,22 +6,20 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.springframework.data.redis.core.RedisHash;
 
-import javax.persistence.Column;
-import javax.persistence.Id;
 import java.math.BigDecimal;
 
-@RedisHash(value = "payment", timeToLive = 1800)
+/**
+ * State of one payment in the payment-state:&lt;paymentId&gt; redis hash. The authorization snapshot is written once the
+ * authorization succeeded; the capture and void fields hold the state of the follow-up in flight and are updated on
+ * their own, see {@link com.mgm.payments.processing.service.repository.redis.payment.PaymentStateRepository}.
+ */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class PaymentRedisEntity {
 
-    @Id
-    @Column(updatable = false,
-            nullable = false)
     private String id;
     private TransactionType transactionType;
     private TransactionStatus transactionStatus;
@@ -51,5 +49,8 @@ public class PaymentRedisEntity {
     private Boolean isCapture;
     private Boolean isRefund;
     private Boolean isVoid;
+    private TransactionStatus captureStatus;
+    private BigDecimal captureAmount;
+    private TransactionStatus voidStatus;
 
 }
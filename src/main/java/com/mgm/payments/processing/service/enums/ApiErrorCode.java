@@ -57,7 +57,8 @@ public enum ApiErrorCode {
     FAILURE_AUTH_DB_ENTRY_EXCEPTION("00041-0008-1-00330", "DB Exception while saving the Authorize Entry !!"),
     FAILURE_CAPTURE_DB_ENTRY_EXCEPTION("00041-0008-1-00340", "DB Exception while saving the Failed Capture Entry !!"),
     PAYMENT_SESSION_EXCEPTION("00041-0008-0-00350",
-            "Exception from Payment Session ");
+            "Exception from Payment Session "),
+    CAPTURE_CONFIRM_REPLAY_FORBIDDEN("00041-0008-1-00360", "Service is not allowed to replay capture confirmations !!");
 
     private final String code;
     private final String description;
@@ -0,0 +1,14 @@
+package com.mgm.payments.processing.service.enums;
+
+/**
+ * Outcome of marking a capture or void of a payment as in flight
+ */
+public enum PaymentLockResult {
+
+    /** the transaction is marked in flight */
+    LOCKED,
+    /** the same transaction is already in flight or has succeeded */
+    DUPLICATE,
+    /** the other transaction (void for a capture, capture for a void) is in flight or has succeeded */
+    CONFLICT
+}
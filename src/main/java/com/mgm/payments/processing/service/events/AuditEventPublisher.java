@@ -0,0 +1,377 @@
+package com.mgm.payments.processing.service.events;
+
+import com.azure.core.credential.AzureKeyCredential;
+import com.azure.core.exception.HttpResponseException;
+import com.azure.core.util.BinaryData;
+import com.azure.messaging.eventgrid.EventGridPublisherAsyncClient;
+import com.azure.messaging.eventgrid.EventGridPublisherClientBuilder;
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.constants.AuditTrailConstants;
+import com.mgm.payments.processing.service.model.AuditRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the audit trail events to Event Grid through one long-lived publisher client. Events are put on a bounded
+ * queue and sent in batches, closed by event count, byte size or linger time. When the queue is full or Event Grid is
+ * failing, the events are spilled to the {@link AuditSpillJournal} and a drainer replays them in order once a send
+ * succeeds again, so an audit outage neither loses events nor blocks the payment flow. A journal batch Event Grid
+ * rejects is split to find the events it refuses, those are moved to the dead letter file of the journal so that they
+ * do not hold up the events behind them.
+ */
+@Component
+public class AuditEventPublisher {
+
+    private final Logger logger = LoggerFactory.getLogger(AuditEventPublisher.class);
+
+    private final PPSProperties ppsProperties;
+    private final AuditSpillJournal spillJournal;
+    private final MeterRegistry meterRegistry;
+    private final BlockingQueue<PendingEvent> queue;
+    private final Semaphore inFlightBatches;
+    private final Counter droppedEvents;
+    private final Counter failedEvents;
+    private final Counter spilledEvents;
+    private final Counter replayedEvents;
+    private final Counter deadLetteredEvents;
+    private final Timer sendLatency;
+    private volatile EventGridPublisherAsyncClient<BinaryData> eventGridClient;
+    private volatile boolean running;
+    // set when a send fails, new events go straight to the journal until the drainer gets a batch through
+    private volatile boolean failing;
+    private Thread batchThread;
+    private Thread drainThread;
+    // only used by the batch thread, holds the event that did not fit in the previous batch
+    private PendingEvent carryOver;
+
+    @Autowired
+    public AuditEventPublisher(PPSProperties ppsProperties, AuditSpillJournal spillJournal, MeterRegistry meterRegistry) {
+        this.ppsProperties = ppsProperties;
+        this.spillJournal = spillJournal;
+        this.meterRegistry = meterRegistry;
+        this.queue = new ArrayBlockingQueue<>(ppsProperties.getAuditQueueCapacity());
+        this.inFlightBatches = new Semaphore(ppsProperties.getAuditMaxInFlightBatches());
+        Gauge.builder("pps.audit.queue.depth", queue, BlockingQueue::size)
+                .description("Audit events waiting to be sent").register(meterRegistry);
+        this.droppedEvents = Counter.builder("pps.audit.events.dropped")
+                .description("Audit events dropped because neither the queue nor the journal took them").register(meterRegistry);
+        this.failedEvents = Counter.builder("pps.audit.events.failed")
+                .description("Audit events in batches Event Grid did not accept").register(meterRegistry);
+        this.spilledEvents = Counter.builder("pps.audit.events.spilled")
+                .description("Audit events written to the spill journal").register(meterRegistry);
+        this.replayedEvents = Counter.builder("pps.audit.events.replayed")
+                .description("Audit events sent from the spill journal").register(meterRegistry);
+        this.deadLetteredEvents = Counter.builder("pps.audit.events.dead.lettered")
+                .description("Audit events Event Grid refused, moved to the dead letter file").register(meterRegistry);
+        this.sendLatency = Timer.builder("pps.audit.send.latency")
+                .description("Latency of one audit batch send").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        batchThread = new Thread(this::runBatches, "audit-publisher");
+        batchThread.setDaemon(true);
+        batchThread.start();
+        drainThread = new Thread(this::runDrain, "audit-journal-drainer");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    /**
+     * Stops taking batches once the queue is drained and waits for the batches in flight
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        drainThread.interrupt();
+        batchThread.join(ppsProperties.getAuditShutdownTimeoutMillis());
+        if (!inFlightBatches.tryAcquire(ppsProperties.getAuditMaxInFlightBatches(),
+                ppsProperties.getAuditShutdownTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+            logger.warn("Events: AuditEventPublisher stopped with audit batches still in flight");
+        }
+    }
+
+    /**
+     * Queues the audit request for the next batch, or spills it to the journal when the queue is full or Event Grid
+     * is failing
+     *
+     * @param auditRequest - AuditRequest
+     * @return false if the event was dropped
+     */
+    public boolean publish(AuditRequest auditRequest) {
+        PendingEvent event = new PendingEvent(BinaryData.fromObject(auditRequest).toBytes());
+        if (!failing && queue.offer(event)) {
+            return true;
+        }
+        return spill(event);
+    }
+
+    /**
+     * Writes the audit request straight to the journal, for events that could not even be queued for publishing
+     *
+     * @param auditRequest - AuditRequest
+     * @return false if the event was dropped
+     */
+    public boolean spill(AuditRequest auditRequest) {
+        return spill(new PendingEvent(BinaryData.fromObject(auditRequest).toBytes()));
+    }
+
+    private boolean spill(PendingEvent event) {
+        if (spillJournal.append(event.bytes)) {
+            spilledEvents.increment();
+            return true;
+        }
+        droppedEvents.increment();
+        logger.warn("Events: audit queue full and journal append failed, dropping audit event");
+        return false;
+    }
+
+    private void runBatches() {
+        while (running || carryOver != null || !queue.isEmpty()) {
+            try {
+                List<PendingEvent> batch = nextBatch();
+                if (!batch.isEmpty()) {
+                    send(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Events: AuditEventPublisher batch loop exception : {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Waits up to the linger time for the first event, then collects events until the batch is full by count or
+     * bytes or the linger time since the first event has passed
+     *
+     * @return batch of events, empty if none arrived
+     */
+    List<PendingEvent> nextBatch() throws InterruptedException {
+        long lingerNanos = TimeUnit.MILLISECONDS.toNanos(ppsProperties.getAuditBatchLingerMillis());
+        PendingEvent first = carryOver != null ? carryOver : queue.poll(lingerNanos, TimeUnit.NANOSECONDS);
+        carryOver = null;
+        if (first == null) {
+            return Collections.emptyList();
+        }
+        List<PendingEvent> batch = new ArrayList<>();
+        batch.add(first);
+        long batchBytes = first.bytes.length;
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < ppsProperties.getAuditBatchMaxEvents()) {
+            long wait = deadline - System.nanoTime();
+            PendingEvent next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null) {
+                break;
+            }
+            if (batchBytes + next.bytes.length > ppsProperties.getAuditBatchMaxBytes()) {
+                carryOver = next;
+                break;
+            }
+            batch.add(next);
+            batchBytes += next.bytes.length;
+        }
+        return batch;
+    }
+
+    private void send(List<PendingEvent> batch) throws InterruptedException {
+        inFlightBatches.acquire();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            sendEvents(toBinaryData(batch))
+                    .doFinally(signalType -> {
+                        sample.stop(sendLatency);
+                        inFlightBatches.release();
+                    })
+                    .subscribe(unused -> { }, e -> onSendFailure(batch, e),
+                            () -> logger.debug("audit batch of {} events sent", batch.size()));
+        } catch (RuntimeException e) {
+            inFlightBatches.release();
+            onSendFailure(batch, e);
+        }
+    }
+
+    private void onSendFailure(List<PendingEvent> batch, Throwable e) {
+        failing = true;
+        failedEvents.increment(batch.size());
+        logger.error("Events: audit batch of {} events failed, spilling to journal, exception : {}", batch.size(), e.getMessage());
+        batch.forEach(this::spill);
+    }
+
+    private void runDrain() {
+        while (running) {
+            try {
+                Thread.sleep(ppsProperties.getAuditJournalDrainIntervalMillis());
+                drainJournal();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Events: audit journal drain exception : {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Sends the journal events in order, one batch at a time, until the journal is empty or a send fails for a reason
+     * other than Event Grid refusing the events
+     */
+    void drainJournal() {
+        while (!spillJournal.isEmpty()) {
+            List<byte[]> events = spillJournal.peek(ppsProperties.getAuditBatchMaxEvents(), ppsProperties.getAuditBatchMaxBytes());
+            if (events.isEmpty()) {
+                // nothing readable from the read position, the commit moves it past the segments left without records
+                spillJournal.commit(0);
+                break;
+            }
+            int replayed = replay(events);
+            if (replayed > 0) {
+                spillJournal.commit(replayed);
+            }
+            if (replayed < events.size()) {
+                failing = true;
+                return;
+            }
+        }
+        failing = false;
+    }
+
+    /**
+     * Sends the events as one batch. A batch Event Grid refuses is split in halves and sent again, down to the single
+     * events it refuses, which are dead-lettered.
+     *
+     * @param events - events in journal order
+     * @return number of events from the start that were sent or dead-lettered, less than all when a send failed for a
+     * reason that may go away
+     */
+    private int replay(List<byte[]> events) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+        List<BinaryData> batch = new ArrayList<>(events.size());
+        events.forEach(event -> batch.add(BinaryData.fromBytes(event)));
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            sendEvents(batch).block(Duration.ofMillis(ppsProperties.getAuditJournalSendTimeoutMillis()));
+        } catch (RuntimeException e) {
+            if (!isRefused(e)) {
+                logger.warn("Events: audit journal replay failed, retrying in {} ms, exception : {}",
+                        ppsProperties.getAuditJournalDrainIntervalMillis(), e.getMessage());
+                return 0;
+            }
+            if (events.size() == 1) {
+                return deadLetter(events.get(0), e) ? 1 : 0;
+            }
+            int half = events.size() / 2;
+            int replayed = replay(events.subList(0, half));
+            return replayed < half ? replayed : half + replay(events.subList(half, events.size()));
+        } finally {
+            sample.stop(sendLatency);
+        }
+        replayedEvents.increment(events.size());
+        return events.size();
+    }
+
+    private boolean deadLetter(byte[] event, RuntimeException e) {
+        if (!spillJournal.deadLetter(String.valueOf(e.getMessage()), event)) {
+            logger.warn("Events: audit event refused by Event Grid could not be dead-lettered, retrying in {} ms",
+                    ppsProperties.getAuditJournalDrainIntervalMillis());
+            return false;
+        }
+        deadLetteredEvents.increment();
+        logger.error("Events: audit event of {} bytes refused by Event Grid, moved to the dead letter file : {}",
+                event.length, e.getMessage());
+        return true;
+    }
+
+    // a 4xx for the events themselves, such as a malformed or oversized event; an auth failure, a timeout or
+    // throttling is not about the events and is retried
+    static boolean isRefused(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof HttpResponseException && ((HttpResponseException) cause).getResponse() != null) {
+                int status = ((HttpResponseException) cause).getResponse().getStatusCode();
+                return status >= 400 && status < 500 && status != 401 && status != 403 && status != 408 && status != 429;
+            }
+        }
+        return false;
+    }
+
+    Mono<Void> sendEvents(List<BinaryData> batch) {
+        return getEventGridPublisherClient().sendEvents(batch);
+    }
+
+    private static List<BinaryData> toBinaryData(List<PendingEvent> batch) {
+        List<BinaryData> events = new ArrayList<>(batch.size());
+        batch.forEach(event -> events.add(BinaryData.fromBytes(event.bytes)));
+        return events;
+    }
+
+    /**
+     * Method fetches EventGridPublisher Client, built once from the key vault secrets on first use
+     *
+     * @return EventGridPublisherClient
+     */
+    public EventGridPublisherAsyncClient<BinaryData> getEventGridPublisherClient() {
+        EventGridPublisherAsyncClient<BinaryData> client = eventGridClient;
+        if (client == null) {
+            synchronized (this) {
+                client = eventGridClient;
+                if (client == null) {
+                    Map<String, String> map = getTopicKeyFromVault();
+                    client = new EventGridPublisherClientBuilder().endpoint(map.get(AuditTrailConstants.TOPIC_ENDPOINT))
+                            .credential(new AzureKeyCredential(map.get(AuditTrailConstants.TOPIC_KEY)))
+                            .buildCustomEventPublisherAsyncClient();
+                    eventGridClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Fetches audit details from key vault
+     *
+     * @return Map<String, String> - key-value of audit client details
+     */
+    public Map<String, String> getTopicKeyFromVault() {
+        Map<String, String> map = new HashMap<>();
+        String keyVaultSecrets = ppsProperties.getAuditTrailSecrets();
+        JSONObject jsonSecret = new JSONObject(keyVaultSecrets);
+        String topicEndpoint = jsonSecret.getString(AuditTrailConstants.TOPIC_ENDPOINT);
+        String topicKey = jsonSecret.getString(AuditTrailConstants.TOPIC_KEY_NAME);
+        map.put(AuditTrailConstants.TOPIC_ENDPOINT, topicEndpoint);
+        map.put(AuditTrailConstants.TOPIC_KEY, topicKey);
+        return map;
+    }
+
+    static final class PendingEvent {
+        private final byte[] bytes;
+
+        private PendingEvent(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.mgm.payments.processing.service.events;
+
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.util.DeadLetterFile;
+import com.mgm.payments.processing.service.util.SegmentJournal;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.util.List;
+
+/**
+ * Journal on local disk for the audit events that could not be sent to Event Grid, a {@link SegmentJournal} of
+ * {@code pps.audit-journal-segment-bytes} segments in {@code pps.audit-journal-dir}. The events are replayed in order
+ * after a restart. The events Event Grid refuses are moved to {@code audit.dead} next to the segments.
+ */
+@Component
+public class AuditSpillJournal {
+
+    private static final String JOURNAL_NAME = "audit";
+    private static final String DEAD_LETTER_FILE = JOURNAL_NAME + ".dead";
+
+    private final PPSProperties ppsProperties;
+    private SegmentJournal journal;
+    private DeadLetterFile deadLetterFile;
+
+    @Autowired
+    public AuditSpillJournal(PPSProperties ppsProperties, MeterRegistry meterRegistry) {
+        this.ppsProperties = ppsProperties;
+        Gauge.builder("pps.audit.journal.segments", this, AuditSpillJournal::segmentCount)
+                .description("Audit journal segment files on disk").register(meterRegistry);
+    }
+
+    /**
+     * Opens the journal directory, maps the segments left by a previous run and restores the read position
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        Path journalDir = Paths.get(ppsProperties.getAuditJournalDir());
+        SegmentJournal segmentJournal = new SegmentJournal(JOURNAL_NAME, journalDir, ppsProperties.getAuditJournalSegmentBytes(), false);
+        segmentJournal.open();
+        deadLetterFile = new DeadLetterFile(journalDir.resolve(DEAD_LETTER_FILE), Clock.systemUTC());
+        journal = segmentJournal;
+    }
+
+    @PreDestroy
+    public void close() {
+        journal.close();
+    }
+
+    /**
+     * Appends one event to the journal, rotating to a new segment when the current one is full
+     *
+     * @param event - event JSON
+     * @return false if the event is larger than a segment or could not be written
+     */
+    public boolean append(byte[] event) {
+        return journal.append(event);
+    }
+
+    /**
+     * Reads the next events from the read position without consuming them
+     *
+     * @param maxEvents - maximum number of events
+     * @param maxBytes  - maximum total size of the events, at least one event is returned
+     * @return events in the order they were appended
+     */
+    public List<byte[]> peek(int maxEvents, long maxBytes) {
+        return journal.peek(maxEvents, maxBytes);
+    }
+
+    /**
+     * Consumes the given number of events from the read position
+     *
+     * @param count - number of events returned by {@link #peek(int, long)} that were sent
+     */
+    public void commit(int count) {
+        journal.commit(count);
+    }
+
+    /**
+     * Writes an event that will never be sent to the dead letter file, the caller still commits it
+     *
+     * @param reason - why the event was refused
+     * @param event  - event JSON
+     * @return false if the event could not be written
+     */
+    public boolean deadLetter(String reason, byte[] event) {
+        return deadLetterFile.append(reason, event);
+    }
+
+    public boolean isEmpty() {
+        return journal.isEmpty();
+    }
+
+    private int segmentCount() {
+        SegmentJournal current = journal;
+        return current != null ? current.segmentCount() : 0;
+    }
+}
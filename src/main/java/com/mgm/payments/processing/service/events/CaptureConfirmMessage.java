@@ -0,0 +1,40 @@
+package com.mgm.payments.processing.service.events;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.mgm.payments.processing.service.model.CaptureConfirm;
+import com.mgm.payments.processing.service.model.HeadersDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Capture confirmation to deliver to Payment Auth Manager, as kept by the {@link CaptureConfirmRetryQueue}. The
+ * caller token of the headers is not stored, Payment Auth Manager is called with the service token.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CaptureConfirmMessage {
+
+    private String id;
+    private CaptureConfirm captureConfirm;
+    @JsonIgnoreProperties({"authorization", "maskedPayloads", "auditEnvelope"})
+    private HeadersDTO headers;
+    // failed deliveries so far
+    private int attempt;
+    private String lastError;
+    // true once the message is in the retry queue, a delivery then has to acknowledge it
+    @JsonIgnore
+    private boolean queued;
+
+    public static CaptureConfirmMessage of(CaptureConfirm captureConfirm, HeadersDTO headersDTO) {
+        return CaptureConfirmMessage.builder().id(UUID.randomUUID().toString()).captureConfirm(captureConfirm)
+                .headers(headersDTO).build();
+    }
+}
@@ -0,0 +1,286 @@
+package com.mgm.payments.processing.service.events;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.exception.ExternalServiceException;
+import com.mgm.payments.processing.service.exception.PaymentProcessingException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Durable queue of the capture confirmations, kept in Redis so that a confirmation survives a restart and is delivered
+ * by whichever instance claims it first. A confirmation is stored as in flight before its first delivery and deleted
+ * when Payment Auth Manager took it, so one whose instance stops before that is delivered again once its lease
+ * expires. The payloads are held in a
+ * hash and the message ids in three sorted sets: due, scored by the time of the next delivery; in flight, scored by
+ * the expiry of the lease of the claiming instance, after which they are due again; and dead letters, scored by the
+ * time of the last failure. A failed delivery is due again after an exponential backoff with jitter, and moves to the
+ * dead letters once {@code pps.capture-confirm-retry-max-attempts} are used up or Payment Auth Manager rejected it.
+ * Delivery is at least once, a message can be confirmed again when its acknowledgement is lost.
+ */
+@Component
+public class CaptureConfirmRetryQueue {
+
+    static final String MESSAGES_KEY = "pps:capture-confirm:messages";
+    static final String DUE_KEY = "pps:capture-confirm:due";
+    static final String IN_FLIGHT_KEY = "pps:capture-confirm:in-flight";
+    static final String DEAD_LETTER_KEY = "pps:capture-confirm:dead";
+
+    private static final RedisScript<Long> MOVE_SCRIPT =
+            RedisScript.of(new ClassPathResource("redis/capture-confirm-move.lua"), Long.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_SCRIPT =
+            RedisScript.of(new ClassPathResource("redis/capture-confirm-claim.lua"), List.class);
+    private static final RedisScript<Long> ACK_SCRIPT =
+            RedisScript.of(new ClassPathResource("redis/capture-confirm-ack.lua"), Long.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    private final Logger logger = LoggerFactory.getLogger(CaptureConfirmRetryQueue.class);
+
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+    private final PPSProperties ppsProperties;
+    private final Clock clock;
+    private final Counter retriedMessages;
+    private final Counter deadLetteredMessages;
+    private final Counter replayedMessages;
+    private final Counter lostMessages;
+    private volatile long backlog;
+    private volatile long deadLetters;
+
+    @Autowired
+    public CaptureConfirmRetryQueue(ReactiveStringRedisTemplate reactiveStringRedisTemplate, PPSProperties ppsProperties,
+                                    Clock clock, MeterRegistry meterRegistry) {
+        this.reactiveStringRedisTemplate = reactiveStringRedisTemplate;
+        this.ppsProperties = ppsProperties;
+        this.clock = clock;
+        Gauge.builder("pps.capture.confirm.backlog", this, queue -> queue.backlog)
+                .description("Capture confirmations due or in flight in the retry queue").register(meterRegistry);
+        Gauge.builder("pps.capture.confirm.dead.letters", this, queue -> queue.deadLetters)
+                .description("Capture confirmations in the dead letters").register(meterRegistry);
+        this.retriedMessages = Counter.builder("pps.capture.confirm.retried")
+                .description("Failed capture confirmations queued for a retry").register(meterRegistry);
+        this.deadLetteredMessages = Counter.builder("pps.capture.confirm.dead.lettered")
+                .description("Capture confirmations moved to the dead letters").register(meterRegistry);
+        this.replayedMessages = Counter.builder("pps.capture.confirm.replayed")
+                .description("Dead letters queued again for delivery").register(meterRegistry);
+        this.lostMessages = Counter.builder("pps.capture.confirm.lost")
+                .description("Capture confirmations the retry queue could not store").register(meterRegistry);
+    }
+
+    /**
+     * Stores a new message as in flight before its first delivery, leased for
+     * {@code pps.capture-confirm-retry-lease-millis}; it is delivered again by any instance when the delivery is
+     * neither acknowledged nor failed by then
+     *
+     * @param message - CaptureConfirmMessage
+     * @return completes once the message is stored
+     */
+    public Mono<Void> lease(CaptureConfirmMessage message) {
+        return move(message, IN_FLIGHT_KEY, clock.millis() + ppsProperties.getCaptureConfirmRetryLeaseMillis(), DUE_KEY, DEAD_LETTER_KEY)
+                .doOnSuccess(unused -> message.setQueued(true));
+    }
+
+    /**
+     * Queues the message for delivery right away, for confirmations that could not be sent when captured
+     *
+     * @param message - CaptureConfirmMessage
+     * @return completes once the message is stored
+     */
+    public Mono<Void> enqueue(CaptureConfirmMessage message) {
+        return move(message, DUE_KEY, clock.millis(), IN_FLIGHT_KEY, DEAD_LETTER_KEY)
+                .doOnSuccess(unused -> message.setQueued(true));
+    }
+
+    /**
+     * Queues a failed message for a retry after its backoff, or moves it to the dead letters when it cannot succeed
+     * or its attempts are used up. Never fails, a message that could not be stored is logged, and counted as lost
+     * unless it was claimed from the queue and is still leased.
+     *
+     * @param message - CaptureConfirmMessage
+     * @param error   - failure of the delivery
+     */
+    public Mono<Void> failed(CaptureConfirmMessage message, Throwable error) {
+        message.setAttempt(message.getAttempt() + 1);
+        message.setLastError(describe(error));
+        String orderReferenceNumber = message.getCaptureConfirm().getOrderReferenceNumber();
+        Mono<Void> stored;
+        if (isRejected(error) || message.getAttempt() >= ppsProperties.getCaptureConfirmRetryMaxAttempts()) {
+            logger.error("Redis: capture confirm for orderReferenceNumber : {} failed {} times, moving to dead letters : {}",
+                    orderReferenceNumber, message.getAttempt(), message.getLastError());
+            stored = move(message, DEAD_LETTER_KEY, clock.millis(), DUE_KEY, IN_FLIGHT_KEY)
+                    .doOnSuccess(unused -> deadLetteredMessages.increment());
+        } else {
+            long delay = backoffMillis(message.getAttempt());
+            logger.warn("Redis: capture confirm for orderReferenceNumber : {} failed, retry {} in {} ms : {}",
+                    orderReferenceNumber, message.getAttempt(), delay, message.getLastError());
+            stored = move(message, DUE_KEY, clock.millis() + delay, IN_FLIGHT_KEY, DEAD_LETTER_KEY)
+                    .doOnSuccess(unused -> retriedMessages.increment());
+        }
+        return stored.doOnSuccess(unused -> message.setQueued(true)).onErrorResume(e -> {
+            if (message.isQueued()) {
+                logger.error("Redis: capture confirm for orderReferenceNumber : {} not rescheduled, delivered again once its lease expires : {}",
+                        orderReferenceNumber, e.getMessage());
+            } else {
+                lostMessages.increment();
+                logger.error("Redis: capture confirm for orderReferenceNumber : {} lost, retry queue unavailable : {}",
+                        orderReferenceNumber, e.getMessage());
+            }
+            return Mono.empty();
+        });
+    }
+
+    /**
+     * Deletes a delivered message from the queue, a no-op for a message that was never queued
+     *
+     * @param message - CaptureConfirmMessage
+     */
+    public Mono<Void> acknowledge(CaptureConfirmMessage message) {
+        if (!message.isQueued()) {
+            return Mono.empty();
+        }
+        return reactiveStringRedisTemplate.execute(ACK_SCRIPT, List.of(MESSAGES_KEY, IN_FLIGHT_KEY, DUE_KEY), List.of(message.getId()))
+                .timeout(timeout()).then();
+    }
+
+    /**
+     * Claims the messages due for delivery, they are leased for {@code pps.capture-confirm-retry-lease-millis} and
+     * delivered again by any instance if not acknowledged or failed by then
+     *
+     * @param maxMessages - most messages claimed
+     * @return claimed messages, oldest due first
+     */
+    @SuppressWarnings("unchecked")
+    public List<CaptureConfirmMessage> claimDue(int maxMessages) {
+        if (maxMessages <= 0) {
+            return Collections.emptyList();
+        }
+        long now = clock.millis();
+        List<String> payloads = reactiveStringRedisTemplate.execute(CLAIM_SCRIPT, List.of(MESSAGES_KEY, DUE_KEY, IN_FLIGHT_KEY),
+                        List.of(String.valueOf(now), String.valueOf(now + ppsProperties.getCaptureConfirmRetryLeaseMillis()),
+                                String.valueOf(maxMessages)))
+                .next().block(timeout());
+        if (payloads == null) {
+            return Collections.emptyList();
+        }
+        List<CaptureConfirmMessage> messages = new ArrayList<>(payloads.size());
+        for (String payload : payloads) {
+            try {
+                CaptureConfirmMessage message = MAPPER.readValue(payload, CaptureConfirmMessage.class);
+                message.setQueued(true);
+                messages.add(message);
+            } catch (JsonProcessingException e) {
+                // left in flight, it stays there for the lease and is claimed again, logged without its card data
+                logger.error("Redis: capture confirm message of {} bytes could not be read : {}", payload.length(), e.getOriginalMessage());
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Queues the oldest dead letters for delivery again, with their attempts reset
+     *
+     * @param maxMessages - most messages replayed
+     * @return number of messages replayed
+     */
+    public Mono<Long> replayDeadLetters(int maxMessages) {
+        return reactiveStringRedisTemplate.opsForZSet().range(DEAD_LETTER_KEY, Range.closed(0L, maxMessages - 1L))
+                .collectList()
+                .filter(ids -> !ids.isEmpty())
+                .flatMapMany(ids -> reactiveStringRedisTemplate.<String, String>opsForHash().multiGet(MESSAGES_KEY, ids)
+                        .flatMapIterable(payloads -> payloads.stream().filter(Objects::nonNull).collect(Collectors.toList())))
+                .concatMap(payload -> {
+                    CaptureConfirmMessage message;
+                    try {
+                        message = MAPPER.readValue(payload, CaptureConfirmMessage.class);
+                    } catch (JsonProcessingException e) {
+                        logger.error("Redis: dead letter of {} bytes could not be read : {}", payload.length(), e.getOriginalMessage());
+                        return Mono.empty();
+                    }
+                    message.setAttempt(0);
+                    return enqueue(message).thenReturn(message);
+                })
+                .count()
+                .doOnNext(replayed -> {
+                    replayedMessages.increment(replayed);
+                    logger.info("Redis: {} capture confirm dead letters queued again", replayed);
+                });
+    }
+
+    /**
+     * Reads the sizes of the queue for the backlog gauges
+     */
+    public void refreshBacklog() {
+        Long due = reactiveStringRedisTemplate.opsForZSet().size(DUE_KEY).block(timeout());
+        Long inFlight = reactiveStringRedisTemplate.opsForZSet().size(IN_FLIGHT_KEY).block(timeout());
+        Long dead = reactiveStringRedisTemplate.opsForZSet().size(DEAD_LETTER_KEY).block(timeout());
+        backlog = (due != null ? due : 0) + (inFlight != null ? inFlight : 0);
+        deadLetters = dead != null ? dead : 0;
+    }
+
+    /**
+     * Delay before retry {@code attempt}: the base delay doubled for each earlier attempt up to the maximum delay, of
+     * which a random half is taken off so that the confirmations failed together are not retried together
+     */
+    long backoffMillis(int attempt) {
+        long delay = Math.min(ppsProperties.getCaptureConfirmRetryMaxDelayMillis(),
+                ppsProperties.getCaptureConfirmRetryBaseDelayMillis() << Math.min(attempt - 1, 30));
+        return delay - ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    // 4xx other than the retryable ones, the same confirmation will not be accepted later
+    private static boolean isRejected(Throwable error) {
+        return error instanceof PaymentProcessingException && ((PaymentProcessingException) error).getHttpStatus() != null
+                && ((PaymentProcessingException) error).getHttpStatus().is4xxClientError();
+    }
+
+    private static String describe(Throwable error) {
+        if (error instanceof ExternalServiceException) {
+            return ((ExternalServiceException) error).getStatusCode() + " " + ((ExternalServiceException) error).getRouterError();
+        }
+        if (error instanceof PaymentProcessingException) {
+            PaymentProcessingException exception = (PaymentProcessingException) error;
+            return exception.getHttpStatus() + " " + (exception.getExceptionResponse() != null
+                    ? exception.getExceptionResponse().getDeveloperMessage() : "");
+        }
+        return error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+    }
+
+    private Mono<Void> move(CaptureConfirmMessage message, String target, long score, String... others) {
+        String payload;
+        try {
+            payload = MAPPER.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+        Flux<Long> moved = reactiveStringRedisTemplate.execute(MOVE_SCRIPT, List.of(MESSAGES_KEY, target, others[0], others[1]),
+                List.of(message.getId(), payload, String.valueOf(score)));
+        return moved.timeout(timeout()).then();
+    }
+
+    private Duration timeout() {
+        return Duration.ofMillis(ppsProperties.getCaptureConfirmRetryTimeoutMillis());
+    }
+}
@@ -9,7 +9,6 @@ import com.mgm.payments.processing.service.enums.StatusResult;
 import com.mgm.payments.processing.service.exception.ExternalServiceException;
 import com.mgm.payments.processing.service.exception.PaymentProcessingException;
 import com.mgm.payments.processing.service.model.HeadersDTO;
-import com.mgm.payments.processing.service.model.ServiceToken;
 import com.mgm.payments.processing.service.model.payload.clientconfig.ClientConfigPayload;
 import com.mgm.payments.processing.service.model.payload.pps.exception.PaymentExceptionResponse;
 import com.mgm.payments.processing.service.util.LogMaskingConverter;
@@ -17,15 +16,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StopWatch;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.time.Clock;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.mgm.payments.processing.service.constants.PaymentProcessingConstants.*;
 
@@ -35,15 +36,20 @@ public class ClientConfigurationServiceCaller {
 
     private final WebClient webClient;
     private final PPSProperties ppsProperties;
-    private final ServiceTokenCaller tokenCaller;
+    private final ServiceTokenManager serviceTokenManager;
     private final Tracer tracer;
+    private final Clock clock;
+    private final ConcurrentHashMap<String, ClientConfigCacheEntry> clientConfigCache = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Mono<ClientConfigPayload>> inFlightLoads = new ConcurrentHashMap<>();
 
     @Autowired
-    public ClientConfigurationServiceCaller(PPSProperties ppsProperties, WebClient webClient, ServiceTokenCaller tokenCaller, Tracer tracer) {
+    public ClientConfigurationServiceCaller(PPSProperties ppsProperties, WebClient webClient, ServiceTokenManager serviceTokenManager, Tracer tracer,
+                                            Clock clock) {
         this.ppsProperties = ppsProperties;
         this.webClient = webClient;
-        this.tokenCaller = tokenCaller;
+        this.serviceTokenManager = serviceTokenManager;
         this.tracer = tracer;
+        this.clock = clock;
     }
 
     private String getTraceId() {
@@ -62,42 +68,100 @@ public class ClientConfigurationServiceCaller {
         return null;
     }
 
-    public ClientConfigPayload getClientConfig(HeadersDTO headersDTO) {
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start();
-        logger.info(PPS_REQUEST_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, GET_CLIENT_CONFIG, CLIENT_CONFIG_CLASS_NAME, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
-                headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(), headersDTO.getClientId());
-        String url = ppsProperties.getClientConfigurationUrl()+headersDTO.getClientId();
-        logger.info(PPS_REQUEST_URL_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, GET_CLIENT_CONFIG, CLIENT_CONFIG_CLASS_NAME, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
-                headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(), url);
-        ServiceToken accessToken = tokenCaller.getServiceAccessToken(headersDTO);
-        WebClient.ResponseSpec responseSpec = webClient.get().uri(url)
-                .headers(httpHeaders -> {
-                    httpHeaders.set(PaymentProcessingConstants.MGM_SOURCE, headersDTO.getMgmSource());
-                    httpHeaders.set(PaymentProcessingConstants.JOURNEY_ID, headersDTO.getMgmJourneyId());
-                    httpHeaders.set(PaymentProcessingConstants.CORRELATION_ID, headersDTO.getMgmCorrelationId());
-                    httpHeaders.set(PaymentProcessingConstants.TRANSACTION_ID, headersDTO.getMgmTransactionId());
-                    httpHeaders.set(PaymentProcessingConstants.CHANNEL, "WEB");
-                    httpHeaders.setBearerAuth(accessToken.getAccess_token());
-                }).retrieve()
-                .onStatus(HttpStatus::isError, clientResponse -> getException(clientResponse, headersDTO));
-        
-        ResponseEntity<ClientConfigPayload> responseEntity = responseSpec.toEntity(ClientConfigPayload.class).block();
-        if(responseEntity != null && responseEntity.getBody() != null){
-            String maskedResponse = LogMaskingConverter.mask(responseEntity.getBody());
-            stopWatch.stop();
-            logger.info(PPS_RESPONSE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, GET_CLIENT_CONFIG, CLIENT_CONFIG_CLASS_NAME, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
-                    headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(),
-                    headersDTO.getClientId(), "", getSpanId(), getTraceId(),
-                    StatusResult.S.name(), StatusResult.S.getResult(), stopWatch.getTotalTimeMillis(), maskedResponse);
-            return responseEntity.getBody();
+    /**
+     * Returns the client configuration for the clientId in the headers. Entries are served from an in-memory cache,
+     * refreshed in the background once they are within the refresh-ahead window, and kept as a stale fallback while
+     * the configuration service is failing. Concurrent misses for the same clientId share a single upstream call.
+     *
+     * @param headersDTO - headers params
+     * @return ClientConfigPayload
+     */
+    public Mono<ClientConfigPayload> getClientConfig(HeadersDTO headersDTO) {
+        String clientId = headersDTO.getClientId();
+        ClientConfigCacheEntry entry = clientConfigCache.get(clientId);
+        if (entry == null) {
+            return loadClientConfig(clientId, headersDTO);
         }
-        String res = "Client Config is not available for the clientId : " + headersDTO.getClientId();
-        logger.info(PPS_RESPONSE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, GET_CLIENT_CONFIG, CLIENT_CONFIG_CLASS_NAME, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
-                headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(),
-                headersDTO.getClientId(), "", getSpanId(), getTraceId(),
-                StatusResult.F.name(), StatusResult.F.getResult(), stopWatch.getTotalTimeMillis(), res);
-        return null;
+        long age = clock.millis() - entry.loadedAt;
+        long ttl = ppsProperties.getClientConfigCacheTtlSeconds() * 1000;
+        if (age < ttl) {
+            if (age >= ttl - ppsProperties.getClientConfigCacheRefreshAheadSeconds() * 1000) {
+                loadClientConfig(clientId, headersDTO).subscribe(clientConfig -> { }, e ->
+                        logger.warn("Refresh ahead of client config failed for clientId : {}, serving cached entry", clientId, e));
+            }
+            return Mono.just(entry.clientConfig);
+        }
+        return loadClientConfig(clientId, headersDTO).onErrorResume(e -> {
+            if (age < ttl + ppsProperties.getClientConfigCacheMaxStaleSeconds() * 1000) {
+                logger.warn("Client config call failed for clientId : {}, serving stale entry loaded {} ms ago", clientId, age);
+                return Mono.just(entry.clientConfig);
+            }
+            return Mono.error(e);
+        });
+    }
+
+    private Mono<ClientConfigPayload> loadClientConfig(String clientId, HeadersDTO headersDTO) {
+        return inFlightLoads.computeIfAbsent(clientId, id -> fetchClientConfig(headersDTO)
+                .doOnNext(clientConfig -> putClientConfig(id, clientConfig))
+                .doFinally(signalType -> inFlightLoads.remove(id))
+                .cache());
+    }
+
+    private void putClientConfig(String clientId, ClientConfigPayload clientConfig) {
+        if (!clientConfigCache.containsKey(clientId) && clientConfigCache.size() >= ppsProperties.getClientConfigCacheMaxSize()) {
+            clientConfigCache.entrySet().stream()
+                    .min(Comparator.comparingLong(cacheEntry -> cacheEntry.getValue().loadedAt))
+                    .ifPresent(eldest -> clientConfigCache.remove(eldest.getKey(), eldest.getValue()));
+        }
+        clientConfigCache.put(clientId, new ClientConfigCacheEntry(clientConfig, clock.millis()));
+    }
+
+    Mono<ClientConfigPayload> fetchClientConfig(HeadersDTO headersDTO) {
+        return Mono.defer(() -> {
+            StopWatch stopWatch = new StopWatch();
+            stopWatch.start();
+            logger.info(PPS_REQUEST_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, GET_CLIENT_CONFIG, CLIENT_CONFIG_CLASS_NAME, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                    headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(), headersDTO.getClientId());
+            String url = ppsProperties.getClientConfigurationUrl()+headersDTO.getClientId();
+            logger.info(PPS_REQUEST_URL_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, GET_CLIENT_CONFIG, CLIENT_CONFIG_CLASS_NAME, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                    headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(), url);
+            return serviceTokenManager.getServiceToken(headersDTO)
+                    .flatMap(accessToken -> webClient.get().uri(url)
+                            .headers(httpHeaders -> {
+                                httpHeaders.set(PaymentProcessingConstants.MGM_SOURCE, headersDTO.getMgmSource());
+                                httpHeaders.set(PaymentProcessingConstants.JOURNEY_ID, headersDTO.getMgmJourneyId());
+                                httpHeaders.set(PaymentProcessingConstants.CORRELATION_ID, headersDTO.getMgmCorrelationId());
+                                httpHeaders.set(PaymentProcessingConstants.TRANSACTION_ID, headersDTO.getMgmTransactionId());
+                                httpHeaders.set(PaymentProcessingConstants.CHANNEL, "WEB");
+                                httpHeaders.setBearerAuth(accessToken.getAccess_token());
+                            }).retrieve()
+                            .onStatus(HttpStatus::isError, clientResponse -> getException(clientResponse, headersDTO))
+                            .toEntity(ClientConfigPayload.class))
+                    .flatMap(responseEntity -> {
+                        ClientConfigPayload clientConfig = responseEntity.getBody();
+                        if (clientConfig != null) {
+                            String maskedResponse = LogMaskingConverter.mask(clientConfig);
+                            stopWatch.stop();
+                            logger.info(PPS_RESPONSE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, GET_CLIENT_CONFIG, CLIENT_CONFIG_CLASS_NAME, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                                    headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(),
+                                    headersDTO.getClientId(), "", getSpanId(), getTraceId(),
+                                    StatusResult.S.name(), StatusResult.S.getResult(), stopWatch.getTotalTimeMillis(), maskedResponse);
+                            return Mono.just(clientConfig);
+                        }
+                        String res = "Client Config is not available for the clientId : " + headersDTO.getClientId();
+                        stopWatch.stop();
+                        logger.info(PPS_RESPONSE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, GET_CLIENT_CONFIG, CLIENT_CONFIG_CLASS_NAME, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                                headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(),
+                                headersDTO.getClientId(), "", getSpanId(), getTraceId(),
+                                StatusResult.F.name(), StatusResult.F.getResult(), stopWatch.getTotalTimeMillis(), res);
+                        return Mono.error(new PaymentProcessingException(PaymentExceptionResponse.builder()
+                                .dateTime(ZonedDateTime.now())
+                                .errorCode(ApiErrorCode.CLIENT_CONFIG_CALL_ERROR.getCode())
+                                .errorMessage(ApiErrorCode.CLIENT_CONFIG_CALL_ERROR.getDescription())
+                                .developerMessage(res)
+                                .build(), HttpStatus.INTERNAL_SERVER_ERROR));
+                    });
+        });
     }
 
     private Mono<ExternalServiceException> getException(ClientResponse clientResponse, HeadersDTO headersDTO) {
@@ -139,4 +203,14 @@ public class ClientConfigurationServiceCaller {
                     throw new PaymentProcessingException(response, httpStatus);
                 })).cast(ExternalServiceException.class);
     }
+
+    private static final class ClientConfigCacheEntry {
+        private final ClientConfigPayload clientConfig;
+        private final long loadedAt;
+
+        private ClientConfigCacheEntry(ClientConfigPayload clientConfig, long loadedAt) {
+            this.clientConfig = clientConfig;
+            this.loadedAt = loadedAt;
+        }
+    }
 }
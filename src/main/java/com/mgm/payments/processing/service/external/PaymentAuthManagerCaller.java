@@ -2,6 +2,9 @@ package com.mgm.payments.processing.service.external;
 
 import brave.Span;
 import brave.Tracer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mgm.payments.processing.service.config.PPSProperties;
 import com.mgm.payments.processing.service.constants.PaymentProcessingConstants;
 import com.mgm.payments.processing.service.enums.ApiErrorCode;
@@ -9,8 +12,9 @@ import com.mgm.payments.processing.service.enums.StatusResult;
 import com.mgm.payments.processing.service.exception.PaymentProcessingException;
 import com.mgm.payments.processing.service.exception.ExternalServiceException;
 import com.mgm.payments.processing.service.model.CaptureConfirm;
+import com.mgm.payments.processing.service.model.CaptureConfirmBatchItem;
+import com.mgm.payments.processing.service.model.CaptureConfirmBatchResult;
 import com.mgm.payments.processing.service.model.HeadersDTO;
-import com.mgm.payments.processing.service.model.ServiceToken;
 import com.mgm.payments.processing.service.model.payload.pps.exception.PaymentExceptionResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,11 +25,10 @@ import org.springframework.util.StopWatch;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
-import reactor.util.retry.Retry;
 
-import java.time.Duration;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -33,17 +36,19 @@ import static com.mgm.payments.processing.service.constants.PaymentProcessingCon
 
 @Service
 public class PaymentAuthManagerCaller {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     private final Logger logger = LoggerFactory.getLogger(PaymentAuthManagerCaller.class);
 
     private final WebClient webClient;
     private final PPSProperties ppsProperties;
-    private final ServiceTokenCaller tokenCaller;
+    private final ServiceTokenManager serviceTokenManager;
     private final Tracer tracer;
 
-    public PaymentAuthManagerCaller(WebClient webClient, PPSProperties ppsProperties, ServiceTokenCaller tokenCaller, Tracer tracer) {
+    public PaymentAuthManagerCaller(WebClient webClient, PPSProperties ppsProperties, ServiceTokenManager serviceTokenManager, Tracer tracer) {
         this.webClient = webClient;
         this.ppsProperties = ppsProperties;
-        this.tokenCaller = tokenCaller;
+        this.serviceTokenManager = serviceTokenManager;
         this.tracer = tracer;
     }
 
@@ -63,6 +68,14 @@ public class PaymentAuthManagerCaller {
         return null;
     }
 
+    /**
+     * Sends the capture confirmation once, a retryable failure is signalled as ExternalServiceException and retried
+     * from the CaptureConfirmRetryQueue rather than held here
+     *
+     * @param request    - CaptureConfirm
+     * @param headersDTO - headers params
+     * @return Payment Auth Manager response
+     */
     public Mono<String> invokeCaptureConfirm(CaptureConfirm request, HeadersDTO headersDTO){
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
@@ -73,54 +86,7 @@ public class PaymentAuthManagerCaller {
         String url = ppsProperties.getPamUrl() + PaymentProcessingConstants.PAM_URL;
         logger.info(PPS_REQUEST_URL_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, INVOKE_CAPTURE_CONFIRM, PAM_CLASS_NAME, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
                 headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(), url);
-        ServiceToken serviceAccessToken = tokenCaller.getServiceAccessToken(headersDTO);
-        WebClient.ResponseSpec responseSpec = webClient.post().uri(url)
-                .contentType(MediaType.APPLICATION_JSON)
-                .headers(httpHeaders -> {
-                    httpHeaders.set(PaymentProcessingConstants.MGM_SOURCE, headersDTO.getMgmSource());
-                    httpHeaders.set(PaymentProcessingConstants.JOURNEY_ID, headersDTO.getMgmJourneyId());
-                    httpHeaders.set(PaymentProcessingConstants.CORRELATION_ID, headersDTO.getMgmCorrelationId());
-                    httpHeaders.set(PaymentProcessingConstants.TRANSACTION_ID, headersDTO.getMgmTransactionId());
-                    httpHeaders.set(PaymentProcessingConstants.CHANNEL, headersDTO.getMgmChannel());
-                    httpHeaders.set(PaymentProcessingConstants.CLIENT_ID, headersDTO.getClientId());
-                    httpHeaders.setBearerAuth(serviceAccessToken.getAccess_token());
-                    httpHeaders.set(PaymentProcessingConstants.USER_AGENT, headersDTO.getUserAgent());
-                })
-                .body(BodyInserters.fromValue(request)).retrieve()
-                .onStatus(httpStatus -> getRetryErrorCode(httpStatus.value()), error ->
-                        error.bodyToMono(String.class)
-                                .flatMap(e -> {
-                                    throw new ExternalServiceException(e, error.statusCode());
-                                }))
-                .onStatus(HttpStatus::isError, error -> error.bodyToMono(String.class)
-                        .flatMap(e -> {
-                            PaymentExceptionResponse errorResponse = PaymentExceptionResponse.builder()
-                                    .errorMessage(ApiErrorCode.PAM_CVS_EXCEPTION.getDescription())
-                                    .errorCode(ApiErrorCode.PAM_CVS_EXCEPTION.getCode())
-                                    .dateTime(ZonedDateTime.now())
-                                    .developerMessage(e)
-                                    .build();
-                            throw new PaymentProcessingException(errorResponse, error.statusCode());
-                        })
-
-                );
-        Mono<String> response = responseSpec.bodyToMono(String.class)
-                .retryWhen(Retry.backoff(ppsProperties.getRetryCount(), Duration.ofSeconds(ppsProperties.getRetryDelay()))
-                        .filter(ExternalServiceException.class::isInstance)
-                        .onRetryExhaustedThrow(((retryBackoffSpec, retrySignal) -> {
-                            String errorMessage = ApiErrorCode.RETRY_EXCEEDS_ERROR.getDescription();
-                            String errorCode = ApiErrorCode.RETRY_EXCEEDS_ERROR.getCode();
-                            String error = ((ExternalServiceException) retrySignal.failure()).getRouterError();
-                            HttpStatus httpStatus = ((ExternalServiceException) retrySignal.failure()).getStatusCode();
-                            PaymentExceptionResponse errorResponse = PaymentExceptionResponse.builder()
-                                    .errorMessage(errorMessage)
-                                    .errorCode(errorCode)
-                                    .dateTime(ZonedDateTime.now())
-                                    .developerMessage(error)
-                                    .build();
-                            throw new PaymentProcessingException(errorResponse, httpStatus);
-                        }))
-                );
+        Mono<String> response = post(url, request, headersDTO);
         stopWatch.stop();
         logger.info(PPS_RESPONSE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, INVOKE_CAPTURE_CONFIRM, PAM_CLASS_NAME, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
                 headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(),
@@ -128,6 +94,96 @@ public class PaymentAuthManagerCaller {
                 StatusResult.S.name(), StatusResult.S.getResult(), stopWatch.getTotalTimeMillis(), response);
         return response;
     }
+
+    /**
+     * Sends capture confirmations of the same caller in one call to the batch confirm endpoint of Payment Auth
+     * Manager, which answers with one response per confirmation in the order of the request. Every item carries the
+     * journey, correlation and transaction ids of its own capture. A confirmation it did not accept answers with its
+     * HTTP status, 400 or more, in a numeric {@code status} field, and is failed with the exception a single capture
+     * confirm call throws for that status.
+     *
+     * @param requests   - confirmations with their tracing ids
+     * @param headersDTO - headers params of the caller, of the first confirmation for the ids
+     * @return Payment Auth Manager response of each confirmation
+     */
+    public Mono<List<CaptureConfirmBatchResult>> invokeCaptureConfirmBatch(List<CaptureConfirmBatchItem> requests, HeadersDTO headersDTO) {
+        String url = ppsProperties.getPamUrl() + ppsProperties.getCaptureConfirmBatchPath();
+        logger.info(PPS_REQUEST_URL_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, INVOKE_CAPTURE_CONFIRM_BATCH, PAM_CLASS_NAME, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(), url);
+        return post(url, requests, headersDTO).map(response -> {
+            JsonNode responses;
+            try {
+                responses = MAPPER.readTree(response);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("capture confirm batch response is not JSON : " + e.getOriginalMessage());
+            }
+            if (!responses.isArray() || responses.size() != requests.size()) {
+                throw new IllegalStateException("capture confirm batch of " + requests.size() + " answered with "
+                        + (responses.isArray() ? responses.size() : 0) + " responses");
+            }
+            List<CaptureConfirmBatchResult> results = new ArrayList<>(responses.size());
+            responses.forEach(result -> results.add(toBatchResult(result)));
+            return results;
+        });
+    }
+
+    private CaptureConfirmBatchResult toBatchResult(JsonNode result) {
+        String response = result.toString();
+        JsonNode status = result.get("status");
+        if (status == null || !status.isInt() || status.asInt() < 400) {
+            return CaptureConfirmBatchResult.confirmed(response);
+        }
+        HttpStatus httpStatus = HttpStatus.resolve(status.asInt());
+        if (httpStatus == null) {
+            httpStatus = HttpStatus.INTERNAL_SERVER_ERROR;
+        }
+        if (getRetryErrorCode(status.asInt())) {
+            return CaptureConfirmBatchResult.failed(response, new ExternalServiceException(response, httpStatus));
+        }
+        PaymentExceptionResponse errorResponse = PaymentExceptionResponse.builder()
+                .errorMessage(ApiErrorCode.PAM_CVS_EXCEPTION.getDescription())
+                .errorCode(ApiErrorCode.PAM_CVS_EXCEPTION.getCode())
+                .dateTime(ZonedDateTime.now())
+                .developerMessage(response)
+                .build();
+        return CaptureConfirmBatchResult.failed(response, new PaymentProcessingException(errorResponse, httpStatus));
+    }
+
+    private Mono<String> post(String url, Object body, HeadersDTO headersDTO) {
+        return serviceTokenManager.getServiceToken(headersDTO)
+                .flatMap(serviceAccessToken -> webClient.post().uri(url)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .headers(httpHeaders -> {
+                            httpHeaders.set(PaymentProcessingConstants.MGM_SOURCE, headersDTO.getMgmSource());
+                            httpHeaders.set(PaymentProcessingConstants.JOURNEY_ID, headersDTO.getMgmJourneyId());
+                            httpHeaders.set(PaymentProcessingConstants.CORRELATION_ID, headersDTO.getMgmCorrelationId());
+                            httpHeaders.set(PaymentProcessingConstants.TRANSACTION_ID, headersDTO.getMgmTransactionId());
+                            httpHeaders.set(PaymentProcessingConstants.CHANNEL, headersDTO.getMgmChannel());
+                            httpHeaders.set(PaymentProcessingConstants.CLIENT_ID, headersDTO.getClientId());
+                            httpHeaders.setBearerAuth(serviceAccessToken.getAccess_token());
+                            httpHeaders.set(PaymentProcessingConstants.USER_AGENT, headersDTO.getUserAgent());
+                        })
+                        .body(BodyInserters.fromValue(body)).retrieve()
+                        .onStatus(httpStatus -> getRetryErrorCode(httpStatus.value()), error ->
+                                error.bodyToMono(String.class)
+                                        .flatMap(e -> {
+                                            throw new ExternalServiceException(e, error.statusCode());
+                                        }))
+                        .onStatus(HttpStatus::isError, error -> error.bodyToMono(String.class)
+                                .flatMap(e -> {
+                                    PaymentExceptionResponse errorResponse = PaymentExceptionResponse.builder()
+                                            .errorMessage(ApiErrorCode.PAM_CVS_EXCEPTION.getDescription())
+                                            .errorCode(ApiErrorCode.PAM_CVS_EXCEPTION.getCode())
+                                            .dateTime(ZonedDateTime.now())
+                                            .developerMessage(e)
+                                            .build();
+                                    throw new PaymentProcessingException(errorResponse, error.statusCode());
+                                })
+
+                        )
+                        .bodyToMono(String.class));
+    }
+
     private boolean getRetryErrorCode(Integer value) {
         List<Integer> retryErrorCode = Arrays.asList(408, 425, 429, 500, 502, 503, 504);
         return retryErrorCode.stream().anyMatch(code ->
@@ -12,11 +12,9 @@ import com.mgm.payments.processing.service.enums.StatusResult;
 import com.mgm.payments.processing.service.exception.PaymentProcessingException;
 import com.mgm.payments.processing.service.exception.ExternalServiceException;
 import com.mgm.payments.processing.service.model.HeadersDTO;
-import com.mgm.payments.processing.service.model.ServiceToken;
 import com.mgm.payments.processing.service.model.payload.pps.exception.PaymentExceptionResponse;
 import com.mgm.payments.processing.service.model.payload.router.PaymentRouterRequest;
 import com.mgm.payments.processing.service.model.payload.router.PaymentRouterResponse;
-import com.mgm.payments.processing.service.util.LogMaskingConverter;
 import com.mgm.payments.processing.service.util.PaymentProcessingUtil;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
@@ -48,14 +46,14 @@ public class PaymentRouterServiceCaller {
 
     private final WebClient webClient;
     private final PPSProperties ppsProperties;
-    private final ServiceTokenCaller tokenCaller;
+    private final ServiceTokenManager serviceTokenManager;
     private final Tracer tracer;
 
     @Autowired
-    public PaymentRouterServiceCaller(WebClient webClient, PPSProperties ppsProperties, ServiceTokenCaller tokenCaller, Tracer tracer) {
+    public PaymentRouterServiceCaller(WebClient webClient, PPSProperties ppsProperties, ServiceTokenManager serviceTokenManager, Tracer tracer) {
         this.webClient = webClient;
         this.ppsProperties = ppsProperties;
-        this.tokenCaller = tokenCaller;
+        this.serviceTokenManager = serviceTokenManager;
         this.tracer = tracer;
     }
 
@@ -86,7 +84,7 @@ public class PaymentRouterServiceCaller {
      * @throws PaymentProcessingException- thrown for 4XXClientError and 5XXServerError
      */
     public Mono<ResponseEntity<PaymentRouterResponse>> invokeRouter(PaymentRouterRequest prRequest, HeadersDTO headersDTO, String paymentId) throws PaymentProcessingException {
-        String maskedRequest = LogMaskingConverter.mask(prRequest);
+        String maskedRequest = headersDTO.getMaskedPayloads().mask(prRequest);
         String methodName = prRequest.getRouterFunction() + " Router Call";
         String mgmId = prRequest.getMgmId() != null ? prRequest.getMgmId() : "";
         logger.info(PPS_REQUEST_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, methodName, EXTERNAL_CLASS_NAME, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
@@ -94,41 +92,41 @@ public class PaymentRouterServiceCaller {
                 headersDTO.getClientId(), mgmId, getSpanId(), getTraceId(), maskedRequest);
 
         long l = System.currentTimeMillis();
-        ServiceToken serviceAccessToken = tokenCaller.getServiceAccessToken(headersDTO);
         String url = ppsProperties.getPaymentRouterUrl() + PaymentProcessingConstants.ROUTER_URL;
         logger.info(PPS_REQUEST_URL_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, methodName, EXTERNAL_CLASS_NAME, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
                 headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(), url);
-        WebClient.ResponseSpec responseSpec = webClient.post().uri(url)
-                .contentType(MediaType.APPLICATION_JSON)
-                .headers(httpHeaders -> {
-                    httpHeaders.set(PaymentProcessingConstants.MGM_SOURCE, headersDTO.getMgmSource());
-                    httpHeaders.set(PaymentProcessingConstants.JOURNEY_ID, headersDTO.getMgmJourneyId());
-                    httpHeaders.set(PaymentProcessingConstants.CORRELATION_ID, headersDTO.getMgmCorrelationId());
-                    httpHeaders.set(PaymentProcessingConstants.TRANSACTION_ID, headersDTO.getMgmTransactionId());
-                    httpHeaders.set(PaymentProcessingConstants.CHANNEL, headersDTO.getMgmChannel());
-                    httpHeaders.set(PaymentProcessingConstants.CLIENT_ID, headersDTO.getClientId());
-                    httpHeaders.setBearerAuth(serviceAccessToken.getAccess_token());
-                    httpHeaders.set(PaymentProcessingConstants.USER_AGENT, headersDTO.getUserAgent());
-                })
-                .body(BodyInserters.fromValue(prRequest)).retrieve()
-                .onStatus(HttpStatus::is4xxClientError, clientResponse ->
-                        getExceptionMono(prRequest, paymentId, clientResponse, headersDTO)
-                )
-                .onStatus(HttpStatus::is5xxServerError, clientResponse ->
-                        getExceptionMono(prRequest, paymentId, clientResponse, headersDTO)
-                );
-        Mono<ResponseEntity<PaymentRouterResponse>> response = responseSpec.toEntity(PaymentRouterResponse.class)
-                .retryWhen(Retry.backoff(ppsProperties.getRetryCount(), Duration.ofSeconds(ppsProperties.getRetryDelay()))
-                        .filter(ExternalServiceException.class::isInstance)
-                        .onRetryExhaustedThrow(((retryBackoffSpec, retrySignal) -> {
-                            String developerMessage = prRequest.getRouterFunction().name() + ": " + ApiErrorCode.RETRY_EXCEEDS_ERROR.getDescription();
-                            String error = ((ExternalServiceException) retrySignal.failure()).getRouterError();
-                            HttpStatus httpStatus = ((ExternalServiceException) retrySignal.failure()).getStatusCode();
-                            PaymentExceptionResponse errorResponse = PaymentProcessingUtil.getErrorResponse(error, paymentId,
-                                    developerMessage);
-                            throw new PaymentProcessingException(errorResponse, httpStatus);
-                        }))
-                );
+        Mono<ResponseEntity<PaymentRouterResponse>> response = serviceTokenManager.getServiceToken(headersDTO)
+                .flatMap(serviceAccessToken -> webClient.post().uri(url)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .headers(httpHeaders -> {
+                            httpHeaders.set(PaymentProcessingConstants.MGM_SOURCE, headersDTO.getMgmSource());
+                            httpHeaders.set(PaymentProcessingConstants.JOURNEY_ID, headersDTO.getMgmJourneyId());
+                            httpHeaders.set(PaymentProcessingConstants.CORRELATION_ID, headersDTO.getMgmCorrelationId());
+                            httpHeaders.set(PaymentProcessingConstants.TRANSACTION_ID, headersDTO.getMgmTransactionId());
+                            httpHeaders.set(PaymentProcessingConstants.CHANNEL, headersDTO.getMgmChannel());
+                            httpHeaders.set(PaymentProcessingConstants.CLIENT_ID, headersDTO.getClientId());
+                            httpHeaders.setBearerAuth(serviceAccessToken.getAccess_token());
+                            httpHeaders.set(PaymentProcessingConstants.USER_AGENT, headersDTO.getUserAgent());
+                        })
+                        .body(BodyInserters.fromValue(prRequest)).retrieve()
+                        .onStatus(HttpStatus::is4xxClientError, clientResponse ->
+                                getExceptionMono(prRequest, paymentId, clientResponse, headersDTO)
+                        )
+                        .onStatus(HttpStatus::is5xxServerError, clientResponse ->
+                                getExceptionMono(prRequest, paymentId, clientResponse, headersDTO)
+                        )
+                        .toEntity(PaymentRouterResponse.class)
+                        .retryWhen(Retry.backoff(ppsProperties.getRetryCount(), Duration.ofSeconds(ppsProperties.getRetryDelay()))
+                                .filter(ExternalServiceException.class::isInstance)
+                                .onRetryExhaustedThrow(((retryBackoffSpec, retrySignal) -> {
+                                    String developerMessage = prRequest.getRouterFunction().name() + ": " + ApiErrorCode.RETRY_EXCEEDS_ERROR.getDescription();
+                                    String error = ((ExternalServiceException) retrySignal.failure()).getRouterError();
+                                    HttpStatus httpStatus = ((ExternalServiceException) retrySignal.failure()).getStatusCode();
+                                    PaymentExceptionResponse errorResponse = PaymentProcessingUtil.getErrorResponse(error, paymentId,
+                                            developerMessage);
+                                    throw new PaymentProcessingException(errorResponse, httpStatus);
+                                }))
+                        ));
 
         return response.map(prResponse -> {
             PaymentRouterResponse paymentRouterResponse = prResponse.getBody();
@@ -140,7 +138,7 @@ public class PaymentRouterServiceCaller {
                 status = StatusResult.S.name();
                 result = StatusResult.S.getResult();
             }
-            String maskedResponse = LogMaskingConverter.mask(paymentRouterResponse);
+            String maskedResponse = headersDTO.getMaskedPayloads().mask(paymentRouterResponse);
             logger.info(PPS_RESPONSE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, methodName, EXTERNAL_CLASS_NAME, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
                     headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(),
                     headersDTO.getClientId(), mgmId, getSpanId(), getTraceId(),
@@ -11,21 +11,19 @@ import com.mgm.payments.processing.service.exception.PaymentProcessingException;
 import com.mgm.payments.processing.service.model.HeadersDTO;
 import com.mgm.payments.processing.service.model.ServiceToken;
 import com.mgm.payments.processing.service.model.payload.pps.exception.PaymentExceptionResponse;
-import com.mgm.payments.processing.service.util.ServiceTokenCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StopWatch;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
 
-import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 
@@ -65,28 +63,17 @@ public class ServiceTokenCaller {
     }
 
     /**
-     * Gets Access Token to invoke other microservice
+     * Requests a new Access Token from the identity provider. Callers should go through {@link ServiceTokenManager},
+     * which caches the token and coalesces concurrent refreshes.
      *
      * @return ServiceToken
      */
-    public ServiceToken getServiceAccessToken(HeadersDTO headersDTO) {
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start();
-        logger.info(PPS_REQUEST_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, GET_SERVICE_ACCESS_TOKEN, SERVICE_TOKEN_CALLER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
-                headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(), "Start of getServiceAccessToken method");
-
-        String token = ServiceTokenCache.getServiceToken();
-        if (token != null) {
-            stopWatch.stop();
-            logger.info(PPS_RESPONSE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, GET_SERVICE_ACCESS_TOKEN, SERVICE_TOKEN_CALLER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
-                    headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
-                    StatusResult.S.name(), StatusResult.S.getResult(), stopWatch.getTotalTimeMillis(), "returning service token from cache");
-            ServiceToken serviceToken = new ServiceToken();
-            serviceToken.setAccess_token(token);
-            return serviceToken;
-        }
-
-        try {
+    public Mono<ServiceToken> requestServiceToken(HeadersDTO headersDTO) {
+        return Mono.defer(() -> {
+            StopWatch stopWatch = new StopWatch();
+            stopWatch.start();
+            logger.info(PPS_REQUEST_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, GET_SERVICE_ACCESS_TOKEN, SERVICE_TOKEN_CALLER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                    headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(), "Start of requestServiceToken method");
 
             PPSConfig ppsConfig = ppsProperties.getPPSConfig();
             String url = ppsProperties.getServiceTokenHost() + ppsProperties.getServiceTokenUri();
@@ -126,29 +113,30 @@ public class ServiceTokenCaller {
                             })
                     );
 
-            ResponseEntity<ServiceToken> response = responseSpec.toEntity(ServiceToken.class).block();
-            ServiceToken serviceToken = response != null ? response.getBody() : null;
-            if(serviceToken != null){
-                String serviceTok=serviceToken.getAccess_token();
-                ServiceTokenCache.setServiceToken(serviceTok);
-                ServiceTokenCache.setServiceTokenExpireTime(Instant.now().plusSeconds(serviceToken.getExpires_in()));
-                stopWatch.stop();
-                logger.info(PPS_RESPONSE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, GET_SERVICE_ACCESS_TOKEN, SERVICE_TOKEN_CALLER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
-                        headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "",
-                        getSpanId(), getTraceId(), StatusResult.S.name(), StatusResult.S.getResult(), stopWatch.getTotalTimeMillis(), "new service token generated and stored in cache !!");
-            }
-            return serviceToken;
-
-        } catch (WebClientRequestException exception) {
-            logger.error("External Service: ServiceTokenCaller :: WebClientRequestException : {}", exception.toString());
-            PaymentExceptionResponse response = PaymentExceptionResponse.builder()
-                    .dateTime(ZonedDateTime.now())
-                    .errorCode(ApiErrorCode.INTERNAL_SERVER_ERROR.getCode())
-                    .errorMessage(ApiErrorCode.INTERNAL_SERVER_ERROR.getDescription() + PaymentProcessingConstants.WHILE_ACCESS_TOKEN_CALL)
-                    .developerMessage(exception.getMessage())
-                    .build();
-            throw new PaymentProcessingException(response, HttpStatus.INTERNAL_SERVER_ERROR);
-        }
-
+            return responseSpec.toEntity(ServiceToken.class)
+                    .flatMap(response -> Mono.justOrEmpty(response.getBody()))
+                    .switchIfEmpty(Mono.error(() -> new PaymentProcessingException(PaymentExceptionResponse.builder()
+                            .dateTime(ZonedDateTime.now())
+                            .errorCode(ApiErrorCode.INTERNAL_SERVER_ERROR.getCode())
+                            .errorMessage(ApiErrorCode.INTERNAL_SERVER_ERROR.getDescription() + PaymentProcessingConstants.WHILE_ACCESS_TOKEN_CALL)
+                            .developerMessage("Empty response body from token call")
+                            .build(), HttpStatus.INTERNAL_SERVER_ERROR)))
+                    .doOnNext(serviceToken -> {
+                        stopWatch.stop();
+                        logger.info(PPS_RESPONSE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, GET_SERVICE_ACCESS_TOKEN, SERVICE_TOKEN_CALLER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                                headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "",
+                                getSpanId(), getTraceId(), StatusResult.S.name(), StatusResult.S.getResult(), stopWatch.getTotalTimeMillis(), "new service token generated !!");
+                    })
+                    .onErrorMap(WebClientRequestException.class, exception -> {
+                        logger.error("External Service: ServiceTokenCaller :: WebClientRequestException : {}", exception.toString());
+                        PaymentExceptionResponse response = PaymentExceptionResponse.builder()
+                                .dateTime(ZonedDateTime.now())
+                                .errorCode(ApiErrorCode.INTERNAL_SERVER_ERROR.getCode())
+                                .errorMessage(ApiErrorCode.INTERNAL_SERVER_ERROR.getDescription() + PaymentProcessingConstants.WHILE_ACCESS_TOKEN_CALL)
+                                .developerMessage(exception.getMessage())
+                                .build();
+                        return new PaymentProcessingException(response, HttpStatus.INTERNAL_SERVER_ERROR);
+                    });
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,92 @@
+package com.mgm.payments.processing.service.external;
+
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.model.HeadersDTO;
+import com.mgm.payments.processing.service.model.ServiceToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the service access token used for the downstream calls. Reads are a single volatile load; the token is
+ * refreshed ahead of expiry at {@code pps.service-token-refresh-fraction} of {@code expires_in}, and concurrent
+ * callers share one in-flight refresh instead of each calling the identity provider.
+ */
+@Component
+public class ServiceTokenManager {
+
+    private final Logger logger = LoggerFactory.getLogger(ServiceTokenManager.class);
+
+    private final ServiceTokenCaller serviceTokenCaller;
+    private final PPSProperties ppsProperties;
+    private final Clock clock;
+    private final AtomicReference<CachedServiceToken> cachedToken = new AtomicReference<>();
+    private final AtomicReference<Mono<ServiceToken>> inFlightRefresh = new AtomicReference<>();
+
+    @Autowired
+    public ServiceTokenManager(ServiceTokenCaller serviceTokenCaller, PPSProperties ppsProperties, Clock clock) {
+        this.serviceTokenCaller = serviceTokenCaller;
+        this.ppsProperties = ppsProperties;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the cached service token, fetching a new one if none is cached or the cached one has expired
+     *
+     * @param headersDTO - headers params, used for logging the token call
+     * @return ServiceToken
+     */
+    public Mono<ServiceToken> getServiceToken(HeadersDTO headersDTO) {
+        CachedServiceToken current = cachedToken.get();
+        long now = clock.millis();
+        if (current != null && now < current.expiresAt) {
+            if (now >= current.refreshAt) {
+                refresh(headersDTO).subscribe(serviceToken -> { }, e ->
+                        logger.warn("Service token refresh ahead of expiry failed, serving cached token", e));
+            }
+            return Mono.just(current.serviceToken);
+        }
+        return refresh(headersDTO);
+    }
+
+    private Mono<ServiceToken> refresh(HeadersDTO headersDTO) {
+        while (true) {
+            Mono<ServiceToken> inFlight = inFlightRefresh.get();
+            if (inFlight != null) {
+                return inFlight;
+            }
+            Mono<ServiceToken> refresh = serviceTokenCaller.requestServiceToken(headersDTO)
+                    .doOnNext(this::store)
+                    .doFinally(signalType -> inFlightRefresh.set(null))
+                    .cache();
+            if (inFlightRefresh.compareAndSet(null, refresh)) {
+                return refresh;
+            }
+        }
+    }
+
+    private void store(ServiceToken serviceToken) {
+        long now = clock.millis();
+        long expiresInMillis = serviceToken.getExpires_in() * 1000L;
+        cachedToken.set(new CachedServiceToken(serviceToken,
+                now + (long) (expiresInMillis * ppsProperties.getServiceTokenRefreshFraction()),
+                now + expiresInMillis));
+    }
+
+    private static final class CachedServiceToken {
+        private final ServiceToken serviceToken;
+        private final long refreshAt;
+        private final long expiresAt;
+
+        private CachedServiceToken(ServiceToken serviceToken, long refreshAt, long expiresAt) {
+            this.serviceToken = serviceToken;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -10,16 +10,15 @@ import com.mgm.payments.processing.service.enums.StatusResult;
 import com.mgm.payments.processing.service.exception.ExternalServiceException;
 import com.mgm.payments.processing.service.exception.PaymentProcessingException;
 import com.mgm.payments.processing.service.model.HeadersDTO;
+import com.mgm.payments.processing.service.model.ServiceToken;
 import com.mgm.payments.processing.service.model.payload.pps.exception.PaymentExceptionResponse;
 import com.mgm.payments.processing.service.model.payload.session.PaymentSession;
-import com.mgm.payments.processing.service.util.LogMaskingConverter;
 import com.mgm.payments.processing.service.util.PaymentProcessingUtil;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StopWatch;
 import org.springframework.web.reactive.function.client.ClientResponse;
@@ -43,14 +42,14 @@ public class SessionServiceCaller {
 
     private final WebClient webClient;
     private final PPSProperties ppsProperties;
-    private final ServiceTokenCaller tokenCaller;
+    private final ServiceTokenManager serviceTokenManager;
     private final Tracer tracer;
 
     @Autowired
-    public SessionServiceCaller(WebClient webClient, PPSProperties ppsProperties, ServiceTokenCaller tokenCaller, Tracer tracer) {
+    public SessionServiceCaller(WebClient webClient, PPSProperties ppsProperties, ServiceTokenManager serviceTokenManager, Tracer tracer) {
         this.webClient = webClient;
         this.ppsProperties = ppsProperties;
-        this.tokenCaller = tokenCaller;
+        this.serviceTokenManager = serviceTokenManager;
         this.tracer = tracer;
     }
 
@@ -70,55 +69,72 @@ public class SessionServiceCaller {
         return null;
     }
 
-    public PaymentSession retrieveSession(HeadersDTO headersDTO, String sessionId) {
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start();
-
-        logger.info(PPS_REQUEST_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, SESSION_RETRIEVE_CALL, SESSION_CLASS_NAME,
-                headersDTO.getMgmSource(), headersDTO.getMgmChannel(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
-                headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(), sessionId);
-        String url = ppsProperties.getSessionUrl() + SESSION_ENDPOINT + sessionId;
-        logger.info(PPS_REQUEST_URL_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, SESSION_RETRIEVE_CALL, SESSION_CLASS_NAME, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
-                headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(), url);
-
-        String accessToken = tokenCaller.getServiceAccessToken(headersDTO).getAccess_token();
-
-        WebClient.ResponseSpec retrieve = webClient.get().uri(url).headers(httpHeaders -> {
-                    httpHeaders.set(MGM_SOURCE, PAM_SERVICE);
-                    httpHeaders.set(JOURNEY_ID, headersDTO.getMgmJourneyId());
-                    httpHeaders.set(CORRELATION_ID, headersDTO.getMgmCorrelationId());
-                    httpHeaders.set(TRANSACTION_ID, headersDTO.getMgmTransactionId());
-                    httpHeaders.set(CHANNEL, headersDTO.getMgmChannel());
-                    httpHeaders.setBearerAuth(accessToken);
-                    httpHeaders.set(CLIENT_ID, headersDTO.getClientId());
-                }).retrieve()
-                .onStatus(HttpStatus::is4xxClientError, clientResponse ->
-                        getExceptionMono(clientResponse, headersDTO)
-                ).onStatus(HttpStatus::is5xxServerError, clientResponse ->
-                        getExceptionMono(clientResponse, headersDTO));
-        ResponseEntity<PaymentSession> sessionResponseEntity = retrieve.toEntity(PaymentSession.class)
-                .retryWhen(Retry.backoff(ppsProperties.getRetryCount(), Duration.ofSeconds(ppsProperties.getRetryDelay()))
-                        .filter(ExternalServiceException.class::isInstance)
-                        .onRetryExhaustedThrow(((retryBackoffSpec, retrySignal) -> {
-                            String developerMessage = ApiErrorCode.RETRY_EXCEEDS_ERROR.getDescription();
-                            String error = ((ExternalServiceException) retrySignal.failure()).getRouterError();
-                            HttpStatus httpStatus = ((ExternalServiceException) retrySignal.failure()).getStatusCode();
-                            PaymentExceptionResponse errorResponse = PaymentProcessingUtil.getErrorResponse(error, "",
-                                    developerMessage);
-                            throw new PaymentProcessingException(errorResponse, httpStatus);
-                        }))
-                ).block();
-        assert sessionResponseEntity != null;
-        PaymentSession paymentSession = sessionResponseEntity.getBody();
-        String status = StatusResult.S.name();
-        String result = StatusResult.S.getResult();
-        String maskedResponse = LogMaskingConverter.mask(paymentSession);
-        stopWatch.stop();
-        logger.info(PPS_RESPONSE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, SESSION_RETRIEVE_CALL, SESSION_CLASS_NAME, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
-                headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(),
-                "", getSpanId(), getTraceId(),
-                status, result,  stopWatch.getTotalTimeMillis(), maskedResponse);
-        return paymentSession;
+    /**
+     * Retrieves the payment session without blocking the calling thread.
+     *
+     * @param headersDTO - headers params
+     * @param sessionId  - payment session id
+     * @return PaymentSession
+     */
+    public Mono<PaymentSession> retrieveSession(HeadersDTO headersDTO, String sessionId) {
+        return Mono.defer(() -> {
+            StopWatch stopWatch = new StopWatch();
+            stopWatch.start();
+
+            logger.info(PPS_REQUEST_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, SESSION_RETRIEVE_CALL, SESSION_CLASS_NAME,
+                    headersDTO.getMgmSource(), headersDTO.getMgmChannel(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
+                    headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(), sessionId);
+            String url = ppsProperties.getSessionUrl() + SESSION_ENDPOINT + sessionId;
+            logger.info(PPS_REQUEST_URL_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, SESSION_RETRIEVE_CALL, SESSION_CLASS_NAME, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                    headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(), url);
+
+            return serviceTokenManager.getServiceToken(headersDTO)
+                    .map(ServiceToken::getAccess_token)
+                    .flatMap(accessToken -> webClient.get().uri(url).headers(httpHeaders -> {
+                                httpHeaders.set(MGM_SOURCE, PAM_SERVICE);
+                                httpHeaders.set(JOURNEY_ID, headersDTO.getMgmJourneyId());
+                                httpHeaders.set(CORRELATION_ID, headersDTO.getMgmCorrelationId());
+                                httpHeaders.set(TRANSACTION_ID, headersDTO.getMgmTransactionId());
+                                httpHeaders.set(CHANNEL, headersDTO.getMgmChannel());
+                                httpHeaders.setBearerAuth(accessToken);
+                                httpHeaders.set(CLIENT_ID, headersDTO.getClientId());
+                            }).retrieve()
+                            .onStatus(HttpStatus::is4xxClientError, clientResponse ->
+                                    getExceptionMono(clientResponse, headersDTO)
+                            ).onStatus(HttpStatus::is5xxServerError, clientResponse ->
+                                    getExceptionMono(clientResponse, headersDTO))
+                            .toEntity(PaymentSession.class)
+                            .retryWhen(Retry.backoff(ppsProperties.getRetryCount(), Duration.ofSeconds(ppsProperties.getRetryDelay()))
+                                    .filter(ExternalServiceException.class::isInstance)
+                                    .onRetryExhaustedThrow(((retryBackoffSpec, retrySignal) -> {
+                                        String developerMessage = ApiErrorCode.RETRY_EXCEEDS_ERROR.getDescription();
+                                        String error = ((ExternalServiceException) retrySignal.failure()).getRouterError();
+                                        HttpStatus httpStatus = ((ExternalServiceException) retrySignal.failure()).getStatusCode();
+                                        PaymentExceptionResponse errorResponse = PaymentProcessingUtil.getErrorResponse(error, "",
+                                                developerMessage);
+                                        throw new PaymentProcessingException(errorResponse, httpStatus);
+                                    }))
+                            ))
+                    .flatMap(sessionResponseEntity -> {
+                        PaymentSession paymentSession = sessionResponseEntity.getBody();
+                        if (paymentSession == null) {
+                            return Mono.error(new PaymentProcessingException(PaymentExceptionResponse.builder()
+                                    .dateTime(ZonedDateTime.now()).errorCode(ApiErrorCode.PAYMENT_SESSION_EXCEPTION.getCode())
+                                    .errorMessage(ApiErrorCode.PAYMENT_SESSION_EXCEPTION.getDescription())
+                                    .developerMessage("Empty response body from Retrieve Session Call").build(),
+                                    HttpStatus.INTERNAL_SERVER_ERROR));
+                        }
+                        String status = StatusResult.S.name();
+                        String result = StatusResult.S.getResult();
+                        String maskedResponse = headersDTO.getMaskedPayloads().mask(paymentSession);
+                        stopWatch.stop();
+                        logger.info(PPS_RESPONSE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, SESSION_RETRIEVE_CALL, SESSION_CLASS_NAME, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                                headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(),
+                                "", getSpanId(), getTraceId(),
+                                status, result, stopWatch.getTotalTimeMillis(), maskedResponse);
+                        return Mono.just(paymentSession);
+                    });
+        });
     }
 
     @NotNull
@@ -1,6 +1,8 @@
 package com.mgm.payments.processing.service.mapper;
 
+import com.mgm.payments.processing.service.config.PPSProperties;
 import com.mgm.payments.processing.service.model.AuditData;
+import com.mgm.payments.processing.service.model.AuditEnvelope;
 import com.mgm.payments.processing.service.model.AuditRequest;
 import com.mgm.payments.processing.service.model.CustomAuditEvent;
 import com.mgm.payments.processing.service.model.HeadersDTO;
@@ -12,6 +14,7 @@ import org.springframework.stereotype.Component;
 
 import java.time.Clock;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Component
 public class AuditMapper {
@@ -19,11 +22,13 @@ public class AuditMapper {
 
     private final ApplicationEventPublisher publisher;
     private final Clock clock;
+    private final PPSProperties ppsProperties;
 
     @Autowired
-    public AuditMapper(ApplicationEventPublisher publisher, Clock clock) {
+    public AuditMapper(ApplicationEventPublisher publisher, Clock clock, PPSProperties ppsProperties) {
         this.publisher = publisher;
         this.clock = clock;
+        this.ppsProperties = ppsProperties;
     }
 
     public void createAndPublishAuditTrailForRequestResponse( String clientReferenceNumber,
@@ -33,25 +38,15 @@ public class AuditMapper {
 
         try {
             auditData.setCreatedDate(LocalDateTime.now(clock));
-            AuditRequest auditRequest = AuditRequest.builder()
-                    .eventType("mgm.payments.audittrail")
-                    .eventTime(LocalDateTime.now().toString())
-                    .clientReferenceNumber(clientReferenceNumber)
-                    .gatewayChainId(gatewayChainId)
-                    .subject(auditData.getSubject())
-                    .sessionId(sessionId)
-                    .mgmId(mgmId)
-                    .clientId(headersDTO.getClientId())
-                    .journeyId(headersDTO.getMgmJourneyId())
-                    .executionId(executionId)
-                    .correlationId(headersDTO.getMgmCorrelationId())
-                    .transactionId(headersDTO.getMgmTransactionId())
-                    .mgmChannel(headersDTO.getMgmChannel())
-                    .createdDate(LocalDateTime.now(clock))
-                    .cardEntryMode("CNP")
-                    .auditData(auditData).build();
-            CustomAuditEvent event = new CustomAuditEvent(this, auditRequest);
-            publisher.publishEvent(event);
+            AuditEnvelope auditEnvelope = headersDTO.getAuditEnvelope();
+            if (ppsProperties.isAuditEnvelopeEnabled() && auditEnvelope != null
+                    && auditEnvelope.addStage(clientReferenceNumber, gatewayChainId, sessionId, mgmId, executionId, auditData)) {
+                logger.debug("End : AuditMapper added audit stage to envelope eventName :{}", auditData.getEventName());
+                return;
+            }
+            AuditRequest auditRequest = buildAuditRequest(clientReferenceNumber, gatewayChainId, sessionId, mgmId,
+                    executionId, headersDTO, auditData);
+            publisher.publishEvent(new CustomAuditEvent(this, auditRequest));
             logger.debug("End : AuditMapper createAndPublishAuditTrail method eventName :{}", auditData.getEventName());
         } catch (Exception e) {
             logger.error("Exception in createAndPublishAuditTrail method mgmId: {} ,eventName :{}, request: {}", mgmId,
@@ -60,4 +55,52 @@ public class AuditMapper {
         }
     }
 
+    /**
+     * Publishes the audit stages collected for the request as one event. The last stage is the event's auditData,
+     * all stages are in auditStages. Only the first call for a request publishes.
+     *
+     * @param headersDTO - headers params carrying the request's AuditEnvelope
+     */
+    public void publishAuditEnvelope(HeadersDTO headersDTO) {
+        AuditEnvelope auditEnvelope = headersDTO.getAuditEnvelope();
+        if (!ppsProperties.isAuditEnvelopeEnabled() || auditEnvelope == null) {
+            return;
+        }
+        List<AuditData> stages = auditEnvelope.close();
+        if (stages.isEmpty()) {
+            return;
+        }
+        try {
+            AuditRequest auditRequest = buildAuditRequest(auditEnvelope.getClientReferenceNumber(),
+                    auditEnvelope.getGatewayChainId(), auditEnvelope.getSessionId(), auditEnvelope.getMgmId(),
+                    auditEnvelope.getExecutionId(), headersDTO, stages.get(stages.size() - 1));
+            auditRequest.setAuditStages(stages);
+            publisher.publishEvent(new CustomAuditEvent(this, auditRequest));
+            logger.debug("End : AuditMapper publishAuditEnvelope method stages :{}", stages.size());
+        } catch (Exception e) {
+            logger.error("Exception in publishAuditEnvelope method mgmId: {}, stages :{}", auditEnvelope.getMgmId(), stages.size(), e);
+        }
+    }
+
+    private AuditRequest buildAuditRequest(String clientReferenceNumber, String gatewayChainId, String sessionId,
+                                           String mgmId, String executionId, HeadersDTO headersDTO, AuditData auditData) {
+        return AuditRequest.builder()
+                .eventType("mgm.payments.audittrail")
+                .eventTime(LocalDateTime.now().toString())
+                .clientReferenceNumber(clientReferenceNumber)
+                .gatewayChainId(gatewayChainId)
+                .subject(auditData.getSubject())
+                .sessionId(sessionId)
+                .mgmId(mgmId)
+                .clientId(headersDTO.getClientId())
+                .journeyId(headersDTO.getMgmJourneyId())
+                .executionId(executionId)
+                .correlationId(headersDTO.getMgmCorrelationId())
+                .transactionId(headersDTO.getMgmTransactionId())
+                .mgmChannel(headersDTO.getMgmChannel())
+                .createdDate(LocalDateTime.now(clock))
+                .cardEntryMode("CNP")
+                .auditData(auditData).build();
+    }
+
 }
@@ -0,0 +1,77 @@
+package com.mgm.payments.processing.service.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Audit stages of one request, collected when {@code pps.audit-envelope-enabled} is set. Each stage keeps its own
+ * AuditData with its timestamps and status; the envelope is closed and published once when the request completes.
+ * Stages added after that are published on their own.
+ */
+public class AuditEnvelope {
+
+    private final List<AuditData> stages = new ArrayList<>();
+    private boolean closed;
+    private String clientReferenceNumber;
+    private String gatewayChainId;
+    private String sessionId;
+    private String mgmId;
+    private String executionId;
+
+    /**
+     * Adds a stage to the envelope, the identifiers given last win
+     *
+     * @return false if the envelope is already closed
+     */
+    public synchronized boolean addStage(String clientReferenceNumber, String gatewayChainId, String sessionId,
+                                         String mgmId, String executionId, AuditData auditData) {
+        if (closed) {
+            return false;
+        }
+        this.clientReferenceNumber = latest(clientReferenceNumber, this.clientReferenceNumber);
+        this.gatewayChainId = latest(gatewayChainId, this.gatewayChainId);
+        this.sessionId = latest(sessionId, this.sessionId);
+        this.mgmId = latest(mgmId, this.mgmId);
+        this.executionId = latest(executionId, this.executionId);
+        stages.add(auditData);
+        return true;
+    }
+
+    /**
+     * Closes the envelope and returns its stages, empty if it was already closed
+     *
+     * @return stages in the order they were added
+     */
+    public synchronized List<AuditData> close() {
+        if (closed) {
+            return Collections.emptyList();
+        }
+        closed = true;
+        return new ArrayList<>(stages);
+    }
+
+    public synchronized String getClientReferenceNumber() {
+        return clientReferenceNumber;
+    }
+
+    public synchronized String getGatewayChainId() {
+        return gatewayChainId;
+    }
+
+    public synchronized String getSessionId() {
+        return sessionId;
+    }
+
+    public synchronized String getMgmId() {
+        return mgmId;
+    }
+
+    public synchronized String getExecutionId() {
+        return executionId;
+    }
+
+    private static String latest(String value, String current) {
+        return value != null ? value : current;
+    }
+}
@@ -1,9 +1,11 @@
 package com.mgm.payments.processing.service.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 
 @Data
@@ -29,4 +31,6 @@ public class AuditRequest {
     private String dataVersion;
     private String cardEntryMode;
     private AuditData auditData;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<AuditData> auditStages;
 }
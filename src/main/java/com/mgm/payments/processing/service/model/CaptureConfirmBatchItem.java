@@ -0,0 +1,35 @@
+package com.mgm.payments.processing.service.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import static com.mgm.payments.processing.service.constants.PaymentProcessingConstants.CORRELATION_ID;
+import static com.mgm.payments.processing.service.constants.PaymentProcessingConstants.JOURNEY_ID;
+import static com.mgm.payments.processing.service.constants.PaymentProcessingConstants.TRANSACTION_ID;
+
+/**
+ * One confirmation of a capture confirm batch with the journey, correlation and transaction ids of its own capture,
+ * the headers of the batch call only carry those of the first confirmation
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CaptureConfirmBatchItem {
+    @JsonProperty(JOURNEY_ID)
+    private String journeyId;
+    @JsonProperty(CORRELATION_ID)
+    private String correlationId;
+    @JsonProperty(TRANSACTION_ID)
+    private String transactionId;
+    private CaptureConfirm captureConfirm;
+
+    public static CaptureConfirmBatchItem of(CaptureConfirm captureConfirm, HeadersDTO headersDTO) {
+        return CaptureConfirmBatchItem.builder().journeyId(headersDTO.getMgmJourneyId())
+                .correlationId(headersDTO.getMgmCorrelationId()).transactionId(headersDTO.getMgmTransactionId())
+                .captureConfirm(captureConfirm).build();
+    }
+}
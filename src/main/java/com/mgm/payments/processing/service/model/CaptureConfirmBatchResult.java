@@ -0,0 +1,27 @@
+package com.mgm.payments.processing.service.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Payment Auth Manager response to one confirmation of a capture confirm batch, with the error a single capture
+ * confirm call would have failed with when the confirmation was not accepted
+ */
+@Data
+@AllArgsConstructor
+public class CaptureConfirmBatchResult {
+    private String response;
+    private RuntimeException error;
+
+    public static CaptureConfirmBatchResult confirmed(String response) {
+        return new CaptureConfirmBatchResult(response, null);
+    }
+
+    public static CaptureConfirmBatchResult failed(String response, RuntimeException error) {
+        return new CaptureConfirmBatchResult(response, error);
+    }
+
+    public boolean isConfirmed() {
+        return error == null;
+    }
+}
@@ -1,11 +1,12 @@
 package com.mgm.payments.processing.service.model;
 
-import lombok.AllArgsConstructor;
+import com.mgm.payments.processing.service.util.MaskedPayloads;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 public class HeadersDTO {
     private String mgmSource;
@@ -16,4 +17,22 @@ public class HeadersDTO {
     private String authorization;
     private String clientId;
     private String userAgent;
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private MaskedPayloads maskedPayloads = new MaskedPayloads();
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private AuditEnvelope auditEnvelope = new AuditEnvelope();
+
+    public HeadersDTO(String mgmSource, String mgmJourneyId, String mgmCorrelationId, String mgmTransactionId,
+                      String mgmChannel, String authorization, String clientId, String userAgent) {
+        this.mgmSource = mgmSource;
+        this.mgmJourneyId = mgmJourneyId;
+        this.mgmCorrelationId = mgmCorrelationId;
+        this.mgmTransactionId = mgmTransactionId;
+        this.mgmChannel = mgmChannel;
+        this.authorization = authorization;
+        this.clientId = clientId;
+        this.userAgent = userAgent;
+    }
 }
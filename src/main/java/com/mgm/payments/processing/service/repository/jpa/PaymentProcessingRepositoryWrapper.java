@@ -4,6 +4,7 @@ import brave.Span;
 import brave.Tracer;
 import com.mgm.payments.processing.service.entity.jpa.PaymentEntity;
 import com.mgm.payments.processing.service.enums.StatusResult;
+import com.mgm.payments.processing.service.enums.TransactionType;
 import com.mgm.payments.processing.service.exception.PaymentProcessingException;
 import com.mgm.payments.processing.service.model.HeadersDTO;
 import com.mgm.payments.processing.service.model.payload.PaymentEntityDTO;
@@ -24,8 +25,13 @@ import org.springframework.util.StopWatch;
 
 import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -80,10 +86,37 @@ public class PaymentProcessingRepositoryWrapper {
     }
 
 
+    /**
+     * Checks in the DB whether a transaction of the type with the same amount, request channel and card was created
+     * for the clientReferenceNumber on the date, without loading the records. The date is the UTC day the created
+     * timestamp falls in, queried as a range so the DB can seek the created timestamp in its index.
+     */
+    public boolean existsTransaction(String clientReferenceNumber, TransactionType transactionType, LocalDate createdDate, BigDecimal amount,
+                                     String requestChannel, String last4DigitsOfTheCard, HeadersDTO headersDTO) {
+        StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+        boolean exists = primaryRepository.existsTransaction(clientReferenceNumber, transactionType, startOfUtcDay(createdDate),
+                startOfUtcDay(createdDate.plusDays(1)), amount, requestChannel, last4DigitsOfTheCard);
+        stopWatch.stop();
+        logger.info(PPS_DB_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "existsTransaction", PAYMENT_PROCESSING_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
+                stopWatch.getTotalTimeMillis(), exists ? "Matching Payment Transaction found in DB !!" : "No Matching Payment Transaction found in DB !!");
+        return exists;
+    }
+
+    private static String startOfUtcDay(LocalDate date) {
+        return DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(date.atStartOfDay().atOffset(ZoneOffset.UTC));
+    }
+
+    /**
+     * Looks the payment up by its primary key and the transactions referencing the parent by the reference id index,
+     * two seeks instead of an OR that SQL Server tends to answer with a scan
+     */
     public List<PaymentEntity> findByPaymentIdOrReferenceId(String paymentId, String parentId, HeadersDTO headersDTO){
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
-        List<PaymentEntityDTO> paymentEntityDTOList = primaryRepository.findByPaymentIdOrReferenceId(paymentId, parentId);
+        List<PaymentEntityDTO> paymentEntityDTOList = new ArrayList<>(primaryRepository.findDTOByPaymentId(paymentId));
+        paymentEntityDTOList.addAll(primaryRepository.findDTOByReferenceId(parentId, paymentId));
         String message = paymentEntityDTOList.isEmpty() ? "No Payment Transaction Details found in DB !!" : "Payment Transaction Details found in DB !!";
         stopWatch.stop();
         List<PaymentEntity> paymentEntities = PaymentProcessingUtil.mapToEntity(paymentEntityDTOList);
@@ -94,17 +127,20 @@ public class PaymentProcessingRepositoryWrapper {
     }
 
 
+    /**
+     * Inserts the record with one statement at commit. The repository save is not used on top of the persist, for an
+     * assigned id it merges, which costs a SELECT whenever the entity is not already managed
+     */
     @Transactional
     public PaymentEntity save(PaymentEntity payment, HeadersDTO headersDTO) {
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
         entityManager.persist(payment);
-        PaymentEntity save = primaryRepository.save(payment);
         stopWatch.stop();
         logger.info(PPS_DB_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "save", PAYMENT_PROCESSING_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
                 headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
                 stopWatch.getTotalTimeMillis(), "Record Saved to DB !!");
-        return save;
+        return payment;
     }
 
 
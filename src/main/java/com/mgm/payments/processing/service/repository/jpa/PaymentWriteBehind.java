@@ -0,0 +1,321 @@
+package com.mgm.payments.processing.service.repository.jpa;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.entity.jpa.PaymentEntity;
+import com.mgm.payments.processing.service.model.HeadersDTO;
+import com.mgm.payments.processing.service.util.DeadLetterFile;
+import com.mgm.payments.processing.service.util.SegmentJournal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the final state of a transaction to {@code t_payment} behind the response when
+ * {@code pps.payment-write-behind-enabled} is set. The record is appended to a local {@link SegmentJournal} and forced
+ * to disk before {@link #save(PaymentEntity, HeadersDTO)} returns; a flusher writes the journal to the DB every
+ * {@code pps.payment-write-behind-flush-interval-millis} in transactions of up to
+ * {@code pps.payment-write-behind-batch-size} records, which Hibernate sends as JDBC batches. A record is inserted
+ * when its payment id is not in the DB yet and merged otherwise, so the records replayed after a crash or a failed
+ * flush are written again without duplicates. Until a record is flushed the DB row lags behind the response. When a
+ * batch fails its records are written one at a time; a record the DB refuses for any reason but a connection,
+ * timeout or deadlock failure is moved to {@code payment.dead} in the journal directory so that it does not hold up
+ * the records behind it.
+ * <p>
+ * Only the authorization record goes through here. Capture, void and refund records are saved synchronously because
+ * the DB path of those transactions reads {@code t_payment} to refuse a second capture or void of an authorization and
+ * to check duplicate refunds and the refund limit, and an unflushed record would let those checks pass. An unflushed
+ * authorization is at worst not found by a capture or void that falls back to the DB, which fails instead of
+ * charging twice.
+ */
+@Component
+public class PaymentWriteBehind {
+
+    private static final String JOURNAL_NAME = "payment";
+    private static final String DEAD_LETTER_FILE = JOURNAL_NAME + ".dead";
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Logger logger = LoggerFactory.getLogger(PaymentWriteBehind.class);
+
+    private final PPSProperties ppsProperties;
+    private final PaymentProcessingRepositoryWrapper repository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+    private final Timer flushLatency;
+    private final Counter flushedRecords;
+    private final Counter failedFlushes;
+    private final Counter synchronousSaves;
+    private final Counter deadLettered;
+    private volatile SegmentJournal journal;
+    private DeadLetterFile deadLetterFile;
+    private volatile boolean running;
+    private Thread flushThread;
+
+    @Autowired
+    public PaymentWriteBehind(PPSProperties ppsProperties, PaymentProcessingRepositoryWrapper repository, EntityManager entityManager,
+                              @Qualifier("primaryTransactionManager") PlatformTransactionManager transactionManager,
+                              Clock clock, MeterRegistry meterRegistry) {
+        this.ppsProperties = ppsProperties;
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("pps.payment.writebehind.lag.seconds", this, PaymentWriteBehind::lagSeconds)
+                .description("Age of the oldest journaled payment record not yet written to the DB").register(meterRegistry);
+        this.flushLatency = Timer.builder("pps.payment.writebehind.flush.latency")
+                .description("Latency of writing one batch of journaled payment records to the DB").register(meterRegistry);
+        this.flushedRecords = Counter.builder("pps.payment.writebehind.flushed")
+                .description("Journaled payment records written to the DB").register(meterRegistry);
+        this.failedFlushes = Counter.builder("pps.payment.writebehind.flush.failed")
+                .description("Batches of journaled payment records the DB did not take").register(meterRegistry);
+        this.synchronousSaves = Counter.builder("pps.payment.writebehind.synchronous")
+                .description("Payment records saved synchronously because the journal append failed").register(meterRegistry);
+        this.deadLettered = Counter.builder("pps.payment.writebehind.dead.lettered")
+                .description("Journaled payment records the DB refused, moved to the dead letter file").register(meterRegistry);
+    }
+
+    /**
+     * Opens the journal, replaying the records left by a previous run, and starts the flusher
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        if (!ppsProperties.isPaymentWriteBehindEnabled()) {
+            return;
+        }
+        Path journalDir = Paths.get(ppsProperties.getPaymentWriteBehindJournalDir());
+        SegmentJournal segmentJournal = new SegmentJournal(JOURNAL_NAME, journalDir, ppsProperties.getPaymentWriteBehindSegmentBytes(), true);
+        segmentJournal.open();
+        deadLetterFile = new DeadLetterFile(journalDir.resolve(DEAD_LETTER_FILE), clock);
+        journal = segmentJournal;
+        running = true;
+        flushThread = new Thread(this::runFlush, "payment-write-behind");
+        flushThread.setDaemon(true);
+        flushThread.start();
+    }
+
+    /**
+     * Stops the flusher and writes what is left in the journal, the records the DB does not take stay in the journal
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (journal == null) {
+            return;
+        }
+        running = false;
+        flushThread.interrupt();
+        flushThread.join(ppsProperties.getPaymentWriteBehindFlushIntervalMillis());
+        flush();
+        journal.close();
+    }
+
+    /**
+     * Saves the final state of the transaction, through the journal when write-behind is enabled and directly to the
+     * DB otherwise or when the journal append fails
+     *
+     * @param payment    - database record of the transaction
+     * @param headersDTO - request headers
+     * @return saved record
+     */
+    public PaymentEntity save(PaymentEntity payment, HeadersDTO headersDTO) {
+        SegmentJournal current = journal;
+        if (current != null) {
+            byte[] record = encode(payment);
+            if (record != null && current.append(record)) {
+                logger.debug("payment {} journaled for write-behind", payment.getPaymentId());
+                return payment;
+            }
+            synchronousSaves.increment();
+            logger.warn("Payments: write-behind journal append failed for payment {}, saving to DB", payment.getPaymentId());
+        }
+        return repository.save(payment, headersDTO);
+    }
+
+    private void runFlush() {
+        while (running) {
+            try {
+                Thread.sleep(ppsProperties.getPaymentWriteBehindFlushIntervalMillis());
+                flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Payments: write-behind flush exception : {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Writes the journal to the DB in order, one batch per transaction, until the journal is empty or the DB is not
+     * reachable. A failed batch is written again one record per transaction to find the records the DB refuses.
+     */
+    synchronized void flush() {
+        while (!journal.isEmpty()) {
+            List<byte[]> records = journal.peek(ppsProperties.getPaymentWriteBehindBatchSize(), Long.MAX_VALUE);
+            // a payment journaled twice in the batch is written once, with its latest state
+            Map<String, PaymentEntity> payments = new LinkedHashMap<>();
+            for (byte[] record : records) {
+                PaymentEntity payment = decode(record);
+                if (payment != null) {
+                    payments.put(payment.getPaymentId(), payment);
+                }
+            }
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(payments.values()));
+            } catch (RuntimeException e) {
+                failedFlushes.increment();
+                logger.warn("Payments: write-behind flush of {} records failed, writing them one at a time, exception : {}",
+                        records.size(), e.getMessage());
+                if (!flushOneByOne(records)) {
+                    return;
+                }
+                continue;
+            } finally {
+                sample.stop(flushLatency);
+            }
+            journal.commit(records.size());
+            flushedRecords.increment(payments.size());
+        }
+    }
+
+    // commits every record written or dead-lettered, false when a record is left in the journal to be retried
+    private boolean flushOneByOne(List<byte[]> records) {
+        for (byte[] record : records) {
+            PaymentEntity payment = decode(record);
+            if (payment != null) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> write(List.of(payment)));
+                    flushedRecords.increment();
+                } catch (RuntimeException e) {
+                    if (isTransient(e) || !deadLetter(payment, record, e)) {
+                        logger.warn("Payments: write-behind flush of payment {} failed, retrying in {} ms, exception : {}",
+                                payment.getPaymentId(), ppsProperties.getPaymentWriteBehindFlushIntervalMillis(), e.getMessage());
+                        return false;
+                    }
+                }
+            }
+            journal.commit(1);
+        }
+        return true;
+    }
+
+    private boolean deadLetter(PaymentEntity payment, byte[] record, RuntimeException e) {
+        byte[] json = new byte[record.length - Long.BYTES];
+        System.arraycopy(record, Long.BYTES, json, 0, json.length);
+        if (!deadLetterFile.append(String.valueOf(e.getMessage()), json)) {
+            return false;
+        }
+        deadLettered.increment();
+        logger.error("Payments: write-behind record of payment {} refused by the DB, moved to {} : {}",
+                payment.getPaymentId(), deadLetterFile.getFile(), e.getMessage(), e);
+        return true;
+    }
+
+    // a failure of the connection, a timeout or a deadlock, the same record is expected to be taken later
+    static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof TransientDataAccessException || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException || cause instanceof CannotCreateTransactionException
+                    || cause instanceof SQLTransientException || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+            // connection exception, transaction rollback (deadlock) and timeout classes of the SQL state
+            String sqlState = cause instanceof SQLException ? ((SQLException) cause).getSQLState() : null;
+            if (sqlState != null && (sqlState.startsWith("08") || sqlState.startsWith("40") || sqlState.startsWith("HYT"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void write(Collection<PaymentEntity> payments) {
+        if (payments.isEmpty()) {
+            return;
+        }
+        List<String> paymentIds = new ArrayList<>(payments.size());
+        payments.forEach(payment -> paymentIds.add(payment.getPaymentId()));
+        Set<String> existing = new HashSet<>(entityManager.createQuery(
+                        "select t.paymentId from PaymentEntity t where t.paymentId in :paymentIds", String.class)
+                .setParameter("paymentIds", paymentIds).getResultList());
+        for (PaymentEntity payment : payments) {
+            if (existing.contains(payment.getPaymentId())) {
+                entityManager.merge(payment);
+            } else {
+                entityManager.persist(payment);
+            }
+        }
+    }
+
+    private double lagSeconds() {
+        SegmentJournal current = journal;
+        if (current == null) {
+            return 0;
+        }
+        List<byte[]> oldest = current.peek(1, Long.MAX_VALUE);
+        if (oldest.isEmpty()) {
+            return 0;
+        }
+        return Math.max(0, clock.millis() - ByteBuffer.wrap(oldest.get(0)).getLong()) / 1000.0;
+    }
+
+    // a record is the append time followed by the entity JSON
+    private byte[] encode(PaymentEntity payment) {
+        try {
+            byte[] json = MAPPER.writeValueAsBytes(payment);
+            return ByteBuffer.allocate(Long.BYTES + json.length).putLong(clock.millis()).put(json).array();
+        } catch (IOException e) {
+            logger.error("Payments: payment {} could not be serialized for write-behind : {}", payment.getPaymentId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private PaymentEntity decode(byte[] record) {
+        try {
+            return MAPPER.readValue(record, Long.BYTES, record.length - Long.BYTES, PaymentEntity.class);
+        } catch (IOException e) {
+            // cannot be written however often it is retried, left to the log instead of holding up the journal
+            logger.error("Payments: unreadable write-behind record of {} bytes skipped : {}", record.length, e.getMessage());
+            return null;
+        }
+    }
+}
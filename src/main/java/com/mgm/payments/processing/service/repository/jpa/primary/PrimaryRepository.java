@@ -1,12 +1,14 @@
 package com.mgm.payments.processing.service.repository.jpa.primary;
 
 import com.mgm.payments.processing.service.entity.jpa.PaymentEntity;
+import com.mgm.payments.processing.service.enums.TransactionType;
 import com.mgm.payments.processing.service.model.payload.PaymentEntityDTO;
-import io.lettuce.core.dynamic.annotation.Param;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @Repository
@@ -18,11 +20,36 @@ public interface PrimaryRepository extends JpaRepository<PaymentEntity, String>
             "t.referenceId, t.sessionId, t.mgmId, t.gatewayChainId, t.groupId, t.gatewayId,t.clientId, t.orderType, t.cardHolderName, t.tenderType, " +
             "t.cardEntryMode, t.last4DigitsOfTheCard, t.issuerType, t.currencyCode, t.billingAddress1, t.billingAddress2, " +
             "t.billingCity, t.billingCountry, t.billingState, t.billingZipcode, t.createdTimestamp, t.requestChannel)" +
-            " FROM PaymentEntity t WHERE t.paymentId = :paymentId or t.referenceId = :parentId")
-    List<PaymentEntityDTO> findByPaymentIdOrReferenceId(@Param("paymentId")String paymentId, @Param("referenceId")String parentId);
+            " FROM PaymentEntity t WHERE t.paymentId = :paymentId")
+    List<PaymentEntityDTO> findDTOByPaymentId(@Param("paymentId") String paymentId);
+
+    /**
+     * Transactions referencing the parent payment, without the one found by {@link #findDTOByPaymentId} so that each
+     * record is returned once
+     */
+    @Query("SELECT new com.mgm.payments.processing.service.model.payload.PaymentEntityDTO" +
+            "(t.paymentId, t.transactionType, t.transactionStatus, t.amount, t.authorizedAmount, t.mgmToken, t.clientReferenceNumber, " +
+            "t.referenceId, t.sessionId, t.mgmId, t.gatewayChainId, t.groupId, t.gatewayId,t.clientId, t.orderType, t.cardHolderName, t.tenderType, " +
+            "t.cardEntryMode, t.last4DigitsOfTheCard, t.issuerType, t.currencyCode, t.billingAddress1, t.billingAddress2, " +
+            "t.billingCity, t.billingCountry, t.billingState, t.billingZipcode, t.createdTimestamp, t.requestChannel)" +
+            " FROM PaymentEntity t WHERE t.referenceId = :parentId and t.paymentId <> :paymentId")
+    List<PaymentEntityDTO> findDTOByReferenceId(@Param("parentId") String parentId, @Param("paymentId") String paymentId);
 
     @Query("SELECT new com.mgm.payments.processing.service.model.payload.PaymentEntityDTO" +
             "( t.paymentId, t.transactionType, t.transactionStatus, t.amount, t.authorizedAmount, t.mgmToken, t.clientReferenceNumber, t.referenceId, t.clientId, t.createdTimestamp, t.last4DigitsOfTheCard, t.requestChannel)" +
             " FROM PaymentEntity t WHERE t.clientReferenceNumber = :clientReferenceNumber")
     List<PaymentEntityDTO> findByClientReferenceNumber(@Param("clientReferenceNumber") String clientReferenceNumber);
+
+    @Query("SELECT CASE WHEN COUNT(t.paymentId) > 0 THEN true ELSE false END FROM PaymentEntity t" +
+            " WHERE t.clientReferenceNumber = :clientReferenceNumber and t.transactionType = :transactionType" +
+            " and t.createdTimestamp >= :createdFrom and t.createdTimestamp < :createdTo" +
+            " and t.amount = :amount and t.requestChannel = :requestChannel" +
+            " and t.last4DigitsOfTheCard = :last4DigitsOfTheCard")
+    boolean existsTransaction(@Param("clientReferenceNumber") String clientReferenceNumber,
+                              @Param("transactionType") TransactionType transactionType,
+                              @Param("createdFrom") String createdFrom,
+                              @Param("createdTo") String createdTo,
+                              @Param("amount") BigDecimal amount,
+                              @Param("requestChannel") String requestChannel,
+                              @Param("last4DigitsOfTheCard") String last4DigitsOfTheCard);
 }
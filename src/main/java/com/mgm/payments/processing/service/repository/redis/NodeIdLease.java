@@ -0,0 +1,301 @@
+package com.mgm.payments.processing.service.repository.redis;
+
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.util.SnowFlakeSequenceGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Leases the node id of the {@link SnowFlakeSequenceGenerator} from Redis, so that no two live instances generate
+ * payment ids with the same one. A node id is a key holding the instance id with a time to live of
+ * {@code pps.node-id-lease-ttl-seconds}, renewed every {@code pps.node-id-lease-heartbeat-millis}; the generator only
+ * uses it until two heartbeats before the key could expire, so a lease lost while Redis is unreachable is given up
+ * before another instance can take it over. When all {@code pps.node-id-lease-count} node ids are held, the instance
+ * takes its ids from blocks of {@code pps.id-block-size} reserved on a Redis counter instead, and keeps trying for a
+ * node id on every heartbeat. Redis is never called on the request path: while no node id or id block is held,
+ * because Redis cannot be reached or a lost lease could not be replaced, the generator falls back to its hashed node
+ * id and the fallbacks are counted in {@code pps.id.node.fallback}.
+ */
+@Component
+public class NodeIdLease {
+
+    static final String NODE_KEY_PREFIX = "pps:node-id:";
+    static final String ID_BLOCK_KEY = "pps:id-block";
+    // marks the ids taken from id blocks, the snowflake timestamp only reaches this bit in 2058
+    static final long ID_BLOCK_FLAG = 1L << 62;
+
+    enum Mode {UNLEASED, NODE, ID_BLOCKS}
+
+    private static final RedisScript<Long> LEASE_SCRIPT =
+            RedisScript.of(new ClassPathResource("redis/node-id-lease.lua"), Long.class);
+    private static final RedisScript<Long> RENEW_SCRIPT =
+            RedisScript.of(new ClassPathResource("redis/node-id-renew.lua"), Long.class);
+
+    private final Logger logger = LoggerFactory.getLogger(NodeIdLease.class);
+
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+    private final SnowFlakeSequenceGenerator snowFlakeSequenceGenerator;
+    private final PPSProperties ppsProperties;
+    private final Clock clock;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final IdBlocks idBlocks = new IdBlocks();
+    private final Counter lostLeases;
+    private final Counter leasedBlocks;
+    private volatile Mode mode = Mode.UNLEASED;
+    private volatile long nodeId = -1;
+    private volatile boolean running;
+    private Thread heartbeatThread;
+
+    @Autowired
+    public NodeIdLease(ReactiveStringRedisTemplate reactiveStringRedisTemplate, SnowFlakeSequenceGenerator snowFlakeSequenceGenerator,
+                       PPSProperties ppsProperties, Clock clock, MeterRegistry meterRegistry) {
+        this.reactiveStringRedisTemplate = reactiveStringRedisTemplate;
+        this.snowFlakeSequenceGenerator = snowFlakeSequenceGenerator;
+        this.ppsProperties = ppsProperties;
+        this.clock = clock;
+        Gauge.builder("pps.id.lease.mode", this, lease -> lease.mode.ordinal())
+                .description("Payment id source, 0 hashed node id, 1 leased node id, 2 leased id blocks").register(meterRegistry);
+        this.lostLeases = Counter.builder("pps.id.lease.lost")
+                .description("Node id leases found taken over or expired at renewal").register(meterRegistry);
+        this.leasedBlocks = Counter.builder("pps.id.blocks.leased")
+                .description("Id blocks reserved while no node id was free").register(meterRegistry);
+        FunctionCounter.builder("pps.id.node.fallback", snowFlakeSequenceGenerator, SnowFlakeSequenceGenerator::getHashedNodeIdFallbacks)
+                .description("Payment ids generated with the hashed node id while no node id or id block was leased")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!ppsProperties.isNodeIdLeaseEnabled()) {
+            return;
+        }
+        snowFlakeSequenceGenerator.expectLease();
+        try {
+            lease();
+        } catch (RuntimeException e) {
+            logger.error("Redis: node id lease failed, payment ids use the hashed node id until a heartbeat leases one : {}",
+                    e.getMessage());
+        }
+        running = true;
+        heartbeatThread = new Thread(this::runHeartbeat, "node-id-lease");
+        heartbeatThread.setDaemon(true);
+        heartbeatThread.start();
+    }
+
+    /**
+     * Stops the heartbeat and gives the node id up, so a new instance can take it without waiting for the ttl
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (heartbeatThread == null) {
+            return;
+        }
+        running = false;
+        heartbeatThread.interrupt();
+        heartbeatThread.join(ppsProperties.getNodeIdLeaseTimeoutMillis());
+        if (mode == Mode.NODE) {
+            try {
+                // the ids generated while shutting down come from an id block, so the node id is free right away
+                idBlocks.prefetch();
+                snowFlakeSequenceGenerator.useIdBlocks(idBlocks::nextId);
+                call(reactiveStringRedisTemplate.execute(RENEW_SCRIPT, List.of(NODE_KEY_PREFIX + nodeId), List.of(instanceId, "0")));
+            } catch (RuntimeException e) {
+                logger.warn("Redis: node id {} release failed, it is free once its ttl expires : {}", nodeId, e.getMessage());
+            }
+            mode = Mode.UNLEASED;
+        }
+    }
+
+    Mode getMode() {
+        return mode;
+    }
+
+    long getLeasedNodeId() {
+        return nodeId;
+    }
+
+    private void runHeartbeat() {
+        while (running) {
+            try {
+                Thread.sleep(ppsProperties.getNodeIdLeaseHeartbeatMillis());
+                heartbeat();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.warn("Redis: node id lease heartbeat failed : {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Renews the leased node id, or tries to lease one when none is held, and keeps a spare id block while the ids
+     * come from blocks
+     */
+    void heartbeat() {
+        if (mode == Mode.NODE) {
+            long renewedAt = clock.millis();
+            Long renewed = call(reactiveStringRedisTemplate.execute(RENEW_SCRIPT, List.of(NODE_KEY_PREFIX + nodeId),
+                    List.of(instanceId, String.valueOf(ppsProperties.getNodeIdLeaseTtlSeconds()))));
+            if (renewed != null && renewed == 1L) {
+                snowFlakeSequenceGenerator.renewNodeLease(validUntil(renewedAt));
+                return;
+            }
+            lostLeases.increment();
+            logger.warn("Redis: node id {} lease lost, leasing again", nodeId);
+            snowFlakeSequenceGenerator.renewNodeLease(0);
+            mode = Mode.UNLEASED;
+        }
+        // while the lease is lost and none is taken here, the ids fall back to the hashed node id
+        lease();
+        if (mode == Mode.ID_BLOCKS) {
+            idBlocks.prefetch();
+        }
+    }
+
+    private void lease() {
+        long leasedAt = clock.millis();
+        int count = Math.min(ppsProperties.getNodeIdLeaseCount(), SnowFlakeSequenceGenerator.NODE_IDS);
+        // probing from the hashed node id spreads the instances over the range
+        long preferred = snowFlakeSequenceGenerator.getHashedNodeId() % count;
+        Long leased = call(reactiveStringRedisTemplate.execute(LEASE_SCRIPT, List.of(NODE_KEY_PREFIX),
+                List.of(instanceId, String.valueOf(ppsProperties.getNodeIdLeaseTtlSeconds()), String.valueOf(preferred),
+                        String.valueOf(count))));
+        if (leased != null && leased >= 0) {
+            nodeId = leased;
+            snowFlakeSequenceGenerator.useNodeId(leased, validUntil(leasedAt));
+            mode = Mode.NODE;
+            logger.info("Redis: leased node id {} for payment ids", leased);
+        } else if (mode != Mode.ID_BLOCKS) {
+            idBlocks.prefetch();
+            snowFlakeSequenceGenerator.useIdBlocks(idBlocks::nextId);
+            mode = Mode.ID_BLOCKS;
+            logger.warn("Redis: all {} node ids are leased, taking payment ids from id blocks", count);
+        }
+    }
+
+    // the lease is used up to two heartbeats before the key expires, counted from before the call that set the ttl
+    private long validUntil(long leasedAt) {
+        return leasedAt + ppsProperties.getNodeIdLeaseTtlSeconds() * 1000 - 2 * ppsProperties.getNodeIdLeaseHeartbeatMillis();
+    }
+
+    private <T> T call(Flux<T> result) {
+        return call(result.next());
+    }
+
+    private <T> T call(Mono<T> result) {
+        return result.block(Duration.ofMillis(ppsProperties.getNodeIdLeaseTimeoutMillis()));
+    }
+
+    /**
+     * Ids of blocks reserved with an increment of a Redis counter, so they are unique across any number of instances.
+     * A spare block is reserved ahead, by the heartbeat and without waiting as soon as the spare block is taken into
+     * use; a request never waits on Redis, it gets no id when both blocks are used up.
+     */
+    final class IdBlocks {
+        private volatile Block current = new Block(1, 0);
+        private Block spare;
+        private boolean refilling;
+
+        /**
+         * @return next id of the blocks, -1 when the blocks are used up and the spare block is not reserved yet
+         */
+        long nextId() {
+            while (true) {
+                Block block = current;
+                long id = block.next.getAndIncrement();
+                if (id <= block.last) {
+                    return ID_BLOCK_FLAG | id;
+                }
+                synchronized (this) {
+                    if (current == block) {
+                        if (spare == null) {
+                            refill();
+                            return -1;
+                        }
+                        current = spare;
+                        spare = null;
+                        refill();
+                    }
+                }
+            }
+        }
+
+        void prefetch() {
+            synchronized (this) {
+                if (spare != null) {
+                    return;
+                }
+            }
+            // waits on Redis outside the monitor, which the requests take when a block is used up
+            Block block = leased(call(reactiveStringRedisTemplate.opsForValue().increment(ID_BLOCK_KEY, ppsProperties.getIdBlockSize())));
+            synchronized (this) {
+                if (spare == null) {
+                    spare = block;
+                }
+            }
+        }
+
+        // reserves the spare block off the request path, guarded by the monitor of the blocks
+        private void refill() {
+            if (refilling) {
+                return;
+            }
+            refilling = true;
+            reactiveStringRedisTemplate.opsForValue().increment(ID_BLOCK_KEY, ppsProperties.getIdBlockSize())
+                    .timeout(Duration.ofMillis(ppsProperties.getNodeIdLeaseTimeoutMillis()))
+                    .doFinally(signal -> {
+                        synchronized (this) {
+                            refilling = false;
+                        }
+                    })
+                    .subscribe(last -> {
+                        Block block = leased(last);
+                        synchronized (this) {
+                            if (spare == null) {
+                                spare = block;
+                            }
+                        }
+                    }, e -> logger.warn("Redis: id block lease failed, payment ids use the hashed node id until one is leased : {}",
+                                e.getMessage()));
+        }
+
+        private Block leased(Long last) {
+            if (last == null) {
+                throw new IllegalStateException("id block lease returned no counter value");
+            }
+            leasedBlocks.increment();
+            long size = ppsProperties.getIdBlockSize();
+            return new Block(last - size + 1, last);
+        }
+    }
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long last;
+
+        private Block(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.mgm.payments.processing.service.repository.redis;
+
+import com.mgm.payments.processing.service.config.PPSProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Shared circuit breaker of the Redis wrappers. Every call gets {@code pps.redis-call-timeout-millis}; after
+ * {@code pps.redis-circuit-failure-threshold} failed or timed out calls in a row the circuit opens and calls go
+ * straight to their fallback, so capture and void use the DB path instead of waiting on Redis. After
+ * {@code pps.redis-circuit-open-millis} a single call is let through as a probe, which closes the circuit when it
+ * succeeds and opens it again when it fails.
+ */
+@Component
+public class RedisCircuitBreaker {
+
+    private final Logger logger = LoggerFactory.getLogger(RedisCircuitBreaker.class);
+
+    enum State {CLOSED, OPEN, HALF_OPEN}
+
+    static final CircuitOpenException CIRCUIT_OPEN = new CircuitOpenException();
+
+    private final PPSProperties ppsProperties;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final Counter opened;
+    private volatile long openedAt;
+
+    @Autowired
+    public RedisCircuitBreaker(PPSProperties ppsProperties, Clock clock, MeterRegistry meterRegistry) {
+        this.ppsProperties = ppsProperties;
+        this.clock = clock;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("pps.redis.circuit.state", state, current -> current.get().ordinal())
+                .description("Redis circuit state, 0 closed, 1 open, 2 half open").register(meterRegistry);
+        this.opened = Counter.builder("pps.redis.circuit.opened")
+                .description("Times the Redis circuit opened").register(meterRegistry);
+    }
+
+    /**
+     * Runs the Redis call unless the circuit is open
+     *
+     * @param operation - name of the call, used as the metric tag
+     * @param call      - Redis call
+     * @param fallback  - result when the circuit is open or the call fails or times out, given the cause
+     * @return result of the call, or of the fallback
+     */
+    public <T> Mono<T> execute(String operation, Mono<T> call, Function<Throwable, Mono<T>> fallback) {
+        return Mono.defer(() -> {
+            State admittedIn = admit();
+            if (admittedIn == null) {
+                meterRegistry.counter("pps.redis.calls.rejected", "operation", operation).increment();
+                return fallback.apply(CIRCUIT_OPEN);
+            }
+            long start = clock.millis();
+            String[] outcome = new String[]{"cancelled"};
+            return call.timeout(Duration.ofMillis(ppsProperties.getRedisCallTimeoutMillis()))
+                    .doOnSuccess(unused -> {
+                        outcome[0] = "success";
+                        onSuccess(admittedIn);
+                    })
+                    .onErrorResume(e -> {
+                        outcome[0] = e instanceof TimeoutException ? "timeout" : "failure";
+                        onFailure(admittedIn, operation, e);
+                        return fallback.apply(e);
+                    })
+                    .doFinally(signalType -> {
+                        if (signalType == SignalType.CANCEL && admittedIn == State.HALF_OPEN) {
+                            // the probe was abandoned without an outcome, let the next call probe instead
+                            state.compareAndSet(State.HALF_OPEN, State.OPEN);
+                        }
+                        Timer.builder("pps.redis.calls").description("Redis calls made through the circuit breaker")
+                                .tags("operation", operation, "outcome", outcome[0]).register(meterRegistry)
+                                .record(clock.millis() - start, TimeUnit.MILLISECONDS);
+                    });
+        });
+    }
+
+    State getState() {
+        return state.get();
+    }
+
+    /**
+     * @return state the call was admitted in, null when it is rejected
+     */
+    private State admit() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return State.CLOSED;
+        }
+        if (current == State.OPEN && clock.millis() - openedAt >= ppsProperties.getRedisCircuitOpenMillis()
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            return State.HALF_OPEN;
+        }
+        return null;
+    }
+
+    // outcomes of calls admitted before the circuit opened do not move an open circuit, only the probe does
+    private void onSuccess(State admittedIn) {
+        consecutiveFailures.set(0);
+        if (admittedIn == State.HALF_OPEN && state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+            logger.info("Redis: circuit closed, probe call succeeded");
+        }
+    }
+
+    private void onFailure(State admittedIn, String operation, Throwable e) {
+        if (admittedIn == State.HALF_OPEN) {
+            openedAt = clock.millis();
+            if (state.compareAndSet(State.HALF_OPEN, State.OPEN)) {
+                logger.warn("Redis: circuit opened again, {} probe failed : {}", operation, e.getMessage());
+            }
+            return;
+        }
+        if (consecutiveFailures.incrementAndGet() >= ppsProperties.getRedisCircuitFailureThreshold()
+                && state.get() == State.CLOSED) {
+            openedAt = clock.millis();
+            if (state.compareAndSet(State.CLOSED, State.OPEN)) {
+                opened.increment();
+                logger.warn("Redis: circuit opened after {} consecutive failures, last {} : {}",
+                        consecutiveFailures.get(), operation, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Cause handed to the fallback of a call rejected by the open circuit
+     */
+    public static final class CircuitOpenException extends RuntimeException {
+        private CircuitOpenException() {
+            super("Redis circuit is open", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.mgm.payments.processing.service.repository.redis;
+
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.enums.TransactionStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisHash;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Takes the in-flight lock of a transaction in one round-trip. The script checks for an existing entry and writes
+ * the new one atomically, in the layout of the entity's {@link RedisHash} repository, so two pods can no longer both
+ * pass the duplicate check before either writes. The time to live is {@code pps.redis-lock-ttl-seconds.<keyspace>},
+ * falling back to the one declared on the entity.
+ */
+@Component
+public class RedisTransactionLock {
+
+    private static final RedisScript<Long> LOCK_SCRIPT =
+            RedisScript.of(new ClassPathResource("redis/transaction-lock.lua"), Long.class);
+
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+    private final PPSProperties ppsProperties;
+
+    @Autowired
+    public RedisTransactionLock(ReactiveStringRedisTemplate reactiveStringRedisTemplate, PPSProperties ppsProperties) {
+        this.reactiveStringRedisTemplate = reactiveStringRedisTemplate;
+        this.ppsProperties = ppsProperties;
+    }
+
+    /**
+     * Writes the entry with the entity's time to live unless an entry for the id is already present
+     *
+     * @param entityType            - {@link RedisHash} entity the entry is stored as
+     * @param id                    - entity id
+     * @param transactionStatus     - status stored in the entry
+     * @param amount                - amount stored in the entry, may be null
+     * @param duplicateOnSameAmount - true if an existing entry is only a duplicate when its amount matches, it is
+     *                              replaced otherwise
+     * @return true if the lock was taken, false if the request is a duplicate
+     */
+    public Mono<Boolean> tryLock(Class<?> entityType, String id, TransactionStatus transactionStatus, BigDecimal amount,
+                                 boolean duplicateOnSameAmount) {
+        RedisHash redisHash = entityType.getAnnotation(RedisHash.class);
+        String keyspace = redisHash.value();
+        long ttlSeconds = ppsProperties.getRedisLockTtlSeconds().getOrDefault(keyspace, redisHash.timeToLive());
+        return reactiveStringRedisTemplate.execute(LOCK_SCRIPT, List.of(keyspace + ":" + id, keyspace),
+                        List.of(id, entityType.getName(), transactionStatus.name(), amount != null ? amount.toString() : "",
+                                String.valueOf(ttlSeconds), duplicateOnSameAmount ? "1" : "0"))
+                .next()
+                .map(result -> result == 1L)
+                .defaultIfEmpty(Boolean.FALSE);
+    }
+
+    /**
+     * Removes the entry and its id from the keyspace set
+     *
+     * @param entityType - {@link RedisHash} entity the entry is stored as
+     * @param id         - entity id
+     */
+    public Mono<Void> unlock(Class<?> entityType, String id) {
+        String keyspace = entityType.getAnnotation(RedisHash.class).value();
+        return reactiveStringRedisTemplate.delete(keyspace + ":" + id)
+                .then(reactiveStringRedisTemplate.opsForSet().remove(keyspace, id))
+                .then();
+    }
+}
@@ -4,15 +4,17 @@ import brave.Span;
 import brave.Tracer;
 import com.mgm.payments.processing.service.entity.redis.AuthorizeRedisEntity;
 import com.mgm.payments.processing.service.model.HeadersDTO;
+import com.mgm.payments.processing.service.repository.redis.RedisCircuitBreaker;
+import com.mgm.payments.processing.service.repository.redis.RedisTransactionLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StopWatch;
+import reactor.core.publisher.Mono;
 
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.util.Optional;
 
 import static com.mgm.payments.processing.service.constants.PaymentProcessingConstants.*;
 
@@ -21,12 +23,14 @@ public class AuthorizeRedisPaymentRepositoryWrapper {
 
     private final Logger logger = LoggerFactory.getLogger(AuthorizeRedisPaymentRepositoryWrapper.class);
 
-    private final AuthorizeRedisPaymentRepository redisPaymentRepository;
+    private final RedisTransactionLock redisTransactionLock;
     private final Tracer tracer;
+    private final RedisCircuitBreaker redisCircuitBreaker;
     @Autowired
-    public AuthorizeRedisPaymentRepositoryWrapper(AuthorizeRedisPaymentRepository redisPaymentRepository, Tracer tracer) {
-        this.redisPaymentRepository = redisPaymentRepository;
+    public AuthorizeRedisPaymentRepositoryWrapper(RedisTransactionLock redisTransactionLock, Tracer tracer, RedisCircuitBreaker redisCircuitBreaker) {
+        this.redisTransactionLock = redisTransactionLock;
         this.tracer = tracer;
+        this.redisCircuitBreaker = redisCircuitBreaker;
     }
 
     private String getTraceId() {
@@ -45,38 +49,50 @@ public class AuthorizeRedisPaymentRepositoryWrapper {
         return null;
     }
 
-    public AuthorizeRedisEntity save(AuthorizeRedisEntity payment, HeadersDTO headersDTO){
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start();
-        AuthorizeRedisEntity authorizeRedisEntity = redisPaymentRepository.save(payment);
-        stopWatch.stop();
-        logger.info(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "save", AUTHORIZE_REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
-                headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
-                stopWatch.getTotalTimeMillis(), "Record Saved to authorize Redis Cache !!");
-        return authorizeRedisEntity;
+    /**
+     * Saves the entry unless one with the same amount is present, in one Redis round-trip. While Redis is unavailable
+     * the request goes ahead without the entry
+     *
+     * @return false if the request is a duplicate
+     */
+    public Mono<Boolean> tryLock(AuthorizeRedisEntity entity, HeadersDTO headersDTO){
+        return Mono.defer(() -> {
+            StopWatch stopWatch = new StopWatch();
+            stopWatch.start();
+            return redisCircuitBreaker.execute("authorize.tryLock", redisTransactionLock.tryLock(AuthorizeRedisEntity.class, entity.getId(), entity.getTransactionStatus(),
+                    entity.getAmount(), true).doOnNext(locked -> {
+                stopWatch.stop();
+                logger.info(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "tryLock", AUTHORIZE_REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                        headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
+                        stopWatch.getTotalTimeMillis(), Boolean.TRUE.equals(locked) ? "Record Saved to authorize Redis Cache !!" : "Record already present in authorize Redis Cache !!");
+            }), e -> {
+                logger.warn(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "tryLock", AUTHORIZE_REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                        headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
+                        0, "Authorize Redis Cache unavailable !! Not saving Record : " + e.getMessage());
+                return Mono.just(Boolean.TRUE);
+            });
+        });
     }
 
-    public Optional<AuthorizeRedisEntity> findById(String id, HeadersDTO headersDTO){
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start();
-        Optional<AuthorizeRedisEntity> authorizeRedisEntity = redisPaymentRepository.findById(id);
-        stopWatch.stop();
-        String logMessage = authorizeRedisEntity.isPresent() ? "Record Fetched from authorize Redis Cache !!" : "Record Not Found in authorize Redis Cache !!";
-        logger.info(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "findById", AUTHORIZE_REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
-                headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
-                stopWatch.getTotalTimeMillis(), logMessage);
-        return authorizeRedisEntity;
+    /**
+     * Deletes the entry; a failure is only logged, the entry then expires with its time to live
+     */
+    public Mono<Void> deleteById(String id, HeadersDTO headersDTO){
+        return Mono.defer(() -> {
+            StopWatch stopWatch = new StopWatch();
+            stopWatch.start();
+            return redisCircuitBreaker.execute("authorize.deleteById", redisTransactionLock.unlock(AuthorizeRedisEntity.class, id).doOnSuccess(unused -> {
+                stopWatch.stop();
+                logger.info(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "deleteById", AUTHORIZE_REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                        headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
+                        stopWatch.getTotalTimeMillis(), "Record Deleted from authorize Redis Cache !!");
+            }), e -> {
+                logger.warn(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "deleteById", AUTHORIZE_REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                        headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
+                        0, "Record Delete from authorize Redis Cache failed : " + e.getMessage());
+                return Mono.empty();
+            });
+        });
     }
 
-    public void deleteById(String paymentId, HeadersDTO headersDTO){
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start();
-        redisPaymentRepository.deleteById(paymentId);
-        stopWatch.stop();
-        logger.info(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "deleteById", AUTHORIZE_REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
-                headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
-                stopWatch.getTotalTimeMillis(), "Record Deleted from authorize Redis Cache !!");
-    }
-
-
 }
@@ -0,0 +1,195 @@
+package com.mgm.payments.processing.service.repository.redis.payment;
+
+import com.mgm.payments.processing.service.entity.redis.PaymentRedisEntity;
+import com.mgm.payments.processing.service.enums.TransactionStatus;
+import com.mgm.payments.processing.service.enums.TransactionType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Versioned binary form of the authorization snapshot of a {@link PaymentRedisEntity}, stored in the
+ * {@link #SNAPSHOT_FIELD} of the payment hash instead of one hash field per property. The value is a version byte and a
+ * presence bitmap followed by the set properties in slot order: enums as their ordinal, amounts as scale and unscaled
+ * bytes, strings as modified UTF-8. Slots are only ever appended; reordering them or the enum constants needs a new
+ * version. The capture and void fields in {@link #STATE_FIELDS} stay plain hash fields, they are updated on their own
+ * by redis/payment-state.lua.
+ */
+final class PaymentStateCodec {
+
+    static final String SNAPSHOT_FIELD = "snapshot";
+    static final Set<String> STATE_FIELDS = Set.of("isCapture", "isVoid", "captureStatus", "captureAmount", "voidStatus");
+
+    private static final byte VERSION = 1;
+    private static final TransactionType[] TRANSACTION_TYPES = TransactionType.values();
+    private static final TransactionStatus[] TRANSACTION_STATUSES = TransactionStatus.values();
+
+    private static final List<Slot<?>> SLOTS = List.of(
+            string(PaymentRedisEntity::getId, PaymentRedisEntity::setId),
+            new Slot<>(PaymentRedisEntity::getTransactionType, PaymentRedisEntity::setTransactionType,
+                    (out, value) -> out.writeByte(value.ordinal()), in -> TRANSACTION_TYPES[in.readUnsignedByte()]),
+            new Slot<>(PaymentRedisEntity::getTransactionStatus, PaymentRedisEntity::setTransactionStatus,
+                    (out, value) -> out.writeByte(value.ordinal()), in -> TRANSACTION_STATUSES[in.readUnsignedByte()]),
+            amount(PaymentRedisEntity::getAmount, PaymentRedisEntity::setAmount),
+            amount(PaymentRedisEntity::getAuthorizedAmount, PaymentRedisEntity::setAuthorizedAmount),
+            string(PaymentRedisEntity::getMgmToken, PaymentRedisEntity::setMgmToken),
+            string(PaymentRedisEntity::getClientReferenceNumber, PaymentRedisEntity::setClientReferenceNumber),
+            string(PaymentRedisEntity::getReferenceId, PaymentRedisEntity::setReferenceId),
+            string(PaymentRedisEntity::getSessionId, PaymentRedisEntity::setSessionId),
+            string(PaymentRedisEntity::getMgmId, PaymentRedisEntity::setMgmId),
+            string(PaymentRedisEntity::getGatewayChainId, PaymentRedisEntity::setGatewayChainId),
+            string(PaymentRedisEntity::getGroupId, PaymentRedisEntity::setGroupId),
+            string(PaymentRedisEntity::getGatewayId, PaymentRedisEntity::setGatewayId),
+            string(PaymentRedisEntity::getOrderType, PaymentRedisEntity::setOrderType),
+            string(PaymentRedisEntity::getCardHolderName, PaymentRedisEntity::setCardHolderName),
+            string(PaymentRedisEntity::getTenderType, PaymentRedisEntity::setTenderType),
+            string(PaymentRedisEntity::getCardEntryMode, PaymentRedisEntity::setCardEntryMode),
+            string(PaymentRedisEntity::getLast4DigitsOfTheCard, PaymentRedisEntity::setLast4DigitsOfTheCard),
+            string(PaymentRedisEntity::getIssuerType, PaymentRedisEntity::setIssuerType),
+            string(PaymentRedisEntity::getCurrencyCode, PaymentRedisEntity::setCurrencyCode),
+            string(PaymentRedisEntity::getBillingAddress1, PaymentRedisEntity::setBillingAddress1),
+            string(PaymentRedisEntity::getBillingAddress2, PaymentRedisEntity::setBillingAddress2),
+            string(PaymentRedisEntity::getBillingCity, PaymentRedisEntity::setBillingCity),
+            string(PaymentRedisEntity::getBillingCountry, PaymentRedisEntity::setBillingCountry),
+            string(PaymentRedisEntity::getBillingState, PaymentRedisEntity::setBillingState),
+            string(PaymentRedisEntity::getBillingZipcode, PaymentRedisEntity::setBillingZipcode),
+            new Slot<>(PaymentRedisEntity::getIsRefund, PaymentRedisEntity::setIsRefund,
+                    DataOutput::writeBoolean, DataInput::readBoolean));
+
+    private PaymentStateCodec() {
+    }
+
+    /**
+     * Encodes the snapshot properties of the payment, the fields in {@link #STATE_FIELDS} are left out
+     *
+     * @param payment - payment state
+     * @return base64 of the binary snapshot, the string redis template does not carry raw bytes
+     */
+    static String encode(PaymentRedisEntity payment) {
+        return Base64.getEncoder().encodeToString(toBytes(payment));
+    }
+
+    /**
+     * Decodes a snapshot written by {@link #encode}
+     *
+     * @param snapshot - value of the {@link #SNAPSHOT_FIELD}
+     * @return payment state with the snapshot properties set
+     * @throws IllegalArgumentException if the snapshot is corrupt or of an unknown version
+     */
+    static PaymentRedisEntity decode(String snapshot) {
+        return fromBytes(Base64.getDecoder().decode(snapshot));
+    }
+
+    static byte[] toBytes(PaymentRedisEntity payment) {
+        int presence = 0;
+        for (int i = 0; i < SLOTS.size(); i++) {
+            if (SLOTS.get(i).isSet(payment)) {
+                presence |= 1 << i;
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeInt(presence);
+            for (int i = 0; i < SLOTS.size(); i++) {
+                if ((presence & 1 << i) != 0) {
+                    SLOTS.get(i).write(out, payment);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static PaymentRedisEntity fromBytes(byte[] bytes) {
+        PaymentRedisEntity payment = new PaymentRedisEntity();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unknown payment snapshot version " + version);
+            }
+            int presence = in.readInt();
+            for (int i = 0; i < SLOTS.size(); i++) {
+                if ((presence & 1 << i) != 0) {
+                    SLOTS.get(i).read(in, payment);
+                }
+            }
+        } catch (IOException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Corrupt payment snapshot", e);
+        }
+        return payment;
+    }
+
+    private static Slot<String> string(Function<PaymentRedisEntity, String> getter, BiConsumer<PaymentRedisEntity, String> setter) {
+        return new Slot<>(getter, setter, DataOutput::writeUTF, DataInput::readUTF);
+    }
+
+    private static Slot<BigDecimal> amount(Function<PaymentRedisEntity, BigDecimal> getter,
+                                           BiConsumer<PaymentRedisEntity, BigDecimal> setter) {
+        return new Slot<>(getter, setter, (out, value) -> {
+            byte[] unscaled = value.unscaledValue().toByteArray();
+            if (value.scale() != (byte) value.scale() || unscaled.length > 255) {
+                throw new IllegalArgumentException("Amount out of snapshot range " + value);
+            }
+            out.writeByte(value.scale());
+            out.writeByte(unscaled.length);
+            out.write(unscaled);
+        }, in -> {
+            int scale = in.readByte();
+            byte[] unscaled = new byte[in.readUnsignedByte()];
+            in.readFully(unscaled);
+            return new BigDecimal(new BigInteger(unscaled), scale);
+        });
+    }
+
+    @FunctionalInterface
+    private interface Writer<T> {
+        void write(DataOutput out, T value) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Reader<T> {
+        T read(DataInput in) throws IOException;
+    }
+
+    private static final class Slot<T> {
+        private final Function<PaymentRedisEntity, T> getter;
+        private final BiConsumer<PaymentRedisEntity, T> setter;
+        private final Writer<T> writer;
+        private final Reader<T> reader;
+
+        private Slot(Function<PaymentRedisEntity, T> getter, BiConsumer<PaymentRedisEntity, T> setter,
+                     Writer<T> writer, Reader<T> reader) {
+            this.getter = getter;
+            this.setter = setter;
+            this.writer = writer;
+            this.reader = reader;
+        }
+
+        private boolean isSet(PaymentRedisEntity payment) {
+            return getter.apply(payment) != null;
+        }
+
+        private void write(DataOutput out, PaymentRedisEntity payment) throws IOException {
+            writer.write(out, getter.apply(payment));
+        }
+
+        private void read(DataInput in, PaymentRedisEntity payment) throws IOException {
+            setter.accept(payment, reader.read(in));
+        }
+    }
+}
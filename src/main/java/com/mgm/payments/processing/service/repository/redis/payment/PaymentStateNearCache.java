@@ -0,0 +1,154 @@
+package com.mgm.payments.processing.service.repository.redis.payment;
+
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.entity.redis.PaymentRedisEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded in-process copy of the payment state in front of {@link PaymentStateRepository}, so repeated capture
+ * and void lookups of the same payment skip the Redis round-trip. An entry is dropped as soon as any pod announces a
+ * write to the payment and lives for {@code pps.payment-near-cache-ttl-millis} at most, which bounds the staleness
+ * when an announcement is lost. A stale copy only ever fails fast checks late: the capture and void locks of
+ * {@link PaymentStateRepository#tryLock} are checked against Redis itself, so a copy still showing isCapture or isVoid
+ * false cannot lead to a second capture or void. Nothing is cached while the invalidation channel is not subscribed, and a read that
+ * raced an invalidation is not cached either. When full, the entry loaded first is dropped, the map is kept in load
+ * order so that this is constant time.
+ */
+@Component
+public class PaymentStateNearCache {
+
+    private final PPSProperties ppsProperties;
+    private final Clock clock;
+    private final Map<String, NearCacheEntry> entries;
+    // bumped by every invalidation, a read only caches its result if no invalidation happened while it was in flight
+    private final AtomicLong invalidationCount = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter invalidations;
+    private volatile boolean listening;
+
+    @Autowired
+    public PaymentStateNearCache(PPSProperties ppsProperties, Clock clock, MeterRegistry meterRegistry) {
+        this.ppsProperties = ppsProperties;
+        this.clock = clock;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, NearCacheEntry> eldest) {
+                boolean full = size() > ppsProperties.getPaymentNearCacheMaxSize();
+                if (full) {
+                    evictions.increment();
+                }
+                return full;
+            }
+        });
+        Gauge.builder("pps.payment.nearcache.size", entries, Map::size)
+                .description("Payment states held in the near cache").register(meterRegistry);
+        this.hits = Counter.builder("pps.payment.nearcache.hits")
+                .description("Payment state lookups served from the near cache").register(meterRegistry);
+        this.misses = Counter.builder("pps.payment.nearcache.misses")
+                .description("Payment state lookups that went to Redis").register(meterRegistry);
+        this.evictions = Counter.builder("pps.payment.nearcache.evictions")
+                .description("Near cache entries dropped because they expired or the cache was full").register(meterRegistry);
+        this.invalidations = Counter.builder("pps.payment.nearcache.invalidations")
+                .description("Near cache invalidations received for written payment states").register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached state of the payment
+     *
+     * @param paymentId - paymentId of the authorization
+     * @return state, null when it is not cached or has expired
+     */
+    PaymentRedisEntity get(String paymentId) {
+        if (!isEnabled()) {
+            return null;
+        }
+        NearCacheEntry entry = entries.get(paymentId);
+        if (entry != null) {
+            if (clock.millis() - entry.loadedAt < ppsProperties.getPaymentNearCacheTtlMillis()) {
+                hits.increment();
+                return entry.payment;
+            }
+            if (entries.remove(paymentId, entry)) {
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Marks the start of a Redis read, to be handed back to {@link #put}
+     */
+    long generation() {
+        return invalidationCount.get();
+    }
+
+    /**
+     * Caches the state read from Redis unless an invalidation arrived since the read started
+     *
+     * @param paymentId  - paymentId of the authorization
+     * @param payment    - state read from Redis
+     * @param generation - {@link #generation()} taken before the read
+     */
+    void put(String paymentId, PaymentRedisEntity payment, long generation) {
+        if (!isEnabled()) {
+            return;
+        }
+        NearCacheEntry entry = new NearCacheEntry(payment, clock.millis());
+        synchronized (entries) {
+            // re-inserted so that a reloaded payment moves to the end of the load order
+            entries.remove(paymentId);
+            entries.put(paymentId, entry);
+        }
+        if (invalidationCount.get() != generation) {
+            entries.remove(paymentId, entry);
+        }
+    }
+
+    /**
+     * Drops the cached state of the payment
+     *
+     * @param paymentId - paymentId of the authorization
+     */
+    void invalidate(String paymentId) {
+        invalidationCount.incrementAndGet();
+        invalidations.increment();
+        entries.remove(paymentId);
+    }
+
+    /**
+     * Turns the cache on once the invalidation channel is subscribed, and off with all entries dropped when the
+     * subscription is lost
+     */
+    void setListening(boolean listening) {
+        this.listening = listening;
+        invalidationCount.incrementAndGet();
+        entries.clear();
+    }
+
+    private boolean isEnabled() {
+        return listening && ppsProperties.getPaymentNearCacheMaxSize() > 0;
+    }
+
+    private static final class NearCacheEntry {
+        private final PaymentRedisEntity payment;
+        private final long loadedAt;
+
+        private NearCacheEntry(PaymentRedisEntity payment, long loadedAt) {
+            this.payment = payment;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.mgm.payments.processing.service.repository.redis.payment;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.entity.redis.PaymentRedisEntity;
+import com.mgm.payments.processing.service.enums.PaymentLockResult;
+import com.mgm.payments.processing.service.enums.TransactionStatus;
+import com.mgm.payments.processing.service.enums.TransactionType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveHashOperations;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One redis hash per payment holding the authorization snapshot and the state of the capture and void in flight.
+ * The whole state is read with a single HGETALL, and every transition only writes the fields it changes through
+ * redis/payment-state.lua, so taking a lock or flipping isCapture is one atomic round-trip. The lock is the
+ * authoritative duplicate check: it is refused while the capture or void is in flight or once either succeeded,
+ * whatever state the caller read before. Reads go through the
+ * {@link PaymentStateNearCache}; every write announces the paymentId on {@link #INVALIDATION_CHANNEL} so that all pods
+ * drop their copy. With {@code pps.payment-state-binary-codec-enabled} the authorization snapshot is written as one
+ * {@link PaymentStateCodec} field; hashes written one field per property are still read.
+ */
+@Component
+public class PaymentStateRepository {
+
+    static final String KEY_PREFIX = "payment-state:";
+    static final String INVALIDATION_CHANNEL = "payment-state:invalidations";
+
+    private static final RedisScript<Long> STATE_SCRIPT =
+            RedisScript.of(new ClassPathResource("redis/payment-state.lua"), Long.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .configure(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS, true);
+    private static final TypeReference<Map<String, Object>> FIELDS_TYPE = new TypeReference<>() {
+    };
+
+    private final Logger logger = LoggerFactory.getLogger(PaymentStateRepository.class);
+
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+    private final PaymentStateNearCache nearCache;
+    private final PPSProperties ppsProperties;
+    private Disposable invalidationSubscription;
+
+    @Autowired
+    public PaymentStateRepository(ReactiveStringRedisTemplate reactiveStringRedisTemplate, PaymentStateNearCache nearCache,
+                                  PPSProperties ppsProperties) {
+        this.reactiveStringRedisTemplate = reactiveStringRedisTemplate;
+        this.nearCache = nearCache;
+        this.ppsProperties = ppsProperties;
+    }
+
+    /**
+     * Subscribes to the invalidations of the other pods, resubscribing with backoff when the connection drops. The
+     * near cache is only used while the subscription is up.
+     */
+    @PostConstruct
+    public void subscribeInvalidations() {
+        invalidationSubscription = reactiveStringRedisTemplate.listenToChannel(INVALIDATION_CHANNEL)
+                .doOnSubscribe(subscription -> nearCache.setListening(true))
+                .doOnError(e -> {
+                    nearCache.setListening(false);
+                    logger.warn("Payment state invalidation channel lost, near cache disabled until resubscribed : {}", e.getMessage());
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .doFinally(signalType -> nearCache.setListening(false))
+                .subscribe(message -> nearCache.invalidate(message.getMessage()));
+    }
+
+    @PreDestroy
+    public void unsubscribeInvalidations() {
+        if (invalidationSubscription != null) {
+            invalidationSubscription.dispose();
+        }
+    }
+
+    /**
+     * Reads the state of the payment
+     *
+     * @param paymentId - paymentId of the authorization
+     * @return state, empty when no authorization snapshot is stored
+     */
+    public Mono<PaymentRedisEntity> findById(String paymentId) {
+        return Mono.defer(() -> {
+            PaymentRedisEntity cached = nearCache.get(paymentId);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            long generation = nearCache.generation();
+            ReactiveHashOperations<String, String, String> hashOperations = reactiveStringRedisTemplate.opsForHash();
+            return hashOperations.entries(KEY_PREFIX + paymentId)
+                    .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                    .flatMap(fields -> Mono.justOrEmpty(toEntity(paymentId, fields)))
+                    .doOnNext(payment -> nearCache.put(paymentId, payment, generation));
+        });
+    }
+
+    /**
+     * Writes the non null fields of the entity, the fields it does not set are kept
+     *
+     * @param payment    - payment state
+     * @param ttlSeconds - time to live of the state, an existing longer time to live is kept
+     */
+    public Mono<Void> save(PaymentRedisEntity payment, long ttlSeconds) {
+        boolean binarySnapshot = Boolean.TRUE.equals(ppsProperties.getPaymentStateBinaryCodecEnabled());
+        List<String> fieldValues = new ArrayList<>();
+        if (binarySnapshot) {
+            fieldValues.add(PaymentStateCodec.SNAPSHOT_FIELD);
+            fieldValues.add(PaymentStateCodec.encode(payment));
+        }
+        MAPPER.convertValue(payment, FIELDS_TYPE).forEach((field, value) -> {
+            if (!binarySnapshot || PaymentStateCodec.STATE_FIELDS.contains(field)) {
+                fieldValues.add(field);
+                fieldValues.add(String.valueOf(value));
+            }
+        });
+        return update(payment.getId(), ttlSeconds, List.of(), fieldValues).then();
+    }
+
+    /**
+     * Marks the capture or void of the payment as in flight unless a capture or void is already in flight or has
+     * succeeded. A capture and a void of one payment exclude each other, so only one of them ever reaches the router.
+     *
+     * @param paymentId       - paymentId of the authorization
+     * @param transactionType - CAPTURE or VOID
+     * @param amount          - amount of the transaction, may be null
+     * @return LOCKED, DUPLICATE when the same transaction is in flight or succeeded, CONFLICT when the other one is
+     */
+    public Mono<PaymentLockResult> tryLock(String paymentId, TransactionType transactionType, BigDecimal amount) {
+        String statusField = statusField(transactionType);
+        TransactionType other = transactionType == TransactionType.CAPTURE ? TransactionType.VOID : TransactionType.CAPTURE;
+        List<String> guardFields = List.of(statusField, flagField(transactionType), statusField(other), flagField(other));
+        List<String> fieldValues = new ArrayList<>(List.of(statusField, TransactionStatus.IN_PROCESS.name()));
+        if (transactionType == TransactionType.CAPTURE) {
+            fieldValues.add("captureAmount");
+            fieldValues.add(amount != null ? amount.toString() : "");
+        }
+        return update(paymentId, ppsProperties.getPaymentStateTtlSeconds(), guardFields, fieldValues).map(refusedBy -> {
+            if (refusedBy == 0) {
+                return PaymentLockResult.LOCKED;
+            }
+            // guards 1 and 2 belong to the same transaction, 3 and 4 to the other one
+            return refusedBy <= 2 ? PaymentLockResult.DUPLICATE : PaymentLockResult.CONFLICT;
+        });
+    }
+
+    /**
+     * Clears the in-flight state of the transaction and, when it succeeded, sets the matching isCapture or isVoid flag
+     *
+     * @param paymentId       - paymentId of the authorization
+     * @param transactionType - CAPTURE or VOID
+     * @param succeeded       - true if the transaction succeeded
+     */
+    public Mono<Void> complete(String paymentId, TransactionType transactionType, boolean succeeded) {
+        List<String> fieldValues = new ArrayList<>(List.of(statusField(transactionType), ""));
+        if (transactionType == TransactionType.CAPTURE) {
+            fieldValues.addAll(List.of("captureAmount", ""));
+        }
+        if (succeeded) {
+            fieldValues.addAll(List.of(flagField(transactionType), Boolean.TRUE.toString()));
+        }
+        return update(paymentId, ppsProperties.getPaymentStateTtlSeconds(), List.of(), fieldValues).then();
+    }
+
+    /**
+     * Maps the hash to the entity, from the binary snapshot with the state fields laid over it when present and from
+     * one field per property otherwise
+     *
+     * @return entity, null when no authorization snapshot is stored or the snapshot cannot be decoded
+     */
+    private PaymentRedisEntity toEntity(String paymentId, Map<String, String> fields) {
+        String snapshot = fields.get(PaymentStateCodec.SNAPSHOT_FIELD);
+        if (snapshot == null) {
+            return fields.containsKey("id") ? MAPPER.convertValue(fields, PaymentRedisEntity.class) : null;
+        }
+        try {
+            Map<String, String> stateFields = new HashMap<>(fields);
+            stateFields.keySet().retainAll(PaymentStateCodec.STATE_FIELDS);
+            return MAPPER.updateValue(PaymentStateCodec.decode(snapshot), stateFields);
+        } catch (IllegalArgumentException | JsonMappingException e) {
+            logger.warn("Payment state snapshot of {} not readable, treated as not cached : {}", paymentId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return 0 when the fields were written, the 1-based position of the guard field that refused the update otherwise
+     */
+    private Mono<Long> update(String paymentId, long ttlSeconds, List<String> guardFields, List<String> fieldValues) {
+        List<String> args = new ArrayList<>(guardFields.size() + fieldValues.size() + 2);
+        args.add(String.valueOf(ttlSeconds));
+        args.add(String.valueOf(guardFields.size()));
+        args.addAll(guardFields);
+        args.addAll(fieldValues);
+        return reactiveStringRedisTemplate.execute(STATE_SCRIPT, Collections.singletonList(KEY_PREFIX + paymentId), args)
+                .next()
+                .flatMap(refusedBy -> refusedBy == 0L ? announceWrite(paymentId).thenReturn(refusedBy) : Mono.just(refusedBy));
+    }
+
+    private Mono<Void> announceWrite(String paymentId) {
+        nearCache.invalidate(paymentId);
+        return reactiveStringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, paymentId)
+                .onErrorResume(e -> {
+                    // the copies of the other pods expire with the near cache ttl, the locks never read them
+                    logger.warn("Payment state invalidation of {} not published, other pods keep their copy until it expires : {}",
+                            paymentId, e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private static String statusField(TransactionType transactionType) {
+        switch (transactionType) {
+            case CAPTURE:
+                return "captureStatus";
+            case VOID:
+                return "voidStatus";
+            default:
+                throw new IllegalArgumentException("No payment state kept for " + transactionType);
+        }
+    }
+
+    private static String flagField(TransactionType transactionType) {
+        return transactionType == TransactionType.CAPTURE ? "isCapture" : "isVoid";
+    }
+}
@@ -0,0 +1,74 @@
+package com.mgm.payments.processing.service.repository.redis.payment;
+
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.entity.redis.PaymentRedisEntity;
+import com.mgm.payments.processing.service.model.HotelData;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+/**
+ * Time to live of the payment state. The base comes from {@code pps.payment-state-ttl-seconds-by-order-type}, falling
+ * back to {@code pps.payment-state-ttl-seconds}. With {@code pps.payment-state-adaptive-ttl-enabled} the state of a
+ * room authorization is kept until its check-out plus {@code pps.payment-state-check-out-grace-hours}, when the folio
+ * is usually captured, capped at {@code pps.payment-state-max-ttl-seconds}. The check-out is taken from the session
+ * item, or derived from the check-in and the expected duration when only those are known.
+ */
+@Component
+public class PaymentStateTtlPolicy {
+
+    private final PPSProperties ppsProperties;
+    private final Clock clock;
+
+    @Autowired
+    public PaymentStateTtlPolicy(PPSProperties ppsProperties, Clock clock) {
+        this.ppsProperties = ppsProperties;
+        this.clock = clock;
+    }
+
+    /**
+     * Time to live of the authorization snapshot
+     *
+     * @param payment   - authorization snapshot
+     * @param hotelData - hotel data of the authorization request, may be null
+     * @return seconds
+     */
+    public long ttlSeconds(PaymentRedisEntity payment, HotelData hotelData) {
+        long ttlSeconds = ppsProperties.getPaymentStateTtlSecondsByOrderType().entrySet().stream()
+                .filter(orderTypeTtl -> orderTypeTtl.getKey().equalsIgnoreCase(payment.getOrderType()))
+                .map(Map.Entry::getValue).findFirst().orElse(ppsProperties.getPaymentStateTtlSeconds());
+        if (!Boolean.TRUE.equals(ppsProperties.getPaymentStateAdaptiveTtlEnabled()) || hotelData == null) {
+            return ttlSeconds;
+        }
+        LocalDate checkOutDate = checkOutDate(hotelData);
+        if (checkOutDate == null) {
+            return ttlSeconds;
+        }
+        Instant keepUntil = checkOutDate.atStartOfDay(ZoneOffset.UTC)
+                .plusHours(ppsProperties.getPaymentStateCheckOutGraceHours()).toInstant();
+        long untilCheckOut = Duration.between(clock.instant(), keepUntil).getSeconds();
+        return Math.max(ttlSeconds, Math.min(untilCheckOut, ppsProperties.getPaymentStateMaxTtlSeconds()));
+    }
+
+    private static LocalDate checkOutDate(HotelData hotelData) {
+        try {
+            if (StringUtils.isNotBlank(hotelData.getCheckOutDate())) {
+                return LocalDate.parse(hotelData.getCheckOutDate());
+            }
+            if (StringUtils.isNotBlank(hotelData.getCheckInDate()) && StringUtils.isNumeric(hotelData.getExpectedDuration())) {
+                return LocalDate.parse(hotelData.getCheckInDate()).plusDays(Long.parseLong(hotelData.getExpectedDuration()));
+            }
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+        return null;
+    }
+}
@@ -4,15 +4,21 @@ import brave.Span;
 import brave.Tracer;
 import com.mgm.payments.processing.service.config.PPSProperties;
 import com.mgm.payments.processing.service.entity.redis.PaymentRedisEntity;
+import com.mgm.payments.processing.service.enums.PaymentLockResult;
+import com.mgm.payments.processing.service.enums.TransactionType;
 import com.mgm.payments.processing.service.model.HeadersDTO;
+import com.mgm.payments.processing.service.model.HotelData;
+import com.mgm.payments.processing.service.repository.redis.RedisCircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StopWatch;
+import reactor.core.publisher.Mono;
 
+import java.math.BigDecimal;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.util.Optional;
 
 import static com.mgm.payments.processing.service.constants.PaymentProcessingConstants.*;
 
@@ -20,14 +26,22 @@ import static com.mgm.payments.processing.service.constants.PaymentProcessingCon
 public class RedisPaymentRepositoryWrapper {
     private final Logger logger = LoggerFactory.getLogger(RedisPaymentRepositoryWrapper.class);
 
-    private final RedisPaymentRepository redisPaymentRepository;
+    private final PaymentStateRepository paymentStateRepository;
     private final Tracer tracer;
     private final PPSProperties ppsProperties;
+    private final PaymentStateTtlPolicy paymentStateTtlPolicy;
+    private final MeterRegistry meterRegistry;
+    private final RedisCircuitBreaker redisCircuitBreaker;
 
-    public RedisPaymentRepositoryWrapper(RedisPaymentRepository redisPaymentRepository, Tracer tracer, PPSProperties ppsProperties) {
-        this.redisPaymentRepository = redisPaymentRepository;
+    public RedisPaymentRepositoryWrapper(PaymentStateRepository paymentStateRepository, Tracer tracer, PPSProperties ppsProperties,
+                                         PaymentStateTtlPolicy paymentStateTtlPolicy, MeterRegistry meterRegistry,
+                                         RedisCircuitBreaker redisCircuitBreaker) {
+        this.paymentStateRepository = paymentStateRepository;
         this.tracer = tracer;
         this.ppsProperties = ppsProperties;
+        this.paymentStateTtlPolicy = paymentStateTtlPolicy;
+        this.meterRegistry = meterRegistry;
+        this.redisCircuitBreaker = redisCircuitBreaker;
     }
 
     private String getTraceId() {
@@ -46,43 +60,110 @@ public class RedisPaymentRepositoryWrapper {
         return null;
     }
 
-    public PaymentRedisEntity save(PaymentRedisEntity payment, HeadersDTO headersDTO){
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start();
-        if (Boolean.TRUE.equals(ppsProperties.getReadFromCache())) {
-            PaymentRedisEntity paymentRedisEntity = redisPaymentRepository.save(payment);
-            stopWatch.stop();
-            logger.info(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "save", REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
-                    headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
-                    stopWatch.getTotalTimeMillis(), "Auth Record Saved to payment Redis Cache !!");
-            return paymentRedisEntity;
-        }else {
+    /**
+     * Saves the authorization snapshot with the time to live of {@link PaymentStateTtlPolicy}; skipped while Redis is
+     * unavailable
+     *
+     * @param hotelData - hotel data of the authorization request, may be null
+     */
+    public Mono<PaymentRedisEntity> save(PaymentRedisEntity payment, HotelData hotelData, HeadersDTO headersDTO){
+        return Mono.defer(() -> {
+            StopWatch stopWatch = new StopWatch();
+            stopWatch.start();
+            if (Boolean.TRUE.equals(ppsProperties.getReadFromCache())) {
+                return redisCircuitBreaker.execute("payment.save", paymentStateRepository.save(payment, paymentStateTtlPolicy.ttlSeconds(payment, hotelData)).doOnSuccess(unused -> {
+                    stopWatch.stop();
+                    logger.info(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "save", REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                            headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
+                            stopWatch.getTotalTimeMillis(), "Auth Record Saved to payment Redis Cache !!");
+                }), e -> unavailable("save", "Not Saving Auth Record to Redis Cache", e, headersDTO)).thenReturn(payment);
+            }
             stopWatch.stop();
             logger.info(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "save", REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
                     headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
                     stopWatch.getTotalTimeMillis(), "Payment Redis Cache is disabled !! Not Saving Auth Record to Redis Cache !!");
-            return null;
-        }
+            return Mono.empty();
+        });
     }
 
-    public Optional<PaymentRedisEntity> findById(String id, HeadersDTO headersDTO){
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start();
-        if(Boolean.TRUE.equals(ppsProperties.getReadFromCache())) {
-            Optional<PaymentRedisEntity> paymentRedisEntity = redisPaymentRepository.findById(id);
-            stopWatch.stop();
-            String logMessage = paymentRedisEntity.isPresent() ? "Auth Record Fetched from payment Redis Cache !!" : "Auth Record Not Found in payment Redis Cache !!";
-            logger.info(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "findById", REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
-                    headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
-                    stopWatch.getTotalTimeMillis(), logMessage);
-            return paymentRedisEntity;
-        }else {
+    /**
+     * Looks up the payment state, counted in {@code pps.payment.state.lookups} by operation and result so the cache hit
+     * rate of each operation can be tuned. Empty while Redis is unavailable, so the caller takes the DB path
+     *
+     * @param operation - capture or void the state is looked up for
+     */
+    public Mono<PaymentRedisEntity> findById(String id, TransactionType operation, HeadersDTO headersDTO){
+        return Mono.defer(() -> {
+            StopWatch stopWatch = new StopWatch();
+            stopWatch.start();
+            if (Boolean.TRUE.equals(ppsProperties.getReadFromCache())) {
+                return redisCircuitBreaker.execute("payment.findById", paymentStateRepository.findById(id).doOnSuccess(paymentRedisEntity -> {
+                    stopWatch.stop();
+                    countLookup(operation, paymentRedisEntity != null ? "hit" : "miss");
+                    String logMessage = paymentRedisEntity != null ? "Auth Record Fetched from payment Redis Cache !!" : "Auth Record Not Found in payment Redis Cache !!";
+                    logger.info(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "findById", REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                            headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
+                            stopWatch.getTotalTimeMillis(), logMessage);
+                }), e -> {
+                    countLookup(operation, "unavailable");
+                    return unavailable("findById", "Not Fetching Auth Record from Redis Cache", e, headersDTO);
+                });
+            }
             stopWatch.stop();
+            countLookup(operation, "disabled");
             logger.info(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "findById", REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
                     headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
                     stopWatch.getTotalTimeMillis(), "Payment Redis Cache is disabled !! Not Fetching Auth Record from Redis Cache !!");
-            return Optional.empty();
-        }
+            return Mono.empty();
+        });
+    }
+
+    /**
+     * Marks the capture or void of the payment as in flight, whether or not the payment cache is enabled. While Redis
+     * is unavailable the transaction goes ahead unmarked, the DB checks still reject a completed duplicate
+     *
+     * @return LOCKED, or DUPLICATE / CONFLICT when this or the other transaction is in flight or has succeeded
+     */
+    public Mono<PaymentLockResult> tryLock(String paymentId, TransactionType transactionType, BigDecimal amount, HeadersDTO headersDTO){
+        return Mono.defer(() -> {
+            StopWatch stopWatch = new StopWatch();
+            stopWatch.start();
+            return redisCircuitBreaker.execute("payment.tryLock", paymentStateRepository.tryLock(paymentId, transactionType, amount).doOnNext(locked -> {
+                stopWatch.stop();
+                logger.info(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "tryLock", REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                        headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
+                        stopWatch.getTotalTimeMillis(), locked == PaymentLockResult.LOCKED ? transactionType + " marked in flight in payment Redis Cache !!"
+                                : transactionType + " refused in payment Redis Cache, " + locked + " !!");
+            }), e -> unavailable("tryLock", "Not marking " + transactionType + " in flight", e, headersDTO).thenReturn(PaymentLockResult.LOCKED));
+        });
+    }
+
+    /**
+     * Clears the in-flight capture or void of the payment and flags the payment when it succeeded; a failure is only
+     * logged, the state then expires with its time to live
+     */
+    public Mono<Void> complete(String paymentId, TransactionType transactionType, boolean succeeded, HeadersDTO headersDTO){
+        return Mono.defer(() -> {
+            StopWatch stopWatch = new StopWatch();
+            stopWatch.start();
+            return redisCircuitBreaker.execute("payment.complete", paymentStateRepository.complete(paymentId, transactionType, succeeded).doOnSuccess(unused -> {
+                stopWatch.stop();
+                logger.info(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "complete", REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                        headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
+                        stopWatch.getTotalTimeMillis(), transactionType + " state updated in payment Redis Cache !!");
+            }), e -> unavailable("complete", transactionType + " state update in payment Redis Cache failed", e, headersDTO));
+        });
+    }
+
+    private <T> Mono<T> unavailable(String operation, String action, Throwable e, HeadersDTO headersDTO) {
+        logger.warn(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, operation, REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
+                0, "Payment Redis Cache unavailable !! " + action + " : " + e.getMessage());
+        return Mono.empty();
+    }
+
+    private void countLookup(TransactionType operation, String result) {
+        meterRegistry.counter("pps.payment.state.lookups", "operation", operation.name(), "result", result).increment();
     }
 
 }
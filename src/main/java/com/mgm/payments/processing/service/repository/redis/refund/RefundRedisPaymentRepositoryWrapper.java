@@ -4,15 +4,17 @@ import brave.Span;
 import brave.Tracer;
 import com.mgm.payments.processing.service.entity.redis.RefundRedisEntity;
 import com.mgm.payments.processing.service.model.HeadersDTO;
+import com.mgm.payments.processing.service.repository.redis.RedisCircuitBreaker;
+import com.mgm.payments.processing.service.repository.redis.RedisTransactionLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StopWatch;
+import reactor.core.publisher.Mono;
 
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.util.Optional;
 
 import static com.mgm.payments.processing.service.constants.PaymentProcessingConstants.*;
 
@@ -20,12 +22,14 @@ import static com.mgm.payments.processing.service.constants.PaymentProcessingCon
 public class RefundRedisPaymentRepositoryWrapper {
     private final Logger logger = LoggerFactory.getLogger(RefundRedisPaymentRepositoryWrapper.class);
 
-    private final RefundRedisPaymentRepository redisPaymentRepository;
+    private final RedisTransactionLock redisTransactionLock;
     private final Tracer tracer;
+    private final RedisCircuitBreaker redisCircuitBreaker;
     @Autowired
-    public RefundRedisPaymentRepositoryWrapper(RefundRedisPaymentRepository redisPaymentRepository, Tracer tracer){
-        this.redisPaymentRepository = redisPaymentRepository;
+    public RefundRedisPaymentRepositoryWrapper(RedisTransactionLock redisTransactionLock, Tracer tracer, RedisCircuitBreaker redisCircuitBreaker) {
+        this.redisTransactionLock = redisTransactionLock;
         this.tracer = tracer;
+        this.redisCircuitBreaker = redisCircuitBreaker;
     }
 
     private String getTraceId() {
@@ -44,38 +48,50 @@ public class RefundRedisPaymentRepositoryWrapper {
         return null;
     }
 
-    public RefundRedisEntity save(RefundRedisEntity payment, HeadersDTO headersDTO){
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start();
-        RefundRedisEntity refundRedisEntity = redisPaymentRepository.save(payment);
-        stopWatch.stop();
-        logger.info(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "save", REFUND_REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
-                headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
-                stopWatch.getTotalTimeMillis(), "Record Saved to refund Redis Cache !!");
-        return refundRedisEntity;
+    /**
+     * Saves the entry unless one with the same amount is present, in one Redis round-trip. While Redis is unavailable
+     * the request goes ahead without the entry
+     *
+     * @return false if the request is a duplicate
+     */
+    public Mono<Boolean> tryLock(RefundRedisEntity entity, HeadersDTO headersDTO){
+        return Mono.defer(() -> {
+            StopWatch stopWatch = new StopWatch();
+            stopWatch.start();
+            return redisCircuitBreaker.execute("refund.tryLock", redisTransactionLock.tryLock(RefundRedisEntity.class, entity.getId(), entity.getTransactionStatus(),
+                    entity.getAmount(), true).doOnNext(locked -> {
+                stopWatch.stop();
+                logger.info(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "tryLock", REFUND_REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                        headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
+                        stopWatch.getTotalTimeMillis(), Boolean.TRUE.equals(locked) ? "Record Saved to refund Redis Cache !!" : "Record already present in refund Redis Cache !!");
+            }), e -> {
+                logger.warn(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "tryLock", REFUND_REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                        headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
+                        0, "Refund Redis Cache unavailable !! Not saving Record : " + e.getMessage());
+                return Mono.just(Boolean.TRUE);
+            });
+        });
     }
 
-    public Optional<RefundRedisEntity> findById(String id, HeadersDTO headersDTO){
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start();
-        Optional<RefundRedisEntity> refundRedisEntity = redisPaymentRepository.findById(id);
-        stopWatch.stop();
-        String logMessage = refundRedisEntity.isPresent() ? "Record Fetched from refund Redis Cache !!" : "Record Not Found in refund Redis Cache !!";
-        logger.info(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "findById", REFUND_REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
-                headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
-                stopWatch.getTotalTimeMillis(), logMessage);
-        return refundRedisEntity;
+    /**
+     * Deletes the entry; a failure is only logged, the entry then expires with its time to live
+     */
+    public Mono<Void> deleteById(String id, HeadersDTO headersDTO){
+        return Mono.defer(() -> {
+            StopWatch stopWatch = new StopWatch();
+            stopWatch.start();
+            return redisCircuitBreaker.execute("refund.deleteById", redisTransactionLock.unlock(RefundRedisEntity.class, id).doOnSuccess(unused -> {
+                stopWatch.stop();
+                logger.info(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "deleteById", REFUND_REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                        headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
+                        stopWatch.getTotalTimeMillis(), "Record Deleted from refund Redis Cache !!");
+            }), e -> {
+                logger.warn(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "deleteById", REFUND_REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
+                        headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
+                        0, "Record Delete from refund Redis Cache failed : " + e.getMessage());
+                return Mono.empty();
+            });
+        });
     }
 
-    public void deleteById(String paymentId, HeadersDTO headersDTO){
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start();
-        redisPaymentRepository.deleteById(paymentId);
-        stopWatch.stop();
-        logger.info(PPS_REDIS_CACHE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, "deleteById", REFUND_REDIS_PAYMENT_REPOSITORY_WRAPPER, headersDTO.getMgmSource(), headersDTO.getMgmChannel(),
-                headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(), headersDTO.getMgmTransactionId(), headersDTO.getClientId(), "", getSpanId(), getTraceId(),
-                stopWatch.getTotalTimeMillis(), "Record Deleted from refund Redis Cache !!");
-    }
-
-
 }
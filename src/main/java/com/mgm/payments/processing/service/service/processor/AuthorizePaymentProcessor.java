@@ -5,7 +5,6 @@ import brave.Tracer;
 import com.mgm.payments.processing.service.constants.AuditTrailConstants;
 import com.mgm.payments.processing.service.entity.jpa.PaymentEntity;
 import com.mgm.payments.processing.service.entity.redis.AuthorizeRedisEntity;
-import com.mgm.payments.processing.service.entity.redis.PaymentRedisEntity;
 import com.mgm.payments.processing.service.enums.*;
 import com.mgm.payments.processing.service.exception.PaymentProcessingException;
 import com.mgm.payments.processing.service.external.PaymentRouterServiceCaller;
@@ -19,9 +18,9 @@ import com.mgm.payments.processing.service.model.payload.pps.exception.PaymentEx
 import com.mgm.payments.processing.service.model.payload.router.*;
 import com.mgm.payments.processing.service.model.payload.session.PaymentSession;
 import com.mgm.payments.processing.service.repository.jpa.PaymentProcessingRepositoryWrapper;
+import com.mgm.payments.processing.service.repository.jpa.PaymentWriteBehind;
 import com.mgm.payments.processing.service.repository.redis.auth.AuthorizeRedisPaymentRepositoryWrapper;
 import com.mgm.payments.processing.service.repository.redis.payment.RedisPaymentRepositoryWrapper;
-import com.mgm.payments.processing.service.util.LogMaskingConverter;
 import com.mgm.payments.processing.service.util.PaymentProcessingUtil;
 import com.mgm.payments.processing.service.util.SnowFlakeSequenceGenerator;
 import org.slf4j.Logger;
@@ -33,6 +32,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StopWatch;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -52,6 +52,7 @@ public class AuthorizePaymentProcessor implements PaymentProcessor {
 
     private final Logger logger = LoggerFactory.getLogger(AuthorizePaymentProcessor.class);
     private final PaymentProcessingRepositoryWrapper repository;
+    private final PaymentWriteBehind paymentWriteBehind;
     private final AuthorizeRedisPaymentRepositoryWrapper authorizeRedisRepositoryWrapper;
     private final PaymentRouterServiceCaller routerServiceCaller;
     private final AuditMapper auditMapper;
@@ -61,12 +62,13 @@ public class AuthorizePaymentProcessor implements PaymentProcessor {
     Tracer tracer;
 
     @Autowired
-    public AuthorizePaymentProcessor(PaymentProcessingRepositoryWrapper repository,
+    public AuthorizePaymentProcessor(PaymentProcessingRepositoryWrapper repository, PaymentWriteBehind paymentWriteBehind,
                                      AuthorizeRedisPaymentRepositoryWrapper authorizeRedisRepositoryWrapper,
                                      PaymentRouterServiceCaller routerServiceCaller,
                                      AuditMapper auditMapper,
                                      VoidPaymentProcessor voidPaymentProcessor, RedisPaymentRepositoryWrapper redisPaymentRepositoryWrapper, SnowFlakeSequenceGenerator snowFlakeSequenceGenerator, Tracer tracer) {
         this.repository = repository;
+        this.paymentWriteBehind = paymentWriteBehind;
         this.authorizeRedisRepositoryWrapper = authorizeRedisRepositoryWrapper;
         this.routerServiceCaller = routerServiceCaller;
         this.auditMapper = auditMapper;
@@ -98,7 +100,7 @@ public class AuthorizePaymentProcessor implements PaymentProcessor {
         final PaymentEntity paymentEntity = new PaymentEntity();
         final PaymentResponse paymentResponse = new PaymentResponse();
         LocalDateTime startTime = LocalDateTime.now();
-        String maskedRequest = LogMaskingConverter.mask(paymentRequest);
+        String maskedRequest = headersDTO.getMaskedPayloads().mask(paymentRequest);
         String mgmId = paymentRequest.getMgmId() != null ? paymentRequest.getMgmId() : "";
         Throwable[] authTransactionException = new Throwable[1];
         try {
@@ -111,15 +113,17 @@ public class AuthorizePaymentProcessor implements PaymentProcessor {
                     maskedRequest, null, null, startTime, headersDTO);
 
             validateInputRequest(paymentRequest, null, headersDTO);
-            populatePaymentEntity(headersDTO, paymentRequest, null, paymentEntity, user);
-            createRedisCacheEntry(paymentEntity, headersDTO);
-            Mono<PaymentRouterResponse> paymentRouterResponseMono = invokePaymentRouter(paymentEntity,
-                    paymentRequest, headersDTO);
+            Mono<PaymentRouterResponse> paymentRouterResponseMono = acquireAuthorizeLock(paymentRequest, headersDTO)
+                    .then(Mono.fromRunnable(() -> populatePaymentEntity(headersDTO, paymentRequest, null, paymentEntity, user))
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .onErrorResume(e -> authorizeRedisRepositoryWrapper.deleteById(
+                                    paymentRequest.getClientReferenceNumber() + paymentRequest.getGroupId(), headersDTO).then(Mono.error(e))))
+                    .then(Mono.defer(() -> invokePaymentRouter(paymentEntity, paymentRequest, headersDTO)));
             return paymentRouterResponseMono.map(paymentRouterResponse -> {
                         updateRouterResponseInTheDBRecord(paymentEntity, paymentRouterResponse, user, headersDTO, null);
                         mapPaymentRouterResponseToPaymentResponse(paymentEntity, paymentRequest,
                                 paymentRouterResponse, paymentResponse, headersDTO);
-                        String maskedResponse = LogMaskingConverter.mask(paymentResponse);
+                        String maskedResponse = headersDTO.getMaskedPayloads().mask(paymentResponse);
                         String status = StatusResult.F.name();
                         String result = StatusResult.F.getResult();
                         String responseCode = paymentRouterResponse.getResults().get(0).getGatewayResult().getTransaction().getResponseCode();
@@ -137,6 +141,8 @@ public class AuthorizePaymentProcessor implements PaymentProcessor {
                         maskedResponse);
                         return (paymentResponse);
                     }
+            ).flatMap(response -> redisPaymentRepositoryWrapper.save(PaymentProcessingUtil.mapToRedisEntity(paymentEntity), paymentRequest.getHotelData(), headersDTO)
+                    .thenReturn(response)
             ).onErrorResume(throwable -> {
                 authTransactionException[0] = throwable;
                 handleException(paymentRequest, headersDTO, throwable, paymentResponse, paymentEntity, startTime);
@@ -147,12 +153,13 @@ public class AuthorizePaymentProcessor implements PaymentProcessor {
                 if (SignalType.CANCEL.equals(signalType)) {
                     handleException(paymentRequest, headersDTO, null, paymentResponse, paymentEntity, startTime);
                 }
-
+                auditMapper.publishAuditEnvelope(headersDTO);
             });
         } catch (Exception e) {
             stopWatch.stop();
             updateDBOnFailure(paymentEntity, headersDTO, e);
             handleException(paymentRequest, headersDTO, e, paymentResponse, paymentEntity, startTime);
+            auditMapper.publishAuditEnvelope(headersDTO);
             throw e;
         }
     }
@@ -161,8 +168,8 @@ public class AuthorizePaymentProcessor implements PaymentProcessor {
                                       PaymentResponse paymentResponse, PaymentEntity paymentEntity, LocalDateTime startTime) {
         String mgmErrorCode = null;
         String errorDescription = null;
-        String maskedRequest = LogMaskingConverter.mask(paymentRequest);
-        String maskedResponse = LogMaskingConverter.mask(paymentResponse);
+        String maskedRequest = headersDTO.getMaskedPayloads().mask(paymentRequest);
+        String maskedResponse = headersDTO.getMaskedPayloads().mask(paymentResponse);
         String mgmId = paymentRequest.getMgmId() != null ? paymentRequest.getMgmId() : "";
         if (e instanceof PaymentProcessingException) {
             PaymentProcessingException pe = (PaymentProcessingException) e;
@@ -199,22 +206,27 @@ public class AuthorizePaymentProcessor implements PaymentProcessor {
             PaymentProcessingUtil.throwException(ApiErrorCode.DUPLICATE_AUTH_REQUEST_CODE.getCode(),
                     ApiErrorCode.DUPLICATE_AUTH_REQUEST_CODE.getDescription(), HttpStatus.PRECONDITION_FAILED);
         }
-    	/*
-    	 * This check is applicable for auth transaction only
-    	 */
-        if (isDuplicateRequest(paymentRequest.getClientReferenceNumber(), paymentRequest.getGroupId(), paymentRequest.getAmount(), headersDTO)) {
-            PaymentProcessingUtil.throwException(
-                    ApiErrorCode.DUPLICATE_AUTH_REQUEST_CODE.getCode(),
-                    ApiErrorCode.DUPLICATE_AUTH_REQUEST_CODE.getDescription(), HttpStatus.PRECONDITION_FAILED);
-        }
-
-
     }
 
-    private boolean isDuplicateRequest(String clientReferenceNumber, String groupId, List<Amount> amount, HeadersDTO headersDTO) {
-        BigDecimal reqAmount = PaymentProcessingUtil.getAmount(amount);
-        Optional<AuthorizeRedisEntity> redisPaymentEntity = authorizeRedisRepositoryWrapper.findById(clientReferenceNumber + groupId, headersDTO);
-        return redisPaymentEntity.map(authorizeRedisEntity -> authorizeRedisEntity.getAmount().equals(reqAmount)).orElse(false);
+    /**
+     * Inserts the IN_PROCESS entry in the authorize redis cache, an entry with the same amount marks a duplicate request
+     *
+     * @param paymentRequest - input request
+     * @param headersDTO     - headers param
+     */
+    private Mono<Void> acquireAuthorizeLock(PaymentRequest paymentRequest, HeadersDTO headersDTO) {
+        AuthorizeRedisEntity authorizeRedisEntity = AuthorizeRedisEntity.builder()
+                .id(paymentRequest.getClientReferenceNumber() + paymentRequest.getGroupId())
+                .transactionStatus(TransactionStatus.IN_PROCESS)
+                .amount(PaymentProcessingUtil.getAmount(paymentRequest.getAmount())).build();
+        return authorizeRedisRepositoryWrapper.tryLock(authorizeRedisEntity, headersDTO).flatMap(locked -> {
+            if (!Boolean.TRUE.equals(locked)) {
+                PaymentProcessingUtil.throwException(
+                        ApiErrorCode.DUPLICATE_AUTH_REQUEST_CODE.getCode(),
+                        ApiErrorCode.DUPLICATE_AUTH_REQUEST_CODE.getDescription(), HttpStatus.PRECONDITION_FAILED);
+            }
+            return Mono.empty();
+        });
     }
 
     /**
@@ -265,13 +277,6 @@ public class AuthorizePaymentProcessor implements PaymentProcessor {
         paymentEntity.setAuthSubtype("Normal");
     }
 
-    @Override
-    public void createRedisCacheEntry(PaymentEntity paymentEntity, HeadersDTO headersDTO) {
-        authorizeRedisRepositoryWrapper.save(AuthorizeRedisEntity.builder().id(paymentEntity.getClientReferenceNumber() + paymentEntity.getGroupId())
-                .transactionStatus(TransactionStatus.IN_PROCESS)
-                .amount(paymentEntity.getAmount()).build(), headersDTO);// insert the record in the table with "IN_PROCESS status  in redis cache
-    }
-
     /**
      * NOT REQUIRED FOR AUTH CALL
      * retrieve client details from session
@@ -281,8 +286,8 @@ public class AuthorizePaymentProcessor implements PaymentProcessor {
      * @return PaymentSession
      */
     @Override
-    public PaymentSession retrieveClientDetailsFromSession(PaymentRequest paymentRequest, HeadersDTO headersDTO) {
-        return null;
+    public Mono<PaymentSession> retrieveClientDetailsFromSession(PaymentRequest paymentRequest, HeadersDTO headersDTO) {
+        return Mono.empty();
     }
 
     /**
@@ -310,7 +315,7 @@ public class AuthorizePaymentProcessor implements PaymentProcessor {
                 .merchantReferenceCode(paymentEntity.getPaymentId())
                 .additionalAttributes(paymentRequest.getAdditionalAttributes())
                 .build();
-        String maskedRouterRequest = LogMaskingConverter.mask(paymentRouterRequest);
+        String maskedRouterRequest = headersDTO.getMaskedPayloads().mask(paymentRouterRequest);
         publishAuditData(new String[]{"", "", "PPS_TO_PR_AUTHORIZE", "PPS to Payment Router - Authorize the given Amount", "", ""}, paymentRequest, maskedRouterRequest,
                 null, paymentEntity, startTime, headersDTO);
         Mono<ResponseEntity<PaymentRouterResponse>> paymentRouterResponseMono =
@@ -318,7 +323,7 @@ public class AuthorizePaymentProcessor implements PaymentProcessor {
         return paymentRouterResponseMono.map(paymentRouterResponseResponseEntity ->
         {
             PaymentRouterResponse paymentRouterResponse = paymentRouterResponseResponseEntity.getBody();
-            String maskedRouterResponse = LogMaskingConverter.mask(paymentRouterResponse);
+            String maskedRouterResponse = headersDTO.getMaskedPayloads().mask(paymentRouterResponse);
             String result = StatusResult.F.getResult();
             String status = StatusResult.F.name();
             assert paymentRouterResponse != null;
@@ -365,7 +370,7 @@ public class AuthorizePaymentProcessor implements PaymentProcessor {
             payment.setAvsResponseCode(transactionResponse.getAvsResult());
             payment.setUpdatedTimestamp(ZonedDateTime.now(ZoneOffset.UTC).toString());
             payment.setUpdatedBy(user.getServiceId());
-            repository.save(payment, headersDTO);
+            paymentWriteBehind.save(payment, headersDTO);
         }
         catch (Exception e){
             RouterGatewayResult gatewayResult = routerResultOp.map(RouterResult::getGatewayResult).orElse(null);
@@ -458,8 +463,6 @@ public class AuthorizePaymentProcessor implements PaymentProcessor {
             paymentResponse.setStatusCode(SUCCESS_RESPONSE_STATUS_CODE.toString());
             paymentResponse.setStatusDesc(SUCCESS_RESPONSE_STATUS);
             paymentResponse.setResults(resultList);
-            PaymentRedisEntity redisPaymentEntity = PaymentProcessingUtil.mapToRedisEntity(payment);
-            redisPaymentRepositoryWrapper.save(redisPaymentEntity, headersDTO);
         } catch (Exception e) {
             throw new PaymentProcessingException(PaymentExceptionResponse.builder().paymentId(payment.getPaymentId())
                     .dateTime(ZonedDateTime.now()).errorCode(PAYMENT_ROUTER_RESPONSE_PROCESSING_EXCEPTION.getCode()).errorMessage(PAYMENT_ROUTER_RESPONSE_UPDATE_EXCEPTION.getDescription())
@@ -477,7 +480,7 @@ public class AuthorizePaymentProcessor implements PaymentProcessor {
     @Override
     public void updateDBOnFailure(PaymentEntity payment, HeadersDTO headersDTO, Exception e) {
         if (payment != null && (TransactionStatus.IN_PROCESS.equals(payment.getTransactionStatus()))) {
-            authorizeRedisRepositoryWrapper.deleteById(payment.getClientReferenceNumber() + payment.getGroupId(), headersDTO);
+            authorizeRedisRepositoryWrapper.deleteById(payment.getClientReferenceNumber() + payment.getGroupId(), headersDTO).subscribe();
             PaymentProcessingUtil.getFailureEntity(payment, e);
             repository.save(payment, headersDTO);
         }
@@ -494,7 +497,8 @@ public class AuthorizePaymentProcessor implements PaymentProcessor {
         String gatewayChainId = paymentEntity != null ? paymentEntity.getGatewayChainId() : null;
 
         AuditData auditData = PaymentProcessingUtil.buildAuditData(eventName, eventDescription, errorCode, errorDescription,
-                requestPayload, responsePayload, paymentEntity);
+                headersDTO.getMaskedPayloads().auditPayload(requestPayload),
+                headersDTO.getMaskedPayloads().auditPayload(responsePayload), paymentEntity);
         auditData.setStartTimeTS(startTime);
         auditData.setResult(result);
         auditData.setStatus(status);
@@ -0,0 +1,123 @@
+package com.mgm.payments.processing.service.service.processor;
+
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.events.CaptureConfirmMessage;
+import com.mgm.payments.processing.service.model.HeadersDTO;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces the pending capture confirmations into batches, closed by {@code pps.capture-confirm-batch-size} or by
+ * the {@code pps.capture-confirm-batch-window-millis} window opened by the first confirmation. A batch is split by
+ * caller, because the headers of a batch call are shared by all of its confirmations: each part holds the
+ * confirmations of one source, channel, client id and user agent, and is handed to the flush action.
+ */
+class CaptureConfirmCoalescer {
+
+    private final Logger logger = LoggerFactory.getLogger(CaptureConfirmCoalescer.class);
+
+    private final PPSProperties ppsProperties;
+    private final Consumer<List<CaptureConfirmMessage>> flush;
+    private final BlockingQueue<CaptureConfirmMessage> pending;
+    private final DistributionSummary batchSizes;
+    private volatile boolean running;
+    private Thread batchThread;
+
+    /**
+     * @param ppsProperties - PPSProperties
+     * @param flush         - sends a batch of confirmations of the same caller
+     * @param meterRegistry - registry of the batch metrics
+     */
+    CaptureConfirmCoalescer(PPSProperties ppsProperties, Consumer<List<CaptureConfirmMessage>> flush, MeterRegistry meterRegistry) {
+        this.ppsProperties = ppsProperties;
+        this.flush = flush;
+        this.pending = new ArrayBlockingQueue<>(ppsProperties.getCaptureConfirmBatchQueueCapacity());
+        Gauge.builder("pps.capture.confirm.batch.pending", pending, BlockingQueue::size)
+                .description("Capture confirmations waiting for a batch").register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("pps.capture.confirm.batch.size")
+                .description("Capture confirmations per batch sent to Payment Auth Manager").register(meterRegistry);
+    }
+
+    void start() {
+        running = true;
+        batchThread = new Thread(this::runBatches, "capture-confirm-batcher");
+        batchThread.setDaemon(true);
+        batchThread.start();
+    }
+
+    /**
+     * Stops taking batches once the pending confirmations are flushed
+     */
+    void stop(long timeoutMillis) throws InterruptedException {
+        running = false;
+        batchThread.join(timeoutMillis);
+    }
+
+    /**
+     * @return false when the pending confirmations are at capacity
+     */
+    boolean offer(CaptureConfirmMessage message) {
+        return running && pending.offer(message);
+    }
+
+    private void runBatches() {
+        while (running || !pending.isEmpty()) {
+            try {
+                for (List<CaptureConfirmMessage> batch : nextBatches()) {
+                    batchSizes.record(batch.size());
+                    flush.accept(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Service : capture confirm batch flush failed, exceptionMessage : {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Waits for the next window of confirmations
+     *
+     * @return the confirmations of the window, split by caller, none when the window opened empty
+     */
+    Collection<List<CaptureConfirmMessage>> nextBatches() throws InterruptedException {
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(ppsProperties.getCaptureConfirmBatchWindowMillis());
+        CaptureConfirmMessage first = pending.poll(windowNanos, TimeUnit.NANOSECONDS);
+        Map<String, List<CaptureConfirmMessage>> batches = new LinkedHashMap<>();
+        if (first == null) {
+            return batches.values();
+        }
+        batches.computeIfAbsent(caller(first), key -> new ArrayList<>()).add(first);
+        int size = 1;
+        long deadline = System.nanoTime() + windowNanos;
+        while (size < ppsProperties.getCaptureConfirmBatchSize()) {
+            long wait = deadline - System.nanoTime();
+            CaptureConfirmMessage next = wait > 0 ? pending.poll(wait, TimeUnit.NANOSECONDS) : pending.poll();
+            if (next == null) {
+                break;
+            }
+            batches.computeIfAbsent(caller(next), key -> new ArrayList<>()).add(next);
+            size++;
+        }
+        return batches.values();
+    }
+
+    private static String caller(CaptureConfirmMessage message) {
+        HeadersDTO headers = message.getHeaders();
+        return headers.getMgmSource() + "|" + headers.getMgmChannel() + "|" + headers.getClientId() + "|" + headers.getUserAgent();
+    }
+}
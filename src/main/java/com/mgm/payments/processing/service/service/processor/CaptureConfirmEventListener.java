@@ -2,27 +2,41 @@ package com.mgm.payments.processing.service.service.processor;
 
 import brave.Span;
 import brave.Tracer;
+import com.mgm.payments.processing.service.config.PPSProperties;
 import com.mgm.payments.processing.service.enums.StatusResult;
+import com.mgm.payments.processing.service.events.CaptureConfirmMessage;
+import com.mgm.payments.processing.service.events.CaptureConfirmRetryQueue;
 import com.mgm.payments.processing.service.events.ConfirmEvent;
+import com.mgm.payments.processing.service.exception.PaymentProcessingException;
 import com.mgm.payments.processing.service.external.PaymentAuthManagerCaller;
 import com.mgm.payments.processing.service.mapper.AuditMapper;
 import com.mgm.payments.processing.service.model.AuditData;
 import com.mgm.payments.processing.service.model.CaptureConfirm;
+import com.mgm.payments.processing.service.model.CaptureConfirmBatchItem;
+import com.mgm.payments.processing.service.model.CaptureConfirmBatchResult;
 import com.mgm.payments.processing.service.model.HeadersDTO;
+import com.mgm.payments.processing.service.util.BoundedExecutor;
 import com.mgm.payments.processing.service.util.LogMaskingConverter;
 import com.mgm.payments.processing.service.util.PaymentProcessingUtil;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StopWatch;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static com.mgm.payments.processing.service.constants.PaymentProcessingConstants.*;
 
@@ -32,13 +46,27 @@ public class CaptureConfirmEventListener {
     private final Logger logger = LoggerFactory.getLogger(CaptureConfirmEventListener.class);
     private final PaymentAuthManagerCaller paymentAuthManagerCaller;
     private final AuditMapper auditMapper;
+    private final BoundedExecutor captureConfirmExecutor;
+    private final CaptureConfirmRetryQueue captureConfirmRetryQueue;
+    private final PPSProperties ppsProperties;
+    private final MeterRegistry meterRegistry;
     Tracer tracer;
+    private volatile boolean running;
+    private Thread redeliveryThread;
+    private CaptureConfirmCoalescer coalescer;
 
     @Autowired
-    public CaptureConfirmEventListener(PaymentAuthManagerCaller paymentAuthManagerCaller, AuditMapper auditMapper, Tracer tracer) {
+    public CaptureConfirmEventListener(PaymentAuthManagerCaller paymentAuthManagerCaller, AuditMapper auditMapper, Tracer tracer,
+                                       @Qualifier("captureConfirmExecutor") BoundedExecutor captureConfirmExecutor,
+                                       CaptureConfirmRetryQueue captureConfirmRetryQueue, PPSProperties ppsProperties,
+                                       MeterRegistry meterRegistry) {
         this.paymentAuthManagerCaller = paymentAuthManagerCaller;
         this.auditMapper = auditMapper;
         this.tracer = tracer;
+        this.captureConfirmExecutor = captureConfirmExecutor;
+        this.captureConfirmRetryQueue = captureConfirmRetryQueue;
+        this.ppsProperties = ppsProperties;
+        this.meterRegistry = meterRegistry;
     }
 
     private String getTraceId() {
@@ -57,37 +85,216 @@ public class CaptureConfirmEventListener {
         return null;
     }
 
-    @Async
+    /**
+     * Sends the capture confirmation on the capture confirm executor, in the span of the capture. The confirmation is
+     * first leased in the retry queue and only deleted from it once Payment Auth Manager took it, so it is delivered
+     * at least once even when this instance stops before the response; when Redis cannot store it, it is sent without
+     * that guarantee. The executor thread waits for the Payment Auth Manager response, so its threads bound the
+     * confirmations in flight. A confirmation that fails, or finds the executor saturated, is rescheduled in the retry
+     * queue. With {@code pps.capture-confirm-batch-enabled} the confirmation is first coalesced with others into a batch.
+     *
+     * @param confirmEvent - ConfirmEvent
+     */
     public void onApplicationEvent(@NotNull ConfirmEvent confirmEvent) {
-        CaptureConfirm captureConfirm = confirmEvent.getCaptureConfirm();
-        HeadersDTO headersDTO = confirmEvent.getHeadersDTO();
+        CaptureConfirmMessage message = CaptureConfirmMessage.of(confirmEvent.getCaptureConfirm(), confirmEvent.getHeadersDTO());
+        Span span = tracer.currentSpan();
+        captureConfirmRetryQueue.lease(message)
+                .onErrorResume(e -> {
+                    logger.warn("Redis: capture confirm for orderReferenceNumber : {} not leased, confirming without the retry queue : {}",
+                            message.getCaptureConfirm().getOrderReferenceNumber(), e.getMessage());
+                    return Mono.empty();
+                })
+                // off the Redis connection thread, the delivery may wait for Redis itself
+                .publishOn(Schedulers.boundedElastic())
+                .subscribe(null, null, () -> deliver(message, span));
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        if (ppsProperties.isCaptureConfirmBatchEnabled()) {
+            coalescer = new CaptureConfirmCoalescer(ppsProperties, this::flush, meterRegistry);
+            coalescer.start();
+        }
+        redeliveryThread = new Thread(this::runRedelivery, "capture-confirm-redelivery");
+        redeliveryThread.setDaemon(true);
+        redeliveryThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        redeliveryThread.interrupt();
+        redeliveryThread.join(ppsProperties.getCaptureConfirmRetryTimeoutMillis());
+        if (coalescer != null) {
+            coalescer.stop(ppsProperties.getExecutorShutdownTimeoutMillis());
+        }
+    }
+
+    private void runRedelivery() {
+        while (running) {
+            try {
+                Thread.sleep(ppsProperties.getCaptureConfirmRetryPollMillis());
+                redeliver();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.warn("Redis: capture confirm redelivery failed : {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Claims the due confirmations of the retry queue, no more than the executor can queue, and delivers them
+     */
+    void redeliver() {
+        captureConfirmRetryQueue.refreshBacklog();
+        int capacity = Math.min(ppsProperties.getCaptureConfirmRetryBatchSize(), captureConfirmExecutor.remainingCapacity());
+        for (CaptureConfirmMessage message : captureConfirmRetryQueue.claimDue(capacity)) {
+            deliver(message, null);
+        }
+    }
+
+    private void deliver(CaptureConfirmMessage message, Span span) {
+        if (coalescer != null && coalescer.offer(message)) {
+            return;
+        }
+        submit(List.of(message), () -> confirm(message), span);
+    }
+
+    /**
+     * Sends a batch of confirmations of the same caller, called by the coalescer
+     */
+    void flush(List<CaptureConfirmMessage> batch) {
+        submit(batch, () -> confirmBatch(batch), null);
+    }
+
+    // runs the confirmations on the executor, or queues them for the redelivery when it is saturated
+    private void submit(List<CaptureConfirmMessage> messages, Supplier<Mono<Void>> confirmations, Span span) {
+        Runnable confirm = () -> {
+            try (Tracer.SpanInScope ignored = tracer.withSpanInScope(span)) {
+                Mono<Void> confirmed = confirmations.get();
+                if (Schedulers.isInNonBlockingThread()) {
+                    // run by the caller on an event loop thread, which must not wait
+                    confirmed.subscribe();
+                } else {
+                    confirmed.block();
+                }
+            } catch (Exception e) {
+                logger.error("Service : captureConfirmService failed for orderReferenceNumber : {}, exceptionMessage : {}",
+                        orderReferenceNumbers(messages), e.getMessage());
+            }
+        };
+        captureConfirmExecutor.execute(confirm, () -> Flux.fromIterable(messages).concatMap(captureConfirmRetryQueue::enqueue)
+                .subscribe(null, e -> {
+                    logger.warn("Redis: capture confirm for orderReferenceNumber : {} not queued, confirming now : {}",
+                            orderReferenceNumbers(messages), e.getMessage());
+                    Schedulers.boundedElastic().schedule(confirm);
+                }));
+    }
+
+    private Mono<Void> confirm(CaptureConfirmMessage message) {
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
+        logRequest(message);
+        Mono<String> monoResponse = paymentAuthManagerCaller.invokeCaptureConfirm(message.getCaptureConfirm(), message.getHeaders());
+        stopWatch.stop();
+        return monoResponse
+                .onErrorResume(e -> captureConfirmRetryQueue.failed(message, e).then(Mono.<String>empty()))
+                .flatMap(response -> confirmed(message, response, stopWatch.getTotalTimeMillis()));
+    }
+
+    /**
+     * Sends the batch to the batch confirm endpoint of Payment Auth Manager when one is configured, and maps its
+     * responses back to the confirmations; a confirmation it did not accept is audited as failed and handed to the
+     * retry queue like a failed single call. Without an endpoint, or when it rejects the batch, the confirmations are
+     * sent as up to {@code pps.capture-confirm-batch-concurrency} parallel calls over the pooled connections.
+     */
+    private Mono<Void> confirmBatch(List<CaptureConfirmMessage> batch) {
+        String batchPath = ppsProperties.getCaptureConfirmBatchPath();
+        if (batch.size() == 1 || batchPath == null || batchPath.isBlank()) {
+            return confirmInParallel(batch);
+        }
+        batch.forEach(this::logRequest);
+        long start = System.currentTimeMillis();
+        List<CaptureConfirmBatchItem> requests = batch.stream()
+                .map(message -> CaptureConfirmBatchItem.of(message.getCaptureConfirm(), message.getHeaders()))
+                .collect(Collectors.toList());
+        return paymentAuthManagerCaller.invokeCaptureConfirmBatch(requests, batch.get(0).getHeaders())
+                .onErrorResume(e -> {
+                    if (e instanceof PaymentProcessingException && ((PaymentProcessingException) e).getHttpStatus() != null
+                            && ((PaymentProcessingException) e).getHttpStatus().is4xxClientError()) {
+                        logger.warn("Service : capture confirm batch of {} rejected, confirming one by one, exceptionMessage : {}",
+                                batch.size(), e.getMessage());
+                        return confirmInParallel(batch).then(Mono.<List<CaptureConfirmBatchResult>>empty());
+                    }
+                    return Flux.fromIterable(batch).concatMap(message -> captureConfirmRetryQueue.failed(message, e))
+                            .then(Mono.<List<CaptureConfirmBatchResult>>empty());
+                })
+                .flatMap(results -> Flux.range(0, batch.size())
+                        .concatMap(i -> {
+                            CaptureConfirmBatchResult result = results.get(i);
+                            long elapsedMillis = System.currentTimeMillis() - start;
+                            if (!result.isConfirmed()) {
+                                audit(batch.get(i), result.getResponse(), elapsedMillis, StatusResult.E);
+                                return captureConfirmRetryQueue.failed(batch.get(i), result.getError());
+                            }
+                            return confirmed(batch.get(i), result.getResponse(), elapsedMillis);
+                        })
+                        .then());
+    }
+
+    private Mono<Void> confirmInParallel(List<CaptureConfirmMessage> batch) {
+        return Flux.fromIterable(batch).flatMap(this::confirm, ppsProperties.getCaptureConfirmBatchConcurrency()).then();
+    }
+
+    private void logRequest(CaptureConfirmMessage message) {
+        CaptureConfirm captureConfirm = message.getCaptureConfirm();
+        HeadersDTO headersDTO = message.getHeaders();
         String mgmId = captureConfirm.getMgmId() !=null ? captureConfirm.getMgmId() : "";
-        logger.info("Service : captureConfirmService execution started for orderReferenceNumber : {} ", captureConfirm.getOrderReferenceNumber());
+        logger.info("Service : captureConfirmService execution started for orderReferenceNumber : {}, attempt : {} ",
+                captureConfirm.getOrderReferenceNumber(), message.getAttempt());
         logger.info(PPS_REQUEST_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, CAPTURE_CONFIRM_OPERATION, CAPTURE_CONFIRM_CLASS_NAME, headersDTO.getMgmSource(),
                 headersDTO.getMgmChannel(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
                 headersDTO.getMgmTransactionId(), headersDTO.getClientId(), mgmId, getSpanId(), getTraceId(), captureConfirm);
-        Mono<String> monoResponse = paymentAuthManagerCaller.invokeCaptureConfirm(captureConfirm, headersDTO);
-        stopWatch.stop();
-        monoResponse.map(response ->
-        {
-            String maskedResponse = LogMaskingConverter.mask(response);
-            logger.info(PPS_RESPONSE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, CAPTURE_CONFIRM_OPERATION, CAPTURE_CONFIRM_CLASS_NAME, headersDTO.getMgmSource(),
-                    headersDTO.getMgmChannel(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
-                    headersDTO.getMgmTransactionId(), headersDTO.getClientId(), mgmId, getSpanId(), getTraceId(), StatusResult.S.name(), StatusResult.S.getResult(), stopWatch.getTotalTimeMillis(),
-                    maskedResponse);
-            AuditData auditData = PaymentProcessingUtil.buildAuditData("CAPTURE_CONFIRM", "Capture Confirm External Call", "","",
-                    captureConfirm, maskedResponse, null);
-            auditData.setResult(StatusResult.S.getResult());
-            auditData.setStatus(StatusResult.S.name());
-            auditMapper.createAndPublishAuditTrailForRequestResponse(
-                    captureConfirm.getOrderReferenceNumber(),
-                    null, "", captureConfirm.getMgmId(),
-                    "", headersDTO, auditData);
-            return response;
-        }).subscribe();
+    }
+
+    /**
+     * Logs and audits the Payment Auth Manager response of one confirmation, and acknowledges it to the retry queue
+     */
+    private Mono<Void> confirmed(CaptureConfirmMessage message, String response, long elapsedMillis) {
+        audit(message, response, elapsedMillis, StatusResult.S);
+        return captureConfirmRetryQueue.acknowledge(message)
+                .onErrorResume(e -> {
+                    logger.warn("Redis: capture confirm for orderReferenceNumber : {} not acknowledged, it may be confirmed again : {}",
+                            message.getCaptureConfirm().getOrderReferenceNumber(), e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private void audit(CaptureConfirmMessage message, String response, long elapsedMillis, StatusResult statusResult) {
+        CaptureConfirm captureConfirm = message.getCaptureConfirm();
+        HeadersDTO headersDTO = message.getHeaders();
+        String mgmId = captureConfirm.getMgmId() !=null ? captureConfirm.getMgmId() : "";
+        String maskedResponse = LogMaskingConverter.mask(response);
+        logger.info(PPS_RESPONSE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, CAPTURE_CONFIRM_OPERATION, CAPTURE_CONFIRM_CLASS_NAME, headersDTO.getMgmSource(),
+                headersDTO.getMgmChannel(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
+                headersDTO.getMgmTransactionId(), headersDTO.getClientId(), mgmId, getSpanId(), getTraceId(), statusResult.name(), statusResult.getResult(), elapsedMillis,
+                maskedResponse);
+        AuditData auditData = PaymentProcessingUtil.buildAuditData("CAPTURE_CONFIRM", "Capture Confirm External Call", "","",
+                captureConfirm, maskedResponse, null);
+        auditData.setResult(statusResult.getResult());
+        auditData.setStatus(statusResult.name());
+        auditMapper.createAndPublishAuditTrailForRequestResponse(
+                captureConfirm.getOrderReferenceNumber(),
+                null, "", captureConfirm.getMgmId(),
+                "", headersDTO, auditData);
+    }
 
+    private static String orderReferenceNumbers(List<CaptureConfirmMessage> messages) {
+        return messages.stream().map(message -> message.getCaptureConfirm().getOrderReferenceNumber())
+                .collect(Collectors.joining(","));
     }
 
 }
@@ -5,7 +5,6 @@ import brave.Tracer;
 import com.mgm.payments.processing.service.constants.AuditTrailConstants;
 import com.mgm.payments.processing.service.constants.PaymentProcessingConstants;
 import com.mgm.payments.processing.service.entity.jpa.PaymentEntity;
-import com.mgm.payments.processing.service.entity.redis.CaptureRedisEntity;
 import com.mgm.payments.processing.service.entity.redis.PaymentRedisEntity;
 import com.mgm.payments.processing.service.enums.*;
 import com.mgm.payments.processing.service.events.ConfirmEvent;
@@ -21,9 +20,7 @@ import com.mgm.payments.processing.service.model.payload.pps.exception.PaymentEx
 import com.mgm.payments.processing.service.model.payload.router.*;
 import com.mgm.payments.processing.service.model.payload.session.PaymentSession;
 import com.mgm.payments.processing.service.repository.jpa.PaymentProcessingRepositoryWrapper;
-import com.mgm.payments.processing.service.repository.redis.capture.CaptureRedisPaymentRepositoryWrapper;
 import com.mgm.payments.processing.service.repository.redis.payment.RedisPaymentRepositoryWrapper;
-import com.mgm.payments.processing.service.util.LogMaskingConverter;
 import com.mgm.payments.processing.service.util.PaymentProcessingUtil;
 import com.mgm.payments.processing.service.util.SnowFlakeSequenceGenerator;
 import org.slf4j.Logger;
@@ -33,8 +30,10 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StopWatch;
+import reactor.core.Exceptions;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -54,7 +53,6 @@ public class CapturePaymentProcessor implements PaymentProcessor {
     private final Logger logger = LoggerFactory.getLogger(CapturePaymentProcessor.class);
     PaymentProcessingRepositoryWrapper repository;
     private final PaymentRouterServiceCaller routerServiceCaller;
-    private final CaptureRedisPaymentRepositoryWrapper capturePaymentRepositoryWrapper;
     private final AuditMapper auditMapper;
     private final CaptureConfirmEventListener captureConfirmEventService;
     private final RedisPaymentRepositoryWrapper redisPaymentRepositoryWrapper;
@@ -65,11 +63,10 @@ public class CapturePaymentProcessor implements PaymentProcessor {
 
     @Autowired
     public CapturePaymentProcessor(PaymentProcessingRepositoryWrapper repository, PaymentRouterServiceCaller routerServiceCaller,
-                                   CaptureRedisPaymentRepositoryWrapper capturePaymentRepositoryWrapper, AuditMapper auditMapper,
+                                   AuditMapper auditMapper,
                                    CaptureConfirmEventListener captureConfirmEventService, RedisPaymentRepositoryWrapper redisPaymentRepositoryWrapper, Tracer tracer, ClientConfigurationServiceCaller clientConfigurationServiceCaller, SessionServiceCaller sessionServiceCaller, SnowFlakeSequenceGenerator snowFlakeSequenceGenerator) {
         this.repository = repository;
         this.routerServiceCaller = routerServiceCaller;
-        this.capturePaymentRepositoryWrapper = capturePaymentRepositoryWrapper;
         this.auditMapper = auditMapper;
         this.captureConfirmEventService = captureConfirmEventService;
         this.redisPaymentRepositoryWrapper = redisPaymentRepositoryWrapper;
@@ -101,12 +98,10 @@ public class CapturePaymentProcessor implements PaymentProcessor {
             stopWatch.start();
             PaymentResponse paymentResponse = new PaymentResponse();
             final PaymentEntity paymentEntity = new PaymentEntity();
-            PaymentEntity authRecord;
             LocalDateTime startTime = LocalDateTime.now();
-            String maskedRequest = LogMaskingConverter.mask(paymentRequest);
+            String maskedRequest = headersDTO.getMaskedPayloads().mask(paymentRequest);
             String mgmId = paymentRequest.getMgmId() != null ? paymentRequest.getMgmId() : "";
             Throwable[] captureTransactionException = new Throwable[1];
-            List<PaymentEntity> paymentList;
             if (logger.isInfoEnabled()) {
                 logger.info(PPS_REQUEST_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, CAPTURE_OPERATION, CAPTURE_CLASS_NAME, headersDTO.getMgmSource(),
                         headersDTO.getMgmChannel(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
@@ -114,88 +109,146 @@ public class CapturePaymentProcessor implements PaymentProcessor {
             }
             publishAuditData(new String[]{"", "", AuditTrailConstants.PPS_CAPTURE, "Capture the given Amount", "", ""}, paymentRequest, maskedRequest,
                     null, paymentEntity, startTime, headersDTO);
-            try {
-                Optional<PaymentRedisEntity> paymentRedisEntityOp = redisPaymentRepositoryWrapper.findById(paymentRequest.getPaymentId(), headersDTO);
-                if(paymentRedisEntityOp.isPresent()){
-                    logger.info(PPS_REQUEST_INFO_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, CAPTURE_OPERATION , CAPTURE_CLASS_NAME, headersDTO.getMgmSource(),
-                            headersDTO.getMgmChannel(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
-                            headersDTO.getMgmTransactionId(), headersDTO.getClientId(), mgmId, getSpanId(), getTraceId(), "Corresponding Auth Record Found in Payment Redis");
-                    PaymentRedisEntity paymentRedisEntity = paymentRedisEntityOp.get();
-                    validateRedisRecord(paymentRedisEntity, paymentRequest, headersDTO);
-                    paymentList = PaymentProcessingUtil.mapToEntityList(paymentRedisEntity);
-                }else {
-                    paymentList = repository.findByPaymentIdOrReferenceId(
-                            paymentRequest.getPaymentId(), paymentRequest.getPaymentId(), headersDTO);
-                    validateInputRequest(paymentRequest, paymentList, headersDTO);
-                }
-                if(!PAM_SERVICE.equals(headersDTO.getMgmSource())) {
-                    PaymentSession paymentSession = retrieveClientDetailsFromSession(paymentRequest, headersDTO);
+            // the auth lookup and the session -> client config chain do not depend on each other, so they run
+            // concurrently and the capture lock is only taken once both of them have completed.
+            // On failure the zip still waits for the other lookup, so the cleanup in doFinally never races it.
+            Mono<List<PaymentEntity>> authRecordsMono = findAuthorizeRecords(paymentRequest, headersDTO, mgmId);
+            Mono<Optional<ClientConfigPayload>> clientConfigMono = PAM_SERVICE.equals(headersDTO.getMgmSource())
+                    ? Mono.just(Optional.empty())
+                    : Mono.defer(() -> resolveClientConfig(paymentRequest, PaymentProcessingUtil.copyHeaders(headersDTO))).map(Optional::of);
+            return Mono.zipDelayError(authRecordsMono, clientConfigMono)
+                    .onErrorMap(e -> Exceptions.unwrapMultiple(e).get(0))
+                    .publishOn(Schedulers.boundedElastic())
+                    .flatMap(lookups -> {
+                        List<PaymentEntity> paymentList = lookups.getT1();
+                        lookups.getT2().ifPresent(clientConfig -> headersDTO.setClientId(clientConfig.getClientId()));
+                        PaymentEntity authRecord = paymentList.stream()
+                                .filter(entity -> entity.getTransactionType().equals(TransactionType.AUTHORIZE)).findFirst().orElse(null);
+                        return routeCapture(paymentEntity, paymentRequest, paymentList, user, headersDTO).map(paymentRouterResponse -> {
+                            updateRouterResponseInTheDBRecord(paymentEntity, paymentRouterResponse, user, headersDTO, paymentList);
+                            return paymentRouterResponse;
+                        }).flatMap(paymentRouterResponse -> redisPaymentRepositoryWrapper.complete(paymentEntity.getReferenceId(),
+                                TransactionType.CAPTURE, TransactionStatus.SUCCESS.equals(paymentEntity.getTransactionStatus()), headersDTO)
+                                .thenReturn(paymentRouterResponse)
+                        ).map(paymentRouterResponse ->
+                        {
+                            mapPaymentRouterResponseToPaymentResponse(paymentEntity, paymentRequest,
+                                    paymentRouterResponse, paymentResponse, headersDTO);
+                            if (!headersDTO.getMgmSource().equals(PaymentProcessingConstants.PAM_SERVICE)) {
+                                paymentRequest.setClientReferenceNumber(paymentEntity.getClientReferenceNumber());
+                                GatewayResult gatewayResult = paymentResponse.getResults().get(0).getGatewayResult();
+                                assert authRecord != null;
+                                captureConfirmService(paymentRequest, authRecord.getSessionId(), headersDTO, gatewayResult.getTransactionCode(),
+                                        gatewayResult.getTransaction());
+                            }
+                            String maskedResponse = headersDTO.getMaskedPayloads().mask(paymentResponse);
+                            String status = StatusResult.F.name();
+                            String result = StatusResult.F.getResult();
+                            String responseCode = paymentRouterResponse.getResults().get(0).getGatewayResult().getTransaction().getResponseCode();
+                            if(responseCode.equals(RouterResponseCode.A.toString())){
+                                status = StatusResult.S.name();
+                                result = StatusResult.S.getResult();
+                            }
+                            publishAuditData(new String[]{"", "", AuditTrailConstants.PPS_CAPTURE, "Capture the given Amount", result, status}, paymentRequest, maskedRequest,
+                                    maskedResponse, paymentEntity, startTime, headersDTO);
+                            stopWatch.stop();
+                            logger.info(PPS_RESPONSE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, CAPTURE_OPERATION, CAPTURE_CLASS_NAME, headersDTO.getMgmSource(),
+                                    headersDTO.getMgmChannel(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
+                                    headersDTO.getMgmTransactionId(), headersDTO.getClientId(), mgmId, getSpanId(), getTraceId(), status, result, stopWatch.getTotalTimeMillis(),
+                                    maskedResponse);
+                            return paymentResponse;
+                        });
+                    }).onErrorResume(throwable -> {
+                        captureTransactionException[0] = throwable;
+                        handleException(paymentRequest, headersDTO, throwable, paymentResponse, paymentEntity, startTime);
+                        return Mono.error(throwable);
+                    }).doFinally(signalType ->
+                    {
+                        updateDBOnFailure(paymentEntity, headersDTO, (Exception) captureTransactionException[0]);
+                        if (SignalType.CANCEL.equals(signalType)) {
+                            handleException(paymentRequest, headersDTO, null, paymentResponse, paymentEntity, startTime);
+                        }
+                        auditMapper.publishAuditEnvelope(headersDTO);
+                    });
+    }
+
+    /**
+     * Loads the authorize record and its follow-ups, from payment redis when present and from the DB otherwise,
+     * and validates them against the capture request
+     *
+     * @param paymentRequest- input request
+     * @param headersDTO-     headers params
+     * @param mgmId-          mgmId used for logging
+     * @return records of the payment
+     */
+    private Mono<List<PaymentEntity>> findAuthorizeRecords(PaymentRequest paymentRequest, HeadersDTO headersDTO, String mgmId) {
+        return redisPaymentRepositoryWrapper.findById(paymentRequest.getPaymentId(), TransactionType.CAPTURE, headersDTO).map(paymentRedisEntity -> {
+            logger.info(PPS_REQUEST_INFO_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, CAPTURE_OPERATION , CAPTURE_CLASS_NAME, headersDTO.getMgmSource(),
+                    headersDTO.getMgmChannel(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
+                    headersDTO.getMgmTransactionId(), headersDTO.getClientId(), mgmId, getSpanId(), getTraceId(), "Corresponding Auth Record Found in Payment Redis");
+            validateRedisRecord(paymentRedisEntity, paymentRequest);
+            return PaymentProcessingUtil.mapToEntityList(paymentRedisEntity);
+        }).switchIfEmpty(Mono.fromCallable(() -> {
+            List<PaymentEntity> paymentList = repository.findByPaymentIdOrReferenceId(
+                    paymentRequest.getPaymentId(), paymentRequest.getPaymentId(), headersDTO);
+            validateInputRequest(paymentRequest, paymentList, headersDTO);
+            return paymentList;
+        }).subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    /**
+     * Marks the capture of the authorization as in flight in the payment state, fails the capture when a capture for
+     * the same authorization is in flight or has succeeded, or a void is in flight or has succeeded
+     *
+     * @param paymentRequest- input request
+     * @param headersDTO-     headers params
+     */
+    private Mono<Void> acquireCaptureLock(PaymentRequest paymentRequest, HeadersDTO headersDTO) {
+        return redisPaymentRepositoryWrapper.tryLock(paymentRequest.getPaymentId(), TransactionType.CAPTURE,
+                PaymentProcessingUtil.getAmount(paymentRequest.getAmount()), headersDTO).flatMap(locked -> {
+            if (locked == PaymentLockResult.DUPLICATE) {
+                PaymentProcessingUtil.throwException(
+                        ApiErrorCode.DUPLICATE_CAPTURE_MESSAGE.getCode(),
+                        ApiErrorCode.DUPLICATE_CAPTURE_MESSAGE.getDescription(),
+                        HttpStatus.PRECONDITION_FAILED);
+            }
+            if (locked == PaymentLockResult.CONFLICT) {
+                PaymentProcessingUtil.throwException(
+                        ApiErrorCode.CAPTURE_ALREADY_VOID.getCode(),
+                        ApiErrorCode.CAPTURE_ALREADY_VOID.getDescription(), HttpStatus.PRECONDITION_FAILED);
+            }
+            return Mono.empty();
+        });
+    }
+
+    /**
+     * Retrieves the session and resolves the client config for the clientId derived from it. Works on its own copy
+     * of the headers so that it does not race the lookups running alongside it.
+     *
+     * @param paymentRequest- input request
+     * @param headersDTO-     copy of the headers params
+     * @return ClientConfigPayload
+     */
+    private Mono<ClientConfigPayload> resolveClientConfig(PaymentRequest paymentRequest, HeadersDTO headersDTO) {
+        return retrieveClientDetailsFromSession(paymentRequest, headersDTO)
+                .publishOn(Schedulers.boundedElastic())
+                .flatMap(paymentSession -> {
                     PaymentProcessingUtil.mapDerivedClientId(paymentSession, headersDTO, paymentRequest);
-                    ClientConfigPayload clientConfig = clientConfigurationServiceCaller.getClientConfig(headersDTO);
-                    headersDTO.setClientId(clientConfig.getClientId());
-                }
-                Optional<PaymentEntity> authRecordOpt = paymentList.stream()
-                        .filter(entity -> entity.getTransactionType().equals(TransactionType.AUTHORIZE)).findFirst();
-                authRecord = authRecordOpt.orElse(null);
-                populatePaymentEntity(headersDTO, paymentRequest, paymentList, paymentEntity, user);
-                createRedisCacheEntry(paymentEntity, headersDTO);
-                Mono<PaymentRouterResponse> prResponseMono = invokePaymentRouter(paymentEntity,
-                        paymentRequest, headersDTO);
-                return prResponseMono.map(paymentRouterResponse ->
-                {
-                    updateRouterResponseInTheDBRecord(paymentEntity, paymentRouterResponse, user, headersDTO, paymentList);
-                    mapPaymentRouterResponseToPaymentResponse(paymentEntity, paymentRequest,
-                            paymentRouterResponse, paymentResponse, headersDTO);
-                    if (!headersDTO.getMgmSource().equals(PaymentProcessingConstants.PAM_SERVICE)) {
-                        paymentRequest.setClientReferenceNumber(paymentEntity.getClientReferenceNumber());
-                        GatewayResult gatewayResult = paymentResponse.getResults().get(0).getGatewayResult();
-                        assert authRecord != null;
-                        captureConfirmService(paymentRequest, authRecord.getSessionId(), headersDTO, gatewayResult.getTransactionCode(),
-                                gatewayResult.getTransaction());
-                    }
-                    String maskedResponse = LogMaskingConverter.mask(paymentResponse);
-                    String status = StatusResult.F.name();
-                    String result = StatusResult.F.getResult();
-                    String responseCode = paymentRouterResponse.getResults().get(0).getGatewayResult().getTransaction().getResponseCode();
-                    if(responseCode.equals(RouterResponseCode.A.toString())){
-                        status = StatusResult.S.name();
-                        result = StatusResult.S.getResult();
-                    }
-                    publishAuditData(new String[]{"", "", AuditTrailConstants.PPS_CAPTURE, "Capture the given Amount", result, status}, paymentRequest, maskedRequest,
-                            maskedResponse, paymentEntity, startTime, headersDTO);
-                    stopWatch.stop();
-                    logger.info(PPS_RESPONSE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, CAPTURE_OPERATION, CAPTURE_CLASS_NAME, headersDTO.getMgmSource(),
-                            headersDTO.getMgmChannel(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
-                            headersDTO.getMgmTransactionId(), headersDTO.getClientId(), mgmId, getSpanId(), getTraceId(), status, result, stopWatch.getTotalTimeMillis(),
-                            maskedResponse);
-                    return paymentResponse;
-                }).onErrorResume(throwable -> {
-                    captureTransactionException[0] = throwable;
-                    handleException(paymentRequest, headersDTO, throwable, paymentResponse, paymentEntity, startTime);
-                    return Mono.error(throwable);
-                }).doFinally(signalType ->
-                {
-                    updateDBOnFailure(paymentEntity, headersDTO, (Exception) captureTransactionException[0]);
-                    if (SignalType.CANCEL.equals(signalType)) {
-                        handleException(paymentRequest, headersDTO, null, paymentResponse, paymentEntity, startTime);
-                    }
+                    return clientConfigurationServiceCaller.getClientConfig(headersDTO);
                 });
-            } catch (Exception e) {
-                stopWatch.stop();
-                updateDBOnFailure(paymentEntity, headersDTO, e);
-                handleException(paymentRequest, headersDTO, e, paymentResponse, paymentEntity, startTime);
-                throw e;
-            }
+    }
 
+    private Mono<PaymentRouterResponse> routeCapture(PaymentEntity paymentEntity, PaymentRequest paymentRequest,
+                                                     List<PaymentEntity> paymentList, User user, HeadersDTO headersDTO) {
+        return acquireCaptureLock(paymentRequest, headersDTO)
+                .then(Mono.fromRunnable(() -> populatePaymentEntity(headersDTO, paymentRequest, paymentList, paymentEntity, user))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .onErrorResume(e -> redisPaymentRepositoryWrapper.complete(paymentRequest.getPaymentId(), TransactionType.CAPTURE, false, headersDTO)
+                                .then(Mono.error(e))))
+                .then(Mono.defer(() -> invokePaymentRouter(paymentEntity, paymentRequest, headersDTO)));
     }
 
-    private void validateRedisRecord(PaymentRedisEntity paymentRedisEntity, PaymentRequest paymentRequest, HeadersDTO headersDTO) {
-        if (capturePaymentRepositoryWrapper.findById(paymentRedisEntity.getId(), headersDTO).isPresent()) {
-            PaymentProcessingUtil.throwException(
-                    ApiErrorCode.DUPLICATE_CAPTURE_MESSAGE.getCode(),
-                    ApiErrorCode.DUPLICATE_CAPTURE_MESSAGE.getDescription(),
-                    HttpStatus.PRECONDITION_FAILED);
-        }
+    private void validateRedisRecord(PaymentRedisEntity paymentRedisEntity, PaymentRequest paymentRequest) {
         if (paymentRedisEntity.getTransactionStatus() != TransactionStatus.SUCCESS) {
             PaymentProcessingUtil.throwException(
                     ApiErrorCode.AUTHORIZE_NOT_EXIST_MESSAGE.getCode(),
@@ -223,8 +276,8 @@ public class CapturePaymentProcessor implements PaymentProcessor {
     private void handleException(PaymentRequest paymentRequest, HeadersDTO headersDTO, Throwable e, PaymentResponse paymentResponse, PaymentEntity paymentEntity, LocalDateTime startTime) {
         String mgmErrorCode = null;
         String errorDescription = null;
-        String maskedRequest = LogMaskingConverter.mask(paymentRequest);
-        String maskedResponse = LogMaskingConverter.mask(paymentResponse);
+        String maskedRequest = headersDTO.getMaskedPayloads().mask(paymentRequest);
+        String maskedResponse = headersDTO.getMaskedPayloads().mask(paymentResponse);
         String mgmId = paymentRequest.getMgmId() != null ? paymentRequest.getMgmId() : "";
         if (e instanceof PaymentProcessingException) {
             PaymentProcessingException pe = (PaymentProcessingException) e;
@@ -258,12 +311,6 @@ public class CapturePaymentProcessor implements PaymentProcessor {
      */
     public void validateInputRequest(PaymentRequest paymentRequest, List<PaymentEntity> paymentList, HeadersDTO headersDTO) {
 
-        if (capturePaymentRepositoryWrapper.findById(paymentRequest.getPaymentId(), headersDTO).isPresent()) {
-            PaymentProcessingUtil.throwException(
-                    ApiErrorCode.DUPLICATE_CAPTURE_MESSAGE.getCode(),
-                    ApiErrorCode.DUPLICATE_CAPTURE_MESSAGE.getDescription(),
-                    HttpStatus.PRECONDITION_FAILED);
-        }
         Optional<PaymentEntity> authorizeRecordOpt =
                 paymentList.stream().filter(paymentEntity -> paymentEntity.getPaymentId().equals(paymentRequest.getPaymentId())
                         && paymentEntity.getTransactionType().equals(TransactionType.AUTHORIZE)
@@ -311,14 +358,15 @@ public class CapturePaymentProcessor implements PaymentProcessor {
      * @return PaymentSession
      */
     @Override
-    public PaymentSession retrieveClientDetailsFromSession(PaymentRequest paymentRequest, HeadersDTO headersDTO) {
-        PaymentSession paymentSession = sessionServiceCaller.retrieveSession(headersDTO, paymentRequest.getSessionId());
-        publishAuditData(new String[]{"", "", "PPS_TO_SESSION", "PPS to Payment Session - Retrieve Session", "", ""}, paymentRequest, paymentRequest.getSessionId(),
-                null, null, LocalDateTime.now(), headersDTO);
-        String maskedResponse = LogMaskingConverter.mask(paymentSession);
-        publishAuditData(new String[]{"", "", "PPS_TO_SESSION", "PPS to Payment Session - Retrieve Session", StatusResult.S.getResult(), StatusResult.S.name()}, paymentRequest, paymentRequest.getSessionId(),
-                maskedResponse, null, LocalDateTime.now(), headersDTO);
-        return paymentSession;
+    public Mono<PaymentSession> retrieveClientDetailsFromSession(PaymentRequest paymentRequest, HeadersDTO headersDTO) {
+        return sessionServiceCaller.retrieveSession(headersDTO, paymentRequest.getSessionId()).map(paymentSession -> {
+            publishAuditData(new String[]{"", "", "PPS_TO_SESSION", "PPS to Payment Session - Retrieve Session", "", ""}, paymentRequest, paymentRequest.getSessionId(),
+                    null, null, LocalDateTime.now(), headersDTO);
+            String maskedResponse = headersDTO.getMaskedPayloads().mask(paymentSession);
+            publishAuditData(new String[]{"", "", "PPS_TO_SESSION", "PPS to Payment Session - Retrieve Session", StatusResult.S.getResult(), StatusResult.S.name()}, paymentRequest, paymentRequest.getSessionId(),
+                    maskedResponse, null, LocalDateTime.now(), headersDTO);
+            return paymentSession;
+        });
     }
 
     /**
@@ -384,13 +432,6 @@ public class CapturePaymentProcessor implements PaymentProcessor {
 
     }
 
-
-    public void createRedisCacheEntry(PaymentEntity paymentEntity, HeadersDTO headersDTO) {
-        capturePaymentRepositoryWrapper.save(CaptureRedisEntity.builder().id(paymentEntity.getReferenceId())
-                .transactionStatus(TransactionStatus.IN_PROCESS)
-                .amount(paymentEntity.getAmount()).build(), headersDTO);
-    }
-
     /**
      * Invokes External router-service calls for capture
      *
@@ -424,14 +465,14 @@ public class CapturePaymentProcessor implements PaymentProcessor {
                 .merchantReferenceCode(paymentRequest.getPaymentId())
                 .additionalAttributes(paymentRequest.getAdditionalAttributes())
                 .build();
-        String maskedPrRequest = LogMaskingConverter.mask(paymentRouterRequest);
+        String maskedPrRequest = headersDTO.getMaskedPayloads().mask(paymentRouterRequest);
         publishAuditData(new String[]{"", "", "PPS_TO_PR_CAPTURE", "PPS to Payment Router - Capture the given Amount", "", ""}, paymentRequest, maskedPrRequest,
                 null, paymentEntity, startTime, headersDTO);
         Mono<ResponseEntity<PaymentRouterResponse>> paymentRouterResponseMono = routerServiceCaller.invokeRouter(paymentRouterRequest, headersDTO, paymentEntity.getPaymentId());
         return paymentRouterResponseMono.map(paymentRouterResponseResponseEntity ->
         {
             PaymentRouterResponse paymentRouterResponse = paymentRouterResponseResponseEntity.getBody();
-            String maskedPrResponse = LogMaskingConverter.mask(paymentRouterResponse);
+            String maskedPrResponse = headersDTO.getMaskedPayloads().mask(paymentRouterResponse);
             String result = StatusResult.F.getResult();
             String status = StatusResult.F.name();
             assert paymentRouterResponse != null;
@@ -478,7 +519,6 @@ public class CapturePaymentProcessor implements PaymentProcessor {
             payment.setUpdatedTimestamp(ZonedDateTime.now(ZoneOffset.UTC).toString());
             payment.setUpdatedBy(user.getServiceId());
             saveResponseInDB(payment, prResponse, transactionStatus, headersDTO, paymentList);
-            capturePaymentRepositoryWrapper.deleteById(payment.getReferenceId(), headersDTO);
         } catch (Exception e) {
             throw new PaymentProcessingException(PaymentExceptionResponse.builder().paymentId(payment.getPaymentId())
                     .dateTime(ZonedDateTime.now()).errorCode(PAYMENT_ROUTER_RESPONSE_UPDATE_EXCEPTION.getCode()).errorMessage(PAYMENT_ROUTER_RESPONSE_UPDATE_EXCEPTION.getDescription())
@@ -489,17 +529,9 @@ public class CapturePaymentProcessor implements PaymentProcessor {
 
     private void saveResponseInDB(PaymentEntity payment, PaymentRouterResponse prResponse, TransactionStatus transactionStatus, HeadersDTO headersDTO, List<PaymentEntity> paymentList) {
         try {
-            if(transactionStatus.equals(TransactionStatus.SUCCESS)) {
-                PaymentEntity authEntity = PaymentProcessingUtil.getAuthEntity(paymentList);
-                if (authEntity != null) {
-                    PaymentRedisEntity paymentRedisEntity = PaymentProcessingUtil.mapToRedisEntity(authEntity);
-                    paymentRedisEntity.setIsCapture(Boolean.TRUE);
-                    redisPaymentRepositoryWrapper.save(paymentRedisEntity, headersDTO);
-                }
-            }
             repository.save(payment, headersDTO);
         } catch (Exception e){
-            String maskedResponse = LogMaskingConverter.mask(prResponse);
+            String maskedResponse = headersDTO.getMaskedPayloads().mask(prResponse);
             if(transactionStatus.equals(TransactionStatus.SUCCESS)){
                 logger.info(PPS_DB_EXCEPTION_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, CAPTURE_OPERATION, CAPTURE_CLASS_NAME, PPS_CAPTURE_DB_ENTRY_EXCEPTION,
                         payment.getRequestChannel(), payment.getMgmJourneyId(), payment.getMgmCorrelationId(),
@@ -600,7 +632,7 @@ public class CapturePaymentProcessor implements PaymentProcessor {
      */
     public void updateDBOnFailure(PaymentEntity payment, HeadersDTO headersDTO, Exception e) {
         if (payment != null && (TransactionStatus.IN_PROCESS.equals(payment.getTransactionStatus()))) {
-            capturePaymentRepositoryWrapper.deleteById(payment.getReferenceId(), headersDTO);
+            redisPaymentRepositoryWrapper.complete(payment.getReferenceId(), TransactionType.CAPTURE, false, headersDTO).subscribe();
             PaymentProcessingUtil.getFailureEntity(payment, e);
             repository.save(payment, headersDTO);
         }
@@ -628,7 +660,7 @@ public class CapturePaymentProcessor implements PaymentProcessor {
                 .processorResponseText(processorResponseText)
                 .responseCode(responseCode)
                 .avsResult(avsResult).build();
-        String masked = LogMaskingConverter.mask(captureConfirm);
+        String masked = headersDTO.getMaskedPayloads().mask(captureConfirm);
         if (logger.isInfoEnabled()) {
             logger.info("Service : Event call to  ConfirmEvent executing.... :: captureConfirm : {}", masked);
         }
@@ -645,7 +677,8 @@ public class CapturePaymentProcessor implements PaymentProcessor {
         String result = errorEventData[4];
         String status = errorEventData[5];
         AuditData auditData = PaymentProcessingUtil.buildAuditData(eventName, eventDescription, errorCode, errorDescription,
-                requestPayload, responsePayload, paymentEntity);
+                headersDTO.getMaskedPayloads().auditPayload(requestPayload),
+                headersDTO.getMaskedPayloads().auditPayload(responsePayload), paymentEntity);
         auditData.setStartTimeTS(startTime);
         auditData.setResult(result);
         auditData.setStatus(status);
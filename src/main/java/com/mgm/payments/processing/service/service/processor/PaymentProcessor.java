@@ -1,6 +1,5 @@
 package com.mgm.payments.processing.service.service.processor;
 
-import com.azure.core.annotation.Head;
 import com.mgm.payments.processing.service.entity.jpa.PaymentEntity;
 import com.mgm.payments.processing.service.model.HeadersDTO;
 import com.mgm.payments.processing.service.model.User;
@@ -19,12 +18,10 @@ public interface PaymentProcessor {
 
     public void validateInputRequest(PaymentRequest paymentRequest, List<PaymentEntity> paymentList, HeadersDTO headersDTO);
 
-    public PaymentSession retrieveClientDetailsFromSession(PaymentRequest paymentRequest, HeadersDTO headersDTO);
+    public Mono<PaymentSession> retrieveClientDetailsFromSession(PaymentRequest paymentRequest, HeadersDTO headersDTO);
 
     public void populatePaymentEntity(HeadersDTO headersDTO, PaymentRequest request, List<PaymentEntity> paymentList, PaymentEntity paymentEntity, User user);
 
-    public void createRedisCacheEntry(PaymentEntity paymentEntity, HeadersDTO headersDTO);
-
     public Mono<PaymentRouterResponse> invokePaymentRouter(PaymentEntity paymentEntity, PaymentRequest paymentRequest, HeadersDTO headersDTO);
 
     public void updateRouterResponseInTheDBRecord(PaymentEntity payment, PaymentRouterResponse prResponse, User user, HeadersDTO headersDTO, List<PaymentEntity> paymentList);
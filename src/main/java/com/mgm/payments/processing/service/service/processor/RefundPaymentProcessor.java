@@ -19,7 +19,6 @@ import com.mgm.payments.processing.service.model.payload.router.*;
 import com.mgm.payments.processing.service.model.payload.session.PaymentSession;
 import com.mgm.payments.processing.service.repository.jpa.PaymentProcessingRepositoryWrapper;
 import com.mgm.payments.processing.service.repository.redis.refund.RefundRedisPaymentRepositoryWrapper;
-import com.mgm.payments.processing.service.util.LogMaskingConverter;
 import com.mgm.payments.processing.service.util.PaymentProcessingUtil;
 import com.mgm.payments.processing.service.util.SnowFlakeSequenceGenerator;
 import org.slf4j.Logger;
@@ -28,12 +27,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
-import org.springframework.util.CollectionUtils;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StopWatch;
 import org.springframework.util.StringUtils;
+import reactor.core.Exceptions;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
 
 import java.math.BigDecimal;
 import java.time.*;
@@ -94,12 +94,10 @@ public class RefundPaymentProcessor implements PaymentProcessor {
     public Mono<PaymentResponse> process(PaymentRequest paymentRequest, User user, HeadersDTO headersDTO) {
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
-        final ClientConfigPayload clientConfig;
-        final boolean isAdhoc;
         final PaymentResponse paymentResponse = new PaymentResponse();
         LocalDateTime startTime = LocalDateTime.now();
         final PaymentEntity paymentEntity = new PaymentEntity();
-        String maskedRequest = LogMaskingConverter.mask(paymentRequest);
+        String maskedRequest = headersDTO.getMaskedPayloads().mask(paymentRequest);
         String mgmId = paymentRequest.getMgmId() != null ? paymentRequest.getMgmId() : "";
         Throwable[] refundTransactionException = new Throwable[1];
         if (logger.isInfoEnabled()) {
@@ -107,93 +105,125 @@ public class RefundPaymentProcessor implements PaymentProcessor {
                     headersDTO.getMgmChannel(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
                     headersDTO.getMgmTransactionId(), headersDTO.getClientId(), mgmId, getSpanId(), getTraceId(), maskedRequest);
         }
-        try {
-            publishAuditData(new String[]{"", "", AuditTrailConstants.PPS_REFUND, "Refund the given Amount", "", ""}, paymentRequest, maskedRequest,
-                    null, paymentEntity, startTime, headersDTO);
-            validateDuplicateRequestFromCache(paymentRequest.getClientReferenceNumber(), paymentRequest.getAmount(), headersDTO);
-            // The below commented code is to decide adhoc-refund from DB existing records. As of now, we are checking the adhoc-refund flag from client-config using clientId.
+        publishAuditData(new String[]{"", "", AuditTrailConstants.PPS_REFUND, "Refund the given Amount", "", ""}, paymentRequest, maskedRequest,
+                null, paymentEntity, startTime, headersDTO);
+        // The below commented code is to decide adhoc-refund from DB existing records. As of now, we are checking the adhoc-refund flag from client-config using clientId.
 //            List<PaymentEntity> paymentList = repository.findByClientReferenceNumber(paymentRequest.getClientReferenceNumber(), headersDTO);
 //            List<PaymentEntity> captureEntityList = paymentList.stream().filter(data ->
 //                    data.getTransactionType() == TransactionType.CAPTURE && data.getTransactionStatus() == TransactionStatus.SUCCESS).collect(Collectors.toList());
 //            String merchantReferenceCode = !captureEntityList.isEmpty() ? captureEntityList.get(0).getReferenceId() : null;
 //            isAdhoc = captureEntityList.isEmpty();
 //            paymentRequest.setPaymentId(merchantReferenceCode);
-            populatePaymentEntity(headersDTO, paymentRequest,null, paymentEntity, user);
-            createRedisCacheEntry(paymentEntity, headersDTO);
-            if(!PAM_SERVICE.equals(headersDTO.getMgmSource())) {
-                PaymentProcessingUtil.validateRefundRequest(paymentRequest);
-                PaymentSession paymentSession = retrieveClientDetailsFromSession(paymentRequest, headersDTO);
-                PaymentProcessingUtil.mapDerivedClientId(paymentSession, headersDTO, paymentRequest);
-            }
-            clientConfig = clientConfigurationServiceCaller.getClientConfig(headersDTO);
-            headersDTO.setClientId(clientConfig.getClientId());
-            paymentEntity.setClientId(clientConfig.getClientId());
-            validateDuplicateRequestFromDB(paymentRequest, headersDTO);
-            isAdhoc = PaymentProcessingUtil.isAdhocRefundAllowed(clientConfig, "PaymentConfigs", "adhocRefund");
-            if (!isAdhoc) {
-                logger.info(PPS_REQUEST_INFO_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, REFUND_OPERATION, REFUND_CLASS_NAME, headersDTO.getMgmSource(),
-                        headersDTO.getMgmChannel(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
-                        headersDTO.getMgmTransactionId(), headersDTO.getClientId(), mgmId, getSpanId(), getTraceId(),
-                        "Refund is Non-Adhoc for clientReferenceNumber: "+ paymentRequest.getClientReferenceNumber());
-                List<PaymentEntity> paymentList = repository.findByClientReferenceNumber(paymentRequest.getClientReferenceNumber(), headersDTO);
-                validateInputRequest(paymentRequest, paymentList, headersDTO);
-            } else{
-                logger.info(PPS_REQUEST_INFO_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, REFUND_OPERATION, REFUND_CLASS_NAME, headersDTO.getMgmSource(),
-                        headersDTO.getMgmChannel(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
-                        headersDTO.getMgmTransactionId(), headersDTO.getClientId(), mgmId, getSpanId(), getTraceId(),
-                        "Refund is Adhoc for clientReferenceNumber: "+ paymentRequest.getClientReferenceNumber());
-            }
 
+        // The in-flight lock in the cache, the session -> client config chain and the DB check for a duplicate refund
+        // are independent and run concurrently; the router call waits for all of them. The records of the
+        // clientReferenceNumber are only loaded for the refund limit of a non-adhoc refund, once the client config
+        // tells which it is. On failure the zip still waits for the other stages so that updateDBOnFailure sees the
+        // final entity.
+        Mono<Boolean> inFlightMono = acquireRefundLock(paymentRequest, headersDTO)
+                .then(Mono.fromRunnable(() -> populatePaymentEntity(headersDTO, paymentRequest, null, paymentEntity, user))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .onErrorResume(e -> refundRedisPaymentRepositoryWrapper.deleteById(paymentRequest.getClientReferenceNumber(), headersDTO)
+                                .then(Mono.error(e))))
+                .thenReturn(Boolean.TRUE);
+        Mono<ClientConfigPayload> clientConfigMono = Mono.defer(() -> resolveClientConfig(paymentRequest, PaymentProcessingUtil.copyHeaders(headersDTO)));
+        Mono<Boolean> duplicateCheckMono = Mono.fromCallable(() -> {
+            validateDuplicateRequestFromDB(paymentRequest, headersDTO);
+            return Boolean.TRUE;
+        }).subscribeOn(Schedulers.boundedElastic());
+        return Mono.zipDelayError(inFlightMono, clientConfigMono, duplicateCheckMono)
+                .onErrorMap(e -> Exceptions.unwrapMultiple(e).get(0))
+                .publishOn(Schedulers.boundedElastic())
+                .flatMap(lookups -> routeRefund(paymentEntity, paymentRequest, lookups.getT2(), headersDTO))
+                .map(paymentRouterResponse -> {
+                    updateRouterResponseInTheDBRecord(paymentEntity, paymentRouterResponse, user, headersDTO, null);
+                    return paymentRouterResponse;
+                })
+                .flatMap(paymentRouterResponse -> refundRedisPaymentRepositoryWrapper.deleteById(paymentEntity.getClientReferenceNumber(), headersDTO)
+                        .thenReturn(paymentRouterResponse))
+                .map(paymentRouterResponse ->
+                {
+                    mapPaymentRouterResponseToPaymentResponse(paymentEntity, paymentRequest,
+                            paymentRouterResponse, paymentResponse, headersDTO);
+                    String maskedResponse = headersDTO.getMaskedPayloads().mask(paymentResponse);
+                    String status = StatusResult.F.name();
+                    String result = StatusResult.F.getResult();
+                    String responseCode = paymentRouterResponse.getResults().get(0).getGatewayResult().getTransaction().getResponseCode();
+                    if(responseCode.equals(RouterResponseCode.A.toString())){
+                        status = StatusResult.S.name();
+                        result = StatusResult.S.getResult();
+                    }
+                    publishAuditData(new String[]{"", "", AuditTrailConstants.PPS_REFUND, "Refund the given Amount", result, status}, paymentRequest, maskedRequest,
+                            maskedResponse, paymentEntity, startTime, headersDTO);
+                    stopWatch.stop();
+                    logger.info(PPS_RESPONSE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, REFUND_OPERATION, REFUND_CLASS_NAME, headersDTO.getMgmSource(),
+                            headersDTO.getMgmChannel(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
+                            headersDTO.getMgmTransactionId(), headersDTO.getClientId(), mgmId, getSpanId(), getTraceId(), status, result, stopWatch.getTotalTimeMillis(),
+                            maskedResponse);
+                    return paymentResponse;
+                }).onErrorResume(throwable -> {
+                    refundTransactionException[0] = throwable;
+                    handleException(paymentRequest, headersDTO, throwable, paymentResponse, paymentEntity, startTime);
+                    return Mono.error(throwable);
+                }).doFinally(signalType ->
+                {
+                    updateDBOnFailure(paymentEntity, headersDTO, (Exception) refundTransactionException[0]);
+                    if (SignalType.CANCEL.equals(signalType)) {
+                        handleException(paymentRequest, headersDTO, null, paymentResponse, paymentEntity, startTime);
+                    }
+                    auditMapper.publishAuditEnvelope(headersDTO);
+                });
+    }
 
-            Mono<PaymentRouterResponse> prResponseMono = invokePaymentRouter(paymentEntity,
-                    paymentRequest, headersDTO);
-            return prResponseMono.map(paymentRouterResponse ->
-            {
-                updateRouterResponseInTheDBRecord(paymentEntity, paymentRouterResponse, user, headersDTO, null);
-                mapPaymentRouterResponseToPaymentResponse(paymentEntity, paymentRequest,
-                        paymentRouterResponse, paymentResponse, headersDTO);
-                String maskedResponse = LogMaskingConverter.mask(paymentResponse);
-                String status = StatusResult.F.name();
-                String result = StatusResult.F.getResult();
-                String responseCode = paymentRouterResponse.getResults().get(0).getGatewayResult().getTransaction().getResponseCode();
-                if(responseCode.equals(RouterResponseCode.A.toString())){
-                    status = StatusResult.S.name();
-                    result = StatusResult.S.getResult();
-                }
-                publishAuditData(new String[]{"", "", AuditTrailConstants.PPS_REFUND, "Refund the given Amount", result, status}, paymentRequest, maskedRequest,
-                        maskedResponse, paymentEntity, startTime, headersDTO);
-                stopWatch.stop();
-                logger.info(PPS_RESPONSE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, REFUND_OPERATION, REFUND_CLASS_NAME, headersDTO.getMgmSource(),
-                        headersDTO.getMgmChannel(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
-                        headersDTO.getMgmTransactionId(), headersDTO.getClientId(), mgmId, getSpanId(), getTraceId(), status, result, stopWatch.getTotalTimeMillis(),
-                        maskedResponse);
-                return paymentResponse;
-            }).onErrorResume(throwable -> {
-                refundTransactionException[0] = throwable;
-                handleException(paymentRequest, headersDTO, throwable, paymentResponse, paymentEntity, startTime);
-                return Mono.error(throwable);
-            }).doFinally(signalType ->
-            {
-                updateDBOnFailure(paymentEntity, headersDTO, (Exception) refundTransactionException[0]);
-                if (SignalType.CANCEL.equals(signalType)) {
-                    handleException(paymentRequest, headersDTO, null, paymentResponse, paymentEntity, startTime);
-                }
-
-            });
+    /**
+     * Resolves the client config for the refund. For non PAM callers the clientId is derived from the session first.
+     * Works on its own copy of the headers so that it does not race the stages running alongside it.
+     *
+     * @param paymentRequest- input request
+     * @param headersDTO-     copy of the headers params
+     * @return ClientConfigPayload
+     */
+    private Mono<ClientConfigPayload> resolveClientConfig(PaymentRequest paymentRequest, HeadersDTO headersDTO) {
+        if (PAM_SERVICE.equals(headersDTO.getMgmSource())) {
+            return clientConfigurationServiceCaller.getClientConfig(headersDTO);
+        }
+        PaymentProcessingUtil.validateRefundRequest(paymentRequest);
+        // session call is non-blocking, mapping the derived clientId hops off the WebClient thread
+        return retrieveClientDetailsFromSession(paymentRequest, headersDTO)
+                .publishOn(Schedulers.boundedElastic())
+                .flatMap(paymentSession -> {
+                    PaymentProcessingUtil.mapDerivedClientId(paymentSession, headersDTO, paymentRequest);
+                    return clientConfigurationServiceCaller.getClientConfig(headersDTO);
+                });
+    }
 
-        } catch (Exception e) {
-            stopWatch.stop();
-            updateDBOnFailure(paymentEntity, headersDTO, e);
-            handleException(paymentRequest, headersDTO, e, paymentResponse, paymentEntity, startTime);
-            throw e;
+    private Mono<PaymentRouterResponse> routeRefund(PaymentEntity paymentEntity, PaymentRequest paymentRequest, ClientConfigPayload clientConfig,
+                                                    HeadersDTO headersDTO) {
+        String mgmId = paymentRequest.getMgmId() != null ? paymentRequest.getMgmId() : "";
+        headersDTO.setClientId(clientConfig.getClientId());
+        paymentEntity.setClientId(clientConfig.getClientId());
+        boolean isAdhoc = PaymentProcessingUtil.isAdhocRefundAllowed(clientConfig, "PaymentConfigs", "adhocRefund");
+        if (!isAdhoc) {
+            logger.info(PPS_REQUEST_INFO_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, REFUND_OPERATION, REFUND_CLASS_NAME, headersDTO.getMgmSource(),
+                    headersDTO.getMgmChannel(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
+                    headersDTO.getMgmTransactionId(), headersDTO.getClientId(), mgmId, getSpanId(), getTraceId(),
+                    "Refund is Non-Adhoc for clientReferenceNumber: "+ paymentRequest.getClientReferenceNumber());
+            List<PaymentEntity> paymentList = repository.findByClientReferenceNumber(paymentRequest.getClientReferenceNumber(), headersDTO);
+            validateInputRequest(paymentRequest, paymentList, headersDTO);
+        } else{
+            logger.info(PPS_REQUEST_INFO_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, REFUND_OPERATION, REFUND_CLASS_NAME, headersDTO.getMgmSource(),
+                    headersDTO.getMgmChannel(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
+                    headersDTO.getMgmTransactionId(), headersDTO.getClientId(), mgmId, getSpanId(), getTraceId(),
+                    "Refund is Adhoc for clientReferenceNumber: "+ paymentRequest.getClientReferenceNumber());
         }
+        return invokePaymentRouter(paymentEntity, paymentRequest, headersDTO);
     }
 
     private void handleException(PaymentRequest paymentRequest, HeadersDTO headersDTO, Throwable e, PaymentResponse paymentResponse, PaymentEntity paymentEntity, LocalDateTime startTime) {
         String mgmErrorCode = null;
         String errorDescription = null;
-        String maskedRequest = LogMaskingConverter.mask(paymentRequest);
-        String maskedResponse = LogMaskingConverter.mask(paymentResponse);
+        String maskedRequest = headersDTO.getMaskedPayloads().mask(paymentRequest);
+        String maskedResponse = headersDTO.getMaskedPayloads().mask(paymentResponse);
         String mgmId = paymentRequest.getMgmId() != null ? paymentRequest.getMgmId() : "";
         if (e instanceof PaymentProcessingException) {
             PaymentProcessingException pe = (PaymentProcessingException) e;
@@ -254,26 +284,36 @@ public class RefundPaymentProcessor implements PaymentProcessor {
      * @return PaymentSession
      */
     @Override
-    public PaymentSession retrieveClientDetailsFromSession(PaymentRequest paymentRequest, HeadersDTO headersDTO) {
+    public Mono<PaymentSession> retrieveClientDetailsFromSession(PaymentRequest paymentRequest, HeadersDTO headersDTO) {
         publishAuditData(new String[]{"", "", "PPS_TO_SESSION", "PPS to Payment Session - Retrieve Session", "", ""}, paymentRequest, paymentRequest.getSessionId(),
                 null, null, LocalDateTime.now(), headersDTO);
-        PaymentSession paymentSession = sessionServiceCaller.retrieveSession(headersDTO, paymentRequest.getSessionId());
-        String maskedResponse = LogMaskingConverter.mask(paymentSession);
-        publishAuditData(new String[]{"", "", "PPS_TO_SESSION", "PPS to Payment Session - Retrieve Session", StatusResult.S.getResult(), StatusResult.S.name()}, paymentRequest, paymentRequest.getSessionId(),
-                maskedResponse, null, LocalDateTime.now(), headersDTO);
-        return paymentSession;
+        return sessionServiceCaller.retrieveSession(headersDTO, paymentRequest.getSessionId()).map(paymentSession -> {
+            String maskedResponse = headersDTO.getMaskedPayloads().mask(paymentSession);
+            publishAuditData(new String[]{"", "", "PPS_TO_SESSION", "PPS to Payment Session - Retrieve Session", StatusResult.S.getResult(), StatusResult.S.name()}, paymentRequest, paymentRequest.getSessionId(),
+                    maskedResponse, null, LocalDateTime.now(), headersDTO);
+            return paymentSession;
+        });
     }
 
-    private void validateDuplicateRequestFromCache(String clientReferenceNumber, List<Amount> amount, HeadersDTO headersDTO) {
-        Optional<RefundRedisEntity> refundRedisEntity = refundRedisPaymentRepositoryWrapper.findById(clientReferenceNumber, headersDTO);
-        if(refundRedisEntity.isPresent()) {
-            if (refundRedisEntity.get().getAmount()
-                    .equals(PaymentProcessingUtil.getAmount(amount))) {
+    /**
+     * Inserts the IN_PROCESS refund entry for the clientReferenceNumber, fails the refund when a refund of the same
+     * amount is in flight
+     *
+     * @param paymentRequest - input request
+     * @param headersDTO     - headers param
+     */
+    private Mono<Void> acquireRefundLock(PaymentRequest paymentRequest, HeadersDTO headersDTO) {
+        RefundRedisEntity refundRedisEntity = RefundRedisEntity.builder().id(paymentRequest.getClientReferenceNumber())
+                .amount(PaymentProcessingUtil.getAmount(paymentRequest.getAmount()))
+                .transactionStatus(TransactionStatus.IN_PROCESS).build();
+        return refundRedisPaymentRepositoryWrapper.tryLock(refundRedisEntity, headersDTO).flatMap(locked -> {
+            if (!Boolean.TRUE.equals(locked)) {
                 PaymentProcessingUtil.throwException(
                         ApiErrorCode.DUPLICATE_REFUND_MESSAGE.getCode(),
                         ApiErrorCode.DUPLICATE_REFUND_MESSAGE.getDescription(), HttpStatus.PRECONDITION_FAILED);
             }
-        }
+            return Mono.empty();
+        });
     }
 
     /**
@@ -284,25 +324,16 @@ public class RefundPaymentProcessor implements PaymentProcessor {
      */
     protected void validateDuplicateRequestFromDB(PaymentRequest paymentRequest, HeadersDTO headersDTO) {
         logger.info("Validating duplicate request from DB for clientReferenceNumber: {}", sanitize(paymentRequest.getClientReferenceNumber()));
-        List<PaymentEntity> paymentEntities = repository.findByClientReferenceNumber(paymentRequest.getClientReferenceNumber(), headersDTO);
-        if(!CollectionUtils.isEmpty(paymentEntities) && paymentEntities.stream().anyMatch(paymentEntity ->
-                        !ObjectUtils.isEmpty(paymentEntity.getTransactionType())
-                                && !ObjectUtils.isEmpty(paymentEntity.getAmount())
-                                && !ObjectUtils.isEmpty(paymentEntity.getCreatedTimestamp())
-                                && !ObjectUtils.isEmpty(paymentEntity.getRequestChannel())
-                                && !ObjectUtils.isEmpty(paymentRequest.getPayment())
-                                && !ObjectUtils.isEmpty(paymentRequest.getPayment().getTenderDetails())
-                                && !ObjectUtils.isEmpty(paymentRequest.getPayment().getTenderDetails().getMgmToken())
-                                && StringUtils.hasText(paymentEntity.getRequestChannel())
-                                && StringUtils.hasText(paymentEntity.getLast4DigitsOfTheCard())
-                                //checking for the refund transaction with the same amount, created date, request channel and last 4 digits of the card
-                                && paymentEntity.getTransactionType().equals(TransactionType.REFUND)
-                                && paymentEntity.getAmount().equals(PaymentProcessingUtil.getAmount(paymentRequest.getAmount()))
-                                && PaymentProcessingUtil.compareDate(paymentEntity.getCreatedTimestamp())
-                                && paymentEntity.getRequestChannel().equals(headersDTO.getMgmChannel())
-                                //getting last 4 digits of the card from mgmToken
-                                && paymentEntity.getLast4DigitsOfTheCard().equals(paymentRequest.getPayment().getTenderDetails().getMgmToken().substring(
-                                        paymentRequest.getPayment().getTenderDetails().getMgmToken().length() - 4)))) {
+        if(!ObjectUtils.isEmpty(paymentRequest.getPayment())
+                && !ObjectUtils.isEmpty(paymentRequest.getPayment().getTenderDetails())
+                && !ObjectUtils.isEmpty(paymentRequest.getPayment().getTenderDetails().getMgmToken())
+                && StringUtils.hasText(headersDTO.getMgmChannel())
+                //checking for the refund transaction with the same amount, created date, request channel and last 4 digits of the card
+                && repository.existsTransaction(paymentRequest.getClientReferenceNumber(), TransactionType.REFUND, LocalDate.now(),
+                        PaymentProcessingUtil.getAmount(paymentRequest.getAmount()), headersDTO.getMgmChannel(),
+                        //getting last 4 digits of the card from mgmToken
+                        paymentRequest.getPayment().getTenderDetails().getMgmToken().substring(
+                                paymentRequest.getPayment().getTenderDetails().getMgmToken().length() - 4), headersDTO)) {
             PaymentProcessingUtil.throwException(
                     ApiErrorCode.DUPLICATE_REFUND_MESSAGE.getCode(),
                     ApiErrorCode.DUPLICATE_REFUND_MESSAGE.getDescription(), HttpStatus.PRECONDITION_FAILED);
@@ -355,12 +386,6 @@ public class RefundPaymentProcessor implements PaymentProcessor {
     }
 
 
-    public void createRedisCacheEntry(PaymentEntity paymentEntity, HeadersDTO headersDTO) {
-        refundRedisPaymentRepositoryWrapper.save(RefundRedisEntity.builder().id(paymentEntity.getClientReferenceNumber())
-                .amount(paymentEntity.getAmount()).transactionStatus(TransactionStatus.IN_PROCESS).build(), headersDTO);
-    }
-
-
     public Mono<PaymentRouterResponse> invokePaymentRouter(PaymentEntity paymentEntity, PaymentRequest paymentRequest,
                                                                            HeadersDTO headersDTO) {
         LocalDateTime startTime = LocalDateTime.now();
@@ -383,14 +408,14 @@ public class RefundPaymentProcessor implements PaymentProcessor {
                 .merchantReferenceCode(paymentRequest.getPaymentId())
                 .additionalAttributes(paymentRequest.getAdditionalAttributes())
                 .build();
-        String maskedRequest = LogMaskingConverter.mask(paymentRouterRequest);
+        String maskedRequest = headersDTO.getMaskedPayloads().mask(paymentRouterRequest);
         publishAuditData(new String[]{"", "", "PPS_TO_PR_REFUND", "PPS to Payment Router - Refund the given Amount", "", ""}, paymentRequest, maskedRequest,
                 null, paymentEntity, startTime, headersDTO);
         Mono<ResponseEntity<PaymentRouterResponse>> paymentRouterResponseMono = routerServiceCaller.invokeRouter(paymentRouterRequest, headersDTO, paymentEntity.getPaymentId());
         return  paymentRouterResponseMono.map(paymentRouterResponseResponseEntity ->
         {
             PaymentRouterResponse paymentRouterResponse = paymentRouterResponseResponseEntity.getBody();
-            String maskedResponse = LogMaskingConverter.mask(paymentRouterResponse);
+            String maskedResponse = headersDTO.getMaskedPayloads().mask(paymentRouterResponse);
             String result = StatusResult.F.getResult();
             String status = StatusResult.F.name();
             assert paymentRouterResponse != null;
@@ -441,7 +466,6 @@ public class RefundPaymentProcessor implements PaymentProcessor {
             payment.setUpdatedTimestamp(ZonedDateTime.now(ZoneOffset.UTC).toString());
             payment.setUpdatedBy(user.getServiceId());
             saveResponseToDB(payment, prResponse, transactionStatus, headersDTO);
-            refundRedisPaymentRepositoryWrapper.deleteById(payment.getClientReferenceNumber(), headersDTO);
         } catch (Exception e) {
             throw new PaymentProcessingException(PaymentExceptionResponse.builder().paymentId(payment.getPaymentId())
                     .dateTime(ZonedDateTime.now()).errorCode(PAYMENT_ROUTER_RESPONSE_UPDATE_EXCEPTION.getCode()).errorMessage(PAYMENT_ROUTER_RESPONSE_UPDATE_EXCEPTION.getDescription())
@@ -453,7 +477,7 @@ public class RefundPaymentProcessor implements PaymentProcessor {
         try {
             repository.save(payment, headersDTO);
         }catch(Exception e) {
-            String maskedResponse = LogMaskingConverter.mask(prResponse);
+            String maskedResponse = headersDTO.getMaskedPayloads().mask(prResponse);
             if(transactionStatus.equals(TransactionStatus.SUCCESS)){
                 logger.info(PPS_DB_EXCEPTION_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, REFUND_OPERATION, REFUND_CLASS_NAME, "SUCCESS_REFUND_DB_EXCEPTION",
                         payment.getRequestChannel(), payment.getMgmJourneyId(), payment.getMgmCorrelationId(),
@@ -559,7 +583,7 @@ public class RefundPaymentProcessor implements PaymentProcessor {
     @Override
     public void updateDBOnFailure(PaymentEntity payment, HeadersDTO headersDTO, Exception e) {
         if (payment != null && (TransactionStatus.IN_PROCESS.equals(payment.getTransactionStatus()))) {
-            refundRedisPaymentRepositoryWrapper.deleteById(payment.getClientReferenceNumber(), headersDTO);
+            refundRedisPaymentRepositoryWrapper.deleteById(payment.getClientReferenceNumber(), headersDTO).subscribe();
             PaymentProcessingUtil.getFailureEntity(payment, e);
             repository.save(payment, headersDTO);
         }
@@ -574,7 +598,8 @@ public class RefundPaymentProcessor implements PaymentProcessor {
         String result = errorEventData[4];
         String status = errorEventData[5];
         AuditData auditData = PaymentProcessingUtil.buildAuditData(eventName, eventDescription, errorCode, errorDescription,
-                requestPayload, responsePayload, paymentEntity);
+                headersDTO.getMaskedPayloads().auditPayload(requestPayload),
+                headersDTO.getMaskedPayloads().auditPayload(responsePayload), paymentEntity);
         auditData.setStartTimeTS(startTime);
         auditData.setResult(result);
         auditData.setStatus(status);
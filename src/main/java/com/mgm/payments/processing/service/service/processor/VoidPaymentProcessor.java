@@ -6,7 +6,6 @@ import com.mgm.payments.processing.service.constants.AuditTrailConstants;
 import com.mgm.payments.processing.service.constants.PaymentProcessingConstants;
 import com.mgm.payments.processing.service.entity.jpa.PaymentEntity;
 import com.mgm.payments.processing.service.entity.redis.PaymentRedisEntity;
-import com.mgm.payments.processing.service.entity.redis.VoidRedisEntity;
 import com.mgm.payments.processing.service.enums.*;
 import com.mgm.payments.processing.service.exception.PaymentProcessingException;
 import com.mgm.payments.processing.service.external.PaymentRouterServiceCaller;
@@ -18,8 +17,6 @@ import com.mgm.payments.processing.service.model.payload.router.*;
 import com.mgm.payments.processing.service.model.payload.session.PaymentSession;
 import com.mgm.payments.processing.service.repository.jpa.PaymentProcessingRepositoryWrapper;
 import com.mgm.payments.processing.service.repository.redis.payment.RedisPaymentRepositoryWrapper;
-import com.mgm.payments.processing.service.repository.redis.voidcall.VoidRedisPaymentRepositoryWrapper;
-import com.mgm.payments.processing.service.util.LogMaskingConverter;
 import com.mgm.payments.processing.service.util.PaymentProcessingUtil;
 import com.mgm.payments.processing.service.util.SnowFlakeSequenceGenerator;
 import org.slf4j.Logger;
@@ -28,10 +25,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
-import org.springframework.util.ObjectUtils;
 import org.springframework.util.StopWatch;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -54,18 +53,16 @@ public class VoidPaymentProcessor implements PaymentProcessor {
     PaymentProcessingRepositoryWrapper repository;
     private final PaymentRouterServiceCaller routerServiceCaller;
     private final AuditMapper auditMapper;
-    private final VoidRedisPaymentRepositoryWrapper voidRedisPaymentRepositoryWrapper;
     private final RedisPaymentRepositoryWrapper redisPaymentRepositoryWrapper;
     Tracer tracer;
     private final SnowFlakeSequenceGenerator snowFlakeSequenceGenerator;
 
     @Autowired
     public VoidPaymentProcessor(PaymentProcessingRepositoryWrapper repository, PaymentRouterServiceCaller routerServiceCaller,
-                                AuditMapper auditMapper, VoidRedisPaymentRepositoryWrapper voidRedisPaymentRepositoryWrapper, RedisPaymentRepositoryWrapper redisPaymentRepositoryWrapper, Tracer tracer, SnowFlakeSequenceGenerator snowFlakeSequenceGenerator) {
+                                AuditMapper auditMapper, RedisPaymentRepositoryWrapper redisPaymentRepositoryWrapper, Tracer tracer, SnowFlakeSequenceGenerator snowFlakeSequenceGenerator) {
         this.repository = repository;
         this.routerServiceCaller = routerServiceCaller;
         this.auditMapper = auditMapper;
-        this.voidRedisPaymentRepositoryWrapper = voidRedisPaymentRepositoryWrapper;
         this.redisPaymentRepositoryWrapper = redisPaymentRepositoryWrapper;
         this.tracer = tracer;
         this.snowFlakeSequenceGenerator = snowFlakeSequenceGenerator;
@@ -92,9 +89,8 @@ public class VoidPaymentProcessor implements PaymentProcessor {
         stopWatch.start();
         final PaymentResponse paymentResponse = new PaymentResponse();
         final PaymentEntity paymentEntity = new PaymentEntity();
-        List<PaymentEntity> paymentList;
         LocalDateTime startTime = LocalDateTime.now();
-        String maskedRequest = LogMaskingConverter.mask(paymentRequest);
+        String maskedRequest = headersDTO.getMaskedPayloads().mask(paymentRequest);
         String mgmId= paymentRequest.getMgmId() != null ? paymentRequest.getMgmId() : "";
         Throwable[] voidTransactionException = new Throwable[1];
         if (logger.isInfoEnabled()) {
@@ -105,84 +101,117 @@ public class VoidPaymentProcessor implements PaymentProcessor {
         publishAuditData(new String[]{"", "", AuditTrailConstants.PPS_VOID, "Void the given Amount", "", ""}, paymentRequest, maskedRequest,
                 null, paymentEntity, startTime, headersDTO);
 
-        try {
-            Optional<PaymentRedisEntity> paymentRedisEntityOp = redisPaymentRepositoryWrapper.findById(paymentRequest.getPaymentId(), headersDTO);
-            if(paymentRedisEntityOp.isPresent()){
-                logger.info(PPS_REQUEST_INFO_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, VOID_OPERATION , VOID_CLASS_NAME, headersDTO.getMgmSource(),
-                        headersDTO.getMgmChannel(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
-                        headersDTO.getMgmTransactionId(), headersDTO.getClientId(), mgmId, getSpanId(), getTraceId(), "Corresponding Auth Record Found in Payment Redis");
-                PaymentRedisEntity paymentRedisEntity = paymentRedisEntityOp.get();
-                validateRedisRecord(paymentRedisEntity, headersDTO);
-                paymentList = PaymentProcessingUtil.mapToEntityList(paymentRedisEntity);
-            }else {
-                paymentList = repository.findByPaymentIdOrReferenceId(
-                        paymentRequest.getPaymentId(), paymentRequest.getPaymentId(), headersDTO);
-                validateInputRequest(paymentRequest, paymentList, headersDTO);
-            }
+        return findAuthorizeRecords(paymentRequest, headersDTO, mgmId)
+                .flatMap(lookups -> {
+                    List<PaymentEntity> paymentList = lookups.getT1();
+                    Optional<PaymentEntity> paymentEntityObj = lookups.getT2();
+                    if (paymentEntityObj.isEmpty()) {
+                        handleException(paymentRequest, headersDTO, new NullPointerException(PaymentProcessingConstants.PAYMENT_ID_NOT_FOUND), paymentResponse, paymentEntity, startTime);
+                    } else {
+                        headersDTO.setClientId(paymentEntityObj.get().getClientId());
+                    }
+
+                    return acquireVoidLock(paymentRequest, headersDTO)
+                            .then(Mono.fromRunnable(() -> populatePaymentEntity(headersDTO, paymentRequest, paymentList, paymentEntity, user))
+                                    .subscribeOn(Schedulers.boundedElastic())
+                                    .onErrorResume(e -> redisPaymentRepositoryWrapper.complete(paymentRequest.getPaymentId(), TransactionType.VOID, false, headersDTO)
+                                            .then(Mono.error(e))))
+                            .then(Mono.defer(() -> invokePaymentRouter(paymentEntity, paymentRequest, headersDTO))).map(prResponse -> {
+                        updateRouterResponseInTheDBRecord(paymentEntity, prResponse, user, headersDTO, paymentList);
+                        return prResponse;
+                    }).flatMap(prResponse -> redisPaymentRepositoryWrapper.complete(paymentEntity.getReferenceId(),
+                            TransactionType.VOID, TransactionStatus.SUCCESS.equals(paymentEntity.getTransactionStatus()), headersDTO)
+                            .thenReturn(prResponse)
+                    ).map(prResponse ->
+                    {
+                        mapPaymentRouterResponseToPaymentResponse(paymentEntity, paymentRequest,
+                                prResponse, paymentResponse, headersDTO);
+                        String status = StatusResult.F.name();
+                        String result = StatusResult.F.getResult();
+                        String responseCode = prResponse.getResults().get(0).getGatewayResult().getTransaction().getResponseCode();
+                        if(responseCode.equals(RouterResponseCode.A.toString())){
+                            status = StatusResult.S.name();
+                            result = StatusResult.S.getResult();
+                        }
+                        String maskedResponse = headersDTO.getMaskedPayloads().mask(paymentResponse);
+                        publishAuditData(new String[]{"", "", AuditTrailConstants.PPS_VOID, "Void the given Amount", result, status}, paymentRequest, maskedRequest,
+                                maskedResponse, paymentEntity, startTime, headersDTO);
+                        stopWatch.stop();
+                        logger.info(PPS_RESPONSE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, VOID_OPERATION, VOID_CLASS_NAME, headersDTO.getMgmSource(),
+                                headersDTO.getMgmChannel(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
+                                headersDTO.getMgmTransactionId(), headersDTO.getClientId(), mgmId, getSpanId(), getTraceId(), status, result, stopWatch.getTotalTimeMillis(),
+                                maskedResponse);
+                        return paymentResponse;
+                    });
+                }).onErrorResume(throwable -> {
+                    voidTransactionException[0] = throwable;
+                    handleException(paymentRequest, headersDTO, throwable, paymentResponse, paymentEntity, startTime);
+                    return Mono.error(throwable);
+                }).doFinally(signalType ->
+                {
+                    updateDBOnFailure(paymentEntity, headersDTO, (Exception) voidTransactionException[0]);
+                    if (SignalType.CANCEL.equals(signalType)) {
+                        handleException(paymentRequest, headersDTO, null, paymentResponse, paymentEntity, startTime);
+                    }
+                    auditMapper.publishAuditEnvelope(headersDTO);
+                });
+    }
 
-            PaymentEntity paymentEntityObj = repository.findByPaymentId(paymentRequest.getPaymentId(),headersDTO);
+    /**
+     * Loads the authorize record and its follow-ups, from payment redis when present and from the DB otherwise,
+     * and validates them against the void request
+     *
+     * @param paymentRequest- input request
+     * @param headersDTO-     headers params
+     * @param mgmId-          mgmId used for logging
+     * @return records of the payment and the original payment; the DB records already hold the original payment, only
+     * a payment redis hit needs its own lookup of it
+     */
+    private Mono<Tuple2<List<PaymentEntity>, Optional<PaymentEntity>>> findAuthorizeRecords(PaymentRequest paymentRequest, HeadersDTO headersDTO, String mgmId) {
+        return redisPaymentRepositoryWrapper.findById(paymentRequest.getPaymentId(), TransactionType.VOID, headersDTO).map(paymentRedisEntity -> {
+            logger.info(PPS_REQUEST_INFO_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, VOID_OPERATION , VOID_CLASS_NAME, headersDTO.getMgmSource(),
+                    headersDTO.getMgmChannel(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
+                    headersDTO.getMgmTransactionId(), headersDTO.getClientId(), mgmId, getSpanId(), getTraceId(), "Corresponding Auth Record Found in Payment Redis");
+            validateRedisRecord(paymentRedisEntity);
+            return PaymentProcessingUtil.mapToEntityList(paymentRedisEntity);
+        }).flatMap(paymentList -> Mono.fromCallable(() ->
+                        Optional.ofNullable(repository.findByPaymentId(paymentRequest.getPaymentId(), headersDTO)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(originalPayment -> Tuples.of(paymentList, originalPayment))
+        ).switchIfEmpty(Mono.fromCallable(() -> {
+            List<PaymentEntity> paymentList = repository.findByPaymentIdOrReferenceId(
+                    paymentRequest.getPaymentId(), paymentRequest.getPaymentId(), headersDTO);
+            validateInputRequest(paymentRequest, paymentList, headersDTO);
+            Optional<PaymentEntity> originalPayment = paymentList.stream()
+                    .filter(entity -> paymentRequest.getPaymentId().equals(entity.getPaymentId())).findFirst();
+            return Tuples.of(paymentList, originalPayment);
+        }).subscribeOn(Schedulers.boundedElastic()));
+    }
 
-            if(ObjectUtils.isEmpty(paymentEntityObj)){
-                handleException(paymentRequest, headersDTO, new NullPointerException(PaymentProcessingConstants.PAYMENT_ID_NOT_FOUND), paymentResponse, paymentEntity, startTime);
-            } else {
-                headersDTO.setClientId(paymentEntityObj.getClientId());
+    /**
+     * Marks the void of the authorization as in flight in the payment state, fails the void when a void for the
+     * same authorization is in flight or has succeeded, or a capture is in flight or has succeeded
+     *
+     * @param paymentRequest- input request
+     * @param headersDTO-     headers params
+     */
+    private Mono<Void> acquireVoidLock(PaymentRequest paymentRequest, HeadersDTO headersDTO) {
+        return redisPaymentRepositoryWrapper.tryLock(paymentRequest.getPaymentId(), TransactionType.VOID, null, headersDTO).flatMap(locked -> {
+            if (locked == PaymentLockResult.DUPLICATE) {
+                PaymentProcessingUtil.throwException(
+                        ApiErrorCode.DUPLICATE_VOID_MESSAGE.getCode(),
+                        ApiErrorCode.DUPLICATE_VOID_MESSAGE.getDescription(), HttpStatus.PRECONDITION_FAILED);
             }
-
-            populatePaymentEntity(headersDTO, paymentRequest, paymentList, paymentEntity, user);
-            createRedisCacheEntry(paymentEntity, headersDTO);
-            Mono<PaymentRouterResponse> prResponseMono = invokePaymentRouter(paymentEntity,
-                    paymentRequest, headersDTO);
-            return prResponseMono.map(prResponse ->
-            {
-                updateRouterResponseInTheDBRecord(paymentEntity, prResponse, user, headersDTO, paymentList);
-                mapPaymentRouterResponseToPaymentResponse(paymentEntity, paymentRequest,
-                        prResponse, paymentResponse, headersDTO);
-                String status = StatusResult.F.name();
-                String result = StatusResult.F.getResult();
-                String responseCode = prResponse.getResults().get(0).getGatewayResult().getTransaction().getResponseCode();
-                if(responseCode.equals(RouterResponseCode.A.toString())){
-                    status = StatusResult.S.name();
-                    result = StatusResult.S.getResult();
-                }
-                String maskedResponse = LogMaskingConverter.mask(paymentResponse);
-                publishAuditData(new String[]{"", "", AuditTrailConstants.PPS_VOID, "Void the given Amount", result, status}, paymentRequest, maskedRequest,
-                        maskedResponse, paymentEntity, startTime, headersDTO);
-                stopWatch.stop();
-                logger.info(PPS_RESPONSE_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, VOID_OPERATION, VOID_CLASS_NAME, headersDTO.getMgmSource(),
-                        headersDTO.getMgmChannel(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
-                        headersDTO.getMgmTransactionId(), headersDTO.getClientId(), mgmId, getSpanId(), getTraceId(), status, result, stopWatch.getTotalTimeMillis(),
-                        maskedResponse);
-                return paymentResponse;
-
-            }).onErrorResume(throwable -> {
-                voidTransactionException[0] = throwable;
-                handleException(paymentRequest, headersDTO, throwable, paymentResponse, paymentEntity, startTime);
-                return Mono.error(throwable);
-            }).doFinally(signalType ->
-            {
-                updateDBOnFailure(paymentEntity, headersDTO, (Exception) voidTransactionException[0]);
-                if (SignalType.CANCEL.equals(signalType)) {
-                    handleException(paymentRequest, headersDTO, null, paymentResponse, paymentEntity, startTime);
-                }
-
-
-            });
-
-        } catch (Exception e) {
-            stopWatch.stop();
-            updateDBOnFailure(paymentEntity, headersDTO, e);
-            handleException(paymentRequest, headersDTO, e, paymentResponse, paymentEntity, startTime);
-            throw e;
-        }
+            if (locked == PaymentLockResult.CONFLICT) {
+                PaymentProcessingUtil.throwException(
+                        ApiErrorCode.VOID_ALREADY_CAPTURED.getCode(),
+                        ApiErrorCode.VOID_ALREADY_CAPTURED.getDescription(), HttpStatus.PRECONDITION_FAILED);
+            }
+            return Mono.empty();
+        });
     }
 
-    private void validateRedisRecord(PaymentRedisEntity paymentRedisEntity, HeadersDTO headersDTO) {
-        if (voidRedisPaymentRepositoryWrapper.findById(paymentRedisEntity.getId(), headersDTO).isPresent()) {
-            PaymentProcessingUtil.throwException(
-                    ApiErrorCode.DUPLICATE_CAPTURE_MESSAGE.getCode(),
-                    ApiErrorCode.DUPLICATE_CAPTURE_MESSAGE.getDescription(),
-                    HttpStatus.PRECONDITION_FAILED);
-        }
+    private void validateRedisRecord(PaymentRedisEntity paymentRedisEntity) {
         if (paymentRedisEntity.getTransactionStatus() != TransactionStatus.SUCCESS) {
             PaymentProcessingUtil.throwException(
                     ApiErrorCode.AUTHORIZE_NOT_EXIST_MESSAGE.getCode(),
@@ -204,8 +233,8 @@ public class VoidPaymentProcessor implements PaymentProcessor {
     private void handleException(PaymentRequest paymentRequest, HeadersDTO headersDTO, Throwable e, PaymentResponse paymentResponse, PaymentEntity paymentEntity, LocalDateTime startTime) {
         String mgmErrorCode = null;
         String errorDescription = null;
-        String maskedRequest = LogMaskingConverter.mask(paymentRequest);
-        String maskedResponse = LogMaskingConverter.mask(paymentResponse);
+        String maskedRequest = headersDTO.getMaskedPayloads().mask(paymentRequest);
+        String maskedResponse = headersDTO.getMaskedPayloads().mask(paymentResponse);
         String mgmId = paymentRequest.getMgmId() != null ? paymentRequest.getMgmId() : "";
         if (e instanceof PaymentProcessingException) {
             PaymentProcessingException pe = (PaymentProcessingException) e;
@@ -237,12 +266,6 @@ public class VoidPaymentProcessor implements PaymentProcessor {
 
     public void validateInputRequest(PaymentRequest paymentRequest, List<PaymentEntity> paymentList, HeadersDTO headersDTO) {
 
-        if (voidRedisPaymentRepositoryWrapper.findById(paymentRequest.getPaymentId(), headersDTO).isPresent()) {
-            PaymentProcessingUtil.throwException(
-                    ApiErrorCode.DUPLICATE_VOID_MESSAGE.getCode(),
-                    ApiErrorCode.DUPLICATE_VOID_MESSAGE.getDescription(), HttpStatus.PRECONDITION_FAILED);
-        }
-
         Optional<PaymentEntity> authorizeRecordOpt =
                 paymentList.stream().filter(paymentEntity ->
                         paymentEntity.getPaymentId().equals(paymentRequest.getPaymentId())
@@ -286,8 +309,8 @@ public class VoidPaymentProcessor implements PaymentProcessor {
      */
 
     @Override
-    public PaymentSession retrieveClientDetailsFromSession(PaymentRequest paymentRequest, HeadersDTO headersDTO) {
-        return null;
+    public Mono<PaymentSession> retrieveClientDetailsFromSession(PaymentRequest paymentRequest, HeadersDTO headersDTO) {
+        return Mono.empty();
     }
 
     /**
@@ -351,13 +374,6 @@ public class VoidPaymentProcessor implements PaymentProcessor {
         paymentEntity.setAuthSubtype("Normal");
     }
 
-
-    public void createRedisCacheEntry(PaymentEntity paymentEntity, HeadersDTO headersDTO) {
-        voidRedisPaymentRepositoryWrapper.save(VoidRedisEntity.builder().id(paymentEntity.getReferenceId())
-                .transactionStatus(TransactionStatus.IN_PROCESS)
-                .build(), headersDTO);
-    }
-
     /**
      * invokes external router service call for void
      *
@@ -384,14 +400,14 @@ public class VoidPaymentProcessor implements PaymentProcessor {
                 .hotelData(paymentRequest.getHotelData())
                 .merchantReferenceCode(paymentRequest.getPaymentId())
                 .build();
-        String maskedRequest = LogMaskingConverter.mask(paymentRouterRequest);
+        String maskedRequest = headersDTO.getMaskedPayloads().mask(paymentRouterRequest);
         publishAuditData(new String[]{"", "", "PPS_TO_PR_VOID", "PPS to Payment Router - Void the given Amount", "", ""}, paymentRequest, maskedRequest,
                 null, paymentEntity, startTime, headersDTO);
 
         Mono<ResponseEntity<PaymentRouterResponse>> paymentRouterResponseMono = routerServiceCaller.invokeRouter(paymentRouterRequest, headersDTO, paymentEntity.getPaymentId());
         return paymentRouterResponseMono.map(paymentRouterResponseResponseEntity -> {
             PaymentRouterResponse paymentRouterResponse = paymentRouterResponseResponseEntity.getBody();
-            String maskedResponse = LogMaskingConverter.mask(paymentRouterResponse);
+            String maskedResponse = headersDTO.getMaskedPayloads().mask(paymentRouterResponse);
             String result = StatusResult.F.getResult();
             String status = StatusResult.F.name();
             assert paymentRouterResponse != null;
@@ -438,7 +454,6 @@ public class VoidPaymentProcessor implements PaymentProcessor {
             payment.setUpdatedTimestamp(ZonedDateTime.now(ZoneOffset.UTC).toString());
             payment.setUpdatedBy(user.getServiceId());
             saveResponseToDB(payment, prResponse, transactionStatus, headersDTO, paymentList);
-            voidRedisPaymentRepositoryWrapper.deleteById(payment.getReferenceId(), headersDTO);
         } catch (Exception e) {
             throw new PaymentProcessingException(PaymentExceptionResponse.builder().paymentId(payment.getPaymentId())
                     .dateTime(ZonedDateTime.now()).errorCode(PAYMENT_ROUTER_RESPONSE_UPDATE_EXCEPTION.getCode()).errorMessage(PAYMENT_ROUTER_RESPONSE_UPDATE_EXCEPTION.getDescription())
@@ -448,17 +463,9 @@ public class VoidPaymentProcessor implements PaymentProcessor {
 
     private void saveResponseToDB(PaymentEntity payment, PaymentRouterResponse prResponse, TransactionStatus transactionStatus, HeadersDTO headersDTO, List<PaymentEntity> paymentList) {
         try {
-            if(transactionStatus.equals(TransactionStatus.SUCCESS)) {
-                PaymentEntity authEntity = PaymentProcessingUtil.getAuthEntity(paymentList);
-                if (authEntity != null) {
-                    PaymentRedisEntity paymentRedisEntity = PaymentProcessingUtil.mapToRedisEntity(authEntity);
-                    paymentRedisEntity.setIsVoid(Boolean.TRUE);
-                    redisPaymentRepositoryWrapper.save(paymentRedisEntity, headersDTO);
-                }
-            }
             repository.save(payment, headersDTO);
         }catch(Exception e){
-            String maskedResponse = LogMaskingConverter.mask(prResponse);
+            String maskedResponse = headersDTO.getMaskedPayloads().mask(prResponse);
             if(transactionStatus.equals(TransactionStatus.SUCCESS)){
                 logger.info(PPS_DB_EXCEPTION_LOG_FORMAT, ZonedDateTime.now(ZoneId.of("UTC")), SERVICE_NAME, VOID_OPERATION, VOID_CLASS_NAME, "SUCCESS_VOID_DB_EXCEPTION",
                         payment.getRequestChannel(), payment.getMgmJourneyId(), payment.getMgmCorrelationId(),
@@ -555,7 +562,7 @@ public class VoidPaymentProcessor implements PaymentProcessor {
      */
     public void updateDBOnFailure(PaymentEntity payment, HeadersDTO headersDTO, Exception e) {
         if (payment != null && (TransactionStatus.IN_PROCESS.equals(payment.getTransactionStatus()))) {
-            voidRedisPaymentRepositoryWrapper.deleteById(payment.getReferenceId(), headersDTO);
+            redisPaymentRepositoryWrapper.complete(payment.getReferenceId(), TransactionType.VOID, false, headersDTO).subscribe();
             PaymentProcessingUtil.getFailureEntity(payment, e);
             repository.save(payment, headersDTO);
         }
@@ -570,7 +577,8 @@ public class VoidPaymentProcessor implements PaymentProcessor {
         String result = errorEventData[4];
         String status = errorEventData[5];
         AuditData auditData = PaymentProcessingUtil.buildAuditData(eventName, eventDescription, errorCode, errorDescription,
-                requestPayload, responsePayload, paymentEntity);
+                headersDTO.getMaskedPayloads().auditPayload(requestPayload),
+                headersDTO.getMaskedPayloads().auditPayload(responsePayload), paymentEntity);
         auditData.setStartTimeTS(startTime);
         auditData.setResult(result);
         auditData.setStatus(status);
@@ -0,0 +1,132 @@
+package com.mgm.payments.processing.service.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed pool of named daemon threads over a bounded queue, one per workload so a backlog of one cannot starve the
+ * others. When the queue is full the task is handled by the saturation policy of the executor: run on the calling
+ * thread, drop the oldest queued task, or hand it to the spill action given with the task, a durable store of the
+ * workload. Queue depth, active threads and saturated tasks are exported as {@code pps.executor.*} tagged with the
+ * executor name.
+ */
+public class BoundedExecutor {
+
+    public enum SaturationPolicy {CALLER_RUNS, DROP_OLDEST, SPILL}
+
+    private final Logger logger = LoggerFactory.getLogger(BoundedExecutor.class);
+
+    private final String name;
+    private final SaturationPolicy saturationPolicy;
+    private final long shutdownTimeoutMillis;
+    private final ThreadPoolExecutor executor;
+    private final Counter callerRunsTasks;
+    private final Counter droppedTasks;
+    private final Counter spilledTasks;
+
+    /**
+     * @param name                  - executor name, prefix of the thread names and tag of the metrics
+     * @param threads               - number of threads
+     * @param queueCapacity         - tasks that can wait for a thread before the saturation policy applies
+     * @param saturationPolicy      - handling of the tasks submitted while the queue is full
+     * @param shutdownTimeoutMillis - longest wait for the queued tasks on shutdown
+     * @param meterRegistry         - registry of the executor metrics
+     */
+    public BoundedExecutor(String name, int threads, int queueCapacity, SaturationPolicy saturationPolicy,
+                           long shutdownTimeoutMillis, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.saturationPolicy = saturationPolicy;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue, threadFactory(name),
+                new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("pps.executor.queue.depth", queue, BlockingQueue::size).tag("executor", name)
+                .description("Tasks waiting for a thread").register(meterRegistry);
+        Gauge.builder("pps.executor.active", executor, ThreadPoolExecutor::getActiveCount).tag("executor", name)
+                .description("Threads running a task").register(meterRegistry);
+        this.callerRunsTasks = saturated(meterRegistry, "caller_runs");
+        this.droppedTasks = saturated(meterRegistry, "dropped");
+        this.spilledTasks = saturated(meterRegistry, "spilled");
+    }
+
+    private Counter saturated(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("pps.executor.saturated").tags("executor", name, "outcome", outcome)
+                .description("Tasks submitted while the queue was full, by how they were handled").register(meterRegistry);
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public void execute(Runnable task) {
+        execute(task, null);
+    }
+
+    /**
+     * Queues the task for the next free thread, or applies the saturation policy when the queue is full
+     *
+     * @param task  - task to run
+     * @param spill - stores the task for a later run under the SPILL policy, the task runs on the calling thread
+     *              when null
+     */
+    public void execute(Runnable task, Runnable spill) {
+        if (executor.isShutdown()) {
+            // tasks submitted while the application shuts down still run, the caller waits for them
+            task.run();
+            return;
+        }
+        try {
+            executor.execute(task);
+            return;
+        } catch (RejectedExecutionException e) {
+            // queue full, handled below
+        }
+        if (saturationPolicy == SaturationPolicy.SPILL && spill != null) {
+            spilledTasks.increment();
+            spill.run();
+        } else if (saturationPolicy == SaturationPolicy.DROP_OLDEST) {
+            Runnable oldest = executor.getQueue().poll();
+            if (oldest != null) {
+                droppedTasks.increment();
+                logger.warn("Executor: {} queue full, dropped the oldest task", name);
+            }
+            execute(task, spill);
+        } else {
+            callerRunsTasks.increment();
+            task.run();
+        }
+    }
+
+    /**
+     * @return tasks that can be queued before the saturation policy applies
+     */
+    public int remainingCapacity() {
+        return executor.getQueue().remainingCapacity();
+    }
+
+    /**
+     * Stops taking tasks and waits for the queued ones to finish
+     */
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            logger.warn("Executor: {} stopped with {} tasks still queued", name, executor.getQueue().size());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.mgm.payments.processing.service.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+
+/**
+ * Append-only text file for the records a journal reader gave up on, so that the journal can move past them. Every
+ * record is one line with the time, the reason and the record itself, forced to the storage device before the append
+ * returns; the records are single-line JSON and can be looked at and replayed by hand.
+ */
+public class DeadLetterFile {
+
+    private final Logger logger = LoggerFactory.getLogger(DeadLetterFile.class);
+
+    private final Path file;
+    private final Clock clock;
+
+    /**
+     * @param file  - dead letter file, created with its directory on the first append
+     * @param clock - clock of the time written with every record
+     */
+    public DeadLetterFile(Path file, Clock clock) {
+        this.file = file;
+        this.clock = clock;
+    }
+
+    /**
+     * Appends one record
+     *
+     * @param reason - why the record was given up on, line breaks and tabs are replaced by spaces
+     * @param record - record bytes, UTF-8 text
+     * @return false if the record could not be written
+     */
+    public synchronized boolean append(String reason, byte[] record) {
+        String line = Instant.ofEpochMilli(clock.millis()) + "\t" + String.valueOf(reason).replaceAll("[\\t\\r\\n]", " ")
+                + "\t" + new String(record, StandardCharsets.UTF_8) + "\n";
+        try {
+            Files.createDirectories(file.getParent());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            return true;
+        } catch (IOException e) {
+            logger.error("Journal: dead letter file {} append failed : {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+}
@@ -1,16 +1,27 @@
 package com.mgm.payments.processing.service.util;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.mgm.payments.processing.service.enums.LogMarker;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -33,6 +44,10 @@ public class LogMaskingConverter {
             "region", "nameOnCard", "email", "cardHolderName", "firstName", "lastName", "expiryMonth", "expiryYear",
             "expiryDate", "expireMonth", "expireYear", "address", "address2", "nameOnTender", "securityCode", "authorization",
             "phoneNumber", "creditCardHolderName", "tenderDisplay", "maskedCardNumber").collect(Collectors.toList());
+    private static final Set<String> maskKeySet = new HashSet<>(maskKeys);
+
+    // shared, thread safe once configured; building a mapper per call was the main cost of masking
+    private static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
 
 
     private static final String JSON_PATTERN_REGEX = "\"(%s)\":\\s*\"*([^\"]+)\"*([,}])+";
@@ -48,23 +63,57 @@ public class LogMaskingConverter {
     }
 
     /**
-     * Mask sensitive data from json object
+     * Mask sensitive data from json object. The object is serialized once and the values of the mask keys are
+     * masked while they are written, using the same rules as the JSON pattern masking.
      *
      * @param message
      * @return
      */
     public static String mask(Object message) {
-        return mask(objectToJson(message), LogMarker.JSON);
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = new MaskingJsonGenerator(MAPPER.getFactory().createGenerator(writer))) {
+            MAPPER.writeValue(generator, message);
+        } catch (IOException e) {
+            log.error("Util objectMapper Exception for object to json :: {}", e.toString());
+            return StringUtils.EMPTY;
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Mask sensitive data from json object into a JSON tree, with the same masking as {@link #mask(Object)}. The
+     * tree can be written to the logs and set on the audit data without serializing the object again.
+     *
+     * @param message
+     * @return masked tree, null if the object could not be serialized
+     */
+    public static @Nullable JsonNode maskToTree(Object message) {
+        TokenBuffer buffer = new TokenBuffer(MAPPER, false);
+        try (JsonGenerator generator = new MaskingJsonGenerator(buffer)) {
+            MAPPER.writeValue(generator, message);
+            return MAPPER.readTree(buffer.asParser());
+        } catch (IOException e) {
+            log.error("Util objectMapper Exception for object to json tree :: {}", e.toString());
+            return null;
+        }
     }
 
-    private static String objectToJson(Object source) {
+    /**
+     * Writes a tree built by {@link #maskToTree(Object)} as a JSON string.
+     *
+     * @param maskedTree
+     * @return
+     */
+    public static String writeTree(@Nullable JsonNode maskedTree) {
+        if (maskedTree == null) {
+            return StringUtils.EMPTY;
+        }
         try {
-            ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
-            return mapper.writeValueAsString(source);
-        } catch (JsonProcessingException e) {
-            log.error("Util objectMapper Exception for object to json :: {}", e.toString());
+            return MAPPER.writeValueAsString(maskedTree);
+        } catch (IOException e) {
+            log.error("Util objectMapper Exception for json tree to string :: {}", e.toString());
+            return StringUtils.EMPTY;
         }
-        return StringUtils.EMPTY;
     }
 
 
@@ -179,8 +228,8 @@ public class LogMaskingConverter {
         if (value.equalsIgnoreCase("null") || (key.equalsIgnoreCase("Address") && value.contains("{"))) {
             return null;
         }
-        if(key.equalsIgnoreCase("maskedCardNumber") ||
-                key.equalsIgnoreCase("tenderDisplay")){
+        if((key.equalsIgnoreCase("maskedCardNumber") ||
+                key.equalsIgnoreCase("tenderDisplay")) && valueLength >= 4){
             int maskLength = valueLength - 4;
             return StringUtils.repeat(MASK_CHAR, maskLength) + value.substring(maskLength);
         }
@@ -192,4 +241,189 @@ public class LogMaskingConverter {
         }
         return newValue;
     }
+
+    /**
+     * Masked value of a mask key, or null when the value is to be written as is
+     */
+    private static @Nullable String maskValue(String key, String value) {
+        // pci data make empty
+        if (key.equalsIgnoreCase("securityCode")) {
+            return "";
+        }
+        return getValue(value, key, value.length());
+    }
+
+    /**
+     * Generator that remembers whether the field being written is a mask key and masks its scalar value on the way
+     * out. Objects and arrays under a mask key are written as is, their own fields are checked as they are written.
+     */
+    private static final class MaskingJsonGenerator extends JsonGeneratorDelegate {
+
+        private String pendingKey;
+
+        private MaskingJsonGenerator(JsonGenerator delegate) {
+            super(delegate, false);
+        }
+
+        private String takePendingKey() {
+            String key = pendingKey;
+            pendingKey = null;
+            return key;
+        }
+
+        private void writeScalar(String text, ScalarWriter passThrough) throws IOException {
+            String key = takePendingKey();
+            String masked = key != null && text != null ? maskValue(key, text) : null;
+            if (masked != null) {
+                delegate.writeString(masked);
+            } else {
+                passThrough.write();
+            }
+        }
+
+        @Override
+        public void writeFieldName(String name) throws IOException {
+            pendingKey = maskKeySet.contains(name) ? name : null;
+            delegate.writeFieldName(name);
+        }
+
+        @Override
+        public void writeFieldName(SerializableString name) throws IOException {
+            pendingKey = maskKeySet.contains(name.getValue()) ? name.getValue() : null;
+            delegate.writeFieldName(name);
+        }
+
+        @Override
+        public void writeStartArray() throws IOException {
+            pendingKey = null;
+            delegate.writeStartArray();
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void writeStartArray(int size) throws IOException {
+            pendingKey = null;
+            delegate.writeStartArray(size);
+        }
+
+        @Override
+        public void writeStartArray(Object forValue) throws IOException {
+            pendingKey = null;
+            delegate.writeStartArray(forValue);
+        }
+
+        @Override
+        public void writeStartArray(Object forValue, int size) throws IOException {
+            pendingKey = null;
+            delegate.writeStartArray(forValue, size);
+        }
+
+        @Override
+        public void writeStartObject() throws IOException {
+            pendingKey = null;
+            delegate.writeStartObject();
+        }
+
+        @Override
+        public void writeStartObject(Object forValue) throws IOException {
+            pendingKey = null;
+            delegate.writeStartObject(forValue);
+        }
+
+        @Override
+        public void writeStartObject(Object forValue, int size) throws IOException {
+            pendingKey = null;
+            delegate.writeStartObject(forValue, size);
+        }
+
+        @Override
+        public void writeString(String text) throws IOException {
+            writeScalar(text, () -> delegate.writeString(text));
+        }
+
+        @Override
+        public void writeString(char[] text, int offset, int len) throws IOException {
+            writeScalar(new String(text, offset, len), () -> delegate.writeString(text, offset, len));
+        }
+
+        @Override
+        public void writeString(SerializableString text) throws IOException {
+            writeScalar(text.getValue(), () -> delegate.writeString(text));
+        }
+
+        @Override
+        public void writeRawUTF8String(byte[] text, int offset, int length) throws IOException {
+            writeScalar(new String(text, offset, length, StandardCharsets.UTF_8), () -> delegate.writeRawUTF8String(text, offset, length));
+        }
+
+        @Override
+        public void writeUTF8String(byte[] text, int offset, int length) throws IOException {
+            writeScalar(new String(text, offset, length, StandardCharsets.UTF_8), () -> delegate.writeUTF8String(text, offset, length));
+        }
+
+        @Override
+        public void writeNumber(short v) throws IOException {
+            writeScalar(String.valueOf(v), () -> delegate.writeNumber(v));
+        }
+
+        @Override
+        public void writeNumber(int v) throws IOException {
+            writeScalar(String.valueOf(v), () -> delegate.writeNumber(v));
+        }
+
+        @Override
+        public void writeNumber(long v) throws IOException {
+            writeScalar(String.valueOf(v), () -> delegate.writeNumber(v));
+        }
+
+        @Override
+        public void writeNumber(BigInteger v) throws IOException {
+            writeScalar(v != null ? v.toString() : null, () -> delegate.writeNumber(v));
+        }
+
+        @Override
+        public void writeNumber(double v) throws IOException {
+            writeScalar(String.valueOf(v), () -> delegate.writeNumber(v));
+        }
+
+        @Override
+        public void writeNumber(float v) throws IOException {
+            writeScalar(String.valueOf(v), () -> delegate.writeNumber(v));
+        }
+
+        @Override
+        public void writeNumber(BigDecimal v) throws IOException {
+            writeScalar(v != null ? v.toString() : null, () -> delegate.writeNumber(v));
+        }
+
+        @Override
+        public void writeNumber(String encodedValue) throws IOException {
+            writeScalar(encodedValue, () -> delegate.writeNumber(encodedValue));
+        }
+
+        @Override
+        public void writeNumber(char[] encodedValue, int offset, int len) throws IOException {
+            writeScalar(new String(encodedValue, offset, len), () -> delegate.writeNumber(encodedValue, offset, len));
+        }
+
+        @Override
+        public void writeBoolean(boolean state) throws IOException {
+            writeScalar(String.valueOf(state), () -> delegate.writeBoolean(state));
+        }
+
+        @Override
+        public void writeNull() throws IOException {
+            String key = takePendingKey();
+            if (key != null && key.equalsIgnoreCase("securityCode")) {
+                delegate.writeString("");
+            } else {
+                delegate.writeNull();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ScalarWriter {
+        void write() throws IOException;
+    }
 }
\ No newline at end of file
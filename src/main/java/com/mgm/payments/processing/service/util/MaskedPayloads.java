@@ -0,0 +1,58 @@
+package com.mgm.payments.processing.service.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Masked payloads of one request, carried on its {@link com.mgm.payments.processing.service.model.HeadersDTO}.
+ * Every payload object is serialized and masked once into a JSON tree; the request and response log lines and the
+ * audit data of the request all reuse that tree.
+ * <p>
+ * Payloads are keyed by identity, so a payload is masked as it was the first time it was logged.
+ */
+public class MaskedPayloads {
+
+    private final Map<Object, String> maskedJsonByPayload = new IdentityHashMap<>();
+    private final Map<String, JsonNode> treesByMaskedJson = new IdentityHashMap<>();
+
+    /**
+     * Returns the masked JSON of the payload, masking it on first use
+     *
+     * @param payload - request or response object
+     * @return masked JSON string
+     */
+    public synchronized String mask(Object payload) {
+        if (payload == null) {
+            return LogMaskingConverter.mask(null);
+        }
+        String maskedJson = maskedJsonByPayload.get(payload);
+        if (maskedJson == null) {
+            JsonNode tree = LogMaskingConverter.maskToTree(payload);
+            maskedJson = LogMaskingConverter.writeTree(tree);
+            maskedJsonByPayload.put(payload, maskedJson);
+            if (tree != null) {
+                treesByMaskedJson.put(maskedJson, tree);
+            }
+        }
+        return maskedJson;
+    }
+
+    /**
+     * Returns the payload to set on the audit data: the masked tree when the payload is a string returned by
+     * {@link #mask(Object)}, the payload itself otherwise
+     *
+     * @param payload - masked JSON, session id or null
+     * @return audit payload
+     */
+    public synchronized Object auditPayload(Object payload) {
+        if (payload instanceof String) {
+            JsonNode tree = treesByMaskedJson.get(payload);
+            if (tree != null) {
+                return tree;
+            }
+        }
+        return payload;
+    }
+}
@@ -33,6 +33,7 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 import static com.mgm.payments.processing.service.constants.PaymentProcessingConstants.*;
@@ -44,7 +45,6 @@ public class PaymentProcessingUtil {
     PaymentProcessingUtil() {
     }
 
-    private static final Random random = new Random();
 
 
     public static BigDecimal getAmount(List<Amount> amount) {
@@ -211,6 +211,15 @@ public class PaymentProcessingUtil {
         return false;
     }
 
+    public static HeadersDTO copyHeaders(HeadersDTO headersDTO) {
+        HeadersDTO copy = new HeadersDTO(headersDTO.getMgmSource(), headersDTO.getMgmJourneyId(), headersDTO.getMgmCorrelationId(),
+                headersDTO.getMgmTransactionId(), headersDTO.getMgmChannel(), headersDTO.getAuthorization(),
+                headersDTO.getClientId(), headersDTO.getUserAgent());
+        copy.setMaskedPayloads(headersDTO.getMaskedPayloads());
+        copy.setAuditEnvelope(headersDTO.getAuditEnvelope());
+        return copy;
+    }
+
     public static void mapDerivedClientId(PaymentSession paymentSession, HeadersDTO headersDTO, PaymentRequest paymentRequest) {
         String itemId = paymentRequest.getItemId();
         if (paymentSession.getTransaction() != null && paymentSession.getTransaction().getTransactionType() != null) {
@@ -439,19 +448,31 @@ public class PaymentProcessingUtil {
 
     }
 
+    /**
+     * Builds the UNIQUE_ID_LENGTH character payment id of a snowflake id: the id in base 62 over CHARACTERS, always
+     * ENCODED_ID_LENGTH characters, with a random character in front of each of its first characters. The encoded id
+     * keeps fixed positions, so distinct snowflake ids never give the same payment id, and the random characters keep
+     * two generators that share a node id from colliding as well.
+     *
+     * @param snowFlakeId - id from SnowFlakeSequenceGenerator
+     * @return payment id
+     */
     public static String generateUniqueId(long snowFlakeId) {
-        String atomicId = String.valueOf(snowFlakeId);
-        int snowFlakeIdLen = atomicId.length();
-        int remainingLength = UNIQUE_ID_LENGTH - snowFlakeIdLen;
-        StringBuilder randomChars = new StringBuilder(remainingLength);
-        for (int i = 0; i < remainingLength; i++) {
-            randomChars.append(CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+        int base = CHARACTERS.length();
+        char[] encodedId = new char[ENCODED_ID_LENGTH];
+        long remaining = snowFlakeId;
+        for (int i = ENCODED_ID_LENGTH - 1; i >= 0; i--) {
+            encodedId[i] = CHARACTERS.charAt((int) Long.remainderUnsigned(remaining, base));
+            remaining = Long.divideUnsigned(remaining, base);
         }
-
-        StringBuilder uniqueId = new StringBuilder(atomicId);
-        for (int i = 0; i < remainingLength; i++) {
-            int randomPosition = random.nextInt(snowFlakeIdLen + i);
-            uniqueId.insert(randomPosition, randomChars.charAt(i));
+        Random random = ThreadLocalRandom.current();
+        int randomLength = UNIQUE_ID_LENGTH - ENCODED_ID_LENGTH;
+        StringBuilder uniqueId = new StringBuilder(UNIQUE_ID_LENGTH);
+        for (int i = 0; i < ENCODED_ID_LENGTH; i++) {
+            if (i < randomLength) {
+                uniqueId.append(CHARACTERS.charAt(random.nextInt(base)));
+            }
+            uniqueId.append(encodedId[i]);
         }
         return uniqueId.toString();
     }
@@ -475,16 +496,4 @@ public class PaymentProcessingUtil {
             payment.setTransactionStatus(TransactionStatus.FAILURE);
         }
     }
-
-    /**
-     * Converts the Date time given as string and compares with the current date
-     * @param dateTime string date time
-     * @return true - if the date part is same as today
-     *          false - if the date part is not same as today
-     */
-    public static boolean compareDate(String dateTime){
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        LocalDate localDate = LocalDate.parse(dateTime.substring(0,10), formatter);
-        return localDate.isEqual(LocalDate.now());
-    }
 }
@@ -0,0 +1,318 @@
+package com.mgm.payments.processing.service.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal on local disk. Records are written to memory-mapped segment files named after the journal, as
+ * a length followed by the record bytes; a zero length marks the end of the written part of a segment. The read
+ * position is kept in a checkpoint file, so the records are replayed in order after a restart, and segments are
+ * deleted once fully read. The checkpoint can lag behind a crash, readers must accept a record more than once.
+ */
+public class SegmentJournal {
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int LENGTH_BYTES = Integer.BYTES;
+
+    private final Logger logger = LoggerFactory.getLogger(SegmentJournal.class);
+
+    private final String name;
+    private final Path directory;
+    private final long segmentBytes;
+    private final boolean forceOnAppend;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private Segment writeSegment;
+    private long readSequence;
+    private int readPosition;
+
+    /**
+     * @param name          - journal name, prefix of the segment files and of the log messages
+     * @param directory     - directory of the segment and checkpoint files, one journal per directory
+     * @param segmentBytes  - size of a segment file
+     * @param forceOnAppend - true to force every record to the storage device before the append returns, otherwise
+     *                      segments are only forced when full or closed
+     */
+    public SegmentJournal(String name, Path directory, long segmentBytes, boolean forceOnAppend) {
+        this.name = name;
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.forceOnAppend = forceOnAppend;
+    }
+
+    /**
+     * Opens the journal directory, maps the segments left by a previous run and restores the read position
+     */
+    public synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        String segmentPrefix = name + "-";
+        long[] checkpoint = readCheckpoint();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String fileName = file.getFileName().toString();
+                if (fileName.startsWith(segmentPrefix) && fileName.endsWith(SEGMENT_SUFFIX)) {
+                    long sequence = Long.parseLong(fileName.substring(segmentPrefix.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+                    if (checkpoint != null && sequence < checkpoint[0]) {
+                        Files.delete(file);
+                    } else {
+                        segments.put(sequence, Segment.map(sequence, file, Files.size(file)));
+                    }
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            writeSegment = createSegment(checkpoint != null ? checkpoint[0] : 0L);
+        } else {
+            writeSegment = segments.lastEntry().getValue();
+        }
+        if (checkpoint != null && segments.containsKey(checkpoint[0])) {
+            readSequence = checkpoint[0];
+            readPosition = (int) checkpoint[1];
+        } else {
+            readSequence = segments.firstKey();
+            readPosition = 0;
+        }
+        if (!isEmpty()) {
+            logger.info("Journal: {} journal opened with pending records in {} segments", name, segments.size());
+        }
+    }
+
+    public synchronized void close() {
+        for (Segment segment : segments.values()) {
+            closeSegment(segment);
+        }
+        segments.clear();
+    }
+
+    /**
+     * Appends one record to the journal, rotating to a new segment when the current one is full
+     *
+     * @param record - record bytes
+     * @return false if the record is larger than a segment or could not be written
+     */
+    public synchronized boolean append(byte[] record) {
+        int recordSize = LENGTH_BYTES + record.length;
+        if (recordSize + LENGTH_BYTES > segmentBytes) {
+            logger.error("Journal: {} record of {} bytes does not fit in a journal segment", name, record.length);
+            return false;
+        }
+        try {
+            if (writeSegment.remaining() < recordSize + LENGTH_BYTES) {
+                writeSegment.buffer.force();
+                writeSegment = createSegment(writeSegment.sequence + 1);
+            }
+            writeSegment.write(record);
+            if (forceOnAppend) {
+                writeSegment.buffer.force();
+            }
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("Journal: {} journal append failed : {}", name, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Reads the next records from the read position without consuming them
+     *
+     * @param maxRecords - maximum number of records
+     * @param maxBytes   - maximum total size of the records, at least one record is returned
+     * @return records in the order they were appended
+     */
+    public synchronized List<byte[]> peek(int maxRecords, long maxBytes) {
+        List<byte[]> records = new ArrayList<>();
+        long totalBytes = 0;
+        long sequence = readSequence;
+        int position = readPosition;
+        while (records.size() < maxRecords) {
+            Segment segment = segments.get(sequence);
+            byte[] record = segment != null ? segment.read(position) : null;
+            if (record == null) {
+                Long nextSequence = segments.higherKey(sequence);
+                if (nextSequence == null) {
+                    break;
+                }
+                sequence = nextSequence;
+                position = 0;
+                continue;
+            }
+            if (!records.isEmpty() && totalBytes + record.length > maxBytes) {
+                break;
+            }
+            records.add(record);
+            totalBytes += record.length;
+            position += LENGTH_BYTES + record.length;
+        }
+        return records;
+    }
+
+    /**
+     * Consumes the given number of records from the read position, deletes the fully read segments and writes the
+     * checkpoint
+     *
+     * @param count - number of records returned by {@link #peek(int, long)} that were processed
+     */
+    public synchronized void commit(int count) {
+        int consumed = 0;
+        while (consumed < count) {
+            byte[] record = segments.get(readSequence).read(readPosition);
+            if (record == null) {
+                advanceSegment();
+                continue;
+            }
+            readPosition += LENGTH_BYTES + record.length;
+            consumed++;
+        }
+        // also skips the segments left empty by a crash before their records reached the disk
+        while (readSequence != writeSegment.sequence && !segments.get(readSequence).hasRecord(readPosition)) {
+            advanceSegment();
+        }
+        writeCheckpoint();
+    }
+
+    /**
+     * @return true if {@link #peek(int, long)} returns no records
+     */
+    public synchronized boolean isEmpty() {
+        if (segments.get(readSequence).hasRecord(readPosition)) {
+            return false;
+        }
+        for (Segment segment : segments.tailMap(readSequence, false).values()) {
+            if (segment.writePosition > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    private void advanceSegment() {
+        Segment segment = segments.remove(readSequence);
+        closeSegment(segment);
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            logger.warn("Journal: could not delete {} journal segment {} : {}", name, segment.path, e.getMessage());
+        }
+        readSequence = segments.firstKey();
+        readPosition = 0;
+    }
+
+    private void closeSegment(Segment segment) {
+        try {
+            segment.close();
+        } catch (IOException e) {
+            logger.warn("Journal: {} journal segment {} close failed : {}", name, segment.path, e.getMessage());
+        }
+    }
+
+    private Segment createSegment(long sequence) throws IOException {
+        Path file = directory.resolve(String.format("%s-%020d%s", name, sequence, SEGMENT_SUFFIX));
+        Segment segment = Segment.map(sequence, file, segmentBytes);
+        segments.put(sequence, segment);
+        return segment;
+    }
+
+    private long[] readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        String[] parts = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim().split(" ");
+        return new long[]{Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+    }
+
+    private void writeCheckpoint() {
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try {
+            Files.write(temp, (readSequence + " " + readPosition).getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the records since the last checkpoint are read again after a restart
+            logger.warn("Journal: {} journal checkpoint write failed : {}", name, e.getMessage());
+        }
+    }
+
+    private static final class Segment {
+        private final long sequence;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+
+        private Segment(long sequence, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private static Segment map(long sequence, Path path, long size) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            Segment segment = new Segment(sequence, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            byte[] record;
+            while ((record = segment.read(segment.writePosition)) != null) {
+                segment.writePosition += LENGTH_BYTES + record.length;
+            }
+            return segment;
+        }
+
+        private int remaining() {
+            return buffer.capacity() - writePosition;
+        }
+
+        private void write(byte[] record) {
+            ByteBuffer target = buffer.duplicate();
+            target.position(writePosition + LENGTH_BYTES);
+            target.put(record);
+            // the length is written last, a record is only visible to a reader once it is complete
+            buffer.putInt(writePosition, record.length);
+            writePosition += LENGTH_BYTES + record.length;
+        }
+
+        private boolean hasRecord(int position) {
+            if (position + LENGTH_BYTES > buffer.capacity()) {
+                return false;
+            }
+            int length = buffer.getInt(position);
+            return length > 0 && position + LENGTH_BYTES + length <= buffer.capacity();
+        }
+
+        private byte[] read(int position) {
+            if (!hasRecord(position)) {
+                return null;
+            }
+            int length = buffer.getInt(position);
+            byte[] record = new byte[length];
+            ByteBuffer source = buffer.duplicate();
+            source.position(position + LENGTH_BYTES);
+            source.get(record);
+            return record;
+        }
+
+        private void close() throws IOException {
+            buffer.force();
+            channel.close();
+        }
+    }
+}
@@ -6,62 +6,160 @@ import org.springframework.stereotype.Component;
 
 import java.net.NetworkInterface;
 import java.security.SecureRandom;
-import java.time.Instant;
+import java.time.Clock;
 import java.util.Enumeration;
-
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates 63 bit ids of 41 bits of milliseconds since the custom epoch, 10 bits of node id and 12 bits of sequence
+ * within the millisecond. The last id is kept in one atomic long and the next one is taken with a compare and set, so
+ * callers do not serialize on a lock. When the sequence of a millisecond is exhausted, or the clock moves back by up
+ * to {@link #MAX_CLOCK_BACKWARD_MILLIS}, the ids continue from the last timestamp instead of failing.
+ * <p>
+ * The node id is a hash of the MAC addresses, which replicas on virtualized NICs can share. A lease service that
+ * calls {@link #expectLease()} replaces it: ids then come from a node id held by this instance alone until its lease
+ * expires, or from leased id blocks when no node id is free. While neither is held the ids fall back to the hashed
+ * node id, counted by {@link #getHashedNodeIdFallbacks()}, rather than fail the payment; the random padding of the
+ * payment ids keeps them apart from those of an instance that leased the same node id.
+ */
 @Slf4j
 @Component
 public class SnowFlakeSequenceGenerator {
 
-    private static final int NODE_ID_BITS = 10;
-    private static final int SEQUENCE_BITS = 10;
+    static final int NODE_ID_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int TIMESTAMP_SHIFT = NODE_ID_BITS + SEQUENCE_BITS;
+
+    public static final int NODE_IDS = 1 << NODE_ID_BITS;
+    static final long MAX_NODE_ID = NODE_IDS - 1;
+    static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
 
-    private static final long MAX_NODE_ID = (long)(Math.pow(2, NODE_ID_BITS) - 1);
-    private static final long MAX_SEQUENCE_BITS = (long)(Math.pow(2, SEQUENCE_BITS) - 1);
+    // how far the ids may run ahead of the clock, after it moved back or while a busy millisecond is borrowed
+    static final long MAX_CLOCK_BACKWARD_MILLIS = 50;
 
     // Custom Epoch (Mon, 01 Jan 2024 Midnight UTC = 2024-01-01T00:00:00Z)
     private static final long DEFAULT_CUSTOM_EPOCH =  1704067200000L;
 
-    private volatile long lastTimestamp = -1L;
-    private volatile long sequence = 0;
+    private final AtomicLong lastId = new AtomicLong();
 
-    private final long nodeId;
+    private final long hashedNodeId;
     private final long customEpoch;
+    private final Clock clock;
+    private volatile long nodeId;
+    private volatile long nodeLeaseValidUntil = Long.MAX_VALUE;
+    private volatile LongSupplier idBlocks;
+    private final AtomicLong hashedNodeIdFallbacks = new AtomicLong();
+
     @Autowired
     public SnowFlakeSequenceGenerator() {
-        this.nodeId = createNodeId();
-        this.customEpoch = DEFAULT_CUSTOM_EPOCH;
+        this(createNodeId(), Clock.systemUTC());
     }
-  
+
     public SnowFlakeSequenceGenerator(long nodeId) {
-        this.nodeId = nodeId;
-        this.customEpoch = DEFAULT_CUSTOM_EPOCH;
+        this(nodeId, Clock.systemUTC());
     }
 
-    public synchronized long nextId() {
-        long currentTimestamp = Instant.now().toEpochMilli() - customEpoch;
-
-        if (currentTimestamp < lastTimestamp) {
-            throw new IllegalStateException("Invalid System Clock!");
-        }
+    SnowFlakeSequenceGenerator(long nodeId, Clock clock) {
+        this.hashedNodeId = nodeId & MAX_NODE_ID;
+        this.nodeId = hashedNodeId;
+        this.customEpoch = DEFAULT_CUSTOM_EPOCH;
+        this.clock = clock;
+    }
 
-        if (currentTimestamp == lastTimestamp) {
-            sequence = (sequence + 1) & MAX_SEQUENCE_BITS;
-            if (sequence == 0) {
-                // Sequence Exhausted, wait till next millisecond.
-                currentTimestamp = waitNextMillis(currentTimestamp);
+    public long nextId() {
+        LongSupplier blocks = idBlocks;
+        if (blocks != null) {
+            long id = blocks.getAsLong();
+            if (id >= 0) {
+                return id;
             }
-        } else {
-            // reset sequence to start with zero for the next millisecond
-            sequence = 0;
+        } else if (clock.millis() < nodeLeaseValidUntil) {
+            return nextSnowFlakeId(nodeId);
         }
+        hashedNodeIdFallbacks.incrementAndGet();
+        return nextSnowFlakeId(hashedNodeId);
+    }
+
+    /**
+     * Counts the ids generated with the hashed node id as fallbacks from now on, until a node id or id blocks are
+     * leased
+     */
+    public void expectLease() {
+        this.nodeLeaseValidUntil = 0;
+    }
+
+    /**
+     * Generates with a leased node id until the given time, extended by {@link #renewNodeLease(long)}
+     *
+     * @param leasedNodeId - node id held by this instance
+     * @param validUntil   - epoch millis the lease is safe to use until
+     */
+    public void useNodeId(long leasedNodeId, long validUntil) {
+        this.nodeId = leasedNodeId & MAX_NODE_ID;
+        this.nodeLeaseValidUntil = validUntil;
+        this.idBlocks = null;
+    }
 
-        lastTimestamp = currentTimestamp;
+    public void renewNodeLease(long validUntil) {
+        this.nodeLeaseValidUntil = validUntil;
+    }
+
+    /**
+     * Takes the ids from leased id blocks instead of the snowflake layout, when no node id could be leased. The
+     * blocks are not leased on the request path: while none is left the ids fall back to the hashed node id.
+     *
+     * @param blocks - next id of the leased blocks, disjoint from the snowflake ids, negative when no block is left
+     */
+    public void useIdBlocks(LongSupplier blocks) {
+        this.idBlocks = blocks;
+    }
+
+    /**
+     * @return node id the snowflake ids are generated with, the hashed node id once the lease of the node id expired
+     */
+    public long getNodeId() {
+        return clock.millis() < nodeLeaseValidUntil ? nodeId : hashedNodeId;
+    }
+
+    public long getHashedNodeId() {
+        return hashedNodeId;
+    }
 
-        return currentTimestamp | (nodeId << SEQUENCE_BITS);
+    /**
+     * @return ids generated with the hashed node id since {@link #expectLease()}, for want of a leased node id or id block
+     */
+    public long getHashedNodeIdFallbacks() {
+        return hashedNodeIdFallbacks.get();
     }
 
-    private long createNodeId() {
+    private long nextSnowFlakeId(long node) {
+        while (true) {
+            long currentTimestamp = clock.millis() - customEpoch;
+            long last = lastId.get();
+            long lastTimestamp = last >>> TIMESTAMP_SHIFT;
+            long next;
+            if (lastTimestamp - currentTimestamp > MAX_CLOCK_BACKWARD_MILLIS) {
+                throw new IllegalStateException("Invalid System Clock! moved back by " + (lastTimestamp - currentTimestamp) + " ms");
+            } else if (currentTimestamp > lastTimestamp) {
+                next = (currentTimestamp << TIMESTAMP_SHIFT) | (node << SEQUENCE_BITS);
+            } else if (((last >>> SEQUENCE_BITS) & MAX_NODE_ID) == node && (last & MAX_SEQUENCE) < MAX_SEQUENCE) {
+                next = last + 1;
+            } else if (lastTimestamp + 1 - currentTimestamp <= MAX_CLOCK_BACKWARD_MILLIS) {
+                // Sequence Exhausted or node id changed, borrow the next millisecond.
+                next = ((lastTimestamp + 1) << TIMESTAMP_SHIFT) | (node << SEQUENCE_BITS);
+            } else {
+                // ids ran as far ahead of the clock as allowed, wait for it.
+                Thread.onSpinWait();
+                continue;
+            }
+            if (lastId.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    private static long createNodeId() {
         long node;
         try {
             StringBuilder sb = new StringBuilder();
@@ -83,12 +181,4 @@ public class SnowFlakeSequenceGenerator {
         return node;
     }
 
-    // Block and wait till next millisecond
-    private long waitNextMillis(long currentTimestamp) {
-        while (currentTimestamp == lastTimestamp) {
-            currentTimestamp = Instant.now().toEpochMilli() - customEpoch;
-        }
-        return currentTimestamp;
-    }
-
 }
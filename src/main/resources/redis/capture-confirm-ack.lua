@@ -0,0 +1,7 @@
+-- Deletes a delivered capture confirm message, wherever a lease expiry moved it in the meantime.
+-- KEYS[1] payload hash, KEYS[2] in-flight set, KEYS[3] due set
+-- ARGV[1] message id
+-- Returns 1 if the message was still stored
+redis.call('ZREM', KEYS[2], ARGV[1])
+redis.call('ZREM', KEYS[3], ARGV[1])
+return redis.call('HDEL', KEYS[1], ARGV[1])
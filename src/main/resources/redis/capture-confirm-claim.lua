@@ -0,0 +1,21 @@
+-- Claims the due capture confirm messages. Messages whose in-flight lease expired are due again first, then up to
+-- ARGV[3] messages due by ARGV[1] are moved to the in-flight set, with a lease until ARGV[2].
+-- KEYS[1] payload hash, KEYS[2] due set, KEYS[3] in-flight set
+-- ARGV[1] now millis, ARGV[2] lease expiry millis, ARGV[3] max messages
+-- Returns the payloads of the claimed messages
+local expired = redis.call('ZRANGEBYSCORE', KEYS[3], '-inf', ARGV[1], 'LIMIT', 0, ARGV[3])
+for _, id in ipairs(expired) do
+    redis.call('ZREM', KEYS[3], id)
+    redis.call('ZADD', KEYS[2], ARGV[1], id)
+end
+local payloads = {}
+local ids = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', ARGV[1], 'LIMIT', 0, ARGV[3])
+for _, id in ipairs(ids) do
+    redis.call('ZREM', KEYS[2], id)
+    local payload = redis.call('HGET', KEYS[1], id)
+    if payload then
+        redis.call('ZADD', KEYS[3], ARGV[2], id)
+        payloads[#payloads + 1] = payload
+    end
+end
+return payloads
@@ -0,0 +1,8 @@
+-- Stores a capture confirm message and moves it to a set, taking it out of the other sets it can be in.
+-- KEYS[1] payload hash, KEYS[2] target set, KEYS[3] and KEYS[4] the other sets
+-- ARGV[1] message id, ARGV[2] payload, ARGV[3] score in the target set
+redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+redis.call('ZREM', KEYS[3], ARGV[1])
+redis.call('ZREM', KEYS[4], ARGV[1])
+redis.call('ZADD', KEYS[2], ARGV[3], ARGV[1])
+return 1
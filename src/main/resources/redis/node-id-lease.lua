@@ -0,0 +1,19 @@
+-- Leases a node id: takes the first node id not held by another instance, probing from a preferred one so that
+-- instances spread over the range. A node id already held by this instance is renewed and returned.
+-- KEYS[1] node id key prefix, the key of node id n is <prefix><n>
+-- ARGV[1] instance id, ARGV[2] ttl seconds, ARGV[3] preferred node id, ARGV[4] number of node ids
+-- Returns the leased node id, -1 when all are held
+local count = tonumber(ARGV[4])
+local first = tonumber(ARGV[3])
+for i = 0, count - 1 do
+    local nodeId = (first + i) % count
+    local key = KEYS[1] .. nodeId
+    if redis.call('SET', key, ARGV[1], 'NX', 'EX', ARGV[2]) then
+        return nodeId
+    end
+    if redis.call('GET', key) == ARGV[1] then
+        redis.call('EXPIRE', key, ARGV[2])
+        return nodeId
+    end
+end
+return -1
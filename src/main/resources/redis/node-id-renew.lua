@@ -0,0 +1,11 @@
+-- Extends the lease of a node id while this instance holds it, or gives it up when the ttl is 0.
+-- KEYS[1] node id key
+-- ARGV[1] instance id, ARGV[2] ttl seconds
+-- Returns 1 when the lease was extended or given up, 0 when another instance holds the node id or it expired
+if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+    return 0
+end
+if ARGV[2] == '0' then
+    return redis.call('DEL', KEYS[1])
+end
+return redis.call('EXPIRE', KEYS[1], ARGV[2])
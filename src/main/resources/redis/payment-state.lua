@@ -0,0 +1,25 @@
+-- Updates fields of the per-payment state hash in one step, optionally guarded by fields that must not be set.
+-- KEYS[1] payment state key (payment-state:<paymentId>)
+-- ARGV[1] ttl seconds, only ever extends the time to live of the key
+-- ARGV[2] number of guard fields n, ARGV[3..2+n] guard fields, the update is skipped when a guard field is present
+-- with any value but 'false', so both an in-flight status and an isCapture/isVoid flag of 'true' refuse it
+-- ARGV[3+n..] field/value pairs, an empty value deletes the field
+-- Returns 0 when the update was applied, the 1-based position of the first guard field that refused it otherwise
+local guards = tonumber(ARGV[2])
+for i = 1, guards do
+    local value = redis.call('HGET', KEYS[1], ARGV[2 + i])
+    if value and value ~= 'false' then
+        return i
+    end
+end
+for i = 3 + guards, #ARGV, 2 do
+    if ARGV[i + 1] == '' then
+        redis.call('HDEL', KEYS[1], ARGV[i])
+    else
+        redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])
+    end
+end
+if redis.call('EXISTS', KEYS[1]) == 1 and redis.call('TTL', KEYS[1]) < tonumber(ARGV[1]) then
+    redis.call('EXPIRE', KEYS[1], ARGV[1])
+end
+return 0
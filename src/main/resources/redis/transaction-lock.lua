@@ -0,0 +1,19 @@
+-- Atomic check-and-lock for an in-flight transaction, stored the same way as the @RedisHash repositories store
+-- the entity so that findById and deleteById keep working on it.
+-- KEYS[1] entity key (<keyspace>:<id>), KEYS[2] keyspace index set
+-- ARGV[1] id, ARGV[2] entity class, ARGV[3] transactionStatus, ARGV[4] amount ('' for none), ARGV[5] ttl seconds,
+-- ARGV[6] '1' when an existing entry is only a duplicate if its amount matches, '0' when any entry is a duplicate
+-- Returns 1 when the lock was taken, 0 when the request is a duplicate
+if redis.call('EXISTS', KEYS[1]) == 1 then
+    if ARGV[6] ~= '1' or redis.call('HGET', KEYS[1], 'amount') == ARGV[4] then
+        return 0
+    end
+    redis.call('DEL', KEYS[1])
+end
+redis.call('HSET', KEYS[1], '_class', ARGV[2], 'id', ARGV[1], 'transactionStatus', ARGV[3])
+if ARGV[4] ~= '' then
+    redis.call('HSET', KEYS[1], 'amount', ARGV[4])
+end
+redis.call('EXPIRE', KEYS[1], ARGV[5])
+redis.call('SADD', KEYS[2], ARGV[1])
+return 1
@@ -2,6 +2,7 @@ package com.mgm.payments.processing.repository;
 
 import brave.Tracer;
 import com.mgm.payments.processing.service.entity.jpa.PaymentEntity;
+import com.mgm.payments.processing.service.enums.TransactionType;
 import com.mgm.payments.processing.service.exception.PaymentProcessingException;
 import com.mgm.payments.processing.service.model.HeadersDTO;
 import com.mgm.payments.processing.service.model.payload.pps.exception.PaymentExceptionResponse;
@@ -15,10 +16,13 @@ import org.mockito.Mockito;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.LocalDate;
 
 import static com.mgm.payments.processing.service.enums.ApiErrorCode.RETRY_EXCEEDS_ERROR;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doNothing;
 
 @SpringBootTest(classes = PaymentProcessingRepositoryWrapperTest.class)
@@ -43,8 +47,9 @@ public class PaymentProcessingRepositoryWrapperTest {
     public void testSave() {
         PaymentEntity entity = Mockito.mock(PaymentEntity.class);
         doNothing().when(entityManager).persist(entity);
-        paymentProcessingRepositoryWrapper.save(entity, new HeadersDTO());
-        Mockito.verify(paymentProcessingRepository).save(entity);
+        assertEquals(entity, paymentProcessingRepositoryWrapper.save(entity, new HeadersDTO()));
+        Mockito.verify(entityManager).persist(entity);
+        Mockito.verify(paymentProcessingRepository, Mockito.never()).save(entity);
     }
 
     @Test
@@ -58,7 +63,16 @@ public class PaymentProcessingRepositoryWrapperTest {
     public void testFindByPaymentIdOrReferenceId() {
         HeadersDTO headersDTO = Mockito.mock(HeadersDTO.class);
         paymentProcessingRepositoryWrapper.findByPaymentIdOrReferenceId("paymentId","paymentId", headersDTO);
-        Mockito.verify(paymentProcessingRepository).findByPaymentIdOrReferenceId("paymentId","paymentId");
+        Mockito.verify(paymentProcessingRepository).findDTOByPaymentId("paymentId");
+        Mockito.verify(paymentProcessingRepository).findDTOByReferenceId("paymentId","paymentId");
+    }
+
+    @Test
+    public void testExistsTransaction() {
+        Mockito.when(paymentProcessingRepository.existsTransaction("clRef", TransactionType.REFUND, "2026-10-18T00:00:00Z",
+                "2026-10-19T00:00:00Z", BigDecimal.TEN, "WEB", "1111")).thenReturn(true);
+        assertTrue(paymentProcessingRepositoryWrapper.existsTransaction("clRef", TransactionType.REFUND, LocalDate.of(2026, 10, 18),
+                BigDecimal.TEN, "WEB", "1111", new HeadersDTO()));
     }
 
     @Test
@@ -1,8 +1,12 @@
 package com.mgm.payments.processing.service.controller;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import brave.Tracer;
@@ -19,6 +23,10 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.enums.ApiErrorCode;
+import com.mgm.payments.processing.service.events.CaptureConfirmRetryQueue;
+import com.mgm.payments.processing.service.exception.PaymentProcessingException;
 import com.mgm.payments.processing.service.model.HeadersDTO;
 import com.mgm.payments.processing.service.model.User;
 import com.mgm.payments.processing.service.model.payload.pps.PaymentRequest;
@@ -26,6 +34,8 @@ import com.mgm.payments.processing.service.model.payload.pps.PaymentResponse;
 import com.mgm.payments.processing.service.service.PaymentProcessingService;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 
 @SpringBootTest(classes = PaymentProcessingControllerTest.class)
 @RunWith(org.mockito.junit.MockitoJUnitRunner.class)
@@ -37,6 +47,10 @@ class PaymentProcessingControllerTest {
 	@Mock
 	private  PaymentProcessingService paymentProcessingService;
 	@Mock
+	private CaptureConfirmRetryQueue captureConfirmRetryQueue;
+	@Mock
+	private PPSProperties ppsProperties;
+	@Mock
 	private Tracer tracer;
 
 	private User user;
@@ -54,6 +68,38 @@ class PaymentProcessingControllerTest {
 		assertEquals("ok", health);
 	}
 
+	@Test
+	void testReplayCaptureConfirmDeadLettersEndpoint() {
+		when(ppsProperties.getCaptureConfirmReplayServiceIds()).thenReturn(List.of("service_id"));
+		when(ppsProperties.getCaptureConfirmReplayMaxLimit()).thenReturn(500);
+		when(captureConfirmRetryQueue.replayDeadLetters(50)).thenReturn(Mono.just(3L));
+		ResponseEntity<Long> response = PaymentProcessingController.replayCaptureConfirmDeadLetters(50, "web", "1234", "12345", "123456",
+				"clientId", "WEB", "jwtToken", "userAgent", user).block();
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals(3L, response.getBody());
+	}
+
+	@Test
+	void testReplayCaptureConfirmDeadLettersLimitCapped() {
+		when(ppsProperties.getCaptureConfirmReplayServiceIds()).thenReturn(List.of("service_id"));
+		when(ppsProperties.getCaptureConfirmReplayMaxLimit()).thenReturn(500);
+		when(captureConfirmRetryQueue.replayDeadLetters(500)).thenReturn(Mono.just(500L));
+		ResponseEntity<Long> response = PaymentProcessingController.replayCaptureConfirmDeadLetters(100000, "web", "1234", "12345", "123456",
+				"clientId", "WEB", "jwtToken", "userAgent", user).block();
+		assertEquals(500L, response.getBody());
+	}
+
+	@Test
+	void testReplayCaptureConfirmDeadLettersRefusedForOtherServices() {
+		when(ppsProperties.getCaptureConfirmReplayServiceIds()).thenReturn(List.of("ops_service"));
+		PaymentProcessingException e = assertThrows(PaymentProcessingException.class, () ->
+				PaymentProcessingController.replayCaptureConfirmDeadLetters(50, "web", "1234", "12345", "123456",
+						"clientId", "WEB", "jwtToken", "userAgent", user));
+		assertEquals(HttpStatus.FORBIDDEN, e.getHttpStatus());
+		assertEquals(ApiErrorCode.CAPTURE_CONFIRM_REPLAY_FORBIDDEN.getCode(), e.getExceptionResponse().getErrorCode());
+		verify(captureConfirmRetryQueue, never()).replayDeadLetters(anyInt());
+	}
+
 	@Test
 	void testAuthorizeEndpoint() {
 		doReturn(Mono.just(getAuthResponse())).when(paymentProcessingService).authorize(any(), any(), any());
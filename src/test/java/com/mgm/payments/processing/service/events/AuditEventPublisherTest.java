@@ -0,0 +1,152 @@
+package com.mgm.payments.processing.service.events;
+
+import com.azure.core.exception.HttpResponseException;
+import com.azure.core.http.HttpResponse;
+import com.azure.core.util.BinaryData;
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.model.AuditRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class AuditEventPublisherTest {
+
+    private PPSProperties ppsProperties;
+    private SimpleMeterRegistry meterRegistry;
+    private AuditSpillJournal spillJournal;
+
+    @TempDir
+    Path journalDir;
+
+    @BeforeEach
+    void init() throws IOException {
+        ppsProperties = new PPSProperties();
+        ppsProperties.setAuditBatchLingerMillis(1);
+        ppsProperties.setAuditJournalDir(journalDir.toString());
+        meterRegistry = new SimpleMeterRegistry();
+        spillJournal = new AuditSpillJournal(ppsProperties, meterRegistry);
+        spillJournal.open();
+    }
+
+    private AuditRequest auditRequest(String clientReferenceNumber) {
+        return AuditRequest.builder().clientReferenceNumber(clientReferenceNumber).build();
+    }
+
+    private static HttpResponseException httpError(int status) {
+        HttpResponse response = mock(HttpResponse.class);
+        when(response.getStatusCode()).thenReturn(status);
+        return new HttpResponseException("status " + status, response);
+    }
+
+    // Event Grid stand-in that refuses every batch holding the given event and records the events it accepts
+    private AuditEventPublisher publisherRefusing(String clientReferenceNumber, List<String> sent) {
+        AuditEventPublisher publisher = spy(new AuditEventPublisher(ppsProperties, spillJournal, meterRegistry));
+        doAnswer(invocation -> {
+            List<BinaryData> batch = invocation.getArgument(0);
+            if (batch.stream().anyMatch(event -> event.toString().contains("\"" + clientReferenceNumber + "\""))) {
+                return Mono.error(httpError(400));
+            }
+            batch.forEach(event -> sent.add(event.toString()));
+            return Mono.empty();
+        }).when(publisher).sendEvents(anyList());
+        return publisher;
+    }
+
+    @Test
+    void testBatchClosedByEventCount() throws InterruptedException {
+        ppsProperties.setAuditBatchMaxEvents(2);
+        AuditEventPublisher publisher = new AuditEventPublisher(ppsProperties, spillJournal, meterRegistry);
+        for (int i = 0; i < 3; i++) {
+            publisher.publish(auditRequest("ref" + i));
+        }
+        assertEquals(3.0, meterRegistry.get("pps.audit.queue.depth").gauge().value());
+        assertEquals(2, publisher.nextBatch().size());
+        assertEquals(1, publisher.nextBatch().size());
+        assertTrue(publisher.nextBatch().isEmpty());
+    }
+
+    @Test
+    void testBatchClosedByByteSize() throws InterruptedException {
+        int eventSize = BinaryData.fromObject(auditRequest("ref0")).toBytes().length;
+        ppsProperties.setAuditBatchMaxBytes(eventSize * 2L);
+        AuditEventPublisher publisher = new AuditEventPublisher(ppsProperties, spillJournal, meterRegistry);
+        for (int i = 0; i < 3; i++) {
+            publisher.publish(auditRequest("ref" + i));
+        }
+        assertEquals(2, publisher.nextBatch().size());
+        assertEquals(1, publisher.nextBatch().size());
+    }
+
+    @Test
+    void testEventSpilledWhenQueueFull() {
+        ppsProperties.setAuditQueueCapacity(1);
+        AuditEventPublisher publisher = new AuditEventPublisher(ppsProperties, spillJournal, meterRegistry);
+        assertTrue(publisher.publish(auditRequest("ref0")));
+        assertTrue(publisher.publish(auditRequest("ref1")));
+        assertEquals(1.0, meterRegistry.get("pps.audit.events.spilled").counter().count());
+        assertEquals(0.0, meterRegistry.get("pps.audit.events.dropped").counter().count());
+        assertFalse(spillJournal.isEmpty());
+    }
+
+    @Test
+    void testEventDroppedWhenQueueFullAndJournalRejects() {
+        ppsProperties.setAuditQueueCapacity(1);
+        ppsProperties.setAuditJournalSegmentBytes(16);
+        AuditEventPublisher publisher = new AuditEventPublisher(ppsProperties, spillJournal, meterRegistry);
+        assertTrue(publisher.publish(auditRequest("ref0")));
+        assertFalse(publisher.publish(auditRequest("ref1")));
+        assertEquals(1.0, meterRegistry.get("pps.audit.events.dropped").counter().count());
+    }
+
+    @Test
+    void testRefusedJournalEventDeadLetteredAndRestReplayed() throws IOException {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        AuditEventPublisher publisher = publisherRefusing("ref2", sent);
+        for (int i = 0; i < 4; i++) {
+            publisher.spill(auditRequest("ref" + i));
+        }
+
+        publisher.drainJournal();
+        assertEquals(3, sent.size());
+        assertTrue(sent.get(0).contains("ref0") && sent.get(1).contains("ref1") && sent.get(2).contains("ref3"));
+        assertTrue(spillJournal.isEmpty());
+        assertEquals(3.0, meterRegistry.get("pps.audit.events.replayed").counter().count());
+        assertEquals(1.0, meterRegistry.get("pps.audit.events.dead.lettered").counter().count());
+        List<String> deadLetters = Files.readAllLines(journalDir.resolve("audit.dead"), StandardCharsets.UTF_8);
+        assertEquals(1, deadLetters.size());
+        assertTrue(deadLetters.get(0).contains("\"ref2\""));
+        // the journal is drained, new events are queued again instead of spilled
+        publisher.publish(auditRequest("ref4"));
+        assertEquals(1.0, meterRegistry.get("pps.audit.queue.depth").gauge().value());
+    }
+
+    @Test
+    void testUnavailableEventGridKeepsJournal() {
+        AuditEventPublisher publisher = spy(new AuditEventPublisher(ppsProperties, spillJournal, meterRegistry));
+        doReturn(Mono.error(httpError(503))).when(publisher).sendEvents(anyList());
+        publisher.spill(auditRequest("ref0"));
+        publisher.spill(auditRequest("ref1"));
+
+        publisher.drainJournal();
+        assertFalse(spillJournal.isEmpty());
+        assertEquals(0.0, meterRegistry.get("pps.audit.events.dead.lettered").counter().count());
+        assertFalse(Files.exists(journalDir.resolve("audit.dead")));
+        // still failing, new events keep going to the journal behind the ones waiting
+        publisher.publish(auditRequest("ref2"));
+        assertEquals(0.0, meterRegistry.get("pps.audit.queue.depth").gauge().value());
+        assertEquals(3.0, meterRegistry.get("pps.audit.events.spilled").counter().count());
+    }
+}
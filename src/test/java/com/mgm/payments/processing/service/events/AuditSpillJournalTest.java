@@ -0,0 +1,111 @@
+package com.mgm.payments.processing.service.events;
+
+import com.mgm.payments.processing.service.config.PPSProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditSpillJournalTest {
+
+    private PPSProperties ppsProperties;
+
+    @TempDir
+    Path journalDir;
+
+    @BeforeEach
+    void init() {
+        ppsProperties = new PPSProperties();
+        ppsProperties.setAuditJournalDir(journalDir.toString());
+        ppsProperties.setAuditJournalSegmentBytes(64);
+    }
+
+    private AuditSpillJournal openJournal() throws IOException {
+        AuditSpillJournal journal = new AuditSpillJournal(ppsProperties, new SimpleMeterRegistry());
+        journal.open();
+        return journal;
+    }
+
+    private static List<String> asStrings(List<byte[]> events) {
+        return events.stream().map(event -> new String(event, StandardCharsets.UTF_8)).collect(Collectors.toList());
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.filter(file -> file.toString().endsWith(".journal")).count();
+        }
+    }
+
+    @Test
+    void testEventsReplayedInOrderAcrossSegments() throws IOException {
+        AuditSpillJournal journal = openJournal();
+        assertTrue(journal.isEmpty());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(journal.append(("event-" + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        assertTrue(segmentFiles() > 1);
+        assertEquals(List.of("event-0", "event-1", "event-2"), asStrings(journal.peek(3, 1000)));
+        journal.commit(3);
+        assertEquals(List.of("event-3", "event-4", "event-5", "event-6"), asStrings(journal.peek(4, 1000)));
+    }
+
+    @Test
+    void testReadPositionRestoredAfterReopen() throws IOException {
+        AuditSpillJournal journal = openJournal();
+        for (int i = 0; i < 10; i++) {
+            journal.append(("event-" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        journal.commit(journal.peek(7, 1000).size());
+        journal.close();
+
+        AuditSpillJournal reopened = openJournal();
+        assertEquals(List.of("event-7", "event-8", "event-9"), asStrings(reopened.peek(10, 1000)));
+        reopened.commit(3);
+        assertTrue(reopened.isEmpty());
+        assertEquals(1, segmentFiles());
+    }
+
+    @Test
+    void testReopenWithEmptyTrailingSegment() throws IOException {
+        AuditSpillJournal journal = openJournal();
+        for (int i = 0; i < 5; i++) {
+            journal.append(("event-" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        journal.commit(journal.peek(10, 1000).size());
+        // the next event rotates to a second segment, whose pages are lost in a crash
+        journal.append("event-5".getBytes(StandardCharsets.UTF_8));
+        journal.close();
+        Path trailingSegment;
+        try (Stream<Path> files = Files.list(journalDir)) {
+            trailingSegment = files.filter(file -> file.toString().endsWith(".journal")).max(Path::compareTo).orElseThrow();
+        }
+        Files.write(trailingSegment, new byte[(int) Files.size(trailingSegment)]);
+
+        AuditSpillJournal reopened = openJournal();
+        assertTrue(reopened.peek(10, 1000).isEmpty());
+        assertTrue(reopened.isEmpty());
+        reopened.append("event-6".getBytes(StandardCharsets.UTF_8));
+        assertFalse(reopened.isEmpty());
+        assertEquals(List.of("event-6"), asStrings(reopened.peek(10, 1000)));
+        reopened.commit(1);
+        assertTrue(reopened.isEmpty());
+        assertEquals(1, segmentFiles());
+    }
+
+    @Test
+    void testEventLargerThanSegmentRejected() throws IOException {
+        AuditSpillJournal journal = openJournal();
+        assertFalse(journal.append(new byte[100]));
+        assertTrue(journal.isEmpty());
+    }
+}
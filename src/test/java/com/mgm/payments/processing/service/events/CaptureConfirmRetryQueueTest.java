@@ -0,0 +1,202 @@
+package com.mgm.payments.processing.service.events;
+
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.exception.ExternalServiceException;
+import com.mgm.payments.processing.service.exception.PaymentProcessingException;
+import com.mgm.payments.processing.service.model.CaptureConfirm;
+import com.mgm.payments.processing.service.model.HeadersDTO;
+import com.mgm.payments.processing.service.model.payload.pps.exception.PaymentExceptionResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.http.HttpStatus;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs against the Redis on {@code pps.test.redis.host}:{@code pps.test.redis.port}, localhost:6379 by default; the
+ * tests that need it are skipped when it is not reachable.
+ */
+class CaptureConfirmRetryQueueTest {
+
+    private static final ExternalServiceException UNAVAILABLE = new ExternalServiceException("busy", HttpStatus.SERVICE_UNAVAILABLE);
+
+    private final PPSProperties ppsProperties = new PPSProperties();
+    private final Clock clock = mock(Clock.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<LettuceConnectionFactory> connectionFactories = new ArrayList<>();
+    private ReactiveStringRedisTemplate localRedis;
+
+    @BeforeEach
+    void init() {
+        ppsProperties.setCaptureConfirmRetryBaseDelayMillis(1000);
+        ppsProperties.setCaptureConfirmRetryMaxDelayMillis(8000);
+        ppsProperties.setCaptureConfirmRetryLeaseMillis(60000);
+        ppsProperties.setCaptureConfirmRetryTimeoutMillis(1000);
+        when(clock.millis()).thenReturn(1_000_000L);
+        localRedis = template(System.getProperty("pps.test.redis.host", "localhost"),
+                Integer.getInteger("pps.test.redis.port", 6379));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        if (isReachable(localRedis)) {
+            deleteKeys();
+        }
+        connectionFactories.forEach(LettuceConnectionFactory::destroy);
+    }
+
+    private ReactiveStringRedisTemplate template(String host, int port) {
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactories.add(connectionFactory);
+        return new ReactiveStringRedisTemplate(connectionFactory);
+    }
+
+    private static boolean isReachable(ReactiveStringRedisTemplate template) {
+        try {
+            template.hasKey(CaptureConfirmRetryQueue.DUE_KEY).block(Duration.ofSeconds(1));
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void deleteKeys() {
+        localRedis.delete(CaptureConfirmRetryQueue.MESSAGES_KEY, CaptureConfirmRetryQueue.DUE_KEY,
+                CaptureConfirmRetryQueue.IN_FLIGHT_KEY, CaptureConfirmRetryQueue.DEAD_LETTER_KEY).block(Duration.ofSeconds(1));
+    }
+
+    private CaptureConfirmRetryQueue requireLocalRedis() {
+        assumeTrue(isReachable(localRedis), "no Redis on the local test address");
+        deleteKeys();
+        return new CaptureConfirmRetryQueue(localRedis, ppsProperties, clock, meterRegistry);
+    }
+
+    private static CaptureConfirmMessage message(String orderReferenceNumber) {
+        HeadersDTO headersDTO = new HeadersDTO("web", "journey", "correlation", "transaction", "WEB", "Bearer jwt", "clientId", "userAgent");
+        return CaptureConfirmMessage.of(CaptureConfirm.builder().orderReferenceNumber(orderReferenceNumber).sessionId("session")
+                .orderStatus("COMPLETED").build(), headersDTO);
+    }
+
+    private void advanceClock(long millis) {
+        long now = clock.millis();
+        when(clock.millis()).thenReturn(now + millis);
+    }
+
+    @Test
+    void testBackoffDoublesWithJitterUpToMaxDelay() {
+        CaptureConfirmRetryQueue queue = new CaptureConfirmRetryQueue(localRedis, ppsProperties, clock, meterRegistry);
+        for (int i = 0; i < 100; i++) {
+            long first = queue.backoffMillis(1);
+            long third = queue.backoffMillis(3);
+            long tenth = queue.backoffMillis(10);
+            assertTrue(first >= 500 && first <= 1000, "first retry " + first);
+            assertTrue(third >= 2000 && third <= 4000, "third retry " + third);
+            assertTrue(tenth >= 4000 && tenth <= 8000, "tenth retry " + tenth);
+        }
+    }
+
+    @Test
+    void testFailedConfirmDueAfterBackoffThenAcknowledged() {
+        CaptureConfirmRetryQueue queue = requireLocalRedis();
+        queue.failed(message("ROOM-1"), UNAVAILABLE).block();
+        assertTrue(queue.claimDue(10).isEmpty());
+
+        advanceClock(1000);
+        List<CaptureConfirmMessage> claimed = queue.claimDue(10);
+        assertEquals(1, claimed.size());
+        CaptureConfirmMessage message = claimed.get(0);
+        assertEquals("ROOM-1", message.getCaptureConfirm().getOrderReferenceNumber());
+        assertEquals(1, message.getAttempt());
+        assertEquals("correlation", message.getHeaders().getMgmCorrelationId());
+        assertNull(message.getHeaders().getAuthorization());
+        assertTrue(message.isQueued());
+
+        queue.acknowledge(message).block();
+        queue.refreshBacklog();
+        assertEquals(0.0, meterRegistry.get("pps.capture.confirm.backlog").gauge().value());
+        assertEquals(0L, localRedis.opsForHash().size(CaptureConfirmRetryQueue.MESSAGES_KEY).block());
+    }
+
+    @Test
+    void testExpiredLeaseDeliveredAgain() {
+        CaptureConfirmRetryQueue queue = requireLocalRedis();
+        queue.enqueue(message("ROOM-1")).block();
+        assertEquals(1, queue.claimDue(10).size());
+        assertTrue(queue.claimDue(10).isEmpty());
+        queue.refreshBacklog();
+        assertEquals(1.0, meterRegistry.get("pps.capture.confirm.backlog").gauge().value());
+
+        advanceClock(60000);
+        assertEquals(1, queue.claimDue(10).size());
+    }
+
+    @Test
+    void testLeasedConfirmDeliveredAgainOnlyWhenNotAcknowledged() {
+        CaptureConfirmRetryQueue queue = requireLocalRedis();
+        CaptureConfirmMessage acknowledged = message("ROOM-1");
+        queue.lease(acknowledged).block();
+        queue.lease(message("ROOM-2")).block();
+        assertTrue(acknowledged.isQueued());
+        assertTrue(queue.claimDue(10).isEmpty());
+
+        // ROOM-2 was never acknowledged, as when its instance stopped during the first delivery
+        queue.acknowledge(acknowledged).block();
+        advanceClock(60000);
+        List<CaptureConfirmMessage> claimed = queue.claimDue(10);
+        assertEquals(1, claimed.size());
+        assertEquals("ROOM-2", claimed.get(0).getCaptureConfirm().getOrderReferenceNumber());
+        assertEquals(0, claimed.get(0).getAttempt());
+    }
+
+    @Test
+    void testExhaustedConfirmDeadLetteredAndReplayed() {
+        ppsProperties.setCaptureConfirmRetryMaxAttempts(2);
+        CaptureConfirmRetryQueue queue = requireLocalRedis();
+        CaptureConfirmMessage message = message("ROOM-1");
+        queue.failed(message, UNAVAILABLE).block();
+        queue.failed(message, UNAVAILABLE).block();
+        advanceClock(8000);
+        assertTrue(queue.claimDue(10).isEmpty());
+        queue.refreshBacklog();
+        assertEquals(1.0, meterRegistry.get("pps.capture.confirm.dead.letters").gauge().value());
+
+        assertEquals(1L, queue.replayDeadLetters(100).block());
+        List<CaptureConfirmMessage> claimed = queue.claimDue(10);
+        assertEquals(1, claimed.size());
+        assertEquals(0, claimed.get(0).getAttempt());
+        assertEquals("503 SERVICE_UNAVAILABLE busy", claimed.get(0).getLastError());
+        queue.refreshBacklog();
+        assertEquals(0.0, meterRegistry.get("pps.capture.confirm.dead.letters").gauge().value());
+    }
+
+    @Test
+    void testRejectedConfirmDeadLetteredAtOnce() {
+        CaptureConfirmRetryQueue queue = requireLocalRedis();
+        PaymentProcessingException rejected = new PaymentProcessingException(
+                PaymentExceptionResponse.builder().developerMessage("invalid session").build(), HttpStatus.BAD_REQUEST);
+        queue.failed(message("ROOM-1"), rejected).block();
+        assertEquals(1.0, meterRegistry.get("pps.capture.confirm.dead.lettered").counter().count());
+        assertEquals(0.0, meterRegistry.get("pps.capture.confirm.retried").counter().count());
+    }
+
+    @Test
+    void testUnreachableRedisCountsConfirmLost() {
+        CaptureConfirmRetryQueue queue = new CaptureConfirmRetryQueue(template("localhost", 1), ppsProperties, clock, meterRegistry);
+        queue.failed(message("ROOM-1"), UNAVAILABLE).block();
+        assertEquals(1.0, meterRegistry.get("pps.capture.confirm.lost").counter().count());
+    }
+}
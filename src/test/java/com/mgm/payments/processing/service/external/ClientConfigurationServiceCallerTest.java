@@ -0,0 +1,83 @@
+package com.mgm.payments.processing.service.external;
+
+import brave.Tracer;
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.exception.PaymentProcessingException;
+import com.mgm.payments.processing.service.model.HeadersDTO;
+import com.mgm.payments.processing.service.model.payload.clientconfig.ClientConfigPayload;
+import com.mgm.payments.processing.service.model.payload.pps.exception.PaymentExceptionResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Clock;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ClientConfigurationServiceCallerTest {
+
+    private ClientConfigurationServiceCaller clientConfigCaller;
+    private Clock clock;
+    private HeadersDTO headersDTO;
+    private final ClientConfigPayload clientConfig = ClientConfigPayload.builder().clientId("MGM|ROOM|SALE|001").build();
+
+    @BeforeEach
+    void init() {
+        clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        PPSProperties ppsProperties = new PPSProperties();
+        clientConfigCaller = spy(new ClientConfigurationServiceCaller(ppsProperties, mock(WebClient.class),
+                mock(ServiceTokenManager.class), mock(Tracer.class), clock));
+        headersDTO = new HeadersDTO("web", "1234", "12345", "123456", "WEB", "jwtToken", "MGM|ROOM|SALE|001", "userAgent");
+    }
+
+    @Test
+    void testGetClientConfigServedFromCache() {
+        doReturn(Mono.just(clientConfig)).when(clientConfigCaller).fetchClientConfig(any());
+        assertEquals(clientConfig, clientConfigCaller.getClientConfig(headersDTO).block());
+        when(clock.millis()).thenReturn(10_000L);
+        assertEquals(clientConfig, clientConfigCaller.getClientConfig(headersDTO).block());
+        verify(clientConfigCaller, times(1)).fetchClientConfig(any());
+    }
+
+    @Test
+    void testConcurrentMissesShareOneCall() {
+        Sinks.One<ClientConfigPayload> upstream = Sinks.one();
+        doReturn(upstream.asMono()).when(clientConfigCaller).fetchClientConfig(any());
+        Mono<ClientConfigPayload> first = clientConfigCaller.getClientConfig(headersDTO);
+        Mono<ClientConfigPayload> second = clientConfigCaller.getClientConfig(headersDTO);
+        first.subscribe();
+        second.subscribe();
+        upstream.tryEmitValue(clientConfig);
+        assertEquals(clientConfig, first.block());
+        assertEquals(clientConfig, second.block());
+        verify(clientConfigCaller, times(1)).fetchClientConfig(any());
+    }
+
+    @Test
+    void testRefreshAheadReloadsInBackground() {
+        doReturn(Mono.just(clientConfig)).when(clientConfigCaller).fetchClientConfig(any());
+        clientConfigCaller.getClientConfig(headersDTO).block();
+        when(clock.millis()).thenReturn(250_000L);
+        assertEquals(clientConfig, clientConfigCaller.getClientConfig(headersDTO).block());
+        verify(clientConfigCaller, times(2)).fetchClientConfig(any());
+    }
+
+    @Test
+    void testStaleEntryServedWhenUpstreamFails() {
+        doReturn(Mono.just(clientConfig)).when(clientConfigCaller).fetchClientConfig(any());
+        clientConfigCaller.getClientConfig(headersDTO).block();
+        doReturn(Mono.error(new PaymentProcessingException(PaymentExceptionResponse.builder().build(),
+                HttpStatus.SERVICE_UNAVAILABLE))).when(clientConfigCaller).fetchClientConfig(any());
+        when(clock.millis()).thenReturn(400_000L);
+        assertEquals(clientConfig, clientConfigCaller.getClientConfig(headersDTO).block());
+        when(clock.millis()).thenReturn(3_000_000L);
+        Mono<ClientConfigPayload> expired = clientConfigCaller.getClientConfig(headersDTO);
+        assertThrows(PaymentProcessingException.class, expired::block);
+    }
+}
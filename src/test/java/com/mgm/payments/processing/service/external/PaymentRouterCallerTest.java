@@ -46,7 +46,7 @@ class PaymentRouterCallerTest {
     PPSProperties ppsProperties;
 
     @Mock
-    ServiceTokenCaller tokenCaller;
+    ServiceTokenManager serviceTokenManager;
 
     @Mock
     private Tracer tracer;
@@ -73,7 +73,7 @@ class PaymentRouterCallerTest {
         String accessToken = "your_access_token";
         ServiceToken serviceToken = ServiceToken.builder().access_token(accessToken).build();
         WebClient.RequestBodyUriSpec requestBodyUriSpecMock = mock( WebClient.RequestBodyUriSpec.class);
-        when(tokenCaller.getServiceAccessToken(headersDTO)).thenReturn(serviceToken);
+        when(serviceTokenManager.getServiceToken(headersDTO)).thenReturn(Mono.just(serviceToken));
         when(webClient.post())
                 .thenReturn(requestBodyUriSpecMock);
         WebClient.RequestBodySpec requestBodySpecMock = mock( WebClient.RequestBodySpec.class);
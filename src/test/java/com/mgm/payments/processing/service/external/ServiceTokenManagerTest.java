@@ -0,0 +1,68 @@
+package com.mgm.payments.processing.service.external;
+
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.model.HeadersDTO;
+import com.mgm.payments.processing.service.model.ServiceToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Clock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ServiceTokenManagerTest {
+
+    private ServiceTokenManager serviceTokenManager;
+    private ServiceTokenCaller serviceTokenCaller;
+    private Clock clock;
+    private HeadersDTO headersDTO;
+
+    @BeforeEach
+    void init() {
+        serviceTokenCaller = mock(ServiceTokenCaller.class);
+        clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        serviceTokenManager = new ServiceTokenManager(serviceTokenCaller, new PPSProperties(), clock);
+        headersDTO = new HeadersDTO("web", "1234", "12345", "123456", "WEB", "jwtToken", "clientId", "userAgent");
+    }
+
+    @Test
+    void testTokenServedFromCacheUntilRefreshPoint() {
+        ServiceToken serviceToken = ServiceToken.builder().access_token("token-1").expires_in(100).build();
+        when(serviceTokenCaller.requestServiceToken(any())).thenReturn(Mono.just(serviceToken));
+        assertEquals("token-1", serviceTokenManager.getServiceToken(headersDTO).block().getAccess_token());
+        when(clock.millis()).thenReturn(79_000L);
+        assertEquals("token-1", serviceTokenManager.getServiceToken(headersDTO).block().getAccess_token());
+        verify(serviceTokenCaller, times(1)).requestServiceToken(any());
+    }
+
+    @Test
+    void testTokenRefreshedAheadOfExpiry() {
+        when(serviceTokenCaller.requestServiceToken(any()))
+                .thenReturn(Mono.just(ServiceToken.builder().access_token("token-1").expires_in(100).build()))
+                .thenReturn(Mono.just(ServiceToken.builder().access_token("token-2").expires_in(100).build()));
+        serviceTokenManager.getServiceToken(headersDTO).block();
+        when(clock.millis()).thenReturn(81_000L);
+        assertEquals("token-1", serviceTokenManager.getServiceToken(headersDTO).block().getAccess_token());
+        assertEquals("token-2", serviceTokenManager.getServiceToken(headersDTO).block().getAccess_token());
+        verify(serviceTokenCaller, times(2)).requestServiceToken(any());
+    }
+
+    @Test
+    void testConcurrentCallersShareOneRefresh() {
+        Sinks.One<ServiceToken> identityProvider = Sinks.one();
+        when(serviceTokenCaller.requestServiceToken(any())).thenReturn(identityProvider.asMono());
+        Mono<ServiceToken> first = serviceTokenManager.getServiceToken(headersDTO);
+        Mono<ServiceToken> second = serviceTokenManager.getServiceToken(headersDTO);
+        first.subscribe();
+        second.subscribe();
+        identityProvider.tryEmitValue(ServiceToken.builder().access_token("token-1").expires_in(100).build());
+        assertEquals("token-1", first.block().getAccess_token());
+        assertEquals("token-1", second.block().getAccess_token());
+        verify(serviceTokenCaller, times(1)).requestServiceToken(any());
+    }
+}
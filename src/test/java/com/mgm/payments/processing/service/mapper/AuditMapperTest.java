@@ -1,5 +1,6 @@
 package com.mgm.payments.processing.service.mapper;
 
+import com.mgm.payments.processing.service.config.PPSProperties;
 import com.mgm.payments.processing.service.constants.AuditTrailConstants;
 import com.mgm.payments.processing.service.constants.PaymentProcessingConstants;
 import com.mgm.payments.processing.service.model.AuditData;
@@ -9,6 +10,7 @@ import com.mgm.payments.processing.service.model.payload.pps.PaymentRequest;
 import com.mgm.payments.processing.service.model.payload.pps.PaymentResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -19,6 +21,7 @@ import java.time.Clock;
 import java.time.LocalDateTime;
 
 import static com.mgm.payments.processing.service.constants.PaymentProcessingConstants.SUCCESS_RESPONSE_STATUS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
@@ -34,6 +37,9 @@ class AuditMapperTest {
     @Mock
     private Clock clock ;
 
+    @Mock
+    private PPSProperties ppsProperties;
+
     private HeadersDTO headersDTO;
 
     @BeforeEach
@@ -96,5 +102,31 @@ class AuditMapperTest {
                 "mgmId", "executionId",
                 null, auditData));
     }
-   
+
+    @Test
+    void testAuditStagesPublishedOnceAsEnvelope() {
+        when(clock.instant()).thenReturn(Clock.systemDefaultZone().instant());
+        when(clock.getZone()).thenReturn(Clock.systemDefaultZone().getZone());
+        when(ppsProperties.isAuditEnvelopeEnabled()).thenReturn(true);
+        AuditData requestStage = AuditData.builder().eventName("PPS_CAPTURE").build();
+        AuditData routerStage = AuditData.builder().eventName("PPS_TO_PR").build();
+        auditMapper.createAndPublishAuditTrailForRequestResponse("clientReferenceNumber", null, "sessionId",
+                "mgmId", "executionId", headersDTO, requestStage);
+        auditMapper.createAndPublishAuditTrailForRequestResponse("clientReferenceNumber", "gatewayRRN", "sessionId",
+                "mgmId", "executionId", headersDTO, routerStage);
+        verify(publisher, never()).publishEvent(Mockito.any(CustomAuditEvent.class));
+
+        auditMapper.publishAuditEnvelope(headersDTO);
+        auditMapper.publishAuditEnvelope(headersDTO);
+        ArgumentCaptor<CustomAuditEvent> eventCaptor = ArgumentCaptor.forClass(CustomAuditEvent.class);
+        verify(publisher, times(1)).publishEvent(eventCaptor.capture());
+        assertEquals("gatewayRRN", eventCaptor.getValue().getAuditRequest().getGatewayChainId());
+        assertEquals(routerStage, eventCaptor.getValue().getAuditRequest().getAuditData());
+        assertEquals(2, eventCaptor.getValue().getAuditRequest().getAuditStages().size());
+
+        auditMapper.createAndPublishAuditTrailForRequestResponse("clientReferenceNumber", null, "",
+                "mgmId", "", headersDTO, AuditData.builder().eventName("CAPTURE_CONFIRM").build());
+        verify(publisher, times(2)).publishEvent(Mockito.any(CustomAuditEvent.class));
+    }
+
 }
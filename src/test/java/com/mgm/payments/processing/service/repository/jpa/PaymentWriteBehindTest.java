@@ -0,0 +1,175 @@
+package com.mgm.payments.processing.service.repository.jpa;
+
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.entity.jpa.PaymentEntity;
+import com.mgm.payments.processing.service.enums.TransactionStatus;
+import com.mgm.payments.processing.service.enums.TransactionType;
+import com.mgm.payments.processing.service.model.HeadersDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.persistence.TypedQuery;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PaymentWriteBehindTest {
+
+    private final PaymentProcessingRepositoryWrapper repository = mock(PaymentProcessingRepositoryWrapper.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+    @SuppressWarnings("unchecked")
+    private final TypedQuery<String> existingQuery = mock(TypedQuery.class);
+    private final Clock clock = mock(Clock.class);
+    private final HeadersDTO headersDTO = new HeadersDTO();
+    private PPSProperties ppsProperties;
+    private SimpleMeterRegistry meterRegistry;
+    private PaymentWriteBehind writeBehind;
+
+    @TempDir
+    Path journalDir;
+
+    @BeforeEach
+    void init() {
+        ppsProperties = new PPSProperties();
+        ppsProperties.setPaymentWriteBehindEnabled(true);
+        ppsProperties.setPaymentWriteBehindJournalDir(journalDir.toString());
+        ppsProperties.setPaymentWriteBehindSegmentBytes(64 * 1024);
+        // the flusher thread stays asleep, the tests flush themselves
+        ppsProperties.setPaymentWriteBehindFlushIntervalMillis(60000);
+        when(clock.millis()).thenReturn(1_000L);
+        when(entityManager.createQuery(anyString(), eq(String.class))).thenReturn(existingQuery);
+        when(existingQuery.setParameter(anyString(), any())).thenReturn(existingQuery);
+        when(existingQuery.getResultList()).thenReturn(Collections.emptyList());
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        if (writeBehind != null) {
+            writeBehind.stop();
+        }
+    }
+
+    private PaymentWriteBehind start() throws IOException {
+        meterRegistry = new SimpleMeterRegistry();
+        writeBehind = new PaymentWriteBehind(ppsProperties, repository, entityManager, mock(PlatformTransactionManager.class),
+                clock, meterRegistry);
+        writeBehind.start();
+        return writeBehind;
+    }
+
+    private static PaymentEntity payment(String paymentId) {
+        return PaymentEntity.builder().paymentId(paymentId).clientReferenceNumber("ROOM-12345")
+                .transactionType(TransactionType.AUTHORIZE).transactionStatus(TransactionStatus.SUCCESS)
+                .amount(new BigDecimal("125.50")).authorizedAmount(new BigDecimal("125.50")).build();
+    }
+
+    private double lagSeconds() {
+        return meterRegistry.get("pps.payment.writebehind.lag.seconds").gauge().value();
+    }
+
+    @Test
+    void testDisabledSavesToDB() throws IOException {
+        ppsProperties.setPaymentWriteBehindEnabled(false);
+        PaymentEntity payment = payment("payment1");
+        start().save(payment, headersDTO);
+        verify(repository).save(payment, headersDTO);
+        assertEquals(0.0, lagSeconds());
+    }
+
+    @Test
+    void testJournaledRecordsFlushedInOneTransaction() throws IOException {
+        PaymentWriteBehind writer = start();
+        writer.save(payment("payment1"), headersDTO);
+        writer.save(payment("payment2"), headersDTO);
+        verifyNoInteractions(repository, entityManager);
+        when(clock.millis()).thenReturn(3_500L);
+        assertEquals(2.5, lagSeconds());
+
+        writer.flush();
+        ArgumentCaptor<PaymentEntity> persisted = ArgumentCaptor.forClass(PaymentEntity.class);
+        verify(entityManager, times(2)).persist(persisted.capture());
+        assertEquals(List.of(payment("payment1"), payment("payment2")), persisted.getAllValues());
+        verify(existingQuery, times(1)).getResultList();
+        assertEquals(2.0, meterRegistry.get("pps.payment.writebehind.flushed").counter().count());
+        assertEquals(1, meterRegistry.get("pps.payment.writebehind.flush.latency").timer().count());
+        assertEquals(0.0, lagSeconds());
+    }
+
+    @Test
+    void testFailedFlushReplayedAfterRestartWithoutDuplicates() throws IOException, InterruptedException {
+        doThrow(new DataAccessResourceFailureException("db down")).when(entityManager).persist(any());
+        PaymentWriteBehind writer = start();
+        writer.save(payment("payment1"), headersDTO);
+        writer.flush();
+        assertEquals(1.0, meterRegistry.get("pps.payment.writebehind.flush.failed").counter().count());
+        writer.stop();
+
+        // the first attempt reached the DB before failing, the replay updates the row instead of inserting it again
+        reset(entityManager);
+        when(entityManager.createQuery(anyString(), eq(String.class))).thenReturn(existingQuery);
+        when(existingQuery.getResultList()).thenReturn(List.of("payment1"));
+        start().flush();
+        verify(entityManager).merge(payment("payment1"));
+        verify(entityManager, never()).persist(any());
+        assertEquals(1.0, meterRegistry.get("pps.payment.writebehind.flushed").counter().count());
+        assertFalse(Files.exists(journalDir.resolve("payment.dead")));
+    }
+
+    @Test
+    void testRefusedRecordDeadLetteredAndRestFlushed() throws IOException {
+        doThrow(new PersistenceException("String or binary data would be truncated")).when(entityManager).persist(payment("payment2"));
+        PaymentWriteBehind writer = start();
+        writer.save(payment("payment1"), headersDTO);
+        writer.save(payment("payment2"), headersDTO);
+        writer.save(payment("payment3"), headersDTO);
+
+        writer.flush();
+        // the batch stops at payment2, then every record is written in its own transaction
+        verify(entityManager, times(2)).persist(payment("payment1"));
+        verify(entityManager, times(2)).persist(payment("payment2"));
+        verify(entityManager, times(1)).persist(payment("payment3"));
+        assertEquals(1.0, meterRegistry.get("pps.payment.writebehind.flush.failed").counter().count());
+        assertEquals(1.0, meterRegistry.get("pps.payment.writebehind.dead.lettered").counter().count());
+        assertEquals(2.0, meterRegistry.get("pps.payment.writebehind.flushed").counter().count());
+        assertEquals(0.0, lagSeconds());
+        List<String> deadLetters = Files.readAllLines(journalDir.resolve("payment.dead"));
+        assertEquals(1, deadLetters.size());
+        assertTrue(deadLetters.get(0).contains("String or binary data would be truncated"));
+        assertTrue(deadLetters.get(0).contains("\"paymentId\":\"payment2\""));
+    }
+
+    @Test
+    void testUnreachableDBLeavesRecordsInJournal() throws IOException {
+        doThrow(new PersistenceException(new SQLException("connection reset", "08S01"))).when(entityManager).persist(any());
+        PaymentWriteBehind writer = start();
+        writer.save(payment("payment1"), headersDTO);
+        writer.save(payment("payment2"), headersDTO);
+
+        writer.flush();
+        // the one-by-one pass stops at the first record instead of dead-lettering the whole journal
+        verify(entityManager, times(2)).persist(payment("payment1"));
+        verify(entityManager, times(0)).persist(payment("payment2"));
+        assertEquals(0.0, meterRegistry.get("pps.payment.writebehind.dead.lettered").counter().count());
+        when(clock.millis()).thenReturn(2_000L);
+        assertEquals(1.0, lagSeconds());
+    }
+}
@@ -0,0 +1,174 @@
+package com.mgm.payments.processing.service.repository.redis;
+
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.util.SnowFlakeSequenceGenerator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs against the Redis on {@code pps.test.redis.host}:{@code pps.test.redis.port}, localhost:6379 by default, for
+ * example {@code docker run -p 6379:6379 redis}; the tests that need it are skipped when it is not reachable.
+ */
+class NodeIdLeaseTest {
+
+    private final PPSProperties ppsProperties = new PPSProperties();
+    private final List<NodeIdLease> leases = new ArrayList<>();
+    private final List<LettuceConnectionFactory> connectionFactories = new ArrayList<>();
+    private ReactiveStringRedisTemplate localRedis;
+
+    @BeforeEach
+    void init() {
+        ppsProperties.setNodeIdLeaseEnabled(true);
+        ppsProperties.setNodeIdLeaseCount(2);
+        ppsProperties.setIdBlockSize(10);
+        // the tests drive the heartbeat themselves
+        ppsProperties.setNodeIdLeaseHeartbeatMillis(60000);
+        ppsProperties.setNodeIdLeaseTtlSeconds(300);
+        ppsProperties.setNodeIdLeaseTimeoutMillis(1000);
+        localRedis = template(System.getProperty("pps.test.redis.host", "localhost"),
+                Integer.getInteger("pps.test.redis.port", 6379));
+    }
+
+    @AfterEach
+    void cleanUp() throws InterruptedException {
+        for (NodeIdLease lease : leases) {
+            lease.stop();
+        }
+        if (isReachable(localRedis)) {
+            localRedis.delete(NodeIdLease.NODE_KEY_PREFIX + 0, NodeIdLease.NODE_KEY_PREFIX + 1, NodeIdLease.ID_BLOCK_KEY)
+                    .block(Duration.ofSeconds(1));
+        }
+        connectionFactories.forEach(LettuceConnectionFactory::destroy);
+    }
+
+    private ReactiveStringRedisTemplate template(String host, int port) {
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactories.add(connectionFactory);
+        return new ReactiveStringRedisTemplate(connectionFactory);
+    }
+
+    private static boolean isReachable(ReactiveStringRedisTemplate template) {
+        try {
+            template.hasKey(NodeIdLease.ID_BLOCK_KEY).block(Duration.ofSeconds(1));
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void requireLocalRedis() {
+        assumeTrue(isReachable(localRedis), "no Redis on the local test address");
+        localRedis.delete(NodeIdLease.NODE_KEY_PREFIX + 0, NodeIdLease.NODE_KEY_PREFIX + 1, NodeIdLease.ID_BLOCK_KEY)
+                .block(Duration.ofSeconds(1));
+    }
+
+    private NodeIdLease start(ReactiveStringRedisTemplate template, SnowFlakeSequenceGenerator generator) {
+        return start(template, generator, new SimpleMeterRegistry());
+    }
+
+    private NodeIdLease start(ReactiveStringRedisTemplate template, SnowFlakeSequenceGenerator generator, MeterRegistry meterRegistry) {
+        NodeIdLease lease = new NodeIdLease(template, generator, ppsProperties, Clock.systemUTC(), meterRegistry);
+        lease.start();
+        leases.add(lease);
+        return lease;
+    }
+
+    @Test
+    void testInstancesLeaseDistinctNodeIds() {
+        requireLocalRedis();
+        NodeIdLease first = start(localRedis, new SnowFlakeSequenceGenerator(7));
+        NodeIdLease second = start(localRedis, new SnowFlakeSequenceGenerator(7));
+        assertEquals(NodeIdLease.Mode.NODE, first.getMode());
+        assertEquals(NodeIdLease.Mode.NODE, second.getMode());
+        assertNotEquals(first.getLeasedNodeId(), second.getLeasedNodeId());
+    }
+
+    @Test
+    void testIdBlocksWhenNoNodeIdIsFree() {
+        requireLocalRedis();
+        start(localRedis, new SnowFlakeSequenceGenerator(7));
+        start(localRedis, new SnowFlakeSequenceGenerator(7));
+        SnowFlakeSequenceGenerator thirdGenerator = new SnowFlakeSequenceGenerator(7);
+        SnowFlakeSequenceGenerator fourthGenerator = new SnowFlakeSequenceGenerator(7);
+        NodeIdLease third = start(localRedis, thirdGenerator);
+        NodeIdLease fourth = start(localRedis, fourthGenerator);
+        assertEquals(NodeIdLease.Mode.ID_BLOCKS, third.getMode());
+        assertEquals(NodeIdLease.Mode.ID_BLOCKS, fourth.getMode());
+
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 25; i++) {
+            if (i % 10 == 0) {
+                // the heartbeat keeps a spare block whether or not the refill on taking the last one has landed
+                third.heartbeat();
+                fourth.heartbeat();
+            }
+            long id = thirdGenerator.nextId();
+            assertEquals(NodeIdLease.ID_BLOCK_FLAG, id & NodeIdLease.ID_BLOCK_FLAG);
+            ids.add(id);
+            ids.add(fourthGenerator.nextId());
+        }
+        assertEquals(50, ids.size());
+        assertEquals(0, thirdGenerator.getHashedNodeIdFallbacks());
+    }
+
+    @Test
+    void testReleasedNodeIdLeasedOnNextHeartbeat() throws InterruptedException {
+        requireLocalRedis();
+        ppsProperties.setNodeIdLeaseCount(1);
+        NodeIdLease holder = start(localRedis, new SnowFlakeSequenceGenerator(7));
+        SnowFlakeSequenceGenerator waitingGenerator = new SnowFlakeSequenceGenerator(7);
+        NodeIdLease waiting = start(localRedis, waitingGenerator);
+        assertEquals(NodeIdLease.Mode.ID_BLOCKS, waiting.getMode());
+
+        holder.stop();
+        waiting.heartbeat();
+        assertEquals(NodeIdLease.Mode.NODE, waiting.getMode());
+        assertEquals(0, waitingGenerator.getNodeId());
+        assertEquals(0, waitingGenerator.nextId() & NodeIdLease.ID_BLOCK_FLAG);
+    }
+
+    @Test
+    void testNodeIdTakenOverIsGivenUp() {
+        requireLocalRedis();
+        ppsProperties.setNodeIdLeaseCount(1);
+        SnowFlakeSequenceGenerator generator = new SnowFlakeSequenceGenerator(7);
+        NodeIdLease lease = start(localRedis, generator);
+        assertEquals(NodeIdLease.Mode.NODE, lease.getMode());
+
+        localRedis.opsForValue().set(NodeIdLease.NODE_KEY_PREFIX + 0, "another-instance").block(Duration.ofSeconds(1));
+        lease.heartbeat();
+        assertEquals(NodeIdLease.Mode.ID_BLOCKS, lease.getMode());
+        assertEquals(NodeIdLease.ID_BLOCK_FLAG, generator.nextId() & NodeIdLease.ID_BLOCK_FLAG);
+    }
+
+    @Test
+    void testStartWithRedisDownFallsBackToHashedNodeId() {
+        SnowFlakeSequenceGenerator generator = new SnowFlakeSequenceGenerator(7);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        NodeIdLease lease = start(template("localhost", 1), generator, meterRegistry);
+        assertEquals(NodeIdLease.Mode.UNLEASED, lease.getMode());
+        assertEquals(7, generator.getNodeId());
+
+        long id = generator.nextId();
+        assertEquals(0, id & NodeIdLease.ID_BLOCK_FLAG);
+        assertEquals(7, (id >>> 12) & 1023);
+        assertEquals(1, meterRegistry.get("pps.id.node.fallback").functionCounter().count());
+    }
+}
@@ -0,0 +1,101 @@
+package com.mgm.payments.processing.service.repository.redis;
+
+import com.mgm.payments.processing.service.config.PPSProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RedisCircuitBreakerTest {
+
+    private PPSProperties ppsProperties;
+    private Clock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private RedisCircuitBreaker circuitBreaker;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void init() {
+        ppsProperties = new PPSProperties();
+        ppsProperties.setRedisCircuitFailureThreshold(2);
+        clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new RedisCircuitBreaker(ppsProperties, clock, meterRegistry);
+    }
+
+    private String call(Mono<String> redisCall) {
+        return circuitBreaker.execute("test", Mono.defer(() -> {
+            calls.incrementAndGet();
+            return redisCall;
+        }), e -> Mono.just("fallback")).block();
+    }
+
+    private void open() {
+        call(Mono.error(new IllegalStateException("down")));
+        call(Mono.error(new IllegalStateException("down")));
+    }
+
+    @Test
+    void testOpensAfterConsecutiveFailures() {
+        assertEquals("redis", call(Mono.just("redis")));
+        call(Mono.error(new IllegalStateException("down")));
+        assertEquals(RedisCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals("fallback", call(Mono.error(new IllegalStateException("down"))));
+        assertEquals(RedisCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(1.0, meterRegistry.get("pps.redis.circuit.opened").counter().count());
+        assertEquals(1.0, meterRegistry.get("pps.redis.circuit.state").gauge().value());
+    }
+
+    @Test
+    void testSuccessResetsFailureCount() {
+        call(Mono.error(new IllegalStateException("down")));
+        call(Mono.just("redis"));
+        call(Mono.error(new IllegalStateException("down")));
+        assertEquals(RedisCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void testOpenCircuitSkipsRedis() {
+        open();
+        calls.set(0);
+        assertEquals("fallback", call(Mono.just("redis")));
+        assertEquals(0, calls.get());
+        assertEquals(1.0, meterRegistry.get("pps.redis.calls.rejected").counter().count());
+    }
+
+    @Test
+    void testTimeoutCountsAsFailure() {
+        ppsProperties.setRedisCallTimeoutMillis(10);
+        assertEquals("fallback", call(Mono.never()));
+        assertEquals("fallback", call(Mono.never()));
+        assertEquals(RedisCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(2, meterRegistry.get("pps.redis.calls").tag("outcome", "timeout").timer().count());
+    }
+
+    @Test
+    void testProbeClosesCircuit() {
+        open();
+        when(clock.millis()).thenReturn(ppsProperties.getRedisCircuitOpenMillis());
+        assertEquals("redis", call(Mono.just("redis")));
+        assertEquals(RedisCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void testFailedProbeReopensCircuit() {
+        open();
+        when(clock.millis()).thenReturn(ppsProperties.getRedisCircuitOpenMillis());
+        assertEquals("fallback", call(Mono.error(new IllegalStateException("down"))));
+        assertEquals(RedisCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        calls.set(0);
+        call(Mono.just("redis"));
+        assertEquals(0, calls.get());
+    }
+}
@@ -0,0 +1,68 @@
+package com.mgm.payments.processing.service.repository.redis.payment;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.mgm.payments.processing.service.entity.redis.PaymentRedisEntity;
+import com.mgm.payments.processing.service.enums.TransactionStatus;
+import com.mgm.payments.processing.service.enums.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentStateCodecTest {
+
+    private PaymentRedisEntity authorization() {
+        return PaymentRedisEntity.builder()
+                .id("7023419811520512").transactionType(TransactionType.AUTHORIZE).transactionStatus(TransactionStatus.SUCCESS)
+                .amount(new BigDecimal("125.50")).authorizedAmount(new BigDecimal("125.50"))
+                .mgmToken("4111110A001DKJFG1111").clientReferenceNumber("ROOM-12345").referenceId("7023419811520512")
+                .sessionId("b3c2f3e0-5a8d-4f6b-9d3e-2a1c4b5d6e7f").mgmId("MGM-998877").gatewayChainId("chain-01")
+                .groupId("group-1").gatewayId("FRPT").orderType("Room").cardHolderName("Mike Doe").tenderType("Credit Card")
+                .cardEntryMode("Keyed").last4DigitsOfTheCard("1111").issuerType("Visa").currencyCode("USD")
+                .billingAddress1("3799 S Las Vegas Blvd").billingCity("Las Vegas").billingCountry("US").billingState("NV")
+                .billingZipcode("89109").isRefund(Boolean.FALSE).isCapture(Boolean.FALSE).isVoid(Boolean.FALSE)
+                .build();
+    }
+
+    @Test
+    void testRoundTripKeepsSnapshotFields() {
+        PaymentRedisEntity payment = authorization();
+        PaymentRedisEntity decoded = PaymentStateCodec.decode(PaymentStateCodec.encode(payment));
+        payment.setIsCapture(null);
+        payment.setIsVoid(null);
+        assertEquals(payment, decoded);
+        assertEquals(2, decoded.getAmount().scale());
+    }
+
+    @Test
+    void testSmallerThanOneFieldPerProperty() {
+        PaymentRedisEntity payment = authorization();
+        Map<String, Object> fields = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .convertValue(payment, new TypeReference<Map<String, Object>>() {
+                });
+        int hashBytes = fields.entrySet().stream().mapToInt(field -> field.getKey().getBytes(StandardCharsets.UTF_8).length
+                + String.valueOf(field.getValue()).getBytes(StandardCharsets.UTF_8).length).sum();
+        int snapshotBytes = PaymentStateCodec.encode(payment).getBytes(StandardCharsets.UTF_8).length;
+        assertTrue(snapshotBytes < hashBytes, snapshotBytes + " bytes encoded vs " + hashBytes + " bytes as hash fields");
+    }
+
+    @Test
+    void testUnknownVersionRejected() {
+        byte[] bytes = PaymentStateCodec.toBytes(authorization());
+        bytes[0] = 2;
+        assertThrows(IllegalArgumentException.class, () -> PaymentStateCodec.fromBytes(bytes));
+    }
+
+    @Test
+    void testTruncatedSnapshotRejected() {
+        byte[] bytes = PaymentStateCodec.toBytes(authorization());
+        byte[] truncated = new byte[bytes.length / 2];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        assertThrows(IllegalArgumentException.class, () -> PaymentStateCodec.fromBytes(truncated));
+    }
+}
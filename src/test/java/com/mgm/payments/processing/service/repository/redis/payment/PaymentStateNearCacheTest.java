@@ -0,0 +1,91 @@
+package com.mgm.payments.processing.service.repository.redis.payment;
+
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.entity.redis.PaymentRedisEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PaymentStateNearCacheTest {
+
+    private PPSProperties ppsProperties;
+    private Clock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private PaymentStateNearCache nearCache;
+    private final PaymentRedisEntity payment = PaymentRedisEntity.builder().id("payment1").build();
+
+    @BeforeEach
+    void init() {
+        ppsProperties = new PPSProperties();
+        clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        meterRegistry = new SimpleMeterRegistry();
+        nearCache = new PaymentStateNearCache(ppsProperties, clock, meterRegistry);
+        nearCache.setListening(true);
+    }
+
+    @Test
+    void testCachedUntilExpired() {
+        assertNull(nearCache.get("payment1"));
+        nearCache.put("payment1", payment, nearCache.generation());
+        assertEquals(payment, nearCache.get("payment1"));
+        when(clock.millis()).thenReturn(ppsProperties.getPaymentNearCacheTtlMillis());
+        assertNull(nearCache.get("payment1"));
+        assertEquals(1.0, meterRegistry.get("pps.payment.nearcache.hits").counter().count());
+        assertEquals(2.0, meterRegistry.get("pps.payment.nearcache.misses").counter().count());
+        assertEquals(1.0, meterRegistry.get("pps.payment.nearcache.evictions").counter().count());
+    }
+
+    @Test
+    void testInvalidateDropsEntry() {
+        nearCache.put("payment1", payment, nearCache.generation());
+        nearCache.invalidate("payment1");
+        assertNull(nearCache.get("payment1"));
+    }
+
+    @Test
+    void testReadRacingInvalidationNotCached() {
+        long generation = nearCache.generation();
+        nearCache.invalidate("payment1");
+        nearCache.put("payment1", payment, generation);
+        assertNull(nearCache.get("payment1"));
+    }
+
+    @Test
+    void testEldestEvictedWhenFull() {
+        ppsProperties.setPaymentNearCacheMaxSize(1);
+        nearCache.put("payment1", payment, nearCache.generation());
+        when(clock.millis()).thenReturn(1L);
+        nearCache.put("payment2", payment, nearCache.generation());
+        assertNull(nearCache.get("payment1"));
+        assertEquals(payment, nearCache.get("payment2"));
+        assertEquals(1.0, meterRegistry.get("pps.payment.nearcache.size").gauge().value());
+    }
+
+    @Test
+    void testReloadedEntryEvictedLast() {
+        ppsProperties.setPaymentNearCacheMaxSize(2);
+        PaymentRedisEntity payment2 = PaymentRedisEntity.builder().id("payment2").build();
+        nearCache.put("payment1", payment, nearCache.generation());
+        nearCache.put("payment2", payment2, nearCache.generation());
+        nearCache.put("payment1", payment, nearCache.generation());
+        nearCache.put("payment3", payment, nearCache.generation());
+        assertNull(nearCache.get("payment2"));
+        assertEquals(payment, nearCache.get("payment1"));
+        assertEquals(1.0, meterRegistry.get("pps.payment.nearcache.evictions").counter().count());
+    }
+
+    @Test
+    void testNothingCachedWhileNotListening() {
+        nearCache.put("payment1", payment, nearCache.generation());
+        nearCache.setListening(false);
+        nearCache.put("payment1", payment, nearCache.generation());
+        assertNull(nearCache.get("payment1"));
+    }
+}
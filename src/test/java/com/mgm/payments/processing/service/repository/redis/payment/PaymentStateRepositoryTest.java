@@ -0,0 +1,119 @@
+package com.mgm.payments.processing.service.repository.redis.payment;
+
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.entity.redis.PaymentRedisEntity;
+import com.mgm.payments.processing.service.enums.PaymentLockResult;
+import com.mgm.payments.processing.service.enums.TransactionStatus;
+import com.mgm.payments.processing.service.enums.TransactionType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs against the Redis on {@code pps.test.redis.host}:{@code pps.test.redis.port}, localhost:6379 by default; the
+ * tests are skipped when it is not reachable.
+ */
+class PaymentStateRepositoryTest {
+
+    private static final String PAYMENT_ID = "payment-state-test";
+    private static final BigDecimal AMOUNT = new BigDecimal("100.00");
+
+    private final PPSProperties ppsProperties = new PPSProperties();
+    private LettuceConnectionFactory connectionFactory;
+    private ReactiveStringRedisTemplate localRedis;
+    private PaymentStateNearCache nearCache;
+    private PaymentStateRepository repository;
+
+    @BeforeEach
+    void init() {
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(
+                System.getProperty("pps.test.redis.host", "localhost"), Integer.getInteger("pps.test.redis.port", 6379)));
+        connectionFactory.afterPropertiesSet();
+        localRedis = new ReactiveStringRedisTemplate(connectionFactory);
+        assumeTrue(isReachable(), "no Redis on the local test address");
+        deleteState();
+        nearCache = new PaymentStateNearCache(ppsProperties, Clock.systemUTC(), new SimpleMeterRegistry());
+        repository = new PaymentStateRepository(localRedis, nearCache, ppsProperties);
+        repository.save(PaymentRedisEntity.builder().id(PAYMENT_ID).transactionStatus(TransactionStatus.SUCCESS)
+                .authorizedAmount(AMOUNT).isCapture(Boolean.FALSE).isVoid(Boolean.FALSE).build(), 60).block();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        if (isReachable()) {
+            deleteState();
+        }
+        connectionFactory.destroy();
+    }
+
+    private boolean isReachable() {
+        try {
+            localRedis.hasKey(PaymentStateRepository.KEY_PREFIX + PAYMENT_ID).block(Duration.ofSeconds(1));
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void deleteState() {
+        localRedis.delete(PaymentStateRepository.KEY_PREFIX + PAYMENT_ID).block(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void testCaptureLockRefusedWhileInFlight() {
+        assertEquals(PaymentLockResult.LOCKED, repository.tryLock(PAYMENT_ID, TransactionType.CAPTURE, AMOUNT).block());
+        assertEquals(PaymentLockResult.DUPLICATE, repository.tryLock(PAYMENT_ID, TransactionType.CAPTURE, AMOUNT).block());
+        assertEquals(PaymentLockResult.CONFLICT, repository.tryLock(PAYMENT_ID, TransactionType.VOID, null).block());
+    }
+
+    @Test
+    void testCaptureLockRefusedOnceCaptured() {
+        assertEquals(PaymentLockResult.LOCKED, repository.tryLock(PAYMENT_ID, TransactionType.CAPTURE, AMOUNT).block());
+        repository.complete(PAYMENT_ID, TransactionType.CAPTURE, true).block();
+
+        assertEquals(PaymentLockResult.DUPLICATE, repository.tryLock(PAYMENT_ID, TransactionType.CAPTURE, AMOUNT).block());
+        assertEquals(PaymentLockResult.CONFLICT, repository.tryLock(PAYMENT_ID, TransactionType.VOID, null).block());
+        PaymentRedisEntity payment = repository.findById(PAYMENT_ID).block();
+        assertTrue(payment.getIsCapture());
+        assertNull(payment.getCaptureStatus());
+    }
+
+    @Test
+    void testVoidLockRefusedOnceVoided() {
+        assertEquals(PaymentLockResult.LOCKED, repository.tryLock(PAYMENT_ID, TransactionType.VOID, null).block());
+        repository.complete(PAYMENT_ID, TransactionType.VOID, true).block();
+
+        assertEquals(PaymentLockResult.DUPLICATE, repository.tryLock(PAYMENT_ID, TransactionType.VOID, null).block());
+        assertEquals(PaymentLockResult.CONFLICT, repository.tryLock(PAYMENT_ID, TransactionType.CAPTURE, AMOUNT).block());
+    }
+
+    @Test
+    void testLockTakenAgainAfterFailure() {
+        assertEquals(PaymentLockResult.LOCKED, repository.tryLock(PAYMENT_ID, TransactionType.CAPTURE, AMOUNT).block());
+        repository.complete(PAYMENT_ID, TransactionType.CAPTURE, false).block();
+
+        assertEquals(PaymentLockResult.LOCKED, repository.tryLock(PAYMENT_ID, TransactionType.CAPTURE, AMOUNT).block());
+    }
+
+    @Test
+    void testStaleNearCacheCopyDoesNotLetCaptureThrough() {
+        nearCache.setListening(true);
+        assertFalse(repository.findById(PAYMENT_ID).block().getIsCapture());
+        // another pod captured the payment and its invalidation never arrived
+        localRedis.opsForHash().put(PaymentStateRepository.KEY_PREFIX + PAYMENT_ID, "isCapture", "true").block();
+
+        assertFalse(repository.findById(PAYMENT_ID).block().getIsCapture());
+        assertEquals(PaymentLockResult.DUPLICATE, repository.tryLock(PAYMENT_ID, TransactionType.CAPTURE, AMOUNT).block());
+    }
+}
@@ -0,0 +1,69 @@
+package com.mgm.payments.processing.service.repository.redis.payment;
+
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.entity.redis.PaymentRedisEntity;
+import com.mgm.payments.processing.service.model.HotelData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PaymentStateTtlPolicyTest {
+
+    private PPSProperties ppsProperties;
+    private PaymentStateTtlPolicy ttlPolicy;
+    private final PaymentRedisEntity payment = PaymentRedisEntity.builder().id("payment1").orderType("Room").build();
+
+    @BeforeEach
+    void init() {
+        ppsProperties = new PPSProperties();
+        Clock clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(Instant.parse("2024-06-26T12:00:00Z"));
+        ttlPolicy = new PaymentStateTtlPolicy(ppsProperties, clock);
+    }
+
+    private HotelData hotelData(String checkInDate, String checkOutDate, String expectedDuration) {
+        HotelData hotelData = new HotelData();
+        hotelData.setCheckInDate(checkInDate);
+        hotelData.setCheckOutDate(checkOutDate);
+        hotelData.setExpectedDuration(expectedDuration);
+        return hotelData;
+    }
+
+    @Test
+    void testOrderTypeOverridesDefault() {
+        assertEquals(1800, ttlPolicy.ttlSeconds(payment, null));
+        ppsProperties.getPaymentStateTtlSecondsByOrderType().put("ROOM", 3600L);
+        assertEquals(3600, ttlPolicy.ttlSeconds(payment, null));
+    }
+
+    @Test
+    void testAdaptiveDisabledIgnoresCheckOut() {
+        assertEquals(1800, ttlPolicy.ttlSeconds(payment, hotelData("2024-06-26", "2024-06-27", null)));
+    }
+
+    @Test
+    void testAdaptiveKeepsUntilCheckOutPlusGrace() {
+        ppsProperties.setPaymentStateAdaptiveTtlEnabled(Boolean.TRUE);
+        assertEquals(36 * 3600, ttlPolicy.ttlSeconds(payment, hotelData("2024-06-26", "2024-06-27", null)));
+    }
+
+    @Test
+    void testAdaptiveDerivesCheckOutFromDuration() {
+        ppsProperties.setPaymentStateAdaptiveTtlEnabled(Boolean.TRUE);
+        assertEquals(60 * 3600, ttlPolicy.ttlSeconds(payment, hotelData("2024-06-26", null, "2")));
+    }
+
+    @Test
+    void testAdaptiveCappedAndNeverShorterThanBase() {
+        ppsProperties.setPaymentStateAdaptiveTtlEnabled(Boolean.TRUE);
+        assertEquals(ppsProperties.getPaymentStateMaxTtlSeconds(), ttlPolicy.ttlSeconds(payment, hotelData("2024-06-26", "2024-12-31", null)));
+        assertEquals(1800, ttlPolicy.ttlSeconds(payment, hotelData("2024-06-01", "2024-06-02", null)));
+        assertEquals(1800, ttlPolicy.ttlSeconds(payment, hotelData("not-a-date", null, "2")));
+    }
+}
@@ -15,6 +15,7 @@ import com.mgm.payments.processing.service.model.payload.pps.PaymentResponse;
 import com.mgm.payments.processing.service.model.payload.pps.exception.PaymentExceptionResponse;
 import com.mgm.payments.processing.service.model.payload.router.*;
 import com.mgm.payments.processing.service.repository.jpa.PaymentProcessingRepositoryWrapper;
+import com.mgm.payments.processing.service.repository.jpa.PaymentWriteBehind;
 import com.mgm.payments.processing.service.repository.redis.auth.AuthorizeRedisPaymentRepositoryWrapper;
 import com.mgm.payments.processing.service.repository.redis.payment.RedisPaymentRepositoryWrapper;
 import com.mgm.payments.processing.service.util.SnowFlakeSequenceGenerator;
@@ -46,6 +47,8 @@ class AuthorizePaymentProcessorTest {
 
     @Mock
     PaymentProcessingRepositoryWrapper repository;
+    @Mock
+    PaymentWriteBehind paymentWriteBehind;
 
     @Mock
     AuthorizeRedisPaymentRepositoryWrapper authorizeRedisPaymentRepositoryWrapper;
@@ -74,11 +77,14 @@ class AuthorizePaymentProcessorTest {
     void init() {
         user = new User("00uutm8em5h0EU2eV1t7", null, null, "Mike", "Mike Doe", "mgm_app_web", "email", "mLifeNumber", "jwtToken", "service_id");
         headersDTO = new HeadersDTO("web", "1234", "12345", "123456", "WEB", "jwtToken", "clientId","userAgent");
+        Mockito.when(authorizeRedisPaymentRepositoryWrapper.deleteById(any(), any())).thenReturn(Mono.empty());
+        Mockito.when(redisPaymentRepositoryWrapper.save(any(), any(), any())).thenReturn(Mono.empty());
     }
 
     @Test
     void testProcess() throws IOException {
         PaymentRequest paymentRequest = mockRequestCreator.createMockAuthorizeRequest();
+        Mockito.when(authorizeRedisPaymentRepositoryWrapper.tryLock(any(), any())).thenReturn(Mono.just(true));
         List<PaymentEntity> entityList = new ArrayList<>();
         PaymentEntity authEntity = new PaymentEntity();
         authEntity.setTransactionStatus(TransactionStatus.SUCCESS);
@@ -112,6 +118,7 @@ class AuthorizePaymentProcessorTest {
     @Test
     void testProcessThrowsException() throws IOException {
         PaymentRequest paymentRequest = mockRequestCreator.createMockAuthorizeRequest();
+        Mockito.when(authorizeRedisPaymentRepositoryWrapper.tryLock(any(), any())).thenReturn(Mono.just(true));
         List entityList = null;
         PaymentEntity authEntity = new PaymentEntity();
         Mockito.doNothing().when(authorizePaymentProcessor).
@@ -120,7 +127,7 @@ class AuthorizePaymentProcessorTest {
         Mockito.doThrow(new RuntimeException()).when(authorizePaymentProcessor)
             .invokePaymentRouter(authEntity, paymentRequest, headersDTO);
         Assertions.assertThrows(RuntimeException.class, () ->
-                authorizePaymentProcessor.process(paymentRequest, user, headersDTO));
+                authorizePaymentProcessor.process(paymentRequest, user, headersDTO).block());
         Mockito.verify(authorizePaymentProcessor).validateInputRequest(paymentRequest, entityList, headersDTO);
         Mockito.verify(authorizePaymentProcessor).
                 populatePaymentEntity(headersDTO, paymentRequest, entityList, authEntity, user);
@@ -129,6 +136,17 @@ class AuthorizePaymentProcessorTest {
         Mockito.verify(authorizePaymentProcessor, Mockito.times(0)).mapPaymentRouterResponseToPaymentResponse(any(), any(), any(), any(), any());
         Mockito.verify(authorizePaymentProcessor).updateDBOnFailure(any(), any(), any());
     }
+    @Test
+    void testProcessThrowsDuplicateWhenLockHeld() throws IOException {
+        PaymentRequest paymentRequest = mockRequestCreator.createMockAuthorizeRequest();
+        Mockito.when(authorizeRedisPaymentRepositoryWrapper.tryLock(any(), any())).thenReturn(Mono.just(false));
+        PaymentProcessingException e = Assertions.assertThrows(PaymentProcessingException.class, () ->
+                authorizePaymentProcessor.process(paymentRequest, user, headersDTO).block());
+        assertEquals(ApiErrorCode.DUPLICATE_AUTH_REQUEST_CODE.getCode(), e.getExceptionResponse().getErrorCode());
+        Mockito.verify(authorizePaymentProcessor, Mockito.times(0)).populatePaymentEntity(any(), any(), any(), any(), any());
+        Mockito.verify(authorizeRedisPaymentRepositoryWrapper, Mockito.times(0)).deleteById(any(), any());
+    }
+
     @Test
     void testValidateInputRequestThrowsValidationException() throws IOException {
         PaymentRequest paymentRequest = mockRequestCreator.createMockAuthorizeRequest();
@@ -178,6 +196,7 @@ class AuthorizePaymentProcessorTest {
     @Test
     void testValidateInputRequestThrowsPaymentException() throws IOException {
         PaymentRequest paymentRequest = mockRequestCreator.createMockAuthorizeRequest();
+        Mockito.when(authorizeRedisPaymentRepositoryWrapper.tryLock(any(), any())).thenReturn(Mono.just(true));
         List entityList = new ArrayList<>();
         Mockito.when(repository.findByClientReferenceNumber(paymentRequest.getClientReferenceNumber(), headersDTO)).
                 thenReturn(entityList);
@@ -188,7 +207,7 @@ class AuthorizePaymentProcessorTest {
                 .errorMessage(ApiErrorCode.PAYMENT_ROUTER_EXCEPTION.getDescription()).build(), HttpStatus.BAD_REQUEST)).when(authorizePaymentProcessor)
                 .invokePaymentRouter(authEntity, paymentRequest, headersDTO);
         Assertions.assertThrows(PaymentProcessingException.class, () ->
-                authorizePaymentProcessor.process(paymentRequest, user, headersDTO));
+                authorizePaymentProcessor.process(paymentRequest, user, headersDTO).block());
     }
 
     @Test
@@ -317,7 +336,7 @@ class AuthorizePaymentProcessorTest {
         payment.setGroupId("groupId-1");
         PaymentRouterResponse prResponse = mockRequestCreator.createMockRouterResponse();
         authorizePaymentProcessor.updateRouterResponseInTheDBRecord(payment,prResponse, user, headersDTO, Collections.singletonList(payment));
-        verify(repository).save(payment, headersDTO);
+        verify(paymentWriteBehind).save(payment, headersDTO);
         RouterGatewayResult gatewayResult = prResponse.getResults().stream().findFirst().get().getGatewayResult();
         assertEquals(gatewayResult.getTransaction().getGatewayChainId(),payment.getGatewayChainId());
         assertEquals(gatewayResult.getCard().getGatewayId(),payment.getGatewayId());
@@ -342,7 +361,7 @@ class AuthorizePaymentProcessorTest {
         RouterGatewayResult gatewayResult = prResponse.getResults().stream().findFirst().get().getGatewayResult();
         gatewayResult.getTransaction().setResponseCode(RouterResponseCode.F.toString());
         authorizePaymentProcessor.updateRouterResponseInTheDBRecord(payment,prResponse, user, headersDTO, Collections.singletonList(payment));
-        verify(repository).save(payment, headersDTO);
+        verify(paymentWriteBehind).save(payment, headersDTO);
 
         assertEquals(gatewayResult.getTransaction().getGatewayChainId(),payment.getGatewayChainId());
         assertEquals(gatewayResult.getCard().getGatewayId(),payment.getGatewayId());
@@ -367,7 +386,7 @@ class AuthorizePaymentProcessorTest {
         RouterGatewayResult gatewayResult = prResponse.getResults().stream().findFirst().get().getGatewayResult();
         gatewayResult.getTransaction().setResponseCode(RouterResponseCode.F.toString());
 
-        Mockito.doThrow(new RuntimeException()).when(repository)
+        Mockito.doThrow(new RuntimeException()).when(paymentWriteBehind)
                 .save(payment, headersDTO);
         Assertions.assertThrows(RuntimeException.class, () ->
         authorizePaymentProcessor.updateRouterResponseInTheDBRecord(payment,prResponse, user, headersDTO, Collections.singletonList(payment)));
@@ -381,7 +400,7 @@ class AuthorizePaymentProcessorTest {
         RouterGatewayResult gatewayResult = prResponse.getResults().stream().findFirst().get().getGatewayResult();
         gatewayResult.getTransaction().setResponseCode(RouterResponseCode.A.toString());
 
-        Mockito.doThrow(new RuntimeException()).when(repository)
+        Mockito.doThrow(new RuntimeException()).when(paymentWriteBehind)
                 .save(payment, headersDTO);
         Assertions.assertThrows(RuntimeException.class, () ->
                 authorizePaymentProcessor.updateRouterResponseInTheDBRecord(payment,prResponse, user, headersDTO, Collections.singletonList(payment)));
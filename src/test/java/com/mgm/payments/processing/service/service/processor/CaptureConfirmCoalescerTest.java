@@ -0,0 +1,82 @@
+package com.mgm.payments.processing.service.service.processor;
+
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.events.CaptureConfirmMessage;
+import com.mgm.payments.processing.service.model.CaptureConfirm;
+import com.mgm.payments.processing.service.model.HeadersDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaptureConfirmCoalescerTest {
+
+    private final PPSProperties ppsProperties = new PPSProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<List<CaptureConfirmMessage>> flushed = new CopyOnWriteArrayList<>();
+    private CaptureConfirmCoalescer coalescer;
+
+    @BeforeEach
+    void init() {
+        ppsProperties.setCaptureConfirmBatchSize(3);
+        // long enough for the test to offer all its confirmations in the first window
+        ppsProperties.setCaptureConfirmBatchWindowMillis(500);
+        ppsProperties.setCaptureConfirmBatchQueueCapacity(4);
+        coalescer = new CaptureConfirmCoalescer(ppsProperties, flushed::add, meterRegistry);
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        coalescer.stop(5000);
+    }
+
+    private static CaptureConfirmMessage message(String orderReferenceNumber, String clientId) {
+        HeadersDTO headersDTO = new HeadersDTO("web", "journey", "correlation", "transaction", "WEB", "jwt", clientId, "userAgent");
+        return CaptureConfirmMessage.of(CaptureConfirm.builder().orderReferenceNumber(orderReferenceNumber).build(), headersDTO);
+    }
+
+    private List<List<String>> flushedOrderReferenceNumbers() {
+        return flushed.stream().map(batch -> batch.stream().map(message -> message.getCaptureConfirm().getOrderReferenceNumber())
+                .collect(Collectors.toList())).collect(Collectors.toList());
+    }
+
+    @Test
+    void testBatchClosedBySizeThenByWindow() throws InterruptedException {
+        coalescer.start();
+        for (int i = 1; i <= 4; i++) {
+            assertTrue(coalescer.offer(message("ROOM-" + i, "clientId")));
+        }
+        coalescer.stop(5000);
+        assertEquals(List.of(List.of("ROOM-1", "ROOM-2", "ROOM-3"), List.of("ROOM-4")), flushedOrderReferenceNumbers());
+        assertEquals(2, meterRegistry.get("pps.capture.confirm.batch.size").summary().count());
+    }
+
+    @Test
+    void testBatchSplitByCaller() throws InterruptedException {
+        coalescer.start();
+        coalescer.offer(message("ROOM-1", "clientA"));
+        coalescer.offer(message("ROOM-2", "clientB"));
+        coalescer.offer(message("ROOM-3", "clientA"));
+        coalescer.stop(5000);
+        assertEquals(List.of(List.of("ROOM-1", "ROOM-3"), List.of("ROOM-2")), flushedOrderReferenceNumbers());
+    }
+
+    @Test
+    void testOfferRefusedWhenNotRunningOrFull() {
+        assertFalse(coalescer.offer(message("ROOM-1", "clientId")));
+        coalescer.start();
+        ppsProperties.setCaptureConfirmBatchWindowMillis(60000);
+        int accepted = 0;
+        for (int i = 0; i < 10; i++) {
+            accepted += coalescer.offer(message("ROOM-" + i, "clientId")) ? 1 : 0;
+        }
+        // the batcher thread may already hold some of them in its window, never more than a batch
+        assertTrue(accepted >= 4 && accepted <= 4 + 3, "accepted " + accepted);
+    }
+}
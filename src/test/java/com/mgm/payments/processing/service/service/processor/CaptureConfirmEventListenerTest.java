@@ -0,0 +1,169 @@
+package com.mgm.payments.processing.service.service.processor;
+
+import brave.Tracer;
+import com.mgm.payments.processing.service.config.PPSProperties;
+import com.mgm.payments.processing.service.enums.StatusResult;
+import com.mgm.payments.processing.service.events.CaptureConfirmMessage;
+import com.mgm.payments.processing.service.events.CaptureConfirmRetryQueue;
+import com.mgm.payments.processing.service.events.ConfirmEvent;
+import com.mgm.payments.processing.service.exception.ExternalServiceException;
+import com.mgm.payments.processing.service.exception.PaymentProcessingException;
+import com.mgm.payments.processing.service.external.PaymentAuthManagerCaller;
+import com.mgm.payments.processing.service.mapper.AuditMapper;
+import com.mgm.payments.processing.service.model.CaptureConfirm;
+import com.mgm.payments.processing.service.model.CaptureConfirmBatchItem;
+import com.mgm.payments.processing.service.model.CaptureConfirmBatchResult;
+import com.mgm.payments.processing.service.model.HeadersDTO;
+import com.mgm.payments.processing.service.model.payload.pps.exception.PaymentExceptionResponse;
+import com.mgm.payments.processing.service.util.BoundedExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CaptureConfirmEventListenerTest {
+
+    private final PaymentAuthManagerCaller paymentAuthManagerCaller = mock(PaymentAuthManagerCaller.class);
+    private final AuditMapper auditMapper = mock(AuditMapper.class);
+    private final CaptureConfirmRetryQueue retryQueue = mock(CaptureConfirmRetryQueue.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PPSProperties ppsProperties = new PPSProperties();
+    private BoundedExecutor executor;
+    private CaptureConfirmEventListener listener;
+
+    @BeforeEach
+    void init() {
+        ppsProperties.setCaptureConfirmBatchPath("/api/v1/confirm/batch");
+        executor = new BoundedExecutor("capture-confirm", 2, 10, BoundedExecutor.SaturationPolicy.CALLER_RUNS, 5000, meterRegistry);
+        listener = new CaptureConfirmEventListener(paymentAuthManagerCaller, auditMapper, mock(Tracer.class), executor, retryQueue,
+                ppsProperties, meterRegistry);
+        when(retryQueue.acknowledge(any())).thenReturn(Mono.empty());
+        when(retryQueue.failed(any(), any())).thenReturn(Mono.empty());
+    }
+
+    private static CaptureConfirmMessage message(String orderReferenceNumber) {
+        HeadersDTO headersDTO = new HeadersDTO("web", "journey-" + orderReferenceNumber, "correlation-" + orderReferenceNumber,
+                "transaction-" + orderReferenceNumber, "WEB", "jwt", "clientId", "userAgent");
+        return CaptureConfirmMessage.of(CaptureConfirm.builder().orderReferenceNumber(orderReferenceNumber).build(), headersDTO);
+    }
+
+    // waits for the confirmations handed to the executor
+    private void flush(List<CaptureConfirmMessage> batch) throws InterruptedException {
+        listener.flush(batch);
+        executor.shutdown();
+    }
+
+    @Test
+    void testBatchResponsesAuditedPerConfirmation() throws InterruptedException {
+        CaptureConfirmMessage first = message("ROOM-1");
+        CaptureConfirmMessage second = message("ROOM-2");
+        when(paymentAuthManagerCaller.invokeCaptureConfirmBatch(anyList(), any()))
+                .thenReturn(Mono.just(List.of(CaptureConfirmBatchResult.confirmed("{\"status\":\"ok\"}"),
+                        CaptureConfirmBatchResult.confirmed("{\"status\":\"ok\"}"))));
+        flush(List.of(first, second));
+
+        // each confirmation keeps the tracing ids of its own capture
+        verify(paymentAuthManagerCaller).invokeCaptureConfirmBatch(eq(List.of(
+                new CaptureConfirmBatchItem("journey-ROOM-1", "correlation-ROOM-1", "transaction-ROOM-1", first.getCaptureConfirm()),
+                new CaptureConfirmBatchItem("journey-ROOM-2", "correlation-ROOM-2", "transaction-ROOM-2", second.getCaptureConfirm()))), any());
+        verify(paymentAuthManagerCaller, never()).invokeCaptureConfirm(any(), any());
+        verify(auditMapper).createAndPublishAuditTrailForRequestResponse(eq("ROOM-1"), any(), any(), any(), any(), eq(first.getHeaders()), any());
+        verify(auditMapper).createAndPublishAuditTrailForRequestResponse(eq("ROOM-2"), any(), any(), any(), any(), eq(second.getHeaders()), any());
+        verify(retryQueue).acknowledge(first);
+        verify(retryQueue).acknowledge(second);
+    }
+
+    @Test
+    void testFailedBatchItemQueuedForRetryAndAuditedAsFailed() throws InterruptedException {
+        CaptureConfirmMessage first = message("ROOM-1");
+        CaptureConfirmMessage second = message("ROOM-2");
+        ExternalServiceException unavailable = new ExternalServiceException("{\"status\":503}", HttpStatus.SERVICE_UNAVAILABLE);
+        when(paymentAuthManagerCaller.invokeCaptureConfirmBatch(anyList(), any()))
+                .thenReturn(Mono.just(List.of(CaptureConfirmBatchResult.confirmed("{\"status\":\"ok\"}"),
+                        CaptureConfirmBatchResult.failed("{\"status\":503}", unavailable))));
+        flush(List.of(first, second));
+
+        verify(retryQueue).acknowledge(first);
+        verify(retryQueue, never()).failed(eq(first), any());
+        verify(retryQueue).failed(second, unavailable);
+        verify(retryQueue, never()).acknowledge(second);
+        verify(auditMapper).createAndPublishAuditTrailForRequestResponse(eq("ROOM-1"), any(), any(), any(), any(), any(),
+                argThat(auditData -> StatusResult.S.name().equals(auditData.getStatus())));
+        verify(auditMapper).createAndPublishAuditTrailForRequestResponse(eq("ROOM-2"), any(), any(), any(), any(), any(),
+                argThat(auditData -> StatusResult.E.name().equals(auditData.getStatus())));
+    }
+
+    @Test
+    void testRejectedBatchConfirmedOneByOne() throws InterruptedException {
+        PaymentProcessingException notFound = new PaymentProcessingException(PaymentExceptionResponse.builder().build(), HttpStatus.NOT_FOUND);
+        when(paymentAuthManagerCaller.invokeCaptureConfirmBatch(anyList(), any())).thenReturn(Mono.error(notFound));
+        when(paymentAuthManagerCaller.invokeCaptureConfirm(any(), any())).thenReturn(Mono.just("{\"status\":\"ok\"}"));
+        flush(List.of(message("ROOM-1"), message("ROOM-2")));
+
+        verify(paymentAuthManagerCaller, times(2)).invokeCaptureConfirm(any(), any());
+        verify(auditMapper, times(2)).createAndPublishAuditTrailForRequestResponse(any(), any(), any(), any(), any(), any(), any());
+        verify(retryQueue, never()).failed(any(), any());
+    }
+
+    @Test
+    void testFailedBatchQueuedForRetry() throws InterruptedException {
+        ExternalServiceException unavailable = new ExternalServiceException("busy", HttpStatus.SERVICE_UNAVAILABLE);
+        when(paymentAuthManagerCaller.invokeCaptureConfirmBatch(anyList(), any())).thenReturn(Mono.error(unavailable));
+        CaptureConfirmMessage first = message("ROOM-1");
+        CaptureConfirmMessage second = message("ROOM-2");
+        flush(List.of(first, second));
+
+        verify(retryQueue).failed(first, unavailable);
+        verify(retryQueue).failed(second, unavailable);
+        verifyNoInteractions(auditMapper);
+    }
+
+    @Test
+    void testParallelCallsWithoutBatchEndpoint() throws InterruptedException {
+        ppsProperties.setCaptureConfirmBatchPath("");
+        when(paymentAuthManagerCaller.invokeCaptureConfirm(any(), any())).thenReturn(Mono.just("{\"status\":\"ok\"}"));
+        flush(List.of(message("ROOM-1"), message("ROOM-2"), message("ROOM-3")));
+
+        verify(paymentAuthManagerCaller, never()).invokeCaptureConfirmBatch(anyList(), any());
+        verify(paymentAuthManagerCaller, times(3)).invokeCaptureConfirm(any(), any());
+        verify(retryQueue, times(3)).acknowledge(any());
+    }
+
+    @Test
+    void testConfirmationLeasedBeforeFirstAttempt() {
+        when(retryQueue.lease(any())).thenAnswer(invocation -> {
+            invocation.getArgument(0, CaptureConfirmMessage.class).setQueued(true);
+            return Mono.empty();
+        });
+        when(paymentAuthManagerCaller.invokeCaptureConfirm(any(), any())).thenReturn(Mono.just("{\"status\":\"ok\"}"));
+        CaptureConfirmMessage message = message("ROOM-1");
+        listener.onApplicationEvent(new ConfirmEvent(message.getCaptureConfirm(), message.getHeaders()));
+
+        verify(retryQueue, timeout(5000)).acknowledge(any());
+        InOrder inOrder = inOrder(retryQueue, paymentAuthManagerCaller);
+        inOrder.verify(retryQueue).lease(any());
+        inOrder.verify(paymentAuthManagerCaller).invokeCaptureConfirm(eq(message.getCaptureConfirm()), any());
+        inOrder.verify(retryQueue).acknowledge(argThat(CaptureConfirmMessage::isQueued));
+    }
+
+    @Test
+    void testConfirmationSentWhenLeaseFails() {
+        when(retryQueue.lease(any())).thenReturn(Mono.error(new IllegalStateException("redis down")));
+        when(paymentAuthManagerCaller.invokeCaptureConfirm(any(), any())).thenReturn(Mono.just("{\"status\":\"ok\"}"));
+        CaptureConfirmMessage message = message("ROOM-1");
+        listener.onApplicationEvent(new ConfirmEvent(message.getCaptureConfirm(), message.getHeaders()));
+
+        verify(paymentAuthManagerCaller, timeout(5000)).invokeCaptureConfirm(eq(message.getCaptureConfirm()), any());
+        verify(auditMapper, timeout(5000)).createAndPublishAuditTrailForRequestResponse(eq("ROOM-1"), any(), any(), any(), any(), any(), any());
+    }
+}
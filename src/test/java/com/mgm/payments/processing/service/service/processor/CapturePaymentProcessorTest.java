@@ -14,7 +14,6 @@ import com.mgm.payments.processing.service.model.payload.pps.PaymentRequest;
 import com.mgm.payments.processing.service.model.payload.pps.PaymentResponse;
 import com.mgm.payments.processing.service.model.payload.router.*;
 import com.mgm.payments.processing.service.repository.jpa.PaymentProcessingRepositoryWrapper;
-import com.mgm.payments.processing.service.repository.redis.capture.CaptureRedisPaymentRepositoryWrapper;
 import com.mgm.payments.processing.service.repository.redis.payment.RedisPaymentRepositoryWrapper;
 import com.mgm.payments.processing.service.util.PaymentProcessingUtil;
 import com.mgm.payments.processing.service.util.SnowFlakeSequenceGenerator;
@@ -54,9 +53,6 @@ class CapturePaymentProcessorTest {
     @Mock
     private PaymentRouterServiceCaller routerServiceCaller;
 
-    @Mock
-    CaptureRedisPaymentRepositoryWrapper captureRedisPaymentRepositoryWrapper;
-
     @Mock
     RedisPaymentRepositoryWrapper redisPaymentRepositoryWrapper;
 
@@ -78,6 +74,8 @@ class CapturePaymentProcessorTest {
     void init() {
         user = new User("00u1tdaotm5Y20maD0h8", null, null, "Mike", "Mike Doe", "mgm_app_web", "email", "mLifeNumber", "jwtToken", "service_id");
         headersDTO = new HeadersDTO("pamService", "1234", "12345", "123456", "WEB", "jwtToken", "clientId", "userAgent");
+        Mockito.when(redisPaymentRepositoryWrapper.findById(any(), any(), any())).thenReturn(Mono.empty());
+        Mockito.when(redisPaymentRepositoryWrapper.complete(any(), any(), Mockito.anyBoolean(), any())).thenReturn(Mono.empty());
     }
 
     @Test
@@ -176,6 +174,7 @@ class CapturePaymentProcessorTest {
     @Test
     void testProcess() throws Exception {
         PaymentRequest paymentRequest = mockRequestCreator.createMockCaptureRequest();
+        Mockito.when(redisPaymentRepositoryWrapper.tryLock(any(), any(), any(), any())).thenReturn(Mono.just(PaymentLockResult.LOCKED));
         List<PaymentEntity> entityList = new ArrayList<>();
         entityList.add(mockRequestCreator.createAuthPaymentEntity(headersDTO,user));
         Mockito.when(repository.findByPaymentIdOrReferenceId(paymentRequest.getPaymentId(), paymentRequest.getPaymentId(), headersDTO)).
@@ -202,6 +201,7 @@ class CapturePaymentProcessorTest {
     @Test
     void testProcessThrowsException() throws IOException {
         PaymentRequest paymentRequest = mockRequestCreator.createMockCaptureRequest();
+        Mockito.when(redisPaymentRepositoryWrapper.tryLock(any(), any(), any(), any())).thenReturn(Mono.just(PaymentLockResult.LOCKED));
         List entityList = new ArrayList<>();
         entityList.add(mockRequestCreator.createAuthPaymentEntity(headersDTO, user));
         Mockito.when(repository.findByPaymentIdOrReferenceId(paymentRequest.getPaymentId(), paymentRequest.getPaymentId(), headersDTO)).
@@ -214,14 +214,45 @@ class CapturePaymentProcessorTest {
         Mockito.doThrow(new RuntimeException()).when(capturePaymentProcessor)
                 .invokePaymentRouter(captureEntity, paymentRequest, headersDTO);
         Assertions.assertThrows(RuntimeException.class, () ->
-                capturePaymentProcessor.process(paymentRequest, user, headersDTO));
+                capturePaymentProcessor.process(paymentRequest, user, headersDTO).block());
         Mockito.verify(capturePaymentProcessor).validateInputRequest(paymentRequest, entityList, headersDTO);
         Mockito.verify(capturePaymentProcessor).
                 populatePaymentEntity(any(), any(), any(),any(), any());
         Mockito.verify(capturePaymentProcessor).invokePaymentRouter(captureEntity, paymentRequest, headersDTO);
         Mockito.verify(capturePaymentProcessor, Mockito.times(0)).updateRouterResponseInTheDBRecord(captureEntity, paymentRouterResponse, user, headersDTO, entityList);
         Mockito.verify(capturePaymentProcessor, Mockito.times(0)).mapPaymentRouterResponseToPaymentResponse(any(), any(), any(), any(), any());
-        Mockito.verify(capturePaymentProcessor).updateDBOnFailure(any(), any(), any());
+        Mockito.verify(capturePaymentProcessor, Mockito.timeout(1000)).updateDBOnFailure(any(), any(), any());
+    }
+
+    @Test
+    void testProcessThrowsDuplicateWhenCaptureInFlight() throws IOException {
+        PaymentRequest paymentRequest = mockRequestCreator.createMockCaptureRequest();
+        List entityList = new ArrayList<>();
+        entityList.add(mockRequestCreator.createAuthPaymentEntity(headersDTO, user));
+        Mockito.when(repository.findByPaymentIdOrReferenceId(paymentRequest.getPaymentId(), paymentRequest.getPaymentId(), headersDTO)).
+                thenReturn(entityList);
+        Mockito.doNothing().when(capturePaymentProcessor).validateInputRequest(any(), any(), any());
+        Mockito.when(redisPaymentRepositoryWrapper.tryLock(any(), any(), any(), any())).thenReturn(Mono.just(PaymentLockResult.DUPLICATE));
+        PaymentProcessingException e = Assertions.assertThrows(PaymentProcessingException.class, () ->
+                capturePaymentProcessor.process(paymentRequest, user, headersDTO).block());
+        assertEquals(ApiErrorCode.DUPLICATE_CAPTURE_MESSAGE.getCode(), e.getExceptionResponse().getErrorCode());
+        Mockito.verify(capturePaymentProcessor, Mockito.times(0)).populatePaymentEntity(any(), any(), any(), any(), any());
+        Mockito.verify(redisPaymentRepositoryWrapper, Mockito.times(0)).complete(any(), any(), Mockito.anyBoolean(), any());
+    }
+
+    @Test
+    void testProcessThrowsAlreadyVoidWhenVoidHoldsLock() throws IOException {
+        PaymentRequest paymentRequest = mockRequestCreator.createMockCaptureRequest();
+        List entityList = new ArrayList<>();
+        entityList.add(mockRequestCreator.createAuthPaymentEntity(headersDTO, user));
+        Mockito.when(repository.findByPaymentIdOrReferenceId(paymentRequest.getPaymentId(), paymentRequest.getPaymentId(), headersDTO)).
+                thenReturn(entityList);
+        Mockito.doNothing().when(capturePaymentProcessor).validateInputRequest(any(), any(), any());
+        Mockito.when(redisPaymentRepositoryWrapper.tryLock(any(), any(), any(), any())).thenReturn(Mono.just(PaymentLockResult.CONFLICT));
+        PaymentProcessingException e = Assertions.assertThrows(PaymentProcessingException.class, () ->
+                capturePaymentProcessor.process(paymentRequest, user, headersDTO).block());
+        assertEquals(ApiErrorCode.CAPTURE_ALREADY_VOID.getCode(), e.getExceptionResponse().getErrorCode());
+        Mockito.verify(capturePaymentProcessor, Mockito.times(0)).populatePaymentEntity(any(), any(), any(), any(), any());
     }
 
     @Test
@@ -81,11 +81,13 @@ class RefundPaymentProcessorTest {
     void init() {
         user = new User("00uutm8em5h0EU2eV1t7", null, null, "Mike", "Mike Doe", "mgm_app_web", "email", "mLifeNumber", "jwtToken", "service_id");
         headersDTO = new HeadersDTO("web", "1234", "12345", "123456", "WEB", "jwtToken", "clientId", "userAgent");
+        Mockito.when(refundRedisPaymentRepositoryWrapper.deleteById(any(), any())).thenReturn(Mono.empty());
     }
 
     @Test
     void testProcess() throws IOException {
         PaymentRequest paymentRequest = mockRequestCreator.createMockRefundRequest();
+        Mockito.when(refundRedisPaymentRepositoryWrapper.tryLock(any(), any())).thenReturn(Mono.just(true));
         PaymentSession paymentSession = mockRequestCreator.createMockSession();
         Mockito.when(snowFlakeSequenceGenerator.nextId()).thenReturn(1234123412L);
         List<PaymentEntity> entityList = new ArrayList<>();
@@ -104,22 +106,43 @@ class RefundPaymentProcessorTest {
         PaymentResponse paymentResponse =  new PaymentResponse();
         Mockito.doNothing().when(refundPaymentProcessor).mapPaymentRouterResponseToPaymentResponse(refundEntity,
                 paymentRequest, paymentRouterResponse, paymentResponse, headersDTO);
-        Mockito.when(clientConfigurationServiceCaller.getClientConfig(headersDTO))
-                .thenReturn(getClientConfigPayload1());
-        Mockito.doReturn(paymentSession).when(refundPaymentProcessor).retrieveClientDetailsFromSession(paymentRequest, headersDTO);
-        Mockito.doReturn(paymentSession).when(sessionServiceCaller).retrieveSession(headersDTO, "e92f3788-0d79-4e13-aa1c-73a38b80b2eb");
-        Mockito.doNothing().when(refundPaymentProcessor).validateDuplicateRequestFromDB(paymentRequest, headersDTO);
+        Mockito.when(clientConfigurationServiceCaller.getClientConfig(any()))
+                .thenReturn(Mono.just(getClientConfigPayload1()));
+        Mockito.doReturn(Mono.just(paymentSession)).when(refundPaymentProcessor).retrieveClientDetailsFromSession(paymentRequest, headersDTO);
+        Mockito.doReturn(Mono.just(paymentSession)).when(sessionServiceCaller).retrieveSession(headersDTO, "e92f3788-0d79-4e13-aa1c-73a38b80b2eb");
+        Mockito.doNothing().when(refundPaymentProcessor).validateDuplicateRequestFromDB(any(), any());
         Mono<PaymentResponse> paymentResponseMono = refundPaymentProcessor.process(paymentRequest, user, headersDTO);
         paymentResponse = paymentResponseMono.block();
         assertNotNull(paymentResponse);
         assertNotNull(paymentResponse.getResults());
         assertEquals(TransactionStatus.SUCCESS.name(), paymentResponse.getResults().get(0).getGatewayResult().getTransactionStatus());
+        // adhoc refunds have no refund limit to check against the stored records
+        verify(repository, Mockito.never()).findByClientReferenceNumber(any(), any());
+    }
 
+    @Test
+    void testNonAdhocRefundLoadsRecordsForRefundLimit() throws IOException {
+        PaymentRequest paymentRequest = mockRequestCreator.createMockRefundRequest();
+        Mockito.when(refundRedisPaymentRepositoryWrapper.tryLock(any(), any())).thenReturn(Mono.just(true));
+        Mockito.doNothing().when(refundPaymentProcessor).populatePaymentEntity(any(), any(), any(), any(), any());
+        Mockito.when(clientConfigurationServiceCaller.getClientConfig(any()))
+                .thenReturn(Mono.just(getClientConfigPayload()));
+        Mockito.doReturn(Mono.just(mockRequestCreator.createMockSession())).when(refundPaymentProcessor)
+                .retrieveClientDetailsFromSession(paymentRequest, headersDTO);
+        Mockito.doNothing().when(refundPaymentProcessor).validateDuplicateRequestFromDB(any(), any());
+        Mockito.when(repository.findByClientReferenceNumber(paymentRequest.getClientReferenceNumber(), headersDTO))
+                .thenReturn(new ArrayList<>());
+        PaymentProcessingException e = Assertions.assertThrows(PaymentProcessingException.class, () ->
+                refundPaymentProcessor.process(paymentRequest, user, headersDTO).block());
+        assertEquals(ApiErrorCode.INVALID_REFUND_ERROR.getCode(), e.getExceptionResponse().getErrorCode());
+        verify(repository).findByClientReferenceNumber(paymentRequest.getClientReferenceNumber(), headersDTO);
+        Mockito.verify(refundPaymentProcessor).validateDuplicateRequestFromDB(paymentRequest, headersDTO);
     }
 
     @Test
     void testProcessThrowsException() {
         PaymentRequest paymentRequest = mockRequestCreator.createMockVoidRequest();
+        Mockito.when(refundRedisPaymentRepositoryWrapper.tryLock(any(), any())).thenReturn(Mono.just(true));
         List entityList = new ArrayList<>();
         Mockito.when(repository.findByClientReferenceNumber(paymentRequest.getClientReferenceNumber(), headersDTO)).
                 thenReturn(entityList);
@@ -129,7 +152,7 @@ class RefundPaymentProcessorTest {
                 .when(refundPaymentProcessor).invokePaymentRouter(Mockito.any(PaymentEntity.class), Mockito.any(PaymentRequest.class),
                         Mockito.any(HeadersDTO.class));
         Assertions.assertThrows(RuntimeException.class, () ->
-                refundPaymentProcessor.process(paymentRequest, user, headersDTO));
+                refundPaymentProcessor.process(paymentRequest, user, headersDTO).block());
 
     }
     @Test
@@ -151,7 +174,7 @@ class RefundPaymentProcessorTest {
     @Test
     void testValidateInputRequestThrowsException() throws IOException {
         Mockito.when(clientConfigurationServiceCaller.getClientConfig(headersDTO))
-                .thenReturn(getClientConfigPayload());
+                .thenReturn(Mono.just(getClientConfigPayload()));
         PaymentRequest paymentRequest = mockRequestCreator.createMockRefundRequest();
         PaymentEntity refundEntity = mockRequestCreator.createMockRefundEntity(headersDTO, user);
         paymentRequest.setPaymentId(refundEntity.getPaymentId());
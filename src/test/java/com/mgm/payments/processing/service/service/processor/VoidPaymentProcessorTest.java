@@ -15,7 +15,6 @@ import com.mgm.payments.processing.service.model.payload.pps.PaymentResponse;
 import com.mgm.payments.processing.service.model.payload.router.*;
 import com.mgm.payments.processing.service.repository.jpa.PaymentProcessingRepositoryWrapper;
 import com.mgm.payments.processing.service.repository.redis.payment.RedisPaymentRepositoryWrapper;
-import com.mgm.payments.processing.service.repository.redis.voidcall.VoidRedisPaymentRepositoryWrapper;
 import com.mgm.payments.processing.service.util.SnowFlakeSequenceGenerator;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -51,8 +50,6 @@ class VoidPaymentProcessorTest {
     @Mock
     RedisPaymentRepositoryWrapper redisPaymentRepositoryWrapper;
 
-    @Mock
-    VoidRedisPaymentRepositoryWrapper voidRedisPaymentRepositoryWrapper;
     @Mock
     private PaymentRouterServiceCaller routerServiceCaller;
     @Mock
@@ -72,10 +69,13 @@ class VoidPaymentProcessorTest {
     void init() {
         user = new User("00uutm8em5h0EU2eV1t7", null, null, "Mike", "Mike Doe", "mgm_app_web", "email", "mLifeNumber", "jwtToken", "service_id");
         headersDTO = new HeadersDTO("web", "1234", "12345", "123456", "WEB", "jwtToken", "clientId", "userAgent");
+        Mockito.when(redisPaymentRepositoryWrapper.findById(any(), any(), any())).thenReturn(Mono.empty());
+        Mockito.when(redisPaymentRepositoryWrapper.complete(any(), any(), Mockito.anyBoolean(), any())).thenReturn(Mono.empty());
     }
     @Test
     void testProcess() throws IOException {
         PaymentRequest paymentRequest = mockRequestCreator.createMockVoidRequest();
+        Mockito.when(redisPaymentRepositoryWrapper.tryLock(any(), any(), any(), any())).thenReturn(Mono.just(PaymentLockResult.LOCKED));
         List entityList = new ArrayList<>();
         Mockito.when(repository.findByClientReferenceNumber(paymentRequest.getClientReferenceNumber(), headersDTO)).
                 thenReturn(entityList);
@@ -87,8 +87,9 @@ class VoidPaymentProcessorTest {
                 .when(voidPaymentProcessor).invokePaymentRouter(any(), any(), any());
         Mockito.doNothing()
                 .when(voidPaymentProcessor).validateInputRequest( paymentRequest, entityList, headersDTO);
-        Mockito.doCallRealMethod().when(voidPaymentProcessor).updateRouterResponseInTheDBRecord(captureEntity,paymentRouterResponse, user, headersDTO, entityList);
-        voidPaymentProcessor.process(paymentRequest, user, headersDTO);
+        Mockito.doNothing().when(voidPaymentProcessor).updateRouterResponseInTheDBRecord(captureEntity,paymentRouterResponse, user, headersDTO, entityList);
+        Mockito.doNothing().when(voidPaymentProcessor).mapPaymentRouterResponseToPaymentResponse(any(), any(), any(), any(), any());
+        voidPaymentProcessor.process(paymentRequest, user, headersDTO).block();
         Mockito.verify(voidPaymentProcessor).validateInputRequest(paymentRequest, entityList, headersDTO);
         Mockito.verify(voidPaymentProcessor).
                 populatePaymentEntity(headersDTO, paymentRequest, entityList,captureEntity, user);
@@ -98,6 +99,7 @@ class VoidPaymentProcessorTest {
     @Test
     void testVoidThrowsException(){
         PaymentRequest paymentRequest = mockRequestCreator.createMockVoidRequest();
+        Mockito.when(redisPaymentRepositoryWrapper.tryLock(any(), any(), any(), any())).thenReturn(Mono.just(PaymentLockResult.LOCKED));
         List entityList = new ArrayList<>();
         Mockito.when(repository.findByClientReferenceNumber(paymentRequest.getClientReferenceNumber(), headersDTO)).
                 thenReturn(entityList);
@@ -109,7 +111,7 @@ class VoidPaymentProcessorTest {
                 .when(voidPaymentProcessor).invokePaymentRouter(voidEntity, paymentRequest, headersDTO);
         Mockito.doNothing().when(voidPaymentProcessor).validateInputRequest(paymentRequest, entityList, headersDTO);
         Assertions.assertThrows(RuntimeException.class, () ->
-                voidPaymentProcessor.process(paymentRequest, user, headersDTO));
+                voidPaymentProcessor.process(paymentRequest, user, headersDTO).block());
         Mockito.verify(voidPaymentProcessor).validateInputRequest(paymentRequest, entityList, headersDTO);
         Mockito.verify(voidPaymentProcessor).
                 populatePaymentEntity(headersDTO, paymentRequest, entityList, voidEntity, user);
@@ -118,7 +120,7 @@ class VoidPaymentProcessorTest {
                 .updateRouterResponseInTheDBRecord(voidEntity, paymentRouterResponse, user, headersDTO, entityList);
         Mockito.verify(voidPaymentProcessor, Mockito.times(0))
                 .mapPaymentRouterResponseToPaymentResponse(any(), any(), any(), any(), any());
-        Mockito.verify(voidPaymentProcessor).updateDBOnFailure(any(), any(), any());
+        Mockito.verify(voidPaymentProcessor, Mockito.timeout(1000)).updateDBOnFailure(any(), any(), any());
     }
     @Test
     void testValidateInputRequest(){
@@ -0,0 +1,83 @@
+package com.mgm.payments.processing.service.util;
+
+import com.mgm.payments.processing.service.util.BoundedExecutor.SaturationPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> ran = new CopyOnWriteArrayList<>();
+    private BoundedExecutor executor;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    // one thread held by a blocked task and a queue of one filled, the next task saturates the executor
+    private BoundedExecutor saturated(SaturationPolicy saturationPolicy) throws InterruptedException {
+        executor = new BoundedExecutor("test", 1, 1, saturationPolicy, 5000, meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.execute(() -> ran.add("queued"));
+        return executor;
+    }
+
+    private double saturatedCount(String outcome) {
+        return meterRegistry.get("pps.executor.saturated").tags("executor", "test", "outcome", outcome).counter().count();
+    }
+
+    @Test
+    void testQueueDepthAndActiveThreadsExported() throws InterruptedException {
+        saturated(SaturationPolicy.CALLER_RUNS);
+        assertEquals(1.0, meterRegistry.get("pps.executor.queue.depth").tag("executor", "test").gauge().value());
+        assertEquals(1.0, meterRegistry.get("pps.executor.active").tag("executor", "test").gauge().value());
+    }
+
+    @Test
+    void testCallerRunsWhenQueueFull() throws InterruptedException {
+        saturated(SaturationPolicy.CALLER_RUNS).execute(() -> ran.add(Thread.currentThread().getName()));
+        assertEquals(List.of(Thread.currentThread().getName()), ran);
+        assertEquals(1.0, saturatedCount("caller_runs"));
+    }
+
+    @Test
+    void testOldestDroppedWhenQueueFull() throws InterruptedException {
+        saturated(SaturationPolicy.DROP_OLDEST).execute(() -> ran.add("newest"));
+        release.countDown();
+        executor.shutdown();
+        assertEquals(List.of("newest"), ran);
+        assertEquals(1.0, saturatedCount("dropped"));
+    }
+
+    @Test
+    void testSpilledWhenQueueFull() throws InterruptedException {
+        saturated(SaturationPolicy.SPILL).execute(() -> ran.add("task"), () -> ran.add("spilled"));
+        assertEquals(List.of("spilled"), ran);
+        assertEquals(1.0, saturatedCount("spilled"));
+        release.countDown();
+        executor.shutdown();
+        assertEquals(List.of("spilled", "queued"), ran);
+    }
+}
@@ -0,0 +1,57 @@
+package com.mgm.payments.processing.service.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mgm.payments.processing.service.MockRequestCreator;
+import com.mgm.payments.processing.service.enums.LogMarker;
+import com.mgm.payments.processing.service.model.payload.pps.PaymentRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogMaskingConverterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private JsonNode readFixture(String file) throws IOException {
+        try (InputStream inputStream = getClass().getResourceAsStream(file)) {
+            return objectMapper.readTree(inputStream);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/authorizeRequest.json", "/captureRequest.json", "/paymentRouterResponse.json",
+            "/paymentRouterErrorResponse.json", "/paymentRouterExceptionResponse.json", "/sessionResponse.json"})
+    void testMaskMatchesJsonPatternMasking(String file) throws IOException {
+        JsonNode fixture = readFixture(file);
+        String expected = LogMaskingConverter.mask(objectMapper.writeValueAsString(fixture), LogMarker.JSON);
+        assertEquals(expected, LogMaskingConverter.mask(fixture));
+    }
+
+    @Test
+    void testMaskNumberClosingNestedObject() throws IOException {
+        // the JSON pattern pulled the closing braces into the masked value here, the value alone is masked now
+        String masked = LogMaskingConverter.mask(readFixture("/refundRequest.json"));
+        assertTrue(masked.endsWith("\"expireMonth\":\"**\",\"expireYear\":\"2**5\"}}}"));
+    }
+
+    @Test
+    void testMaskPojo() throws IOException {
+        PaymentRequest paymentRequest = new MockRequestCreator().createMockAuthorizeRequest();
+        String masked = LogMaskingConverter.mask(paymentRequest);
+        assertFalse(masked.contains("Chicago"));
+        assertFalse(masked.contains("johnsmith@email.com"));
+        assertTrue(masked.contains("\"mgmToken\":\"12341234123412\""));
+    }
+
+    @Test
+    void testMaskKeepsNullsAndMasksSecurityCode() throws IOException {
+        JsonNode node = objectMapper.readTree("{\"city\":null,\"securityCode\":null,\"tenderDisplay\":\"123\",\"email\":\"a@b.com\"}");
+        assertEquals("{\"city\":null,\"securityCode\":\"\",\"tenderDisplay\":\"1*3\",\"email\":\"a*****m\"}", LogMaskingConverter.mask(node));
+    }
+}
@@ -0,0 +1,39 @@
+package com.mgm.payments.processing.service.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.mgm.payments.processing.service.MockRequestCreator;
+import com.mgm.payments.processing.service.model.payload.pps.PaymentRequest;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MaskedPayloadsTest {
+
+    @Test
+    void testMaskOncePerPayload() throws IOException {
+        PaymentRequest paymentRequest = new MockRequestCreator().createMockAuthorizeRequest();
+        MaskedPayloads maskedPayloads = new MaskedPayloads();
+        String masked = maskedPayloads.mask(paymentRequest);
+        assertEquals(LogMaskingConverter.mask(paymentRequest), masked);
+        assertSame(masked, maskedPayloads.mask(paymentRequest));
+    }
+
+    @Test
+    void testAuditPayloadReusesMaskedTree() throws IOException {
+        PaymentRequest paymentRequest = new MockRequestCreator().createMockAuthorizeRequest();
+        MaskedPayloads maskedPayloads = new MaskedPayloads();
+        String masked = maskedPayloads.mask(paymentRequest);
+        Object auditPayload = maskedPayloads.auditPayload(masked);
+        assertTrue(auditPayload instanceof JsonNode);
+        assertEquals(masked, LogMaskingConverter.writeTree((JsonNode) auditPayload));
+    }
+
+    @Test
+    void testAuditPayloadKeepsOtherValues() {
+        MaskedPayloads maskedPayloads = new MaskedPayloads();
+        assertEquals("sessionId", maskedPayloads.auditPayload("sessionId"));
+        assertNull(maskedPayloads.auditPayload(null));
+    }
+}
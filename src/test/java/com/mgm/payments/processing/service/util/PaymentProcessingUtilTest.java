@@ -185,6 +185,32 @@ class PaymentProcessingUtilTest {
         return paymentList;
     }
 
+    @Test
+    void testGenerateUniqueId() {
+        for (long snowFlakeId : new long[]{123456789L, 370178385416048666L, (1L << 62) | 1370178385L, Long.MAX_VALUE}) {
+            String paymentId = PaymentProcessingUtil.generateUniqueId(snowFlakeId);
+            assertEquals(18, paymentId.length());
+            assertTrue(paymentId.matches("[A-Za-z0-9]+"));
+        }
+        // same snowflake id, as two generators sharing a node id would produce, still gives distinct payment ids
+        Set<String> sameSnowFlakeId = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            sameSnowFlakeId.add(PaymentProcessingUtil.generateUniqueId(370178385416048666L));
+        }
+        assertEquals(1000, sameSnowFlakeId.size());
+        // without its random characters, the payment id still tells consecutive snowflake ids apart
+        Set<String> consecutive = new HashSet<>();
+        for (long snowFlakeId = 370178385416048666L; snowFlakeId < 370178385416148666L; snowFlakeId++) {
+            String paymentId = PaymentProcessingUtil.generateUniqueId(snowFlakeId);
+            StringBuilder encodedId = new StringBuilder();
+            for (int i = 1; i < 14; i += 2) {
+                encodedId.append(paymentId.charAt(i));
+            }
+            consecutive.add(encodedId.append(paymentId.substring(14)).toString());
+        }
+        assertEquals(100000, consecutive.size());
+    }
+
     private List<Amount> getAmount() {
         List<Amount> amountList = new ArrayList<>();
         amountList.add(Amount.builder().name("total").value(new BigDecimal(121.0)).build());
@@ -0,0 +1,168 @@
+package com.mgm.payments.processing.service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static com.mgm.payments.processing.service.util.SnowFlakeSequenceGenerator.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowFlakeSequenceGeneratorTest {
+
+    private static final long EPOCH = 1704067200000L;
+
+    private final AtomicLong now = new AtomicLong(EPOCH + 1000);
+
+    private static long timestamp(long id) {
+        return id >>> TIMESTAMP_SHIFT;
+    }
+
+    private static long node(long id) {
+        return (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+
+    private static long sequence(long id) {
+        return id & MAX_SEQUENCE;
+    }
+
+    private static Clock clock(LongSupplier millis) {
+        return new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public long millis() {
+                return millis.getAsLong();
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochMilli(millis());
+            }
+        };
+    }
+
+    private static Set<Long> generateConcurrently(SnowFlakeSequenceGenerator generator, int threads, int idsPerThread) throws Exception {
+        Set<Long> ids = ConcurrentHashMap.newKeySet(threads * idsPerThread);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < idsPerThread; i++) {
+                        ids.add(generator.nextId());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return ids;
+    }
+
+    @Test
+    void testIdPacksTimestampNodeAndSequence() {
+        SnowFlakeSequenceGenerator generator = new SnowFlakeSequenceGenerator(5, clock(now::get));
+        long first = generator.nextId();
+        long second = generator.nextId();
+        assertEquals(1000, timestamp(first));
+        assertEquals(5, node(first));
+        assertEquals(0, sequence(first));
+        assertEquals(1000, timestamp(second));
+        assertEquals(1, sequence(second));
+        assertTrue(first > 0);
+    }
+
+    @Test
+    void testExhaustedSequenceBorrowsNextMillisecond() {
+        SnowFlakeSequenceGenerator generator = new SnowFlakeSequenceGenerator(5, clock(now::get));
+        long last = 0;
+        for (int i = 0; i <= MAX_SEQUENCE; i++) {
+            last = generator.nextId();
+        }
+        assertEquals(MAX_SEQUENCE, sequence(last));
+        long borrowed = generator.nextId();
+        assertEquals(1001, timestamp(borrowed));
+        assertEquals(0, sequence(borrowed));
+        assertEquals(5, node(borrowed));
+    }
+
+    @Test
+    void testSmallClockRewindTolerated() {
+        SnowFlakeSequenceGenerator generator = new SnowFlakeSequenceGenerator(5, clock(now::get));
+        long beforeRewind = generator.nextId();
+        now.set(EPOCH + 1000 - MAX_CLOCK_BACKWARD_MILLIS);
+        long afterRewind = generator.nextId();
+        assertTrue(afterRewind > beforeRewind);
+        assertEquals(1000, timestamp(afterRewind));
+
+        now.set(EPOCH + 999 - MAX_CLOCK_BACKWARD_MILLIS);
+        assertThrows(IllegalStateException.class, generator::nextId);
+    }
+
+    @Test
+    void testExpiredNodeLeaseFallsBackToHashedNodeId() {
+        SnowFlakeSequenceGenerator generator = new SnowFlakeSequenceGenerator(5, clock(now::get));
+        generator.expectLease();
+        assertEquals(5, node(generator.nextId()));
+        assertEquals(1, generator.getHashedNodeIdFallbacks());
+
+        generator.useNodeId(9, EPOCH + 2000);
+        assertEquals(9, node(generator.nextId()));
+        assertEquals(1, generator.getHashedNodeIdFallbacks());
+        now.set(EPOCH + 2000);
+        assertEquals(5, generator.getNodeId());
+        assertEquals(5, node(generator.nextId()));
+        assertEquals(2, generator.getHashedNodeIdFallbacks());
+    }
+
+    @Test
+    void testUsedUpIdBlocksFallBackToHashedNodeId() {
+        SnowFlakeSequenceGenerator generator = new SnowFlakeSequenceGenerator(5, clock(now::get));
+        generator.expectLease();
+        AtomicLong blockIds = new AtomicLong(1L << 62);
+        generator.useIdBlocks(() -> blockIds.get() < (1L << 62) + 2 ? blockIds.getAndIncrement() : -1);
+        assertEquals(1L << 62, generator.nextId());
+        assertEquals((1L << 62) + 1, generator.nextId());
+        assertEquals(5, node(generator.nextId()));
+        assertEquals(1, generator.getHashedNodeIdFallbacks());
+    }
+
+    @Test
+    void testUniqueAcrossThreadsAtOneMillionPerSecond() throws Exception {
+        // an id reads the clock twice and the clock advances one millisecond every two thousand reads, about a million
+        // ids a second whatever the machine speed
+        AtomicLong reads = new AtomicLong();
+        SnowFlakeSequenceGenerator generator = new SnowFlakeSequenceGenerator(5, clock(() -> EPOCH + reads.getAndIncrement() / 2000));
+        assertEquals(1_000_000, generateConcurrently(generator, 8, 125_000).size());
+    }
+
+    @Test
+    void testUniqueAcrossThreadsOnSystemClock() throws Exception {
+        SnowFlakeSequenceGenerator generator = new SnowFlakeSequenceGenerator(5);
+        assertEquals(1_000_000, generateConcurrently(generator, 4, 250_000).size());
+    }
+}
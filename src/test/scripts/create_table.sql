@@ -61,3 +61,8 @@ create table t_payment
 )
 
 
+
+create index IX_t_payment_reference_id on t_payment (REFERENCE_ID)
+
+create index IX_t_payment_client_reference_number on t_payment (CLIENT_REFERENCE_NUMBER, TRANSACTION_TYPE, CREATED_TIMESTAMP)
+    include (AMOUNT, REQUEST_CHANNEL, LAST4DIGITS_OF_THE_CARD)